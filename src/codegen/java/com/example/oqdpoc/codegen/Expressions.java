@@ -0,0 +1,310 @@
+package com.example.oqdpoc.codegen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Translates the Thymeleaf standard expressions the report templates use into Java source.
+ * <p>
+ * The supported subset: variable expressions {@code ${...}} over template variables, property access (record
+ * accessors, {@code .empty} for {@code isEmpty()}), method calls without arguments, list indexing,
+ * {@code #lists.isEmpty} and {@code #lists.size}, string, number, boolean and null literals, {@code +},
+ * comparisons, {@code and}/{@code or}/{@code not} and the elvis operator. Values are compared and concatenated
+ * through {@code TemplateRuntime} with Thymeleaf's semantics; anything else fails the build.
+ */
+final class Expressions {
+
+    static final String RUNTIME = "TemplateRuntime";
+
+    /**
+     * A Java expression and whether its type is {@code boolean}.
+     */
+    record Java(String code, boolean isBoolean) {
+
+        String condition() {
+            return isBoolean ? code : RUNTIME + ".isTrue(" + code + ")";
+        }
+    }
+
+    private final String template;
+    private final String expression;
+    private final Function<String, String> variables;
+    private final List<String> tokens;
+    private int next;
+
+    private Expressions(String template, String expression, Function<String, String> variables) {
+        this.template = template;
+        this.expression = expression;
+        this.variables = variables;
+        this.tokens = tokenize(expression);
+    }
+
+    /**
+     * @param template   The template name, for error messages
+     * @param expression The attribute value, already HTML unescaped
+     * @param variables  Resolves a template variable to the Java expression holding it, or null when undefined
+     * @return the Java equivalent of the expression
+     */
+    static Java compile(String template, String expression, Function<String, String> variables) {
+        Expressions compiler = new Expressions(template, expression, variables);
+        Java java = compiler.elvis();
+        if (compiler.next < compiler.tokens.size()) {
+            throw compiler.error("unexpected '" + compiler.tokens.get(compiler.next) + "'");
+        }
+        return java;
+    }
+
+    private Java elvis() {
+        Java left = or();
+        if (accept("?:")) {
+            Java right = or();
+            return new Java(RUNTIME + ".elvis(" + left.code + ", " + right.code + ")", false);
+        }
+        return left;
+    }
+
+    private Java or() {
+        Java left = and();
+        while (accept("or") || accept("||")) {
+            left = new Java("(" + left.condition() + " || " + and().condition() + ")", true);
+        }
+        return left;
+    }
+
+    private Java and() {
+        Java left = equality();
+        while (accept("and") || accept("&&")) {
+            left = new Java("(" + left.condition() + " && " + equality().condition() + ")", true);
+        }
+        return left;
+    }
+
+    private Java equality() {
+        Java left = relational();
+        while (true) {
+            boolean negated;
+            if (accept("==") || accept("eq")) {
+                negated = false;
+            } else if (accept("!=") || accept("ne")) {
+                negated = true;
+            } else {
+                return left;
+            }
+            Java right = relational();
+            String code;
+            if (right.code.equals("null") || left.code.equals("null")) {
+                String other = right.code.equals("null") ? left.code : right.code;
+                code = "(" + other + (negated ? " != null)" : " == null)");
+            } else {
+                code = (negated ? "!" : "") + RUNTIME + ".equal(" + left.code + ", " + right.code + ")";
+            }
+            left = new Java(code, true);
+        }
+    }
+
+    private Java relational() {
+        Java left = additive();
+        String operator = switch (peek()) {
+            case ">", "gt" -> ">";
+            case "<", "lt" -> "<";
+            case ">=", "ge" -> ">=";
+            case "<=", "le" -> "<=";
+            default -> null;
+        };
+        if (operator == null) {
+            return left;
+        }
+        next++;
+        Java right = additive();
+        return new Java("(" + RUNTIME + ".compare(" + left.code + ", " + right.code + ") " + operator + " 0)", true);
+    }
+
+    private Java additive() {
+        Java left = unary();
+        while (accept("+")) {
+            left = new Java(RUNTIME + ".add(" + left.code + ", " + unary().code + ")", false);
+        }
+        if (peek().equals("-")) {
+            throw error("subtraction is not supported");
+        }
+        return left;
+    }
+
+    private Java unary() {
+        if (accept("not") || accept("!")) {
+            return new Java("!" + unary().condition(), true);
+        }
+        return postfix();
+    }
+
+    private Java postfix() {
+        Java target = primary();
+        while (true) {
+            if (accept(".")) {
+                String name = identifier();
+                if (accept("(")) {
+                    expect(")");
+                    target = new Java(target.code + "." + name + "()", false);
+                } else if (name.equals("empty")) {
+                    target = new Java(target.code + ".isEmpty()", true);
+                } else {
+                    target = new Java(target.code + "." + name + "()", false);
+                }
+            } else if (accept("[")) {
+                Java index = elvis();
+                expect("]");
+                target = new Java(target.code + ".get(" + index.code + ")", false);
+            } else {
+                return target;
+            }
+        }
+    }
+
+    private Java primary() {
+        String token = take();
+        if (token.equals("${") || token.equals("(")) {
+            Java inner = elvis();
+            expect(token.equals("${") ? "}" : ")");
+            return inner;
+        }
+        if (token.startsWith("'")) {
+            return new Java(javaString(token.substring(1, token.length() - 1).replace("\\'", "'")), false);
+        }
+        if (Character.isDigit(token.charAt(0))) {
+            return new Java(token, false);
+        }
+        if (token.equals("#")) {
+            String utility = identifier();
+            expect(".");
+            String method = identifier();
+            expect("(");
+            Java argument = elvis();
+            expect(")");
+            if (utility.equals("lists") && method.equals("isEmpty")) {
+                return new Java(RUNTIME + ".isEmpty(" + argument.code + ")", true);
+            }
+            if (utility.equals("lists") && method.equals("size")) {
+                return new Java(RUNTIME + ".size(" + argument.code + ")", false);
+            }
+            throw error("#" + utility + "." + method + " is not supported");
+        }
+        switch (token) {
+            case "null":
+                return new Java("null", false);
+            case "true", "false":
+                return new Java(token, true);
+            default:
+                if (!Character.isJavaIdentifierStart(token.charAt(0))) {
+                    throw error("unexpected '" + token + "'");
+                }
+                String variable = variables.apply(token);
+                if (variable == null) {
+                    throw error("unknown variable '" + token + "'");
+                }
+                return new Java(variable, false);
+        }
+    }
+
+    private String identifier() {
+        String token = take();
+        if (!Character.isJavaIdentifierStart(token.charAt(0))) {
+            throw error("expected a name, found '" + token + "'");
+        }
+        return token;
+    }
+
+    private boolean accept(String token) {
+        if (peek().equals(token)) {
+            next++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("expected '" + token + "'");
+        }
+    }
+
+    private String peek() {
+        return next < tokens.size() ? tokens.get(next) : "";
+    }
+
+    private String take() {
+        if (next >= tokens.size()) {
+            throw error("unexpected end of expression");
+        }
+        return tokens.get(next++);
+    }
+
+    private List<String> tokenize(String source) {
+        List<String> result = new ArrayList<>();
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'') {
+                int end = i + 1;
+                while (end < source.length() && (source.charAt(end) != '\'' || source.charAt(end - 1) == '\\')) {
+                    end++;
+                }
+                if (end >= source.length()) {
+                    throw error("unterminated string literal");
+                }
+                result.add(source.substring(i, end + 1));
+                i = end + 1;
+            } else if (source.startsWith("${", i)) {
+                result.add("${");
+                i += 2;
+            } else if ("*#@~".indexOf(c) >= 0 && source.startsWith("{", i + 1)) {
+                throw error("only ${...} expressions are supported");
+            } else if (Character.isJavaIdentifierStart(c) || Character.isDigit(c)) {
+                int end = i + 1;
+                while (end < source.length() && Character.isJavaIdentifierPart(source.charAt(end))) {
+                    end++;
+                }
+                result.add(source.substring(i, end));
+                i = end;
+            } else {
+                String two = source.substring(i, Math.min(i + 2, source.length()));
+                if (List.of("?:", "==", "!=", ">=", "<=", "&&", "||").contains(two)) {
+                    result.add(two);
+                    i += 2;
+                } else {
+                    result.add(String.valueOf(c));
+                    i++;
+                }
+            }
+        }
+        return result;
+    }
+
+    static String javaString(String value) {
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        literal.append(c);
+                    }
+                }
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(template + ": " + message + " in expression \"" + expression + "\"");
+    }
+}
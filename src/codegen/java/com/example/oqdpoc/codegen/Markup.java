@@ -0,0 +1,258 @@
+package com.example.oqdpoc.codegen;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The markup of a Thymeleaf HTML template as a tree that keeps every character of the source: the whitespace
+ * between attributes, the quotes around their values and the spelling of closing tags all survive, because
+ * Thymeleaf copies them to its output unchanged. Only parser-level comments ({@code <!--/* ... *}{@code /-->})
+ * are dropped, as Thymeleaf drops them when it reads the template.
+ * <p>
+ * Templates are expected to be well formed; anything this parser does not understand fails the build.
+ */
+final class Markup {
+
+    private static final Set<String> VOID_ELEMENTS = Set.of("area", "base", "br", "col", "embed", "hr", "img",
+            "input", "link", "meta", "param", "source", "track", "wbr");
+    private static final Set<String> RAW_TEXT_ELEMENTS = Set.of("script", "style");
+
+    sealed interface Node permits Text, Verbatim, Element {
+    }
+
+    /**
+     * Character data, as written in the template.
+     */
+    record Text(String raw) implements Node {
+
+        boolean isWhitespace() {
+            return !raw.isEmpty() && raw.chars().allMatch(Character::isWhitespace);
+        }
+    }
+
+    /**
+     * A comment, DOCTYPE or similar construct that is copied to the output as is.
+     */
+    record Verbatim(String raw) implements Node {
+    }
+
+    /**
+     * @param whitespace The whitespace in front of the attribute
+     * @param raw        The attribute as written: name, operator and quoted value
+     * @param value      The value between the quotes, still HTML escaped, or null for a bare attribute
+     * @param quote      The quote around the value, or an empty string
+     */
+    record Attribute(String whitespace, String name, String raw, String value, String quote) {
+    }
+
+    /**
+     * @param trailingWhitespace The whitespace between the last attribute and {@code >} or {@code />}
+     * @param standalone         Whether the tag ends with {@code />}
+     * @param closeTag           The closing tag as written, or null for standalone and void elements
+     */
+    record Element(String name, List<Attribute> attributes, String trailingWhitespace, boolean standalone,
+                   List<Node> children, String closeTag, int line) implements Node {
+
+        Attribute attribute(String name) {
+            for (Attribute attribute : attributes) {
+                if (attribute.name().equals(name)) {
+                    return attribute;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final String template;
+    private final String source;
+    private int pos;
+
+    private Markup(String template, String source) {
+        this.template = template;
+        this.source = source;
+    }
+
+    /**
+     * @param template The template name, for error messages
+     * @param source   The template source
+     * @return the top-level nodes of the template
+     */
+    static List<Node> parse(String template, String source) {
+        return new Markup(template, source).parseDocument();
+    }
+
+    private List<Node> parseDocument() {
+        List<Node> root = new ArrayList<>();
+        Deque<List<Node>> children = new ArrayDeque<>();
+        Deque<OpenElement> open = new ArrayDeque<>();
+        children.push(root);
+        while (pos < source.length()) {
+            if (source.startsWith("<!--", pos)) {
+                int end = indexOf("-->", pos + 4);
+                String raw = source.substring(pos, end + 3);
+                String content = raw.substring(4, raw.length() - 3);
+                pos = end + 3;
+                if (content.startsWith("/*/") || content.startsWith("/*[")) {
+                    throw error("prototype-only comments and comment blocks are not supported");
+                }
+                if (!(content.startsWith("/*") && content.endsWith("*/"))) {
+                    children.peek().add(new Verbatim(raw));
+                }
+            } else if (source.startsWith("<!", pos) || source.startsWith("<?", pos)) {
+                int end = indexOf(">", pos);
+                children.peek().add(new Verbatim(source.substring(pos, end + 1)));
+                pos = end + 1;
+            } else if (source.startsWith("</", pos)) {
+                int end = indexOf(">", pos);
+                String closeTag = source.substring(pos, end + 1);
+                String name = closeTag.substring(2, closeTag.length() - 1).strip();
+                if (open.isEmpty() || !open.peek().name.equals(name)) {
+                    throw error("unexpected closing tag " + closeTag);
+                }
+                OpenElement element = open.pop();
+                children.pop();
+                pos = end + 1;
+                children.peek().add(element.close(closeTag));
+            } else if (source.startsWith("<", pos) && pos + 1 < source.length()
+                    && Character.isLetter(source.charAt(pos + 1))) {
+                OpenElement element = parseStartTag();
+                if (element.standalone || VOID_ELEMENTS.contains(element.name)) {
+                    children.peek().add(element.close(null));
+                } else if (RAW_TEXT_ELEMENTS.contains(element.name)) {
+                    int end = indexOf("</" + element.name, pos);
+                    element.children.add(new Text(source.substring(pos, end)));
+                    pos = end;
+                    open.push(element);
+                    children.push(element.children);
+                } else {
+                    open.push(element);
+                    children.push(element.children);
+                }
+            } else {
+                int end = source.indexOf('<', pos + 1);
+                end = end < 0 ? source.length() : end;
+                String text = source.substring(pos, end);
+                if (text.contains("[[") || text.contains("[(")) {
+                    throw error("text inlining is not supported");
+                }
+                children.peek().add(new Text(text));
+                pos = end;
+            }
+        }
+        if (!open.isEmpty()) {
+            throw error("element <" + open.peek().name + "> is never closed");
+        }
+        return root;
+    }
+
+    private OpenElement parseStartTag() {
+        int line = line(pos);
+        int nameStart = ++pos;
+        while (pos < source.length() && isNameChar(source.charAt(pos))) {
+            pos++;
+        }
+        OpenElement element = new OpenElement(source.substring(nameStart, pos), line);
+        while (true) {
+            int whitespaceStart = pos;
+            while (pos < source.length() && Character.isWhitespace(source.charAt(pos))) {
+                pos++;
+            }
+            String whitespace = source.substring(whitespaceStart, pos);
+            if (source.startsWith("/>", pos)) {
+                element.trailingWhitespace = whitespace;
+                element.standalone = true;
+                pos += 2;
+                return element;
+            }
+            if (source.startsWith(">", pos)) {
+                element.trailingWhitespace = whitespace;
+                pos++;
+                return element;
+            }
+            if (whitespace.isEmpty() || pos >= source.length()) {
+                throw error("malformed start tag <" + element.name + ">");
+            }
+            element.attributes.add(parseAttribute(whitespace));
+        }
+    }
+
+    private Attribute parseAttribute(String whitespace) {
+        int start = pos;
+        while (pos < source.length() && isNameChar(source.charAt(pos))) {
+            pos++;
+        }
+        String name = source.substring(start, pos);
+        if (name.isEmpty()) {
+            throw error("malformed attribute");
+        }
+        if (!source.startsWith("=", pos)) {
+            return new Attribute(whitespace, name, name, null, "");
+        }
+        pos++;
+        String quote = "";
+        String value;
+        if (source.startsWith("\"", pos) || source.startsWith("'", pos)) {
+            quote = source.substring(pos, pos + 1);
+            int end = indexOf(quote, pos + 1);
+            value = source.substring(pos + 1, end);
+            pos = end + 1;
+        } else {
+            int valueStart = pos;
+            while (pos < source.length() && !Character.isWhitespace(source.charAt(pos))
+                    && source.charAt(pos) != '>' && !source.startsWith("/>", pos)) {
+                pos++;
+            }
+            value = source.substring(valueStart, pos);
+        }
+        return new Attribute(whitespace, name, source.substring(start, pos), value, quote);
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == ':' || c == '-' || c == '_' || c == '.';
+    }
+
+    private int indexOf(String token, int from) {
+        int index = source.indexOf(token, from);
+        if (index < 0) {
+            throw error("expected " + token);
+        }
+        return index;
+    }
+
+    private int line(int offset) {
+        int line = 1;
+        for (int i = 0; i < offset; i++) {
+            if (source.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(template + ", line " + line(Math.min(pos, source.length())) + ": "
+                + message);
+    }
+
+    private static final class OpenElement {
+        private final String name;
+        private final int line;
+        private final List<Attribute> attributes = new ArrayList<>();
+        private final List<Node> children = new ArrayList<>();
+        private String trailingWhitespace;
+        private boolean standalone;
+
+        private OpenElement(String name, int line) {
+            this.name = name;
+            this.line = line;
+        }
+
+        private Element close(String closeTag) {
+            return new Element(name, List.copyOf(attributes), trailingWhitespace, standalone, List.copyOf(children),
+                    closeTag, line);
+        }
+    }
+}
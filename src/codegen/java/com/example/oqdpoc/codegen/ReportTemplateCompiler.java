@@ -0,0 +1,525 @@
+package com.example.oqdpoc.codegen;
+
+import com.example.oqdpoc.codegen.Expressions.Java;
+import com.example.oqdpoc.codegen.Markup.Attribute;
+import com.example.oqdpoc.codegen.Markup.Element;
+import com.example.oqdpoc.codegen.Markup.Node;
+import com.example.oqdpoc.codegen.Markup.Text;
+import com.example.oqdpoc.codegen.Markup.Verbatim;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Compiles Thymeleaf report templates into Java classes at build time, run by the {@code generateReportTemplates}
+ * Gradle task. Each template becomes a class with one static {@code render} method that appends the exact
+ * output Thymeleaf would produce for the same variables to a {@code StringBuilder}: static markup as string
+ * constants, expressions as direct accessor calls.
+ * <p>
+ * Arguments: the templates directory, the output directory, the Java package, then one template per argument as
+ * {@code name: Type variable, Type variable, ...}. Templates may only use the variables they declare.
+ * <p>
+ * Supported attributes: {@code th:each} (with status variable), {@code th:if}, {@code th:unless},
+ * {@code th:switch}/{@code th:case}, {@code th:with}, {@code th:text}, {@code th:utext}, {@code th:insert} of
+ * another compiled template, and {@code th:src}, {@code th:href} and {@code th:alt}. Expressions are limited to
+ * what {@link Expressions} supports. Anything else fails the build rather than rendering differently.
+ */
+public final class ReportTemplateCompiler {
+
+    private static final String RUNTIME_IMPORT = "com.example.oqdpoc.service.template.TemplateRuntime";
+    private static final int MAX_LITERAL = 8192;
+
+    /** Attributes whose value is printed even when null, as an empty string. */
+    private static final Set<String> NON_REMOVABLE_ATTRIBUTES = Set.of("th:src", "th:href");
+    /** Attributes that are left out when their value is null or empty. */
+    private static final Set<String> REMOVABLE_ATTRIBUTES = Set.of("th:alt");
+    /**
+     * Block elements whose preceding whitespace Thymeleaf repeats between iterations, so iterated markup stays
+     * indented. Same list as Thymeleaf's own {@code TemplateModelController}.
+     */
+    private static final Set<String> ITERATION_WHITESPACE_ELEMENTS = Set.of("address", "article", "aside", "audio",
+            "blockquote", "canvas", "dd", "div", "dl", "dt", "fieldset", "figcaption", "figure", "footer", "form",
+            "h1", "h2", "h3", "h4", "h5", "h6", "header", "hgroup", "hr", "li", "main", "nav", "noscript", "ol",
+            "option", "output", "p", "pre", "section", "table", "tbody", "td", "tfoot", "th", "tr", "ul", "video");
+    /** Attributes processed before the start tag is written. */
+    private static final Set<String> STRUCTURAL_ATTRIBUTES = Set.of("th:each", "th:if", "th:unless", "th:switch",
+            "th:case", "th:with", "th:text", "th:utext", "th:insert");
+
+    private record TemplateSpec(String name, String className, Map<String, String> parameters) {
+    }
+
+    /**
+     * The Java locals of an enclosing th:switch: its value and whether a th:case matched it yet.
+     */
+    private record Switch(String value, String matched) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            throw new IllegalArgumentException(
+                    "Usage: ReportTemplateCompiler <templates dir> <output dir> <package> <template spec>...");
+        }
+        Path templates = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        String packageName = args[2];
+        Map<String, TemplateSpec> specs = new LinkedHashMap<>();
+        for (int i = 3; i < args.length; i++) {
+            TemplateSpec spec = parseSpec(args[i]);
+            specs.put(spec.name(), spec);
+        }
+
+        Path packageDir = output.resolve(packageName.replace('.', '/'));
+        if (Files.exists(output)) {
+            try (Stream<Path> stale = Files.walk(output)) {
+                for (Path path : stale.sorted((a, b) -> b.compareTo(a)).toList()) {
+                    Files.delete(path);
+                }
+            }
+        }
+        Files.createDirectories(packageDir);
+        for (TemplateSpec spec : specs.values()) {
+            String source = Files.readString(templates.resolve(spec.name() + ".html"), StandardCharsets.UTF_8);
+            List<Node> nodes = Markup.parse(spec.name(), source);
+            String java = new ReportTemplateCompiler(spec, specs).compile(packageName, nodes);
+            Files.writeString(packageDir.resolve(spec.className() + ".java"), java, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static TemplateSpec parseSpec(String spec) {
+        int colon = spec.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Template spec without ':': " + spec);
+        }
+        String name = spec.substring(0, colon).strip();
+        Map<String, String> parameters = new LinkedHashMap<>();
+        for (String parameter : splitTopLevel(spec.substring(colon + 1), ',', true)) {
+            String declaration = parameter.strip();
+            int space = declaration.lastIndexOf(' ');
+            parameters.put(declaration.substring(space + 1), declaration.substring(0, space).strip());
+        }
+        return new TemplateSpec(name, "Compiled" + Character.toUpperCase(name.charAt(0)) + name.substring(1)
+                + "Template", parameters);
+    }
+
+    private final TemplateSpec spec;
+    private final Map<String, TemplateSpec> specs;
+    private final StringBuilder code = new StringBuilder();
+    private final StringBuilder pendingText = new StringBuilder();
+    private final Deque<Map<String, String>> scopes = new ArrayDeque<>();
+    private final Map<String, Integer> javaNames = new HashMap<>();
+    private final Deque<Switch> switches = new ArrayDeque<>();
+    private int indent = 2;
+
+    private ReportTemplateCompiler(TemplateSpec spec, Map<String, TemplateSpec> specs) {
+        this.spec = spec;
+        this.specs = specs;
+    }
+
+    private String compile(String packageName, List<Node> nodes) {
+        Map<String, String> parameters = new HashMap<>();
+        spec.parameters().keySet().forEach(name -> parameters.put(name, declare(name)));
+        javaNames.put("out", 1);
+        scopes.push(parameters);
+        emitNodes(nodes);
+        flushText();
+
+        StringBuilder java = new StringBuilder();
+        java.append("package ").append(packageName).append(";\n\n");
+        if (!packageName.equals(RUNTIME_IMPORT.substring(0, RUNTIME_IMPORT.lastIndexOf('.')))) {
+            java.append("import ").append(RUNTIME_IMPORT).append(";\n\n");
+        }
+        java.append("/**\n")
+                .append(" * Generated from {@code templates/").append(spec.name())
+                .append(".html} by {@code ReportTemplateCompiler}; do not edit.\n")
+                .append(" * Renders exactly what Thymeleaf renders for the same variables.\n")
+                .append(" */\n")
+                .append("public final class ").append(spec.className()).append(" {\n\n")
+                .append("    public static final String TEMPLATE = ").append(Expressions.javaString(spec.name()))
+                .append(";\n\n")
+                .append("    private ").append(spec.className()).append("() {\n    }\n\n")
+                .append("    public static void render(");
+        spec.parameters().forEach((name, type) -> java.append(type).append(' ').append(name).append(", "));
+        java.append("StringBuilder out) {\n").append(code).append("    }\n}\n");
+        return java.toString();
+    }
+
+    private void emitNodes(List<Node> nodes) {
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            if (node instanceof Text text) {
+                pendingText.append(text.raw());
+            } else if (node instanceof Verbatim verbatim) {
+                pendingText.append(verbatim.raw());
+            } else {
+                // Thymeleaf repeats the whitespace in front of some iterated elements before every further iteration
+                String precedingWhitespace = i > 0 && nodes.get(i - 1) instanceof Text text && text.isWhitespace()
+                        ? text.raw() : null;
+                emitElement((Element) node, precedingWhitespace);
+            }
+        }
+    }
+
+    private void emitElement(Element element, String precedingWhitespace) {
+        for (Attribute attribute : element.attributes()) {
+            String name = attribute.name();
+            if (name.startsWith("th:") && !STRUCTURAL_ATTRIBUTES.contains(name)
+                    && !NON_REMOVABLE_ATTRIBUTES.contains(name) && !REMOVABLE_ATTRIBUTES.contains(name)) {
+                throw error(element, "unsupported attribute " + name);
+            }
+        }
+        Attribute each = element.attribute("th:each");
+        if (each == null) {
+            emitConditions(element);
+            return;
+        }
+        // th:each="item : ${items}" or th:each="item, status : ${items}"
+        String value = unescape(each.value());
+        int colon = topLevelIndexOf(value, ':', false);
+        if (colon < 0) {
+            throw error(element, "malformed th:each \"" + value + "\"");
+        }
+        List<String> names = splitTopLevel(value.substring(0, colon), ',', false);
+        Java iterable = expression(element, value.substring(colon + 1));
+        boolean repeatWhitespace = precedingWhitespace != null
+                && ITERATION_WHITESPACE_ELEMENTS.contains(element.name().toLowerCase(Locale.ROOT));
+        boolean counted = names.size() > 1 || repeatWhitespace;
+
+        flushText();
+        Map<String, String> scope = new HashMap<>();
+        String items = null;
+        String index = null;
+        String size = null;
+        if (counted) {
+            items = declare("items");
+            index = declare("index");
+            line("{");
+            indent++;
+            line("var " + items + " = " + Expressions.RUNTIME + ".iterable(" + iterable.code() + ");");
+            if (names.size() > 1) {
+                size = declare("size");
+                line("int " + size + " = " + Expressions.RUNTIME + ".size(" + items + ");");
+            }
+            line("int " + index + " = 0;");
+        }
+        String item = declare(names.get(0).strip());
+        scope.put(names.get(0).strip(), item);
+        line("for (var " + item + " : " + (counted ? items : Expressions.RUNTIME + ".iterable(" + iterable.code() + ")")
+                + ") {");
+        indent++;
+        if (names.size() > 1) {
+            String status = declare(names.get(1).strip());
+            scope.put(names.get(1).strip(), status);
+            line("var " + status + " = new " + Expressions.RUNTIME + ".IterationStatus(" + index + ", " + size + ");");
+        }
+        if (repeatWhitespace) {
+            line("if (" + index + " > 0) {");
+            indent++;
+            line("out.append(" + Expressions.javaString(precedingWhitespace) + ");");
+            indent--;
+            line("}");
+        }
+        if (counted) {
+            line(index + "++;");
+        }
+        scopes.push(scope);
+        emitConditions(element);
+        scopes.pop();
+        flushText();
+        indent--;
+        line("}");
+        if (counted) {
+            indent--;
+            line("}");
+        }
+    }
+
+    private void emitConditions(Element element) {
+        List<String> conditions = new ArrayList<>();
+        Attribute ifAttribute = element.attribute("th:if");
+        if (ifAttribute != null) {
+            conditions.add(expression(element, unescape(ifAttribute.value())).condition());
+        }
+        Attribute unless = element.attribute("th:unless");
+        if (unless != null) {
+            conditions.add("!" + expression(element, unescape(unless.value())).condition());
+        }
+        Attribute caseAttribute = element.attribute("th:case");
+        String matched = null;
+        if (caseAttribute != null) {
+            if (switches.isEmpty()) {
+                throw error(element, "th:case outside of th:switch");
+            }
+            Switch enclosing = switches.peek();
+            matched = enclosing.matched();
+            String value = unescape(caseAttribute.value()).strip();
+            conditions.add("!" + matched);
+            if (!value.equals("*")) {
+                conditions.add(Expressions.RUNTIME + ".equal(" + enclosing.value() + ", "
+                        + expression(element, value).code() + ")");
+            }
+        }
+        if (conditions.isEmpty()) {
+            emitScoped(element);
+            return;
+        }
+        flushText();
+        line("if (" + (conditions.size() == 1 ? unwrap(conditions.get(0)) : String.join(" && ", conditions)) + ") {");
+        indent++;
+        if (matched != null) {
+            line(matched + " = true;");
+        }
+        emitScoped(element);
+        flushText();
+        indent--;
+        line("}");
+    }
+
+    private void emitScoped(Element element) {
+        Attribute with = element.attribute("th:with");
+        Attribute switchAttribute = element.attribute("th:switch");
+        if (with == null && switchAttribute == null) {
+            emitTag(element);
+            return;
+        }
+        flushText();
+        line("{");
+        indent++;
+        // th:switch is evaluated before th:with, so it cannot see the th:with variables
+        boolean switched = switchAttribute != null;
+        if (switched) {
+            String selector = declare("switchValue");
+            String matched = declare("caseMatched");
+            line("Object " + selector + " = " + expression(element, unescape(switchAttribute.value())).code() + ";");
+            line("boolean " + matched + " = false;");
+            switches.push(new Switch(selector, matched));
+        }
+        Map<String, String> scope = new HashMap<>();
+        if (with != null) {
+            for (String assignment : splitTopLevel(unescape(with.value()), ',', false)) {
+                int equals = assignment.indexOf('=');
+                String name = assignment.substring(0, equals).strip();
+                Java value = expression(element, assignment.substring(equals + 1));
+                String javaName = declare(name);
+                line("var " + javaName + " = " + value.code() + ";");
+                scope.put(name, javaName);
+            }
+        }
+        scopes.push(scope);
+        emitTag(element);
+        if (switched) {
+            switches.pop();
+        }
+        scopes.pop();
+        flushText();
+        indent--;
+        line("}");
+    }
+
+    private void emitTag(Element element) {
+        boolean block = element.name().equals("th:block");
+        if (!block) {
+            pendingText.append('<').append(element.name());
+            for (Attribute attribute : element.attributes()) {
+                emitAttribute(element, attribute);
+            }
+            pendingText.append(element.trailingWhitespace()).append(element.standalone() ? "/>" : ">");
+        }
+
+        Attribute text = element.attribute("th:text");
+        Attribute utext = element.attribute("th:utext");
+        Attribute insert = element.attribute("th:insert");
+        if ((text != null || utext != null || insert != null) && element.closeTag() == null && !block) {
+            throw error(element, "th:text, th:utext and th:insert need an element with a body");
+        }
+        if (text != null) {
+            flushText();
+            line(Expressions.RUNTIME + ".text(out, " + expression(element, unescape(text.value())).code() + ");");
+        } else if (utext != null) {
+            flushText();
+            line(Expressions.RUNTIME + ".utext(out, " + expression(element, unescape(utext.value())).code() + ");");
+        } else if (insert != null) {
+            emitInsert(element, unescape(insert.value()).strip());
+        } else {
+            emitNodes(element.children());
+        }
+
+        if (!block && element.closeTag() != null) {
+            pendingText.append(element.closeTag());
+        }
+    }
+
+    private void emitAttribute(Element element, Attribute attribute) {
+        String name = attribute.name();
+        if (name.equals("xmlns:th") || STRUCTURAL_ATTRIBUTES.contains(name)) {
+            // Thymeleaf drops these together with the whitespace in front of them
+            return;
+        }
+        if (!name.startsWith("th:")) {
+            pendingText.append(attribute.whitespace()).append(attribute.raw());
+            return;
+        }
+        String target = name.substring(3);
+        String quote = attribute.quote().isEmpty() ? "\"" : attribute.quote();
+        Java value = expression(element, unescape(attribute.value()));
+        if (NON_REMOVABLE_ATTRIBUTES.contains(name)) {
+            pendingText.append(attribute.whitespace()).append(target).append('=').append(quote);
+            flushText();
+            line(Expressions.RUNTIME + ".text(out, " + value.code() + ");");
+            pendingText.append(quote);
+            return;
+        }
+        flushText();
+        String javaName = declare(target + "Value");
+        line("String " + javaName + " = " + Expressions.RUNTIME + ".string(" + value.code() + ");");
+        line("if (" + javaName + " != null && !" + javaName + ".isEmpty()) {");
+        indent++;
+        pendingText.append(attribute.whitespace()).append(target).append('=').append(quote);
+        flushText();
+        line(Expressions.RUNTIME + ".text(out, " + javaName + ");");
+        pendingText.append(quote);
+        flushText();
+        indent--;
+        line("}");
+    }
+
+    private void emitInsert(Element element, String fragment) {
+        if (!fragment.startsWith("~{") || !fragment.endsWith("}")) {
+            throw error(element, "th:insert only supports ~{template}");
+        }
+        TemplateSpec inserted = specs.get(fragment.substring(2, fragment.length() - 1).strip());
+        if (inserted == null) {
+            throw error(element, "th:insert of a template that is not compiled: " + fragment);
+        }
+        List<String> arguments = new ArrayList<>();
+        for (String parameter : inserted.parameters().keySet()) {
+            String variable = variable(parameter);
+            if (variable == null) {
+                throw error(element, "no variable '" + parameter + "' for inserted template " + inserted.name());
+            }
+            arguments.add(variable);
+        }
+        arguments.add("out");
+        flushText();
+        line(inserted.className() + ".render(" + String.join(", ", arguments) + ");");
+    }
+
+    private Java expression(Element element, String expression) {
+        try {
+            return Expressions.compile(spec.name(), expression.strip(), this::variable);
+        } catch (IllegalArgumentException e) {
+            throw error(element, e.getMessage());
+        }
+    }
+
+    private String variable(String name) {
+        for (Map<String, String> scope : scopes) {
+            String javaName = scope.get(name);
+            if (javaName != null) {
+                return javaName;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Picks a Java local name for a template variable; Java does not allow shadowing locals, Thymeleaf does.
+     */
+    private String declare(String name) {
+        int uses = javaNames.merge(name, 1, Integer::sum);
+        return uses == 1 ? name : name + uses;
+    }
+
+    private void flushText() {
+        for (int start = 0; start < pendingText.length(); start += MAX_LITERAL) {
+            String chunk = pendingText.substring(start, Math.min(pendingText.length(), start + MAX_LITERAL));
+            line("out.append(" + Expressions.javaString(chunk) + ");");
+        }
+        pendingText.setLength(0);
+    }
+
+    private void line(String line) {
+        code.append("    ".repeat(indent)).append(line).append('\n');
+    }
+
+    private IllegalArgumentException error(Element element, String message) {
+        return new IllegalArgumentException(spec.name() + ".html, element <" + element.name() + "> at line "
+                + element.line() + ": " + message);
+    }
+
+    /**
+     * Drops the parentheses around a whole condition, which an {@code if} already provides.
+     */
+    private static String unwrap(String condition) {
+        if (!condition.startsWith("(") || !condition.endsWith(")")) {
+            return condition;
+        }
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = 0; i < condition.length() - 1; i++) {
+            char c = condition.charAt(i);
+            if (c == '"' && condition.charAt(i - 1) != '\\') {
+                quoted = !quoted;
+            } else if (!quoted) {
+                depth += c == '(' ? 1 : c == ')' ? -1 : 0;
+            }
+            if (depth == 0) {
+                return condition;
+            }
+        }
+        return condition.substring(1, condition.length() - 1);
+    }
+
+    /**
+     * Attribute values reach Thymeleaf's expression parser HTML unescaped.
+     */
+    private static String unescape(String value) {
+        return value.replace("&gt;", ">").replace("&lt;", "<").replace("&quot;", "\"").replace("&#39;", "'")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    /**
+     * @param generics Whether angle brackets nest, as in Java types, rather than compare
+     */
+    private static int topLevelIndexOf(String value, char separator, boolean generics) {
+        int depth = 0;
+        boolean quoted = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && (c == '{' || c == '(' || c == '[' || generics && c == '<')) {
+                depth++;
+            } else if (!quoted && (c == '}' || c == ')' || c == ']' || generics && c == '>')) {
+                depth--;
+            } else if (!quoted && depth == 0 && c == separator
+                    && !(separator == ':' && i > 0 && value.charAt(i - 1) == '?')) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static List<String> splitTopLevel(String value, char separator, boolean generics) {
+        List<String> parts = new ArrayList<>();
+        String rest = value;
+        int index;
+        while ((index = topLevelIndexOf(rest, separator, generics)) >= 0) {
+            parts.add(rest.substring(0, index));
+            rest = rest.substring(index + 1);
+        }
+        parts.add(rest);
+        return parts;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.oqdpoc.benchmark;
+
+import com.example.oqdpoc.util.CustomOffsetDateTimeDeserializer;
+import com.example.oqdpoc.util.IsoLocalDateTimeDeserializer;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading 500 timestamps: job ticket timestamps with the regex and formatter chain the deserializer had, against
+ * {@link com.example.oqdpoc.util.IsoDateTimeParser}, and short work period timestamps with the Java time module's
+ * pattern, against the same parser. Run with {@code -prof gc} to compare allocations as well.
+ * <p>
+ * {@code ./gradlew jmh -PjmhArgs="DateTimeParsingBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DateTimeParsingBenchmark {
+
+    private static final int TIMESTAMPS = 500;
+
+    private ObjectMapper legacyOffset;
+    private ObjectMapper parserOffset;
+    private ObjectMapper legacyLocal;
+    private ObjectMapper parserLocal;
+    private String jobTicketTimestamps;
+    private String workOrderTimestamps;
+
+    @Setup
+    public void setUp() {
+        legacyOffset = mapper(OffsetDateTime.class, new LegacyOffsetDateTimeDeserializer());
+        parserOffset = mapper(OffsetDateTime.class, new CustomOffsetDateTimeDeserializer());
+        legacyLocal = mapper(LocalDateTime.class,
+                new LocalDateTimeDeserializer(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssXXX")));
+        parserLocal = mapper(LocalDateTime.class, new IsoLocalDateTimeDeserializer());
+
+        // The variants job tickets use, in turn; short work periods always have seconds and an offset
+        String[] suffixes = {".789+02:00", ".789Z", ".123456", ".123", ""};
+        StringBuilder jobTicket = new StringBuilder("[");
+        StringBuilder workOrder = new StringBuilder("[");
+        for (int i = 0; i < TIMESTAMPS; i++) {
+            String dateTime = LocalDateTime.of(2024, 1, 1, 0, 0).plusMinutes(i * 97L)
+                    .format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"));
+            jobTicket.append(i > 0 ? "," : "").append('"').append(dateTime).append(suffixes[i % suffixes.length])
+                    .append('"');
+            workOrder.append(i > 0 ? "," : "").append('"').append(dateTime).append("+01:00\"");
+        }
+        jobTicketTimestamps = jobTicket.append(']').toString();
+        workOrderTimestamps = workOrder.append(']').toString();
+    }
+
+    @Benchmark
+    public OffsetDateTime[] jobTicketLegacy() throws IOException {
+        return legacyOffset.readValue(jobTicketTimestamps, OffsetDateTime[].class);
+    }
+
+    @Benchmark
+    public OffsetDateTime[] jobTicketParser() throws IOException {
+        return parserOffset.readValue(jobTicketTimestamps, OffsetDateTime[].class);
+    }
+
+    @Benchmark
+    public LocalDateTime[] workOrderLegacy() throws IOException {
+        return legacyLocal.readValue(workOrderTimestamps, LocalDateTime[].class);
+    }
+
+    @Benchmark
+    public LocalDateTime[] workOrderParser() throws IOException {
+        return parserLocal.readValue(workOrderTimestamps, LocalDateTime[].class);
+    }
+
+    private static <T> ObjectMapper mapper(Class<T> type, JsonDeserializer<? extends T> deserializer) {
+        return new ObjectMapper().registerModule(new JavaTimeModule())
+                .registerModule(new SimpleModule().addDeserializer(type, deserializer));
+    }
+
+    /**
+     * {@link CustomOffsetDateTimeDeserializer} as it was before {@link com.example.oqdpoc.util.IsoDateTimeParser}.
+     */
+    static class LegacyOffsetDateTimeDeserializer extends JsonDeserializer<OffsetDateTime> {
+
+        private static final DateTimeFormatter[] FORMATTERS = {
+                DateTimeFormatter.ISO_OFFSET_DATE_TIME,
+                DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS"),
+                DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"),
+                DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")
+        };
+
+        @Override
+        public OffsetDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String dateStr = p.getText().trim();
+            if (dateStr.endsWith("Z") || dateStr.matches(".*[+-]\\d{2}:?\\d{2}$")) {
+                return OffsetDateTime.parse(dateStr, FORMATTERS[0]);
+            }
+            for (int i = 1; i < FORMATTERS.length; i++) {
+                try {
+                    return OffsetDateTime.parse(dateStr, FORMATTERS[i].withZone(ZoneOffset.UTC));
+                } catch (Exception e) {
+                    // Try next format
+                }
+            }
+            throw new IllegalArgumentException("Invalid date format: " + dateStr);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.oqdpoc.benchmark;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binding the job ticket part: every property bound, flat answers and the work order's tasks and work logs as
+ * untyped maps and lists, against the projection that skips what the report never reads. Run with
+ * {@code -prof gc} to compare allocations as well.
+ * <p>
+ * {@code ./gradlew jmh -PjmhArgs="JobTicketBindingBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JobTicketBindingBenchmark {
+
+    /**
+     * Entries in each of flat answers, tasks and work logs. The report itself has 20 sections of ten questions.
+     */
+    @Param({"10", "1000"})
+    public int extras;
+
+    private JobTicketRequestReader full;
+    private JobTicketRequestReader projection;
+    private String jobTicket;
+
+    @Setup
+    public void setUp() {
+        // As configured by Spring Boot
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        PdfRenderProperties properties = new PdfRenderProperties();
+        properties.setProjection(false);
+        full = new JobTicketRequestReader(objectMapper, properties);
+        projection = new JobTicketRequestReader(objectMapper);
+        jobTicket = jobTicket(20, extras);
+    }
+
+    @Benchmark
+    public JobTicket full() {
+        return full.readJobTicket(jobTicket);
+    }
+
+    @Benchmark
+    public JobTicket projection() {
+        return projection.readJobTicket(jobTicket);
+    }
+
+    private static String jobTicket(int sections, int extras) {
+        StringBuilder json = new StringBuilder(
+                "{\"id\": \"ticket-1\", \"userId\": \"u-1\", \"createdAt\": \"2024-03-01T09:00:00Z\", \"flatAnswers\": {");
+        for (int i = 0; i < extras; i++) {
+            json.append(i > 0 ? ", " : "").append("\"q").append(i).append("\": {\"value\": \"Answer ").append(i)
+                    .append("\", \"updatedAt\": \"2024-03-01T09:00:00Z\", \"choices\": [\"ok\", \"nok\"]}");
+        }
+        json.append("}, \"answers\": {\"title\": \"Pump inspection checklist\", \"metadata\": {\"additional\": ")
+                .append("{\"asset\": {\"designation\": \"Cooling pump\", \"partNumber\": \"PN-2231\"}, \"workOrder\": ")
+                .append("{\"workOrderNum\": \"WO-1001\", \"title\": \"Quarterly pump inspection\", \"tasks\": [");
+        for (int i = 0; i < extras; i++) {
+            json.append(i > 0 ? ", " : "").append("{\"taskId\": ").append(i)
+                    .append(", \"description\": \"Check seal ").append(i)
+                    .append("\", \"status\": \"COMP\", \"labor\": [{\"code\": \"JDOE\", \"hours\": 0.5}]}");
+        }
+        json.append("], \"worklogs\": [");
+        for (int i = 0; i < extras; i++) {
+            json.append(i > 0 ? ", " : "").append("{\"createdBy\": \"JDOE\", \"description\": \"Log entry ")
+                    .append(i).append("\", \"createdAt\": \"2024-03-01T10:00:00Z\"}");
+        }
+        json.append("], \"asset\": {\"assetNum\": \"A-1\", \"relations\": {\"parent\": \"A-0\"}}}}}, \"sections\": [");
+        for (int s = 0; s < sections; s++) {
+            json.append(s > 0 ? ", " : "").append("{\"title\": \"Section ").append(s).append("\", \"questions\": [");
+            for (int q = 0; q < 10; q++) {
+                json.append(q > 0 ? ", " : "").append("{\"title\": \"Question ").append(q)
+                        .append("\", \"type\": \"text\", \"response\": \"Measured ").append(q).append("\"}");
+            }
+            json.append("]}");
+        }
+        return json.append("]}}").toString();
+    }
+}
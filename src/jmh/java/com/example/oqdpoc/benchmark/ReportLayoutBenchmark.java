@@ -0,0 +1,83 @@
+package com.example.oqdpoc.benchmark;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.OfflineResourceResolver;
+import com.example.oqdpoc.service.PdfRenderEngine;
+import com.example.oqdpoc.service.ReportViewModelBuilder;
+import com.example.oqdpoc.service.layout.NativeReportRenderer;
+import com.example.oqdpoc.service.template.CompiledJobTicketTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole FAST report render, view model to PDF bytes: the compiled template laid out by openhtmltopdf against
+ * {@link NativeReportRenderer} drawing the same view model onto PDFBox pages. Single threaded, so the average
+ * time is the CPU cost of a render.
+ * <p>
+ * {@code ./gradlew jmh -PjmhArgs="ReportLayoutBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ReportLayoutBenchmark {
+
+    private static final LocalDateTime REPORT_DATE = LocalDateTime.of(2024, 3, 5, 14, 7);
+
+    /**
+     * Sections of ten questions each, cycling through the question types.
+     */
+    @Param({"5", "50"})
+    public int sections;
+
+    private ReportViewModelBuilder viewModelBuilder;
+    private PdfRenderEngine renderEngine;
+    private NativeReportRenderer nativeRenderer;
+    private JobTicket jobTicket;
+    private WorkOrder workOrder;
+
+    @Setup
+    public void setUp() {
+        PdfRenderProperties properties = new PdfRenderProperties();
+        OfflineResourceResolver resourceResolver = new OfflineResourceResolver(properties);
+        viewModelBuilder = new ReportViewModelBuilder();
+        renderEngine = new PdfRenderEngine(properties, resourceResolver);
+        nativeRenderer = new NativeReportRenderer(properties, viewModelBuilder, resourceResolver);
+        jobTicket = ReportTemplateBenchmark.jobTicket(sections);
+        workOrder = ReportTemplateBenchmark.workOrder();
+    }
+
+    @Benchmark
+    public byte[] html() throws IOException {
+        StringBuilder html = new StringBuilder(64 * 1024);
+        CompiledJobTicketTemplate.render(viewModelBuilder.build(jobTicket, workOrder, REPORT_DATE), null, null, null,
+                html);
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream(64 * 1024);
+        renderEngine.render(html.toString(), Profile.FAST, pdf);
+        return pdf.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] nativeLayout() {
+        return nativeRenderer.render(jobTicket, workOrder, REPORT_DATE);
+    }
+}
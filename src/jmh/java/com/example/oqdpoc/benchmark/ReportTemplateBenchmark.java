@@ -0,0 +1,201 @@
+package com.example.oqdpoc.benchmark;
+
+import com.example.oqdpoc.model.jobticket.Answers;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.jobticket.Metadata;
+import com.example.oqdpoc.model.jobticket.Question;
+import com.example.oqdpoc.model.jobticket.Section;
+import com.example.oqdpoc.model.jobticket.User;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.JobTicketTemplateService;
+import com.example.oqdpoc.service.ReportViewModelBuilder;
+import com.example.oqdpoc.service.template.CompiledJobTicketTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Template stage of a report render: the report template evaluated against the raw job ticket, as it was before
+ * {@link com.example.oqdpoc.model.report.ReportViewModel}, against building the view model and evaluating the
+ * flat template, with Thymeleaf and compiled to Java. Single threaded and CPU bound, so the average time is the CPU cost of the stage; run with
+ * {@code -prof gc} to compare allocations as well. Section fragments are not cached in either case.
+ * <p>
+ * {@code ./gradlew jmh -PjmhArgs="ReportTemplateBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportTemplateBenchmark {
+
+    private static final LocalDateTime REPORT_DATE = LocalDateTime.of(2024, 3, 5, 14, 7);
+
+    /**
+     * Sections of ten questions each, cycling through the question types.
+     */
+    @Param({"5", "50"})
+    public int sections;
+
+    private SpringTemplateEngine templateEngine;
+    private ReportViewModelBuilder viewModelBuilder;
+    private JobTicket jobTicket;
+    private WorkOrder workOrder;
+
+    @Setup
+    public void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setCacheable(true);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+        viewModelBuilder = new ReportViewModelBuilder();
+        jobTicket = jobTicket(sections);
+        workOrder = workOrder();
+    }
+
+    @Benchmark
+    public String rawModel() {
+        Context context = new Context();
+        context.setVariable("jobTicket", jobTicket);
+        context.setVariable("workOrderForReport", workOrder);
+        context.setVariable("currentDate", REPORT_DATE);
+        return templateEngine.process("legacy/jobTicket", context);
+    }
+
+    @Benchmark
+    public String viewModel() {
+        Context context = new Context();
+        context.setVariable("report", viewModelBuilder.build(jobTicket, workOrder, REPORT_DATE));
+        return templateEngine.process(JobTicketTemplateService.JOB_TICKET_TEMPLATE, context);
+    }
+
+    @Benchmark
+    public String compiled() {
+        StringBuilder html = new StringBuilder(64 * 1024);
+        CompiledJobTicketTemplate.render(viewModelBuilder.build(jobTicket, workOrder, REPORT_DATE), null, null, null,
+                html);
+        return html.toString();
+    }
+
+    static JobTicket jobTicket(int sectionCount) {
+        Metadata.WorkOrder ticketWorkOrder = new Metadata.WorkOrder();
+        ticketWorkOrder.setWorkOrderNum("WO-1001");
+        ticketWorkOrder.setTitle("Quarterly pump inspection");
+        Metadata.Asset asset = new Metadata.Asset();
+        asset.setDesignation("Cooling pump");
+        asset.setPartNumber("PN-2231");
+        asset.setSerialNumber("SN-99812");
+        Metadata.Additional additional = new Metadata.Additional();
+        additional.setWorkOrder(ticketWorkOrder);
+        additional.setAsset(asset);
+        Metadata metadata = new Metadata();
+        metadata.setAdditional(additional);
+
+        List<Section> sections = new ArrayList<>();
+        for (int s = 0; s < sectionCount; s++) {
+            List<Question> questions = new ArrayList<>();
+            for (int q = 0; q < 10; q++) {
+                questions.add(question(s, q));
+            }
+            Section section = new Section();
+            section.setTitle("Section " + s);
+            section.setDescription("Checks of group " + s);
+            section.setQuestions(questions);
+            sections.add(section);
+        }
+
+        Answers answers = new Answers();
+        answers.setTitle("Pump inspection checklist");
+        answers.setMetadata(metadata);
+        answers.setSections(sections);
+        User user = new User();
+        user.setEmail("inspector@example.com");
+        JobTicket jobTicket = new JobTicket();
+        jobTicket.setId("ticket-1");
+        jobTicket.setCreatedAt(OffsetDateTime.of(2024, 3, 1, 9, 0, 0, 0, ZoneOffset.UTC));
+        jobTicket.setUser(user);
+        jobTicket.setAnswers(answers);
+        return jobTicket;
+    }
+
+    /**
+     * Responses are the types Jackson deserializes them to.
+     */
+    private static Question question(int section, int index) {
+        Question question = new Question();
+        question.setTitle("Question " + section + "." + index);
+        question.setHint(index % 3 == 0 ? "Check the gauge first" : null);
+        switch (index % 5) {
+            case 0 -> {
+                question.setType("text");
+                question.setResponse("Within tolerance, no leaks found");
+            }
+            case 1 -> {
+                question.setType("number");
+                question.setResponse(42);
+            }
+            case 2 -> {
+                question.setType("checkbox");
+                question.setResponse(new ArrayList<>(List.of("Visual", "Pressure test")));
+            }
+            case 3 -> {
+                question.setType("signature");
+                question.setResponse(new LinkedHashMap<>(
+                        Map.of("name", "J. Doe", "role", "Inspector", "file", "iVBORw0KGgo=")));
+                question.setSignatureDate(OffsetDateTime.of(2024, 3, 1, 10, 0, 0, 0, ZoneOffset.UTC));
+            }
+            default -> {
+                question.setType("date");
+                question.setResponse("2024-03-01");
+            }
+        }
+        if (index % 4 == 0) {
+            question.setComment(true);
+            question.setCommentContent("<b>Follow up</b> next quarter");
+        }
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("unit", "bar");
+        metadata.put("station", section);
+        question.setMetadata(metadata);
+        return question;
+    }
+
+    static WorkOrder workOrder() {
+        WorkOrder workOrder = new WorkOrder();
+        workOrder.setWonum("1001");
+        workOrder.setDescription("Pump inspection");
+        workOrder.setLongDescription("Inspect pump, check seals, record pressure");
+        workOrder.setAssetNum("A-77");
+        workOrder.setWorkType("PM");
+        workOrder.setScheduledStart(LocalDateTime.of(2024, 3, 1, 8, 0));
+        workOrder.setScheduledFinish(LocalDateTime.of(2024, 3, 1, 17, 0));
+        workOrder.setCallDate(LocalDateTime.of(2024, 2, 28, 12, 0));
+        workOrder.setAnswerComplete(Boolean.TRUE);
+        return workOrder;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.oqdpoc.benchmark;
+
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding a ticket's work order in a short work period: the whole export read into a tree and every member bound
+ * and indexed, as it was, against streaming through the members up to the match. Run with {@code -prof gc} to
+ * compare allocations as well.
+ * <p>
+ * {@code ./gradlew jmh -PjmhArgs="WorkOrderLookupBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkOrderLookupBenchmark {
+
+    /**
+     * Work orders in the short work period, shaped like a Maximo export.
+     */
+    @Param({"100", "1000", "10000"})
+    public int members;
+
+    /**
+     * Where the ticket's work order is: halfway through the members, or last.
+     */
+    @Param({"middle", "last"})
+    public String position;
+
+    private JobTicketRequestReader reader;
+    private JobTicket jobTicket;
+    private String shortWorkPeriod;
+
+    @Setup
+    public void setUp() throws Exception {
+        // As configured by Spring Boot
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        reader = new JobTicketRequestReader(objectMapper);
+        int match = "last".equals(position) ? members - 1 : members / 2;
+        jobTicket = objectMapper.readValue("{\"id\": \"T1\", \"answers\": {\"metadata\": {\"additional\": "
+                + "{\"workOrder\": {\"workOrderNum\": \"" + wonum(match) + "\"}}}}}", JobTicket.class);
+        StringBuilder json = new StringBuilder("{\"member\": [");
+        for (int i = 0; i < members; i++) {
+            json.append(i > 0 ? "," : "").append(member(i));
+        }
+        shortWorkPeriod = json.append("], \"responseInfo\": {\"totalCount\": ").append(members).append("}}")
+                .toString();
+    }
+
+    @Benchmark
+    public WorkOrder tree() {
+        return reader.findWorkOrder(jobTicket, reader.readWorkOrders(shortWorkPeriod));
+    }
+
+    @Benchmark
+    public WorkOrder streaming() {
+        return reader.findWorkOrder(jobTicket, shortWorkPeriod);
+    }
+
+    private static String wonum(int i) {
+        return "WO" + (100000 + i);
+    }
+
+    private static String member(int i) {
+        // Maximo puts wonum after most other fields
+        return """
+                {"_id": "%1$d", "href": "http://maximo/api/os/mxwo/_V08xMDAwMDA-", "_translangcode": "EN",
+                 "assetnum": "A-%1$d", "description": "Quarterly inspection of pump %1$d",
+                 "description_longdescription": "Inspect the pump, check seals and bearings, record the discharge pressure and vibration levels.",
+                 "jpnum": "JP-12", "owner": "JDOE", "parent": null, "location": "PLANT-A/LINE-3",
+                 "reportedby": "MAXADMIN", "siteid": "SITE1", "status": "APPR", "status_description": "Approved",
+                 "schedstart": "2024-03-01T08:00:00+01:00", "schedfinish": "2024-03-01T17:00:00+01:00",
+                 "targstartdate": "2024-02-28T08:00:00+01:00", "targcompdate": "2024-03-02T17:00:00+01:00",
+                 "actstart": "2024-03-01T08:12:00+01:00", "actfinish": null, "worktype": "PM",
+                 "thansc": true, "woclass": "WORKORDER", "wopriority": 2,
+                 "labor": [{"laborcode": "JDOE", "hours": 4.5}, {"laborcode": "ASMITH", "hours": 2}],
+                 "wonum": "%2$s", "workorderid": %1$d}""".formatted(i, wonum(i));
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.oqdpoc.config;
 
+import com.example.oqdpoc.service.cache.CacheValueCodec;
+import com.example.oqdpoc.service.cache.CacheValueRedisSerializer;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
@@ -19,12 +21,17 @@ import java.time.Duration;
 public class DevCacheConfig {
     
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, PdfCacheProperties pdfCacheProperties) {
+        // byte[] values are stored raw (and compressed when that pays off), everything else as JSON
+        CacheValueRedisSerializer valueSerializer = new CacheValueRedisSerializer(
+            new CacheValueCodec(pdfCacheProperties.getCompression()),
+            new GenericJackson2JsonRedisSerializer());
+
         RedisCacheConfiguration cacheConfig = RedisCacheConfiguration.defaultCacheConfig()
             .entryTtl(Duration.ofHours(1))
             .disableCachingNullValues()
             .serializeValuesWith(RedisSerializationContext.SerializationPair
-                .fromSerializer(new GenericJackson2JsonRedisSerializer()));
+                .fromSerializer(valueSerializer));
 
         return RedisCacheManager.builder(redisConnectionFactory)
             .cacheDefaults(cacheConfig)
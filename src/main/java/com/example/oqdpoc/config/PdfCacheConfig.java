@@ -0,0 +1,108 @@
+package com.example.oqdpoc.config;
+
+import com.example.oqdpoc.service.RenderLease;
+import com.example.oqdpoc.service.cache.CacheEvictionListenerContainer;
+import com.example.oqdpoc.service.cache.CacheValueCodec;
+import com.example.oqdpoc.service.cache.CircuitBreakingPdfCacheStore;
+import com.example.oqdpoc.service.cache.InMemoryPdfCacheStore;
+import com.example.oqdpoc.service.cache.NearCachePdfCacheStore;
+import com.example.oqdpoc.service.cache.PdfCacheStore;
+import com.example.oqdpoc.service.cache.RedisPdfCacheStore;
+import com.example.oqdpoc.service.cache.RedisRenderLease;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.time.Duration;
+
+@Configuration
+public class PdfCacheConfig {
+    private static final Logger log = LoggerFactory.getLogger(PdfCacheConfig.class);
+
+    private static final Duration EVICTION_RESUBSCRIBE_INTERVAL = Duration.ofSeconds(5);
+
+    /**
+     * Subscriptions for near cache evictions. Idle unless the Redis store runs with a near cache.
+     */
+    @Bean
+    public RedisMessageListenerContainer pdfCacheListenerContainer(
+            ObjectProvider<RedisConnectionFactory> redisConnectionFactory) {
+        RedisMessageListenerContainer container = new CacheEvictionListenerContainer(EVICTION_RESUBSCRIBE_INTERVAL);
+        container.setConnectionFactory(redisConnectionFactory.getObject());
+        return container;
+    }
+
+    /**
+     * Selects where rendered PDFs are cached, based on {@code app.pdf.cache.store}.
+     */
+    @Bean
+    public PdfCacheStore pdfCacheStore(PdfCacheProperties properties,
+                                       ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+                                       RedisMessageListenerContainer pdfCacheListenerContainer,
+                                       CircuitBreaker pdfCacheCircuitBreaker,
+                                       MeterRegistry meterRegistry) {
+        if (properties.getStore() == PdfCacheProperties.Store.REDIS) {
+            RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+            template.setConnectionFactory(redisConnectionFactory.getObject());
+            template.setKeySerializer(RedisSerializer.string());
+            template.setValueSerializer(RedisSerializer.byteArray());
+            template.afterPropertiesSet();
+
+            CacheValueCodec codec = new CacheValueCodec(properties.getCompression());
+            // Slow or failing Redis calls open the breaker; lookups then fall through to the near cache
+            PdfCacheStore redisStore = new CircuitBreakingPdfCacheStore(
+                    new RedisPdfCacheStore(template, codec, properties.getKeyPrefix(), properties.getTtl(),
+                            (int) properties.getChunkSize().toBytes()),
+                    pdfCacheCircuitBreaker, meterRegistry);
+            log.info("Rendered PDFs cached in Redis with TTL {}, compression {}, chunks of {}",
+                    properties.getTtl(), properties.getCompression(), properties.getChunkSize());
+
+            PdfCacheProperties.NearCache nearCache = properties.getNearCache();
+            if (!nearCache.isEnabled()) {
+                return redisStore;
+            }
+            String channel = properties.getKeyPrefix() + "evictions";
+            NearCachePdfCacheStore store = new NearCachePdfCacheStore(
+                    new InMemoryPdfCacheStore(nearCache.getMaxSize().toBytes(), properties.getTtl()),
+                    redisStore, template, channel);
+            pdfCacheListenerContainer.addMessageListener(store, new ChannelTopic(channel));
+            log.info("Near cache of up to {} in front of Redis, evictions on channel {}",
+                    nearCache.getMaxSize(), channel);
+            return store;
+        }
+        log.info("Rendered PDFs cached in memory, up to {} with TTL {}", properties.getMaxSize(), properties.getTtl());
+        return new InMemoryPdfCacheStore(properties.getMaxSize().toBytes(), properties.getTtl());
+    }
+
+    /**
+     * Selects how instances agree on who renders a key: a Redis lease when {@code app.pdf.render.coalescing.cluster}
+     * is set and rendered PDFs are shared through Redis, otherwise each instance renders on its own.
+     */
+    @Bean
+    public RenderLease renderLease(PdfCacheProperties properties, PdfRenderProperties renderProperties,
+                                   ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+                                   CircuitBreaker pdfCacheCircuitBreaker) {
+        PdfRenderProperties.Coalescing coalescing = renderProperties.getCoalescing();
+        if (!coalescing.isEnabled() || !coalescing.isCluster()) {
+            return RenderLease.LOCAL;
+        }
+        if (!properties.isEnabled() || properties.getStore() != PdfCacheProperties.Store.REDIS) {
+            log.warn("Cluster-wide render coalescing needs the Redis PDF cache, coalescing per instance only");
+            return RenderLease.LOCAL;
+        }
+        StringRedisTemplate template = new StringRedisTemplate(redisConnectionFactory.getObject());
+        log.info("Renders coalesced across instances with Redis leases of up to {}", coalescing.getLeaseTtl());
+        return new RedisRenderLease(template, pdfCacheCircuitBreaker, properties.getKeyPrefix() + "lease:",
+                coalescing.getLeaseTtl());
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.oqdpoc.config;
+
+import com.example.oqdpoc.service.cache.CacheValueCodec.Compression;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for the cache of rendered PDFs, keyed by a hash of everything that goes into a render.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.pdf.cache")
+public class PdfCacheProperties {
+
+    /**
+     * Where rendered PDFs are kept.
+     */
+    public enum Store {
+        /** In-process memory, bounded by {@code max-size}. */
+        MEMORY,
+        /** The shared Redis instance, so every instance benefits from a render. */
+        REDIS
+    }
+
+    private boolean enabled = true;
+    private Store store = Store.MEMORY;
+    private Duration ttl = Duration.ofHours(24);
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+    private String keyPrefix = "pdf-cache:";
+    private String version = "1";
+    private Compression compression = Compression.DEFLATE;
+    private DataSize chunkSize = DataSize.ofKilobytes(256);
+    private Duration writeWait = Duration.ofMillis(100);
+
+    @NestedConfigurationProperty
+    private final NearCache nearCache = new NearCache();
+
+    @NestedConfigurationProperty
+    private final Fragments fragments = new Fragments();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Store getStore() {
+        return store;
+    }
+
+    public void setStore(Store store) {
+        this.store = store;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public void setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+    }
+
+    /**
+     * Mixed into every cache key. Bump it to invalidate cached PDFs after a change the key cannot see,
+     * such as different fonts.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * Redis values larger than this are split into chunks of this size.
+     */
+    public DataSize getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(DataSize chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * How long a render waits for its PDF to be stored before answering; the write then finishes in the background.
+     */
+    public Duration getWriteWait() {
+        return writeWait;
+    }
+
+    public void setWriteWait(Duration writeWait) {
+        this.writeWait = writeWait;
+    }
+
+    public NearCache getNearCache() {
+        return nearCache;
+    }
+
+    public Fragments getFragments() {
+        return fragments;
+    }
+
+    /**
+     * In-process cache in front of the Redis store. Evictions reach the other instances over Redis pub/sub.
+     */
+    public static class NearCache {
+        private boolean enabled = true;
+        private DataSize maxSize = DataSize.ofMegabytes(32);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    /**
+     * In-process cache of the rendered HTML of report sections, keyed by the content of each section. Independent
+     * of the PDF cache: a ticket that changed in one section still reuses the HTML of all others.
+     */
+    public static class Fragments {
+        private boolean enabled = true;
+        private DataSize maxSize = DataSize.ofMegabytes(16);
+        private int parallelism;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Most uncached sections of one report rendered at once; defaults to one per available processor. Sections
+         * beyond the first only run in parallel on free render slots of the bulkhead.
+         */
+        public int effectiveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+    }
+}
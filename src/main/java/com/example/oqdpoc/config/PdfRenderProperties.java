@@ -0,0 +1,466 @@
+package com.example.oqdpoc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for the long-lived PDF render engine.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.pdf.render")
+public class PdfRenderProperties {
+
+    /**
+     * Renderer configuration applied to a render when the caller doesn't pick one.
+     */
+    public enum Profile {
+        /** Fast layout, no tagging, no PDF/A conformance. */
+        FAST,
+        /** Tagged PDF/UA output with PDF/A-3u conformance. Requires embedded fonts. */
+        ACCESSIBLE
+    }
+
+    /**
+     * How the job ticket report template is evaluated. Both produce the same HTML.
+     */
+    public enum TemplateBackend {
+        /** Thymeleaf interprets the template on every render. */
+        THYMELEAF,
+        /** Java generated from the template at build time, see {@code generateReportTemplates} in build.gradle. */
+        COMPILED
+    }
+
+    /**
+     * How the job ticket report is laid out into PDF pages.
+     */
+    public enum LayoutEngine {
+        /** The report template is rendered to HTML and laid out by openhtmltopdf. Supports every profile. */
+        HTML,
+        /**
+         * The report is drawn straight onto PDFBox pages by {@code NativeReportRenderer}. {@link Profile#FAST}
+         * only; other profiles fall back to {@link #HTML}.
+         */
+        NATIVE
+    }
+
+    private Profile defaultProfile = Profile.FAST;
+    private TemplateBackend templateBackend = TemplateBackend.THYMELEAF;
+    private LayoutEngine layoutEngine = LayoutEngine.HTML;
+    private String fontsDir;
+    private String colorProfile;
+    private String producer = "oqe-pdf-service";
+    private boolean streamResponse = true;
+    private boolean projection = true;
+
+    @NestedConfigurationProperty
+    private final Resources resources = new Resources();
+
+    @NestedConfigurationProperty
+    private final Bulkhead bulkhead = new Bulkhead();
+
+    @NestedConfigurationProperty
+    private final Coalescing coalescing = new Coalescing();
+
+    @NestedConfigurationProperty
+    private final Shadow shadow = new Shadow();
+
+    @NestedConfigurationProperty
+    private final Split split = new Split();
+
+    public Profile getDefaultProfile() {
+        return defaultProfile;
+    }
+
+    public void setDefaultProfile(Profile defaultProfile) {
+        this.defaultProfile = defaultProfile;
+    }
+
+    /**
+     * Template backend for renders that don't pick one.
+     */
+    public TemplateBackend getTemplateBackend() {
+        return templateBackend;
+    }
+
+    public void setTemplateBackend(TemplateBackend templateBackend) {
+        this.templateBackend = templateBackend;
+    }
+
+    /**
+     * Layout engine for job ticket reports that don't pick one.
+     */
+    public LayoutEngine getLayoutEngine() {
+        return layoutEngine;
+    }
+
+    public void setLayoutEngine(LayoutEngine layoutEngine) {
+        this.layoutEngine = layoutEngine;
+    }
+
+    public String getFontsDir() {
+        return fontsDir;
+    }
+
+    public void setFontsDir(String fontsDir) {
+        this.fontsDir = fontsDir;
+    }
+
+    public String getColorProfile() {
+        return colorProfile;
+    }
+
+    public void setColorProfile(String colorProfile) {
+        this.colorProfile = colorProfile;
+    }
+
+    public String getProducer() {
+        return producer;
+    }
+
+    public void setProducer(String producer) {
+        this.producer = producer;
+    }
+
+    public boolean isStreamResponse() {
+        return streamResponse;
+    }
+
+    public void setStreamResponse(boolean streamResponse) {
+        this.streamResponse = streamResponse;
+    }
+
+    /**
+     * Whether job tickets are bound without the subtrees the report never reads (flat answers, work order tasks,
+     * work logs, attachments and the like). They are skipped while parsing instead of built as maps and lists.
+     */
+    public boolean isProjection() {
+        return projection;
+    }
+
+    public void setProjection(boolean projection) {
+        this.projection = projection;
+    }
+
+    public Resources getResources() {
+        return resources;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public Coalescing getCoalescing() {
+        return coalescing;
+    }
+
+    public Shadow getShadow() {
+        return shadow;
+    }
+
+    public Split getSplit() {
+        return split;
+    }
+
+    /**
+     * Where the renderer may load stylesheets, images and fonts from. Network loads are never allowed.
+     */
+    public static class Resources {
+        private String baseUri = "classpath:/static/";
+        private List<String> allowedDirs = new ArrayList<>();
+        private DataSize cacheSize = DataSize.ofMegabytes(16);
+
+        public String getBaseUri() {
+            return baseUri;
+        }
+
+        public void setBaseUri(String baseUri) {
+            this.baseUri = baseUri;
+        }
+
+        public List<String> getAllowedDirs() {
+            return allowedDirs;
+        }
+
+        public void setAllowedDirs(List<String> allowedDirs) {
+            this.allowedDirs = allowedDirs;
+        }
+
+        /**
+         * Classpath resources kept in memory; the least recently used are dropped beyond this. Files of the
+         * allowed directories are read on every render.
+         */
+        public DataSize getCacheSize() {
+            return cacheSize;
+        }
+
+        public void setCacheSize(DataSize cacheSize) {
+            this.cacheSize = cacheSize;
+        }
+    }
+
+    /**
+     * Limits on concurrent renders. Zero sizes are derived from the number of available processors.
+     */
+    public static class Bulkhead {
+        private int maxConcurrent;
+        private int queueCapacity;
+        private Duration maxWait = Duration.ofSeconds(10);
+        private boolean offload;
+
+        /**
+         * Renders allowed to run at once; defaults to one per available processor.
+         */
+        public int effectiveMaxConcurrent() {
+            return maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors();
+        }
+
+        /**
+         * Renders allowed to wait for a slot; defaults to two per concurrent slot.
+         */
+        public int effectiveQueueCapacity() {
+            return queueCapacity > 0 ? queueCapacity : 2 * effectiveMaxConcurrent();
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+
+        /**
+         * Whether admitted renders run on a dedicated pool of platform threads, one per concurrent slot,
+         * instead of the calling thread. Meant for virtual-thread request handling.
+         */
+        public boolean isOffload() {
+            return offload;
+        }
+
+        public void setOffload(boolean offload) {
+            this.offload = offload;
+        }
+    }
+
+    /**
+     * Sharing one render between identical requests, identified by their cache key.
+     */
+    public static class Coalescing {
+        private boolean enabled = true;
+        private boolean cluster;
+        private Duration leaseTtl = Duration.ofSeconds(30);
+        private Duration leaseWait = Duration.ofSeconds(20);
+        private Duration pollInterval = Duration.ofMillis(100);
+
+        /**
+         * Whether identical requests in flight on this instance wait for one render instead of rendering again.
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Whether instances also take a Redis lease per key, so only one of them renders it at a time while
+         * the others wait for the result in the shared cache. Needs the Redis cache store.
+         */
+        public boolean isCluster() {
+            return cluster;
+        }
+
+        public void setCluster(boolean cluster) {
+            this.cluster = cluster;
+        }
+
+        /**
+         * How long a lease is held at most, in case its holder dies while rendering.
+         */
+        public Duration getLeaseTtl() {
+            return leaseTtl;
+        }
+
+        public void setLeaseTtl(Duration leaseTtl) {
+            this.leaseTtl = leaseTtl;
+        }
+
+        /**
+         * How long to wait for an identical render of another request or instance before rendering anyway.
+         */
+        public Duration getLeaseWait() {
+            return leaseWait;
+        }
+
+        public void setLeaseWait(Duration leaseWait) {
+            this.leaseWait = leaseWait;
+        }
+
+        public Duration getPollInterval() {
+            return pollInterval;
+        }
+
+        public void setPollInterval(Duration pollInterval) {
+            this.pollInterval = pollInterval;
+        }
+    }
+
+    /**
+     * Laying out the sections of one large report in parallel, as separate documents merged afterwards.
+     */
+    public static class Split {
+        private boolean enabled;
+        private int parallelism;
+        private int minSectionsPerChunk = 4;
+
+        public int effectiveParallelism() {
+            return parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        }
+
+        /**
+         * Whether reports with enough sections are split into chunks laid out concurrently. Only applies to the
+         * FAST profile: merged documents are not tagged.
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Most chunks per report. 0 means one per CPU core. How many are laid out at once is bounded by the free
+         * render slots of the bulkhead.
+         */
+        public int getParallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * Fewest sections worth a chunk of their own, so small reports are laid out in one piece.
+         */
+        public int getMinSectionsPerChunk() {
+            return minSectionsPerChunk;
+        }
+
+        public void setMinSectionsPerChunk(int minSectionsPerChunk) {
+            this.minSectionsPerChunk = minSectionsPerChunk;
+        }
+    }
+
+    /**
+     * Rendering a sample of requests a second time through another pipeline, off the request path, to compare
+     * its speed and output with the one that answered.
+     */
+    public static class Shadow {
+        private boolean enabled;
+        private double sampleRate = 0.01;
+        private LayoutEngine layoutEngine;
+        private TemplateBackend templateBackend;
+        private int threads = 1;
+        private int queueCapacity = 8;
+        private int visualDiffPages = 1;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Fraction of rendered requests, between 0 and 1, that are rendered again. Cache hits are never sampled.
+         */
+        public double getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(double sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        /**
+         * Layout engine of the shadow pipeline, or null for the one the request used.
+         */
+        public LayoutEngine getLayoutEngine() {
+            return layoutEngine;
+        }
+
+        public void setLayoutEngine(LayoutEngine layoutEngine) {
+            this.layoutEngine = layoutEngine;
+        }
+
+        /**
+         * Template backend of the shadow pipeline, or null for the one the request used.
+         */
+        public TemplateBackend getTemplateBackend() {
+            return templateBackend;
+        }
+
+        public void setTemplateBackend(TemplateBackend templateBackend) {
+            this.templateBackend = templateBackend;
+        }
+
+        /**
+         * Threads rendering and comparing shadow renders.
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        /**
+         * Shadow renders waiting for a thread; samples beyond this are dropped.
+         */
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        /**
+         * Leading pages rasterized for the visual diff, 0 to only compare text.
+         */
+        public int getVisualDiffPages() {
+            return visualDiffPages;
+        }
+
+        public void setVisualDiffPages(int visualDiffPages) {
+            this.visualDiffPages = visualDiffPages;
+        }
+    }
+}
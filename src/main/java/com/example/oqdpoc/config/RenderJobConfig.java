@@ -0,0 +1,41 @@
+package com.example.oqdpoc.config;
+
+import com.example.oqdpoc.service.job.InMemoryRenderJobStore;
+import com.example.oqdpoc.service.job.RedisRenderJobStore;
+import com.example.oqdpoc.service.job.RenderJobStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@Configuration
+public class RenderJobConfig {
+    private static final Logger log = LoggerFactory.getLogger(RenderJobConfig.class);
+
+    /**
+     * Selects where render job status and results are kept, based on {@code app.pdf.jobs.store}.
+     */
+    @Bean
+    public RenderJobStore renderJobStore(RenderJobProperties properties,
+                                         ObjectProvider<RedisConnectionFactory> redisConnectionFactory,
+                                         ObjectMapper objectMapper) {
+        if (properties.getStore() == RenderJobProperties.Store.REDIS) {
+            RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+            template.setConnectionFactory(redisConnectionFactory.getObject());
+            template.setKeySerializer(RedisSerializer.string());
+            template.setValueSerializer(RedisSerializer.byteArray());
+            template.afterPropertiesSet();
+
+            log.info("Render jobs stored in Redis with TTL {}", properties.getTtl());
+            return new RedisRenderJobStore(template, objectMapper, properties.getKeyPrefix(), properties.getTtl());
+        }
+        log.info("Render jobs stored in memory, results up to {} with TTL {}", properties.getMaxSize(),
+                properties.getTtl());
+        return new InMemoryRenderJobStore(properties.getTtl(), properties.getMaxSize().toBytes());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.oqdpoc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for asynchronous render jobs: the worker pool, how long results are kept and where.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.pdf.jobs")
+public class RenderJobProperties {
+
+    /**
+     * Where job status and finished PDFs are kept until they expire.
+     */
+    public enum Store {
+        /** In-process memory. Jobs are only visible to the instance that accepted them. */
+        MEMORY,
+        /** The shared Redis instance, so any instance can answer status and result requests. */
+        REDIS
+    }
+
+    private int workers = 2;
+    private int queueCapacity = 50;
+    private Duration ttl = Duration.ofMinutes(15);
+    private DataSize maxSize = DataSize.ofMegabytes(128);
+    private Duration sseTimeout = Duration.ofMinutes(2);
+    private Store store = Store.MEMORY;
+    private String keyPrefix = "pdf-job:";
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Finished PDFs kept by the {@link Store#MEMORY} store; beyond this the least recently used are dropped
+     * before their TTL and their result is reported as expired.
+     */
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Duration getSseTimeout() {
+        return sseTimeout;
+    }
+
+    public void setSseTimeout(Duration sseTimeout) {
+        this.sseTimeout = sseTimeout;
+    }
+
+    public Store getStore() {
+        return store;
+    }
+
+    public void setStore(Store store) {
+        this.store = store;
+    }
+
+    public String getKeyPrefix() {
+        return keyPrefix;
+    }
+
+    public void setKeyPrefix(String keyPrefix) {
+        this.keyPrefix = keyPrefix;
+    }
+}
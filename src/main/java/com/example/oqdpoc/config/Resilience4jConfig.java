@@ -1,9 +1,6 @@
 package com.example.oqdpoc.config;
 
 import io.github.resilience4j.common.retry.configuration.RetryConfigCustomizer;
-import io.github.resilience4j.ratelimiter.RateLimiter;
-import io.github.resilience4j.ratelimiter.RateLimiterConfig;
-import io.github.resilience4j.ratelimiter.RateLimiterRegistry;
 import io.github.resilience4j.retry.RetryConfig;
 import io.github.resilience4j.retry.RetryRegistry;
 import io.github.resilience4j.circuitbreaker.CircuitBreaker;
@@ -11,9 +8,11 @@ import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
 import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.HttpStatus;
+import com.example.oqdpoc.exception.ApiException;
+import com.example.oqdpoc.exception.ResponseCommittedException;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
 import java.time.Duration;
 import java.util.function.Predicate;
 
@@ -23,20 +22,30 @@ public class Resilience4jConfig {
     // Retry configuration
     public static final String PDF_GENERATION_RETRY = "pdfGeneration";
     
-    // Rate limiter configuration
-    public static final String PDF_GENERATION_RATE_LIMITER = "pdfGenerationRateLimiter";
-    private static final int RATE_LIMIT_REFRESH_PERIOD_SECONDS = 60; // 1 minute window
-    private static final int RATE_LIMIT_FOR_PERIOD = 30; // 30 requests per window (increased from 10)
-    private static final int RATE_LIMIT_TIMEOUT_MILLIS = 1000; // 1 second timeout
-    
     // Circuit breaker configuration
     public static final String PDF_GENERATION_CIRCUIT_BREAKER = "pdfGenerationCircuitBreaker";
     private static final int CIRCUIT_BREAKER_SLIDING_WINDOW_SIZE = 10;
     private static final float CIRCUIT_BREAKER_FAILURE_RATE_THRESHOLD = 50.0f;
     private static final int CIRCUIT_BREAKER_WAIT_DURATION_SECONDS = 30;
+
+    // Circuit breaker around Redis calls of the rendered PDF cache
+    public static final String PDF_CACHE_CIRCUIT_BREAKER = "pdfCacheRedis";
+    private static final int PDF_CACHE_SLIDING_WINDOW_SIZE = 20;
+    private static final int PDF_CACHE_MINIMUM_CALLS = 5;
+    private static final float PDF_CACHE_FAILURE_RATE_THRESHOLD = 50.0f;
+    private static final Duration PDF_CACHE_SLOW_CALL_THRESHOLD = Duration.ofMillis(100);
+    private static final Duration PDF_CACHE_WAIT_DURATION = Duration.ofSeconds(10);
     
     // Common predicate for retry and circuit breaker
     private final Predicate<Throwable> retryAndCircuitBreakerPredicate = throwable -> {
+        // Client errors and load shedding (e.g. a full render queue) are not worth retrying
+        if (throwable instanceof ApiException) {
+            return false;
+        }
+        // A response already partly sent cannot take a second render, nor can a client that aborted
+        if (throwable instanceof ResponseCommittedException || throwable instanceof IOException) {
+            return false;
+        }
         if (throwable instanceof ResponseStatusException) {
             return ((ResponseStatusException) throwable).getStatusCode().is5xxServerError();
         }
@@ -50,6 +59,16 @@ public class Resilience4jConfig {
                         .maxAttempts(3)
                         .waitDuration(Duration.ofMillis(500))
                         .retryOnException(throwable -> {
+                            // Don't retry on rejected or invalid requests, retrying would only add load
+                            if (throwable instanceof ApiException) {
+                                return false;
+                            }
+                            // Don't retry once the response is partly sent, or on a write to a client that
+                            // aborted the request
+                            if (throwable instanceof ResponseCommittedException
+                                    || throwable instanceof IOException) {
+                                return false;
+                            }
                             // Don't retry on client errors (4xx)
                             if (throwable instanceof ResponseStatusException) {
                                 return ((ResponseStatusException) throwable).getStatusCode().is5xxServerError();
@@ -71,28 +90,6 @@ public class Resilience4jConfig {
         return RetryRegistry.of(config);
     }
     
-    /**
-     * Configures rate limiting for PDF generation endpoints
-     */
-    @Bean
-    public RateLimiterRegistry rateLimiterRegistry() {
-        RateLimiterConfig config = RateLimiterConfig.custom()
-            .limitRefreshPeriod(Duration.ofSeconds(RATE_LIMIT_REFRESH_PERIOD_SECONDS))
-            .limitForPeriod(RATE_LIMIT_FOR_PERIOD)
-            .timeoutDuration(Duration.ofMillis(RATE_LIMIT_TIMEOUT_MILLIS))
-            .build();
-            
-        return RateLimiterRegistry.of(config);
-    }
-    
-    /**
-     * Creates a rate limiter instance for PDF generation
-     */
-    @Bean
-    public RateLimiter pdfGenerationRateLimiter(RateLimiterRegistry rateLimiterRegistry) {
-        return rateLimiterRegistry.rateLimiter(PDF_GENERATION_RATE_LIMITER);
-    }
-    
     /**
      * Configures circuit breaker for PDF generation
      */
@@ -116,4 +113,25 @@ public class Resilience4jConfig {
     public CircuitBreaker pdfGenerationCircuitBreaker(CircuitBreakerRegistry circuitBreakerRegistry) {
         return circuitBreakerRegistry.circuitBreaker(PDF_GENERATION_CIRCUIT_BREAKER);
     }
+
+    /**
+     * Creates the circuit breaker around Redis calls of the rendered PDF cache. Failures and slow calls both
+     * count, so a Redis that hangs opens the breaker just like one that refuses connections. Unreadable
+     * values (IllegalArgumentException) are not Redis' fault and are ignored.
+     */
+    @Bean
+    public CircuitBreaker pdfCacheCircuitBreaker(CircuitBreakerRegistry circuitBreakerRegistry) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+            .slidingWindowSize(PDF_CACHE_SLIDING_WINDOW_SIZE)
+            .minimumNumberOfCalls(PDF_CACHE_MINIMUM_CALLS)
+            .failureRateThreshold(PDF_CACHE_FAILURE_RATE_THRESHOLD)
+            .slowCallDurationThreshold(PDF_CACHE_SLOW_CALL_THRESHOLD)
+            .slowCallRateThreshold(PDF_CACHE_FAILURE_RATE_THRESHOLD)
+            .waitDurationInOpenState(PDF_CACHE_WAIT_DURATION)
+            .recordExceptions(Exception.class)
+            .ignoreExceptions(IllegalArgumentException.class)
+            .build();
+
+        return circuitBreakerRegistry.circuitBreaker(PDF_CACHE_CIRCUIT_BREAKER, config);
+    }
 }
@@ -0,0 +1,92 @@
+package com.example.oqdpoc.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.NestedConfigurationProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for short work periods uploaded once and referenced by render requests, and for the summary report
+ * over all their work orders.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.pdf.work-periods")
+public class WorkPeriodProperties {
+
+    private Duration ttl = Duration.ofHours(12);
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    @NestedConfigurationProperty
+    private final Summary summary = new Summary();
+
+    /**
+     * How long an uploaded short work period is kept. Uploading it again starts the time over.
+     */
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    /**
+     * Total size of the uploaded JSON kept, beyond which the least recently used short work periods are dropped.
+     * Also the largest upload accepted. The parsed work orders take up to about 3.5 times this in heap.
+     */
+    public DataSize getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(DataSize maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public Summary getSummary() {
+        return summary;
+    }
+
+    /**
+     * The summary report of every work order in a short work period, which can run to thousands of pages.
+     */
+    public static class Summary {
+        private DataSize scratchMemory = DataSize.ofMegabytes(4);
+        private String scratchDir;
+        private int maxConcurrent = 2;
+
+        /**
+         * Page content a summary keeps in the heap; the rest goes to a scratch file until the PDF is written out.
+         */
+        public DataSize getScratchMemory() {
+            return scratchMemory;
+        }
+
+        public void setScratchMemory(DataSize scratchMemory) {
+            this.scratchMemory = scratchMemory;
+        }
+
+        /**
+         * Directory of the scratch files. Empty means the JVM's temp directory.
+         */
+        public String getScratchDir() {
+            return scratchDir;
+        }
+
+        public void setScratchDir(String scratchDir) {
+            this.scratchDir = scratchDir;
+        }
+
+        /**
+         * Summaries drawn at once, each while its upload arrives. Further calls are refused with 503.
+         */
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+    }
+}
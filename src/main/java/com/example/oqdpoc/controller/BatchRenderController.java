@@ -0,0 +1,166 @@
+package com.example.oqdpoc.controller;
+
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.exception.InvalidRequestException;
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.example.oqdpoc.service.PdfRenderEngine;
+import com.example.oqdpoc.service.batch.BatchRenderService;
+import com.example.oqdpoc.service.batch.BatchRenderService.ManifestEntry;
+import com.example.oqdpoc.service.batch.MergedBatch;
+import com.example.oqdpoc.service.workperiod.WorkPeriodRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders many job tickets in one call and streams the PDFs back as a ZIP, or merged into a single PDF.
+ */
+@RestController
+@RequestMapping("/api/pdf/batch")
+public class BatchRenderController {
+    private static final Logger log = LoggerFactory.getLogger(BatchRenderController.class);
+
+    public static final String APPLICATION_ZIP_VALUE = "application/zip";
+    private static final String ZIP_FILENAME = "job-tickets.zip";
+    private static final String MERGED_FILENAME = "job-tickets.pdf";
+    public static final String SUCCEEDED_HEADER = "X-Batch-Succeeded";
+    public static final String FAILED_HEADER = "X-Batch-Failed";
+
+    private final BatchRenderService batchRenderService;
+    private final JobTicketRequestReader jobTicketRequestReader;
+    private final WorkPeriodRegistry workPeriodRegistry;
+    private final PdfRenderEngine pdfRenderEngine;
+
+    public BatchRenderController(
+            BatchRenderService batchRenderService,
+            JobTicketRequestReader jobTicketRequestReader,
+            WorkPeriodRegistry workPeriodRegistry,
+            PdfRenderEngine pdfRenderEngine) {
+        this.batchRenderService = batchRenderService;
+        this.jobTicketRequestReader = jobTicketRequestReader;
+        this.workPeriodRegistry = workPeriodRegistry;
+        this.pdfRenderEngine = pdfRenderEngine;
+    }
+
+    /**
+     * Renders a batch of Job Tickets against one shared Short Work Period into a ZIP of PDFs
+     *
+     * @param jobTicketsJson      Required JSON array of job tickets
+     * @param shortWorkPeriodJson Optional JSON string containing the short work period data shared by all tickets
+     * @param workPeriodId        Optional id of a short work period uploaded to /api/pdf/work-periods, instead of
+     *                            the shortWorkPeriod part
+     * @param profile             Optional render profile (FAST or ACCESSIBLE), defaults to the configured profile
+     * @param response            The servlet response the ZIP is streamed into
+     */
+    @PostMapping(produces = APPLICATION_ZIP_VALUE, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public void renderBatch(
+            @RequestPart("jobTickets") String jobTicketsJson,
+            @RequestPart(value = "shortWorkPeriod", required = false) String shortWorkPeriodJson,
+            @RequestParam(value = "workPeriodId", required = false) String workPeriodId,
+            @RequestParam(value = "profile", required = false) Profile profile,
+            HttpServletResponse response) throws IOException {
+
+        pdfRenderEngine.requireAvailable(profile);
+        List<JsonNode> jobTickets = jobTicketRequestReader.readJobTicketArray(jobTicketsJson);
+        Map<String, WorkOrder> workOrders = readWorkOrders(shortWorkPeriodJson, workPeriodId);
+        log.debug("Batch request with {} job tickets and {} work orders", jobTickets.size(), workOrders.size());
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(APPLICATION_ZIP_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(ZIP_FILENAME).build().toString());
+        try {
+            batchRenderService.renderZip(jobTickets, workOrders, profile, response.getOutputStream());
+            response.flushBuffer();
+        } catch (IOException | RuntimeException e) {
+            // Nothing reached the client yet: drop the ZIP headers so the error handler can answer with JSON
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Renders a batch of Job Tickets against one shared Short Work Period and merges them, in request order,
+     * into one PDF with a bookmark per ticket and global page numbers. Tickets that fail to render are left out
+     * and counted in the {@value #FAILED_HEADER} header.
+     *
+     * @param jobTicketsJson      Required JSON array of job tickets
+     * @param shortWorkPeriodJson Optional JSON string containing the short work period data shared by all tickets
+     * @param workPeriodId        Optional id of a short work period uploaded to /api/pdf/work-periods, instead of
+     *                            the shortWorkPeriod part
+     * @param profile             Optional render profile (FAST or ACCESSIBLE), defaults to the configured profile
+     * @param response            The servlet response the PDF is streamed into
+     */
+    @PostMapping(value = "/merged", produces = MediaType.APPLICATION_PDF_VALUE,
+            consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public void renderMerged(
+            @RequestPart("jobTickets") String jobTicketsJson,
+            @RequestPart(value = "shortWorkPeriod", required = false) String shortWorkPeriodJson,
+            @RequestParam(value = "workPeriodId", required = false) String workPeriodId,
+            @RequestParam(value = "profile", required = false) Profile profile,
+            HttpServletResponse response) throws IOException {
+
+        pdfRenderEngine.requireAvailable(profile);
+        List<JsonNode> jobTickets = jobTicketRequestReader.readJobTicketArray(jobTicketsJson);
+        Map<String, WorkOrder> workOrders = readWorkOrders(shortWorkPeriodJson, workPeriodId);
+        log.debug("Merged batch request with {} job tickets and {} work orders", jobTickets.size(), workOrders.size());
+
+        try (MergedBatch batch = batchRenderService.renderMerged(jobTickets, workOrders, profile)) {
+            if (batch.getSucceededCount() == 0) {
+                throw new PdfGenerationException("None of the " + jobTickets.size()
+                        + " job tickets could be rendered" + firstError(batch.getManifest()));
+            }
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename(MERGED_FILENAME).build().toString());
+            response.setHeader(SUCCEEDED_HEADER, String.valueOf(batch.getSucceededCount()));
+            response.setHeader(FAILED_HEADER, String.valueOf(batch.getFailedCount()));
+            try {
+                batch.writeTo(response.getOutputStream());
+                response.flushBuffer();
+            } catch (IOException | RuntimeException e) {
+                if (!response.isCommitted()) {
+                    response.reset();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * The work orders of the short work period sent along, or of the uploaded one the request refers to.
+     */
+    private Map<String, WorkOrder> readWorkOrders(String shortWorkPeriodJson, String workPeriodId) {
+        if (workPeriodId == null) {
+            return jobTicketRequestReader.readWorkOrders(shortWorkPeriodJson);
+        }
+        if (shortWorkPeriodJson != null) {
+            throw new InvalidRequestException("Send either the shortWorkPeriod part or a workPeriodId, not both");
+        }
+        return workPeriodRegistry.getWorkOrders(workPeriodId);
+    }
+
+    private static String firstError(List<ManifestEntry> manifest) {
+        return manifest.stream()
+                .map(ManifestEntry::error)
+                .filter(error -> error != null)
+                .findFirst()
+                .map(error -> ", first error: " + error)
+                .orElse("");
+    }
+}
@@ -4,13 +4,19 @@ import com.example.oqdpoc.model.jobticket.JobTicket;
 import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 
+import com.example.oqdpoc.exception.InvalidRequestException;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.example.oqdpoc.service.JobTicketTemplateService;
 import com.example.oqdpoc.service.PdfGenerationService;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.core.io.ClassPathResource;
+import com.example.oqdpoc.service.PdfRenderEngine;
+import com.example.oqdpoc.service.RenderBulkhead;
+import com.example.oqdpoc.service.RenderCoalescer;
+import com.example.oqdpoc.service.cache.RenderedPdfCache;
+import com.example.oqdpoc.service.layout.NativeReportRenderer;
+import com.example.oqdpoc.service.shadow.ShadowRenderService;
+import com.example.oqdpoc.service.shadow.ShadowRenderService.Pipeline;
+import com.example.oqdpoc.service.workperiod.WorkPeriodRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
@@ -19,35 +25,68 @@ import org.springframework.http.MediaType;
 import static org.springframework.http.MediaType.APPLICATION_PDF_VALUE;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
+import org.w3c.dom.Document;
 import org.springframework.web.bind.annotation.*;
-import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
+import jakarta.servlet.http.HttpServletResponse;
 import io.github.resilience4j.retry.annotation.Retry;
 import com.example.oqdpoc.config.Resilience4jConfig;
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.LayoutEngine;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.config.PdfRenderProperties.TemplateBackend;
 
-import java.util.Base64;
-import java.util.Collections;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 import java.time.format.DateTimeFormatter;
 @RestController
 @RequestMapping("/api/pdf")
 public class PdfController {
     private static final Logger log = LoggerFactory.getLogger(PdfController.class);
     private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-    private static final String LOGO_CLASSPATH = "static/images/thales-logo.png";
+    private static final Pattern CACHE_KEY = Pattern.compile("[0-9a-f]{64}");
 
     private final PdfGenerationService pdfGenerationService;
-    private final TemplateEngine templateEngine;
-    private final ObjectMapper objectMapper;
+    private final JobTicketTemplateService jobTicketTemplateService;
+    private final PdfRenderProperties pdfRenderProperties;
+    private final PdfResponseWriter pdfResponseWriter;
+    private final JobTicketRequestReader jobTicketRequestReader;
+    private final RenderBulkhead renderBulkhead;
+    private final RenderedPdfCache renderedPdfCache;
+    private final RenderCoalescer renderCoalescer;
+    private final NativeReportRenderer nativeReportRenderer;
+    private final ShadowRenderService shadowRenderService;
+    private final WorkPeriodRegistry workPeriodRegistry;
+    private final PdfRenderEngine pdfRenderEngine;
     public PdfController(
             PdfGenerationService pdfGenerationService,
-            TemplateEngine templateEngine,
-            ObjectMapper objectMapper) {
+            JobTicketTemplateService jobTicketTemplateService,
+            PdfRenderProperties pdfRenderProperties,
+            PdfResponseWriter pdfResponseWriter,
+            JobTicketRequestReader jobTicketRequestReader,
+            RenderBulkhead renderBulkhead,
+            RenderedPdfCache renderedPdfCache,
+            RenderCoalescer renderCoalescer,
+            NativeReportRenderer nativeReportRenderer,
+            ShadowRenderService shadowRenderService,
+            WorkPeriodRegistry workPeriodRegistry,
+            PdfRenderEngine pdfRenderEngine) {
         this.pdfGenerationService = pdfGenerationService;
-        this.templateEngine = templateEngine;
-        this.objectMapper = objectMapper;
+        this.jobTicketTemplateService = jobTicketTemplateService;
+        this.pdfRenderProperties = pdfRenderProperties;
+        this.pdfResponseWriter = pdfResponseWriter;
+        this.jobTicketRequestReader = jobTicketRequestReader;
+        this.renderBulkhead = renderBulkhead;
+        this.renderedPdfCache = renderedPdfCache;
+        this.renderCoalescer = renderCoalescer;
+        this.nativeReportRenderer = nativeReportRenderer;
+        this.shadowRenderService = shadowRenderService;
+        this.workPeriodRegistry = workPeriodRegistry;
+        this.pdfRenderEngine = pdfRenderEngine;
     }
 
     /**
@@ -65,136 +104,217 @@ public class PdfController {
     }
 
     /**
-     * Creates a PDF response based on the accept header
+     * Creates a PDF response in the negotiated format
      *
-     * @param pdfBytes     The PDF content as bytes
-     * @param base64Images List of base64-encoded images
-     * @param acceptHeader The Accept header from the request
-     * @return ResponseEntity containing either the PDF or a JSON response
+     * @param pdfBytes The PDF content as bytes
+     * @param format   The negotiated response format
+     * @param eTag     The entity tag of the response
+     * @param response The servlet response, written to directly for JSON and multipart/mixed
+     * @return ResponseEntity containing the PDF, or null when the response was written directly
      */
-    private ResponseEntity<?> createPdfResponse(byte[] pdfBytes, List<String> base64Images, String acceptHeader) {
-        try {
-            log.debug("Preparing response. Accept header: {}", acceptHeader);
-            boolean preferJson = StringUtils.hasText(acceptHeader) &&
-                    acceptHeader.contains(MediaType.APPLICATION_JSON_VALUE);
-
-            if (preferJson) {
-                log.debug("Creating JSON response with base64-encoded PDF");
-                String base64Pdf = Base64.getEncoder().encodeToString(pdfBytes);
-                Map<String, Object> response = Map.of(
-                        "status", "success",
-                        "imageCount", base64Images.size(),
-                        "pdfBase64", base64Pdf
-                );
-                log.debug("JSON response prepared successfully");
-                return ResponseEntity.ok()
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .body(response);
-            } else {
-                log.debug("Creating PDF response");
-                HttpHeaders headers = new HttpHeaders();
-                headers.setContentType(MediaType.APPLICATION_PDF);
-                headers.setContentDispositionFormData("inline", "job-ticket.pdf");
-                headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
-                headers.setContentLength(pdfBytes.length);
-                log.debug("Response headers set. Content-Length: {}", pdfBytes.length);
-                return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
-            }
-        } catch (Exception e) {
-            log.error("Error creating response: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to create response: " + e.getMessage(), e);
+    private ResponseEntity<?> createPdfResponse(byte[] pdfBytes, PdfResponseWriter.Format format, String eTag,
+                                                HttpServletResponse response) throws IOException {
+        if (format != PdfResponseWriter.Format.PDF) {
+            // The writer keeps the envelope byte for byte stable, as the ETag requires
+            pdfResponseWriter.write(format, out -> out.write(pdfBytes), 0, eTag, response);
+            return null;
         }
+        log.debug("Creating PDF response");
+        HttpHeaders headers = pdfResponseWriter.createPdfHeaders();
+        headers.setContentLength(pdfBytes.length);
+        headers.setETag(eTag);
+        headers.setVary(List.of(HttpHeaders.ACCEPT));
+        log.debug("Response headers set. Content-Length: {}", pdfBytes.length);
+        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
     }
 
-
        /**
-     * Renders a Job Ticket with optional Short Work Period details into a PDF document
+     * Renders a Job Ticket with optional Short Work Period details into a PDF document.
+     * <p>
+     * Renders are deterministic, so each response carries a strong ETag derived from the inputs. A matching
+     * If-None-Match is answered with 304 without rendering, and repeated requests are served from the cache.
+     * A sample of the renders may be repeated in the background through a shadow pipeline, see
+     * {@link ShadowRenderService}. A failed render is retried only while nothing of the response has been sent.
      *
      * @param jobTicketJson       Required JSON string containing the job ticket data
      * @param shortWorkPeriodJson Optional JSON string containing the short work period data
+     * @param workPeriodId        Optional id of a short work period uploaded to /api/pdf/work-periods, instead of
+     *                            the shortWorkPeriod part
      * @param acceptHeader        Optional Accept header to determine response format
-     * @return ResponseEntity containing either the PDF bytes or a JSON response with base64-encoded PDF
+     * @param ifNoneMatch         Optional If-None-Match header with previously received ETags
+     * @param profile             Optional render profile (FAST or ACCESSIBLE), defaults to the configured profile
+     * @param templateBackend     Optional template backend (THYMELEAF or COMPILED), defaults to the configured one
+     * @param layoutEngine        Optional layout engine (HTML or NATIVE), defaults to the configured one. NATIVE
+     *                            only applies to the FAST profile
+     * @param response            The servlet response, written to directly when streaming output
+     * @return ResponseEntity containing either the PDF bytes or a JSON response with base64-encoded PDF,
+     *         or null when the PDF (raw, JSON or multipart/mixed) was streamed straight into the response
      */
     @PostMapping(
             value = "/render-job-ticket-short-work-period",
-            produces = {APPLICATION_PDF_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = {APPLICATION_PDF_VALUE, MediaType.APPLICATION_JSON_VALUE, PdfResponseWriter.MULTIPART_MIXED_VALUE},
             consumes = MediaType.MULTIPART_FORM_DATA_VALUE
     )
     @Retry(name = Resilience4jConfig.PDF_GENERATION_RETRY)
-    @RateLimiter(name = Resilience4jConfig.PDF_GENERATION_RATE_LIMITER)
     public ResponseEntity<?> renderJobTicketAndWorkOrders(
             @RequestPart("jobTicket") String jobTicketJson,
             @RequestPart(value = "shortWorkPeriod", required = false) String shortWorkPeriodJson,
-            @RequestHeader(value = "Accept", required = false) String acceptHeader) {
+            @RequestParam(value = "workPeriodId", required = false) String workPeriodId,
+            @RequestHeader(value = "Accept", required = false) String acceptHeader,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestParam(value = "profile", required = false) Profile profile,
+            @RequestParam(value = "templateBackend", required = false) TemplateBackend templateBackend,
+            @RequestParam(value = "layoutEngine", required = false) LayoutEngine layoutEngine,
+            HttpServletResponse response) throws IOException {
 
-        // 1. Parse JobTicket JSON
+        pdfRenderEngine.requireAvailable(profile);
+        // Parse the job ticket and find the work order it refers to
         JobTicket jobTicket;
         try {
-            jobTicket = objectMapper.readValue(jobTicketJson, JobTicket.class);
-            log.debug("Successfully parsed JobTicket with ID: {}", jobTicket.getId());
-        } catch (JsonProcessingException e) {
-            log.error("Failed to parse jobTicket JSON: {}", e.getMessage());
-            return createErrorResponse("Invalid jobTicket JSON: " + e.getMessage());
+            jobTicket = jobTicketRequestReader.readJobTicket(jobTicketJson);
+        } catch (InvalidRequestException e) {
+            return createErrorResponse(e.getMessage());
         }
-
-        // 2. Parse optional WorkOrders JSON if provided
-        List<WorkOrder> workOrders = new ArrayList<>();
-        if (StringUtils.hasText(shortWorkPeriodJson)) {
-            try {
-                JsonNode rootNode = objectMapper.readTree(shortWorkPeriodJson);
-                JsonNode memberNode = rootNode.path("member");
-                if (memberNode.isArray()) {
-                    for (JsonNode node : memberNode) {
-                        WorkOrder workOrder = objectMapper.treeToValue(node, WorkOrder.class);
-                        workOrders.add(workOrder);
-                    }
-                    log.debug("Successfully parsed {} work orders", workOrders.size());
-                }
-            } catch (JsonProcessingException e) {
-                log.warn("Failed to parse work orders JSON, continuing without it: {}", e.getMessage());
-                // Continue without work orders data as it's optional
+        WorkOrder workOrderForReport;
+        if (workPeriodId != null) {
+            if (shortWorkPeriodJson != null) {
+                return createErrorResponse("Send either the shortWorkPeriod part or a workPeriodId, not both");
             }
+            // Uploaded once and already indexed
+            workOrderForReport = jobTicketRequestReader.findWorkOrder(jobTicket,
+                    workPeriodRegistry.getWorkOrders(workPeriodId));
         } else {
-            log.debug("No work orders data provided");
+            workOrderForReport = jobTicketRequestReader.findWorkOrder(jobTicket, shortWorkPeriodJson);
         }
 
-        // Find the work order that matches the job ticket's work order number
-        WorkOrder workOrderForReport = workOrders.stream()
-            .filter(workOrder -> workOrder.getWonum()
-                .equals(jobTicket.getAnswers().getMetadata().getAdditional().getWorkOrder().getWorkOrderNum()))
-            .findFirst()
-            .orElse(null);
-
-        // Create Thymeleaf context and add variables
-        Context context = new Context();
-        context.setVariable("jobTicket", jobTicket);
-        context.setVariable("workOrderForReport", workOrderForReport);
-        
-        // Load logo from classpath and embed as data URL for portability
-        try {
-            ClassPathResource logoResource = new ClassPathResource(LOGO_CLASSPATH);
-            if (logoResource.exists()) {
-                try (java.io.InputStream in = logoResource.getInputStream()) {
-                    byte[] bytes = in.readAllBytes();
-                    String base64 = Base64.getEncoder().encodeToString(bytes);
-                    String dataUrl = "data:image/png;base64," + base64;
-                    context.setVariable("logoUrl", dataUrl);
-                }
-            } else {
-                log.warn("Logo resource not found on classpath: {}", LOGO_CLASSPATH);
-            }
-        } catch (Exception e) {
-            log.warn("Failed to load logo from classpath: {}", e.getMessage());
+        // Everything the render depends on is known now, and so is the ETag of the result. The template backend
+        // is not part of it: both backends render the same HTML. The layout engine is, as it draws other pages
+        LocalDateTime reportDate = jobTicketTemplateService.resolveReportDate(jobTicket);
+        LayoutEngine engine = nativeReportRenderer.handles(layoutEngine, profile) ? LayoutEngine.NATIVE
+                : LayoutEngine.HTML;
+        String cacheKey = renderedPdfCache.key(jobTicket, workOrderForReport, profile, reportDate, engine);
+        PdfResponseWriter.Format format = pdfResponseWriter.negotiate(acceptHeader);
+        String eTag = pdfResponseWriter.eTag(cacheKey, format);
+        if (matchesETag(ifNoneMatch, eTag)) {
+            log.debug("PDF {} not modified", eTag);
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        Optional<byte[]> cached = renderedPdfCache.find(cacheKey);
+        if (cached.isPresent()) {
+            log.debug("Serving PDF {} from cache", eTag);
+            return createPdfResponse(cached.get(), format, eTag, response);
         }
-        context.setVariable("currentDate", java.time.LocalDateTime.now());
 
-        // Process the template with the data
-        String html = templateEngine.process("jobTicket", context);
+        if (pdfRenderProperties.isStreamResponse()) {
+            // Identical requests in flight share one render. The request that renders streams the PDF (or its
+            // envelope) straight to its client; the others are answered from the copy it keeps for the cache
+            AtomicBoolean streamed = new AtomicBoolean();
+            byte[] pdfBytes = renderCoalescer.render(cacheKey, () -> renderBulkhead.call(() -> stream(jobTicket,
+                    workOrderForReport, reportDate, profile, templateBackend, engine, cacheKey, format, eTag,
+                    response, streamed)));
+            return streamed.get() ? null : createPdfResponse(pdfBytes, format, eTag, response);
+        }
+
+        // Identical requests in flight share one render. Template and PDF layout are CPU bound: only run them
+        // once the bulkhead admits the request
+        byte[] pdfBytes = renderCoalescer.render(cacheKey, () -> renderBulkhead.call(
+                () -> render(jobTicket, workOrderForReport, reportDate, profile, templateBackend, engine, cacheKey)));
+        return createPdfResponse(pdfBytes, format, eTag, response);
+    }
+
+    /**
+     * Renders straight into the response. A copy of the PDF is only kept when the cache, identical requests
+     * waiting for this render or a shadow render need one.
+     *
+     * @return the PDF, or null when no copy was kept
+     */
+    private byte[] stream(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate,
+                          Profile profile, TemplateBackend templateBackend, LayoutEngine engine, String cacheKey,
+                          PdfResponseWriter.Format format, String eTag, HttpServletResponse response,
+                          AtomicBoolean streamed) throws IOException {
+        long start = System.nanoTime();
+        PdfResponseWriter.PdfBody body;
+        if (engine == LayoutEngine.NATIVE) {
+            body = out -> nativeReportRenderer.write(jobTicket, workOrderForReport, reportDate, out);
+        } else {
+            Document document = jobTicketTemplateService.renderDocument(jobTicket, workOrderForReport, reportDate,
+                    templateBackend);
+            body = out -> pdfGenerationService.writePdf(document, profile, out);
+        }
+        boolean shadow = shadowRenderService.sample();
+        streamed.set(true);
+        if (!shadow && !renderedPdfCache.isEnabled() && !renderCoalescer.isEnabled()) {
+            pdfResponseWriter.write(format, body, 0, eTag, response);
+            return null;
+        }
+        ByteArrayOutputStream copy = new ByteArrayOutputStream();
+        pdfResponseWriter.write(format, out -> body.writeTo(new TeeOutputStream(out, copy)), 0, eTag, response);
+        byte[] pdfBytes = copy.toByteArray();
+        renderedPdfCache.put(cacheKey, pdfBytes);
+        if (shadow) {
+            shadowRenderService.submit(jobTicket, workOrderForReport, reportDate, profile,
+                    new Pipeline(engine, templateBackend), pdfBytes, System.nanoTime() - start);
+        }
+        return pdfBytes;
+    }
 
-        // Generate PDF using the service
-        byte[] pdfBytes = pdfGenerationService.generatePdfWithWorkOrder(html);
+    private byte[] render(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate,
+                          Profile profile, TemplateBackend templateBackend, LayoutEngine engine, String cacheKey) {
+        long start = System.nanoTime();
+        byte[] pdfBytes;
+        if (engine == LayoutEngine.NATIVE) {
+            pdfBytes = nativeReportRenderer.render(jobTicket, workOrderForReport, reportDate);
+        } else {
+            // Stream the template output straight into the renderer's DOM
+            Document document = jobTicketTemplateService.renderDocument(jobTicket, workOrderForReport, reportDate,
+                    templateBackend);
+
+            // Generate PDF using the service
+            pdfBytes = pdfGenerationService.generatePdf(document, profile);
+        }
+        long nanos = System.nanoTime() - start;
+        renderedPdfCache.put(cacheKey, pdfBytes);
+        if (shadowRenderService.sample()) {
+            shadowRenderService.submit(jobTicket, workOrderForReport, reportDate, profile,
+                    new Pipeline(engine, templateBackend), pdfBytes, nanos);
+        }
+        return pdfBytes;
+    }
+
+    /**
+     * Drops a rendered PDF from the cache, on every instance when the cache is shared, so the next request
+     * renders it again. Useful when a PDF was rendered under conditions its key cannot see, such as a missing font.
+     *
+     * @param key The cache key, which is the ETag of the PDF response without its quotes
+     * @return 204 No Content, or 400 when the key is malformed
+     */
+    @DeleteMapping("/cache/{key}")
+    public ResponseEntity<?> evictCachedPdf(@PathVariable String key) {
+        if (!CACHE_KEY.matcher(key).matches()) {
+            return createErrorResponse("Cache key must be the 64 hex digit ETag of a PDF response");
+        }
+        renderedPdfCache.evict(key);
+        log.info("Evicted cached PDF {}", key);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Weak comparison as required for If-None-Match: a W/ prefix on either tag is ignored.
+     */
+    private static boolean matchesETag(String ifNoneMatch, String eTag) {
+        if (!StringUtils.hasText(ifNoneMatch)) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(stripWeak(eTag))) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        // Return the PDF as a response
-        return createPdfResponse(pdfBytes, Collections.emptyList(), acceptHeader);
+    private static String stripWeak(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
     }
-}
\ No newline at end of file
+}
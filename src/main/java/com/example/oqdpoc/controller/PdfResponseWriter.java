@@ -0,0 +1,227 @@
+package com.example.oqdpoc.controller;
+
+import com.example.oqdpoc.exception.ResponseCommittedException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes rendered PDFs directly into the servlet response in one of the supported formats,
+ * without ever materializing the PDF (or its base64 form) as an intermediate array or String.
+ */
+@Component
+public class PdfResponseWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfResponseWriter.class);
+
+    public static final String MULTIPART_MIXED_VALUE = "multipart/mixed";
+    private static final String PDF_FILENAME = "job-ticket.pdf";
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Response representations a client can negotiate through the Accept header.
+     */
+    public enum Format {
+        /** Raw application/pdf body. */
+        PDF,
+        /** JSON envelope carrying the PDF as a base64 string. */
+        JSON,
+        /** multipart/mixed with a JSON metadata part followed by the raw PDF part. */
+        MULTIPART
+    }
+
+    /**
+     * Source of the PDF bytes, written into whatever stream the chosen format provides.
+     */
+    @FunctionalInterface
+    public interface PdfBody {
+        void writeTo(OutputStream outputStream) throws IOException;
+    }
+
+    private final ObjectMapper objectMapper;
+
+    public PdfResponseWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Picks the response format from the Accept header. multipart/mixed wins over JSON, which wins over PDF.
+     */
+    public Format negotiate(String acceptHeader) {
+        if (!StringUtils.hasText(acceptHeader)) {
+            return Format.PDF;
+        }
+        if (acceptHeader.contains(MULTIPART_MIXED_VALUE)) {
+            return Format.MULTIPART;
+        }
+        if (acceptHeader.contains(MediaType.APPLICATION_JSON_VALUE)) {
+            return Format.JSON;
+        }
+        return Format.PDF;
+    }
+
+    /**
+     * Writes the PDF into the response in the given format. If writing fails before anything was committed,
+     * the response is reset so the regular error handling can still answer with a JSON error. Once committed,
+     * the failure is thrown as a {@link ResponseCommittedException}, which is neither answered nor retried.
+     *
+     * @param format     The negotiated response format
+     * @param body       Writes the PDF bytes
+     * @param imageCount Number of images reported in the JSON metadata
+     * @param response   The servlet response to write to
+     */
+    public void write(Format format, PdfBody body, int imageCount, HttpServletResponse response) throws IOException {
+        write(format, body, imageCount, null, response);
+    }
+
+    /**
+     * Writes the PDF into the response in the given format, tagged with a strong ETag. The body must be
+     * the same bytes whenever the ETag is; the multipart boundary is then derived from the ETag as well.
+     *
+     * @param format     The negotiated response format
+     * @param body       Writes the PDF bytes
+     * @param imageCount Number of images reported in the JSON metadata
+     * @param eTag       The entity tag of this representation, see {@link #eTag(String, Format)}, or null
+     * @param response   The servlet response to write to
+     */
+    public void write(Format format, PdfBody body, int imageCount, String eTag, HttpServletResponse response)
+            throws IOException {
+        log.debug("Streaming {} response", format);
+        response.setStatus(HttpStatus.OK.value());
+        if (eTag != null) {
+            response.setHeader(HttpHeaders.ETAG, eTag);
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        try {
+            switch (format) {
+                case JSON -> writeJson(body, imageCount, response);
+                case MULTIPART -> writeMultipart(body, imageCount, eTag, response);
+                default -> writePdf(body, response);
+            }
+            response.flushBuffer();
+        } catch (IOException | RuntimeException e) {
+            if (response.isCommitted()) {
+                throw new ResponseCommittedException(e);
+            }
+            response.reset();
+            throw e;
+        }
+    }
+
+    /**
+     * Strong entity tag of one representation of a rendered PDF. Each format gets its own tag,
+     * since the bytes on the wire differ.
+     *
+     * @param contentKey The content key of the rendered PDF
+     * @param format     The response format
+     */
+    public String eTag(String contentKey, Format format) {
+        return format == Format.PDF
+                ? "\"" + contentKey + "\""
+                : "\"" + contentKey + "-" + format.name().toLowerCase(Locale.ROOT) + "\"";
+    }
+
+    /**
+     * Headers shared by every raw PDF response.
+     */
+    public HttpHeaders createPdfHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setContentDispositionFormData("inline", PDF_FILENAME);
+        headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+        return headers;
+    }
+
+    private void writePdf(PdfBody body, HttpServletResponse response) throws IOException {
+        createPdfHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        body.writeTo(response.getOutputStream());
+    }
+
+    private void writeJson(PdfBody body, int imageCount, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        OutputStream out = response.getOutputStream();
+
+        // Flushes must not reach the servlet stream, or the response would commit before the render succeeds
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(StreamUtils.nonClosing(out))
+                .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)) {
+            generator.writeStartObject();
+            generator.writeStringField("status", "success");
+            generator.writeNumberField("imageCount", imageCount);
+            generator.writeFieldName("pdfBase64");
+            generator.writeRawValue("\"");
+            generator.flush();
+
+            // Base64 output only uses JSON-safe characters, so it can go straight into the string value
+            try (OutputStream encoder = Base64.getEncoder().wrap(StreamUtils.nonClosing(out))) {
+                body.writeTo(encoder);
+            }
+
+            generator.writeRaw('"');
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeMultipart(PdfBody body, int imageCount, String eTag, HttpServletResponse response)
+            throws IOException {
+        // Under an ETag the body must be byte for byte repeatable, so the boundary cannot be random
+        String boundary = eTag != null
+                ? deriveBoundary(eTag)
+                : MimeTypeUtils.generateMultipartBoundaryString();
+        response.setContentType(MULTIPART_MIXED_VALUE + "; boundary=" + boundary);
+        OutputStream out = response.getOutputStream();
+        byte[] delimiter = ("--" + boundary).getBytes(StandardCharsets.US_ASCII);
+
+        Map<String, Object> metadata = new LinkedHashMap<>();
+        metadata.put("status", "success");
+        metadata.put("imageCount", imageCount);
+        metadata.put("contentType", MediaType.APPLICATION_PDF_VALUE);
+        metadata.put("filename", PDF_FILENAME);
+
+        out.write(delimiter);
+        out.write(CRLF);
+        writePartHeader(out, HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        out.write(CRLF);
+        out.write(objectMapper.writeValueAsBytes(metadata));
+        out.write(CRLF);
+
+        out.write(delimiter);
+        out.write(CRLF);
+        writePartHeader(out, HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_PDF_VALUE);
+        writePartHeader(out, HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + PDF_FILENAME + "\"");
+        out.write(CRLF);
+        body.writeTo(StreamUtils.nonClosing(out));
+        out.write(CRLF);
+
+        out.write(delimiter);
+        out.write("--".getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+
+    private static String deriveBoundary(String eTag) {
+        // Boundaries are limited to 70 characters
+        String tag = eTag.replaceAll("[^A-Za-z0-9]", "");
+        return "pdf-" + tag.substring(0, Math.min(tag.length(), 60));
+    }
+
+    private void writePartHeader(OutputStream out, String name, String value) throws IOException {
+        out.write((name + ": " + value).getBytes(StandardCharsets.US_ASCII));
+        out.write(CRLF);
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.oqdpoc.controller;
+
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.config.RenderJobProperties;
+import com.example.oqdpoc.exception.InvalidRequestException;
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.exception.RenderJobNotFoundException;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.renderjob.RenderJobState;
+import com.example.oqdpoc.model.renderjob.RenderJobStatus;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.example.oqdpoc.service.PdfRenderEngine;
+import com.example.oqdpoc.service.job.RenderJobService;
+import com.example.oqdpoc.service.workperiod.WorkPeriodRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.function.Consumer;
+
+import static org.springframework.http.MediaType.APPLICATION_PDF_VALUE;
+
+/**
+ * Asynchronous variant of the job ticket render: submit returns a job id right away, the PDF is
+ * rendered on a bounded worker pool and can be fetched once the job has finished.
+ */
+@RestController
+@RequestMapping("/api/pdf/jobs")
+public class RenderJobController {
+    private static final Logger log = LoggerFactory.getLogger(RenderJobController.class);
+
+    private static final String STATUS_EVENT = "status";
+
+    private final RenderJobService renderJobService;
+    private final JobTicketRequestReader jobTicketRequestReader;
+    private final PdfResponseWriter pdfResponseWriter;
+    private final RenderJobProperties renderJobProperties;
+    private final WorkPeriodRegistry workPeriodRegistry;
+    private final PdfRenderEngine pdfRenderEngine;
+
+    public RenderJobController(
+            RenderJobService renderJobService,
+            JobTicketRequestReader jobTicketRequestReader,
+            PdfResponseWriter pdfResponseWriter,
+            RenderJobProperties renderJobProperties,
+            WorkPeriodRegistry workPeriodRegistry,
+            PdfRenderEngine pdfRenderEngine) {
+        this.renderJobService = renderJobService;
+        this.jobTicketRequestReader = jobTicketRequestReader;
+        this.pdfResponseWriter = pdfResponseWriter;
+        this.renderJobProperties = renderJobProperties;
+        this.workPeriodRegistry = workPeriodRegistry;
+        this.pdfRenderEngine = pdfRenderEngine;
+    }
+
+    /**
+     * Queues a Job Ticket render with optional Short Work Period details
+     *
+     * @param jobTicketJson       Required JSON string containing the job ticket data
+     * @param shortWorkPeriodJson Optional JSON string containing the short work period data
+     * @param workPeriodId        Optional id of a short work period uploaded to /api/pdf/work-periods, instead of
+     *                            the shortWorkPeriod part
+     * @param profile             Optional render profile (FAST or ACCESSIBLE), defaults to the configured profile
+     * @return 202 Accepted with the job status and its location
+     */
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<RenderJobStatus> submit(
+            @RequestPart("jobTicket") String jobTicketJson,
+            @RequestPart(value = "shortWorkPeriod", required = false) String shortWorkPeriodJson,
+            @RequestParam(value = "workPeriodId", required = false) String workPeriodId,
+            @RequestParam(value = "profile", required = false) Profile profile) {
+
+        pdfRenderEngine.requireAvailable(profile);
+        JobTicket jobTicket = jobTicketRequestReader.readJobTicket(jobTicketJson);
+        WorkOrder workOrderForReport;
+        if (workPeriodId != null) {
+            if (shortWorkPeriodJson != null) {
+                throw new InvalidRequestException("Send either the shortWorkPeriod part or a workPeriodId, not both");
+            }
+            workOrderForReport = jobTicketRequestReader.findWorkOrder(jobTicket,
+                    workPeriodRegistry.getWorkOrders(workPeriodId));
+        } else {
+            workOrderForReport = jobTicketRequestReader.findWorkOrder(jobTicket, shortWorkPeriodJson);
+        }
+
+        RenderJobStatus status = renderJobService.submit(jobTicket, workOrderForReport, profile);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{jobId}")
+                .buildAndExpand(status.getId())
+                .toUri();
+        return ResponseEntity.accepted().location(location).body(status);
+    }
+
+    /**
+     * Returns the current status of a job
+     */
+    @GetMapping(value = "/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public RenderJobStatus status(@PathVariable String jobId) {
+        return renderJobService.getStatus(jobId);
+    }
+
+    /**
+     * Streams status changes as server-sent events until the job finishes. Jobs running on another
+     * instance only get their current status, after which the stream closes and clients should poll.
+     */
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String jobId) {
+        SseEmitter emitter = new SseEmitter(renderJobProperties.getSseTimeout().toMillis());
+        StatusEventSender sender = new StatusEventSender(emitter);
+
+        RenderJobService.Subscription subscription = renderJobService.subscribe(jobId, sender);
+        Runnable unsubscribe = () -> renderJobService.unsubscribe(jobId, sender);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+
+        sender.accept(subscription.current());
+        if (!subscription.live()) {
+            sender.complete();
+        }
+        return emitter;
+    }
+
+    /**
+     * Returns the rendered PDF once the job has succeeded, honouring the same Accept options as the
+     * synchronous endpoint. Unfinished jobs answer 202 with their status.
+     */
+    @GetMapping(
+            value = "/{jobId}/result",
+            produces = {APPLICATION_PDF_VALUE, MediaType.APPLICATION_JSON_VALUE, PdfResponseWriter.MULTIPART_MIXED_VALUE}
+    )
+    public ResponseEntity<RenderJobStatus> result(
+            @PathVariable String jobId,
+            @RequestHeader(value = "Accept", required = false) String acceptHeader,
+            HttpServletResponse response) throws IOException {
+
+        RenderJobStatus status = renderJobService.getStatus(jobId);
+        if (!status.isTerminal()) {
+            return ResponseEntity.accepted().contentType(MediaType.APPLICATION_JSON).body(status);
+        }
+        if (status.getState() == RenderJobState.FAILED) {
+            throw new PdfGenerationException("Render job " + jobId + " failed: " + status.getError());
+        }
+
+        byte[] pdf = renderJobService.getResult(jobId).orElseThrow(() -> new RenderJobNotFoundException(jobId));
+        pdfResponseWriter.write(pdfResponseWriter.negotiate(acceptHeader), out -> out.write(pdf), 0, response);
+        return null;
+    }
+
+    /**
+     * Forwards status snapshots to one SSE client, dropping stale or duplicate states and
+     * closing the stream after the terminal one.
+     */
+    private static final class StatusEventSender implements Consumer<RenderJobStatus> {
+        private final SseEmitter emitter;
+        private int lastOrdinal = -1;
+        private boolean completed;
+
+        private StatusEventSender(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public synchronized void accept(RenderJobStatus status) {
+            if (completed || status.getState().ordinal() <= lastOrdinal) {
+                return;
+            }
+            lastOrdinal = status.getState().ordinal();
+            try {
+                emitter.send(SseEmitter.event().name(STATUS_EVENT).id(status.getState().name()).data(status));
+                if (status.isTerminal()) {
+                    complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Closing event stream of job {}: {}", status.getId(), e.getMessage());
+                completed = true;
+                emitter.completeWithError(e);
+            }
+        }
+
+        private synchronized void complete() {
+            if (!completed) {
+                completed = true;
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.oqdpoc.controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Keeps a copy of everything written through to the target stream.
+ */
+final class TeeOutputStream extends FilterOutputStream {
+
+    private final ByteArrayOutputStream copy;
+
+    TeeOutputStream(OutputStream out, ByteArrayOutputStream copy) {
+        super(out);
+        this.copy = copy;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        copy.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        copy.write(b, off, len);
+    }
+}
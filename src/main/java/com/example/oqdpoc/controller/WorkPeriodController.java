@@ -0,0 +1,113 @@
+package com.example.oqdpoc.controller;
+
+import com.example.oqdpoc.exception.WorkPeriodNotFoundException;
+import com.example.oqdpoc.service.layout.WorkPeriodSummaryRenderer;
+import com.example.oqdpoc.service.layout.WorkPeriodSummaryRenderer.Summary;
+import com.example.oqdpoc.service.workperiod.WorkPeriodRegistry;
+import com.example.oqdpoc.service.workperiod.WorkPeriodRegistry.Registration;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.LocalDateTime;
+
+/**
+ * Uploads short work periods once, for render requests to refer to by id instead of sending them along, and
+ * renders the summary of all work orders in a short work period.
+ */
+@RestController
+@RequestMapping("/api/pdf/work-periods")
+public class WorkPeriodController {
+    private static final Logger log = LoggerFactory.getLogger(WorkPeriodController.class);
+
+    private static final String SUMMARY_FILENAME = "work-period-summary.pdf";
+
+    private final WorkPeriodRegistry workPeriodRegistry;
+    private final WorkPeriodSummaryRenderer workPeriodSummaryRenderer;
+
+    public WorkPeriodController(
+            WorkPeriodRegistry workPeriodRegistry,
+            WorkPeriodSummaryRenderer workPeriodSummaryRenderer) {
+        this.workPeriodRegistry = workPeriodRegistry;
+        this.workPeriodSummaryRenderer = workPeriodSummaryRenderer;
+    }
+
+    /**
+     * Parses and keeps a short work period. Uploading one that is already kept only extends how long it is kept.
+     * Bodies larger than {@code app.pdf.work-periods.max-size} are refused without reading them in full.
+     *
+     * @param shortWorkPeriodJson The short work period JSON as the request body
+     * @param contentLength       The declared length of the body, if any
+     * @return 201 Created with the registration and its location; its id is the SHA-256 of the body
+     */
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Registration> upload(
+            InputStream shortWorkPeriodJson,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength)
+            throws IOException {
+        Registration registration = workPeriodRegistry.register(shortWorkPeriodJson,
+                contentLength != null ? contentLength : -1);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(registration.id())
+                .toUri();
+        return ResponseEntity.created(location).body(registration);
+    }
+
+    /**
+     * Describes a kept short work period, so clients can check for it before uploading
+     */
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Registration get(@PathVariable String id) {
+        return workPeriodRegistry.find(id).orElseThrow(() -> new WorkPeriodNotFoundException(id));
+    }
+
+    /**
+     * Drops a short work period
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> delete(@PathVariable String id) {
+        workPeriodRegistry.evict(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Renders a summary of every work order in a short work period: one table row each, and a count by status.
+     * The body is read as it arrives and rows are laid out as they are read, so memory use does not grow with
+     * the number of work orders. Summaries have slots of their own rather than holding a render slot for as long
+     * as the upload takes.
+     *
+     * @param shortWorkPeriodJson The short work period JSON as the request body
+     * @param response            The servlet response the PDF is written into
+     */
+    @PostMapping(value = "/summary", produces = MediaType.APPLICATION_PDF_VALUE,
+            consumes = MediaType.APPLICATION_JSON_VALUE)
+    public void renderSummary(InputStream shortWorkPeriodJson, HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_PDF_VALUE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(SUMMARY_FILENAME).build().toString());
+        try {
+            Summary summary = workPeriodSummaryRenderer.write(shortWorkPeriodJson, LocalDateTime.now(),
+                    response.getOutputStream());
+            log.debug("Work period summary of {} work orders, {} pages", summary.workOrders(), summary.pages());
+            response.flushBuffer();
+        } catch (IOException | RuntimeException e) {
+            // Nothing reached the client yet: drop the PDF headers so the error handler can answer with JSON
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+}
@@ -62,6 +62,39 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, headers, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
+    @ExceptionHandler(ApiException.class)
+    public ResponseEntity<Map<String, Object>> handleApiException(ApiException ex) {
+        log.warn("API error {}: {}", ex.getErrorCode(), ex.getMessage());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        if (ex instanceof RenderQueueFullException queueFull) {
+            headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(queueFull.getRetryAfterSeconds()));
+        }
+
+        return new ResponseEntity<>(createApiErrorBody(ex), headers, ex.getStatus());
+    }
+
+    private Map<String, Object> createApiErrorBody(ApiException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        body.put("status", ex.getStatus().value());
+        body.put("error", ex.getStatus().getReasonPhrase());
+        body.put("code", ex.getErrorCode());
+        body.put("message", ex.getMessage());
+        return body;
+    }
+
+    /**
+     * Part of the response already reached the client, so no error body can follow it. Rethrown so the
+     * container aborts the connection rather than ending a truncated body as if it were complete.
+     */
+    @ExceptionHandler(ResponseCommittedException.class)
+    public void handleResponseCommitted(ResponseCommittedException ex) {
+        log.warn("Response aborted after it was committed: {}", ex.getCause().getMessage());
+        throw ex;
+    }
+
     @ExceptionHandler(MaxUploadSizeExceededException.class)
     public ResponseEntity<Map<String, Object>> handleMaxSizeException(MaxUploadSizeExceededException ex) {
         log.warn("File size limit exceeded: {}", ex.getMessage());
@@ -0,0 +1,13 @@
+package com.example.oqdpoc.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when a render asks for a profile this instance is not set up for, such as {@code ACCESSIBLE} without
+ * fonts to embed.
+ */
+public class ProfileUnavailableException extends ApiException {
+    public ProfileUnavailableException(String message) {
+        super(HttpStatus.UNPROCESSABLE_ENTITY, "PROFILE_UNAVAILABLE", message);
+    }
+}
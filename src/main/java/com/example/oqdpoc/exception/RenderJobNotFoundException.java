@@ -0,0 +1,9 @@
+package com.example.oqdpoc.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class RenderJobNotFoundException extends ApiException {
+    public RenderJobNotFoundException(String jobId) {
+        super(HttpStatus.NOT_FOUND, "RENDER_JOB_NOT_FOUND", "Render job not found or expired: " + jobId);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.oqdpoc.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when a render cannot be admitted because all render slots are busy and the wait queue is full.
+ * Carries a hint for the client's {@code Retry-After} header.
+ */
+public class RenderQueueFullException extends ApiException {
+    private final long retryAfterSeconds;
+
+    public RenderQueueFullException(String message, long retryAfterSeconds) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "RENDER_QUEUE_FULL", message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
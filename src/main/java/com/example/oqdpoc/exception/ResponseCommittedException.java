@@ -0,0 +1,12 @@
+package com.example.oqdpoc.exception;
+
+/**
+ * Thrown when writing a response fails after part of it already reached the client. Neither an error body nor
+ * a retry can be sent on that response any more; the connection is aborted instead.
+ */
+public class ResponseCommittedException extends RuntimeException {
+
+    public ResponseCommittedException(Throwable cause) {
+        super("Response failed after it was committed: " + cause.getMessage(), cause);
+    }
+}
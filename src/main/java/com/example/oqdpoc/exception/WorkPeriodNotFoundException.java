@@ -0,0 +1,10 @@
+package com.example.oqdpoc.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class WorkPeriodNotFoundException extends ApiException {
+    public WorkPeriodNotFoundException(String workPeriodId) {
+        super(HttpStatus.NOT_FOUND, "WORK_PERIOD_NOT_FOUND",
+                "Short work period not found or expired, upload it again: " + workPeriodId);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.oqdpoc.model.renderjob;
+
+/**
+ * Lifecycle of an asynchronous render job.
+ */
+public enum RenderJobState {
+    QUEUED,
+    RENDERING_TEMPLATE,
+    RENDERING_PDF,
+    SUCCEEDED,
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == SUCCEEDED || this == FAILED;
+    }
+}
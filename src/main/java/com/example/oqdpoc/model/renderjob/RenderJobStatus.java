@@ -0,0 +1,114 @@
+package com.example.oqdpoc.model.renderjob;
+
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of an asynchronous render job as returned to clients and kept in the job store.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class RenderJobStatus {
+    private String id;
+    private RenderJobState state;
+    private Profile profile;
+    private Instant submittedAt;
+    private Instant startedAt;
+    private Instant completedAt;
+    private Long sizeBytes;
+    private String error;
+
+    public RenderJobStatus() {
+    }
+
+    public RenderJobStatus(String id, Profile profile, Instant submittedAt) {
+        this.id = id;
+        this.state = RenderJobState.QUEUED;
+        this.profile = profile;
+        this.submittedAt = submittedAt;
+    }
+
+    /**
+     * Returns a copy, so published snapshots are never changed by the worker that owns the job.
+     */
+    public RenderJobStatus copy() {
+        RenderJobStatus copy = new RenderJobStatus(id, profile, submittedAt);
+        copy.state = state;
+        copy.startedAt = startedAt;
+        copy.completedAt = completedAt;
+        copy.sizeBytes = sizeBytes;
+        copy.error = error;
+        return copy;
+    }
+
+    @JsonIgnore
+    public boolean isTerminal() {
+        return state != null && state.isTerminal();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public RenderJobState getState() {
+        return state;
+    }
+
+    public void setState(RenderJobState state) {
+        this.state = state;
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(Profile profile) {
+        this.profile = profile;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(Instant submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(Instant startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public Long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(Long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
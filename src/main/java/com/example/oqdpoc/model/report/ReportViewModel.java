@@ -0,0 +1,90 @@
+package com.example.oqdpoc.model.report;
+
+import java.util.List;
+
+/**
+ * Everything the job ticket report prints, resolved once in Java so the templates only bind flat fields.
+ * Dates are already formatted, missing values that the report shows as a dash already are {@code "—"}, and
+ * questions hidden from the report are left out. Built by
+ * {@link com.example.oqdpoc.service.ReportViewModelBuilder}.
+ *
+ * @param title             The checklist title, or null
+ * @param reportDate        The report date as printed in the page header
+ * @param checklistId       The job ticket ID
+ * @param workOrderNum      The number of the work order the checklist was filled for, or null
+ * @param workOrderTitle    The title of that work order, or null
+ * @param createdAt         When the job ticket was created, or null
+ * @param author            The email address of the author, or null
+ * @param assetDesignation  The designation of the inspected asset, or null
+ * @param assetPartNumber   The part number of the inspected asset
+ * @param assetSerialNumber The serial number of the inspected asset
+ * @param workOrder         The matched short work period work order, or null
+ * @param sections          The checklist sections, in report order
+ */
+public record ReportViewModel(String title, String reportDate, String checklistId, String workOrderNum,
+                              String workOrderTitle, String createdAt, String author, String assetDesignation,
+                              String assetPartNumber, String assetSerialNumber, WorkOrderView workOrder,
+                              List<SectionView> sections) {
+
+    /**
+     * The matched work order. Named after the {@link com.example.oqdpoc.model.shortworkperiod.WorkOrder} fields.
+     */
+    public record WorkOrderView(String wonum, String description, List<String> workDetails, String assetNum,
+                                String workType, String vendor, String scheduledStart, String scheduledFinish,
+                                String n1n9, String and, String callDate, String cfto, String additionalDescription,
+                                String amountCompletedPlan, String answerComplete, String answerDate,
+                                String answerFrom, String answerTo, String operationDefinition) {
+    }
+
+    /**
+     * A checklist section. Also the input of the section fragment cache, so it holds exactly what the section
+     * template prints.
+     */
+    public record SectionView(String title, String description, List<QuestionView> questions) {
+    }
+
+    /**
+     * A question and its response. Only the fields of its {@link ResponseKind} are set; lists are never null.
+     *
+     * @param text        The {@link ResponseKind#TEXT} response, or null when there is none
+     * @param paragraph   Whether the text response keeps its line breaks
+     * @param choices     The {@link ResponseKind#CHOICE} selections
+     * @param signature   The {@link ResponseKind#SIGNATURE} response
+     * @param files       The {@link ResponseKind#FILE} links
+     * @param commentHtml The comment, as HTML, or null
+     */
+    public record QuestionView(String title, String hint, ResponseKind kind, String text, boolean paragraph,
+                               List<String> choices, SignatureView signature, List<FileLink> files,
+                               String commentHtml, List<String> attachments, List<MetadataEntry> metadata) {
+    }
+
+    /**
+     * How a response is printed, derived from the question type.
+     */
+    public enum ResponseKind {
+        /** Text, number and date questions. */
+        TEXT,
+        /** Multiple choice and checkbox questions. */
+        CHOICE,
+        SIGNATURE,
+        /** File questions that have a response. */
+        FILE,
+        /** Anything else: only the comment, attachments and metadata are printed. */
+        NONE
+    }
+
+    /**
+     * @param image The signature image as a data URL, or null
+     */
+    public record SignatureView(String name, String role, String signedAt, String image) {
+    }
+
+    /**
+     * @param size The size as printed, for example {@code (12 KB)}, or null
+     */
+    public record FileLink(String name, String url, String size) {
+    }
+
+    public record MetadataEntry(String key, String value) {
+    }
+}
@@ -1,7 +1,8 @@
 package com.example.oqdpoc.model.shortworkperiod;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
+import com.example.oqdpoc.util.IsoLocalDateTimeDeserializer;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import java.time.LocalDateTime;
 
 public class WorkOrder {
@@ -11,11 +12,11 @@ public class WorkOrder {
     @JsonProperty("_translangcode")
     private String translationCode;
     
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    @JsonDeserialize(using = IsoLocalDateTimeDeserializer.class)
     @JsonProperty("actfinish")
     private LocalDateTime actualFinish;
     
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    @JsonDeserialize(using = IsoLocalDateTimeDeserializer.class)
     @JsonProperty("actstart")
     private LocalDateTime actualStart;
     
@@ -52,11 +53,11 @@ public class WorkOrder {
     @JsonProperty("plusmworkperf")
     private String workPerformedBy;
     
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    @JsonDeserialize(using = IsoLocalDateTimeDeserializer.class)
     @JsonProperty("schedfinish")
     private LocalDateTime scheduledFinish;
     
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    @JsonDeserialize(using = IsoLocalDateTimeDeserializer.class)
     @JsonProperty("schedstart")
     private LocalDateTime scheduledStart;
     
@@ -69,15 +70,15 @@ public class WorkOrder {
     @JsonProperty("status_description")
     private String statusDescription;
     
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    @JsonDeserialize(using = IsoLocalDateTimeDeserializer.class)
     @JsonProperty("targcompdate")
     private LocalDateTime targetCompletionDate;
     
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    @JsonDeserialize(using = IsoLocalDateTimeDeserializer.class)
     @JsonProperty("targstartdate")
     private LocalDateTime targetStartDate;
     
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    @JsonDeserialize(using = IsoLocalDateTimeDeserializer.class)
     @JsonProperty("thacalldate")
     private LocalDateTime callDate;
     
@@ -99,7 +100,7 @@ public class WorkOrder {
     @JsonProperty("thansc")
     private Boolean answerComplete;
     
-    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+    @JsonDeserialize(using = IsoLocalDateTimeDeserializer.class)
     @JsonProperty("thantfdate")
     private LocalDateTime answerDate;
     
@@ -0,0 +1,48 @@
+package com.example.oqdpoc.service;
+
+import java.io.Reader;
+import java.util.Objects;
+
+/**
+ * Reads a {@link CharSequence} in place, without the copy {@code new StringReader(sequence.toString())} makes.
+ * The sequence must not change while it is read.
+ */
+final class CharSequenceReader extends Reader {
+
+    private final CharSequence chars;
+    private int position;
+
+    CharSequenceReader(CharSequence chars) {
+        this.chars = chars;
+    }
+
+    @Override
+    public int read() {
+        return position < chars.length() ? chars.charAt(position++) : -1;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, buffer.length);
+        if (length == 0) {
+            return 0;
+        }
+        int count = Math.min(length, chars.length() - position);
+        if (count <= 0) {
+            return -1;
+        }
+        if (chars instanceof StringBuilder builder) {
+            builder.getChars(position, position + count, buffer, offset);
+        } else {
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = chars.charAt(position + i);
+            }
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() {
+    }
+}
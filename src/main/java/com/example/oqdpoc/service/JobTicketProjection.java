@@ -0,0 +1,60 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.jobticket.Metadata;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.List;
+
+/**
+ * The parts of a job ticket the report reads. Tickets carry large subtrees the report never prints (flat answers,
+ * the tasks, work logs and attachments of the work order, the relations of its asset), bound as untyped maps and
+ * lists. The projection leaves them out: Jackson skips their tokens without building anything from them, and the
+ * model properties stay null.
+ * <p>
+ * When one of them is needed after all, {@link JobTicketRequestReader#readSkipped(String, String)} reads it from
+ * the job ticket JSON on demand.
+ */
+final class JobTicketProjection {
+
+    /**
+     * The subtrees left out, as JSON pointers into the job ticket.
+     */
+    static final List<String> SKIPPED = List.of(
+            "/flatAnswers",
+            "/answers/metadata/additional/workOrder/contract",
+            "/answers/metadata/additional/workOrder/jobPlan",
+            "/answers/metadata/additional/workOrder/tasks",
+            "/answers/metadata/additional/workOrder/worklogs",
+            "/answers/metadata/additional/workOrder/attachments",
+            "/answers/metadata/additional/workOrder/completionRate",
+            "/answers/metadata/additional/workOrder/asset/relations",
+            "/answers/metadata/additional/workOrder/asset/configurationItems");
+
+    private JobTicketProjection() {
+    }
+
+    /**
+     * @param objectMapper The application's mapper
+     * @return a copy of it that binds job tickets without the {@link #SKIPPED} subtrees
+     */
+    static ObjectMapper apply(ObjectMapper objectMapper) {
+        return objectMapper.copy()
+                .addMixIn(JobTicket.class, JobTicketMixIn.class)
+                .addMixIn(Metadata.WorkOrder.class, WorkOrderMixIn.class)
+                .addMixIn(Metadata.WorkOrderAsset.class, WorkOrderAssetMixIn.class);
+    }
+
+    @JsonIgnoreProperties({"flatAnswers"})
+    private abstract static class JobTicketMixIn {
+    }
+
+    @JsonIgnoreProperties({"contract", "jobPlan", "tasks", "worklogs", "attachments", "completionRate"})
+    private abstract static class WorkOrderMixIn {
+    }
+
+    @JsonIgnoreProperties({"relations", "configurationItems"})
+    private abstract static class WorkOrderAssetMixIn {
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.exception.InvalidRequestException;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.JsonPointerBasedFilter;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Reads the multipart parts of a render request (job ticket and optional short work period)
+ * into the model the report template expects. Shared by the synchronous, job-based and batch endpoints.
+ */
+@Component
+public class JobTicketRequestReader {
+
+    private static final Logger log = LoggerFactory.getLogger(JobTicketRequestReader.class);
+
+    private static final String MEMBER = "member";
+    private static final String WONUM = "wonum";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper jobTicketMapper;
+
+    /**
+     * Receives the work orders of a short work period one at a time, see
+     * {@link #streamWorkOrders(InputStream, WorkOrderSink)}.
+     */
+    @FunctionalInterface
+    public interface WorkOrderSink {
+        void accept(WorkOrder workOrder) throws IOException;
+    }
+
+    public JobTicketRequestReader(ObjectMapper objectMapper) {
+        this(objectMapper, new PdfRenderProperties());
+    }
+
+    @Autowired
+    public JobTicketRequestReader(ObjectMapper objectMapper, PdfRenderProperties properties) {
+        this.objectMapper = objectMapper;
+        this.jobTicketMapper = properties.isProjection() ? JobTicketProjection.apply(objectMapper) : objectMapper;
+    }
+
+    /**
+     * Parses the job ticket JSON. With {@code app.pdf.render.projection}, the subtrees the report never reads are
+     * skipped and left null, see {@link #readSkipped(String, String)}.
+     *
+     * @param jobTicketJson The job ticket part of the request
+     * @return the parsed job ticket
+     * @throws InvalidRequestException if the JSON cannot be parsed
+     */
+    public JobTicket readJobTicket(String jobTicketJson) {
+        try {
+            JobTicket jobTicket = jobTicketMapper.readValue(jobTicketJson, JobTicket.class);
+            log.debug("Successfully parsed JobTicket with ID: {}", jobTicket.getId());
+            return jobTicket;
+        } catch (JsonProcessingException e) {
+            log.error("Failed to parse jobTicket JSON: {}", e.getMessage());
+            throw new InvalidRequestException("Invalid jobTicket JSON: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses one job ticket of a batch.
+     *
+     * @param jobTicketNode One element of the job tickets array
+     * @return the parsed job ticket
+     * @throws InvalidRequestException if the element is not a valid job ticket
+     */
+    public JobTicket readJobTicket(JsonNode jobTicketNode) {
+        try {
+            return jobTicketMapper.treeToValue(jobTicketNode, JobTicket.class);
+        } catch (JsonProcessingException e) {
+            throw new InvalidRequestException("Invalid jobTicket JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Reads one subtree of the job ticket JSON, such as one the projection skipped, without building the rest.
+     *
+     * @param jobTicketJson The job ticket part of the request
+     * @param pointer       JSON pointer to the subtree, e.g. {@code /flatAnswers}
+     * @return the subtree, or null if the job ticket has none there
+     * @throws InvalidRequestException if the JSON cannot be parsed
+     */
+    public JsonNode readSkipped(String jobTicketJson, String pointer) {
+        try (JsonParser parser = new FilteringParserDelegate(objectMapper.getFactory().createParser(jobTicketJson),
+                new JsonPointerBasedFilter(pointer), TokenFilter.Inclusion.ONLY_INCLUDE_ALL, false)) {
+            return objectMapper.readTree(parser);
+        } catch (IOException e) {
+            throw new InvalidRequestException("Invalid jobTicket JSON: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses a JSON array of job tickets into its elements, leaving each element to be read on its own,
+     * so one bad ticket does not reject the whole batch.
+     *
+     * @throws InvalidRequestException if the input is not a JSON array
+     */
+    public List<JsonNode> readJobTicketArray(String jobTicketsJson) {
+        try {
+            JsonNode rootNode = objectMapper.readTree(jobTicketsJson);
+            if (rootNode == null || !rootNode.isArray()) {
+                throw new InvalidRequestException("jobTickets must be a JSON array of job tickets");
+            }
+            List<JsonNode> jobTickets = new ArrayList<>(rootNode.size());
+            rootNode.forEach(jobTickets::add);
+            log.debug("Read batch of {} job tickets", jobTickets.size());
+            return jobTickets;
+        } catch (JsonProcessingException e) {
+            log.error("Failed to parse jobTickets JSON: {}", e.getMessage());
+            throw new InvalidRequestException("Invalid jobTickets JSON: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Finds the work order in the short work period JSON that matches the job ticket's work order number.
+     * The short work period is optional, so unreadable input is logged and treated as absent.
+     * <p>
+     * Short work periods can hold thousands of work orders for the one a ticket refers to. They are read as a
+     * token stream: members are skipped token by token, without building a tree or binding them, only the first
+     * match is bound, and nothing after it is read.
+     *
+     * @param jobTicket           The parsed job ticket
+     * @param shortWorkPeriodJson The short work period part of the request, may be null
+     * @return the matching work order, or null, also when the ticket has no work order number
+     */
+    public WorkOrder findWorkOrder(JobTicket jobTicket, String shortWorkPeriodJson) {
+        if (!StringUtils.hasText(shortWorkPeriodJson)) {
+            log.debug("No work orders data provided");
+            return null;
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(shortWorkPeriodJson)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && MEMBER.equals(field)) {
+                    return findMember(parser, jobTicket, shortWorkPeriodJson);
+                }
+                parser.skipChildren();
+            }
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to parse work orders JSON, continuing without it: {}", e.getMessage());
+            // Continue without work orders data as it's optional
+            return null;
+        }
+    }
+
+    /**
+     * Reads the elements of the {@code member} array, the parser being at its start, up to the first work order
+     * with the job ticket's work order number.
+     */
+    private WorkOrder findMember(JsonParser parser, JobTicket jobTicket, String shortWorkPeriodJson)
+            throws IOException {
+        String workOrderNum = null;
+        int skipped = 0;
+        for (JsonToken token = parser.nextToken(); token != null && token != JsonToken.END_ARRAY;
+             token = parser.nextToken()) {
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            if (skipped == 0) {
+                // Only looked up once there is a work order to match, as an empty short work period never needs it
+                workOrderNum = workOrderNum(jobTicket);
+                if (!StringUtils.hasText(workOrderNum)) {
+                    // A ticket without a work order number refers to none, not to the first unnumbered one
+                    return null;
+                }
+            }
+            int start = (int) parser.currentTokenLocation().getCharOffset();
+            if (matches(parser, workOrderNum)) {
+                int end = (int) parser.currentLocation().getCharOffset();
+                log.debug("Found work order {} after skipping {}", workOrderNum, skipped);
+                return objectMapper.readValue(shortWorkPeriodJson.substring(start, end), WorkOrder.class);
+            }
+            skipped++;
+        }
+        log.debug("No work order {} among {}", workOrderNum, skipped);
+        return null;
+    }
+
+    /**
+     * Reads through the object the parser is at the start of, without binding or copying anything, and tells
+     * whether its {@code wonum} is the given number. A work order without one has a null number.
+     */
+    private static boolean matches(JsonParser parser, String workOrderNum) throws IOException {
+        boolean numbered = false;
+        String wonum = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            boolean isWonum = !numbered && WONUM.equals(parser.currentName());
+            JsonToken value = parser.nextToken();
+            if (isWonum) {
+                if (!value.isScalarValue()) {
+                    parser.skipChildren();
+                    skipObject(parser);
+                    return false;
+                }
+                numbered = true;
+                wonum = value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+                if (!Objects.equals(wonum, workOrderNum)) {
+                    skipObject(parser);
+                    return false;
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return Objects.equals(wonum, workOrderNum);
+    }
+
+    /**
+     * Skips the remaining fields of the object the parser is in.
+     */
+    private static void skipObject(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            parser.nextToken();
+            parser.skipChildren();
+        }
+    }
+
+    private static String workOrderNum(JobTicket jobTicket) {
+        return jobTicket.getAnswers().getMetadata().getAdditional().getWorkOrder().getWorkOrderNum();
+    }
+
+    /**
+     * Reads the work orders of a short work period, indexed by work order number. When a number occurs
+     * more than once, the first work order wins.
+     *
+     * @param shortWorkPeriodJson The short work period part of the request, may be null
+     * @return the work orders by number, empty if none were provided
+     */
+    public Map<String, WorkOrder> readWorkOrders(String shortWorkPeriodJson) {
+        Map<String, WorkOrder> workOrders = new HashMap<>();
+        if (StringUtils.hasText(shortWorkPeriodJson)) {
+            try {
+                JsonNode memberNode = objectMapper.readTree(shortWorkPeriodJson).path(MEMBER);
+                if (memberNode.isArray()) {
+                    index(memberNode, workOrders);
+                }
+            } catch (JsonProcessingException e) {
+                log.warn("Failed to parse work orders JSON, continuing without it: {}", e.getMessage());
+                // Continue without work orders data as it's optional
+            }
+        } else {
+            log.debug("No work orders data provided");
+        }
+        return workOrders;
+    }
+
+    /**
+     * Reads a short work period uploaded on its own, indexed by work order number like
+     * {@link #readWorkOrders(String)}. Unlike a request part, it is not optional, so unreadable input is rejected.
+     *
+     * @param shortWorkPeriodJson The short work period, as uploaded
+     * @return the work orders by number
+     * @throws InvalidRequestException if the input is not a short work period with a {@code member} array
+     */
+    public Map<String, WorkOrder> readWorkPeriod(byte[] shortWorkPeriodJson) {
+        try {
+            JsonNode memberNode = objectMapper.readTree(shortWorkPeriodJson).path(MEMBER);
+            if (!memberNode.isArray()) {
+                throw new InvalidRequestException("shortWorkPeriod must be a JSON object with a member array");
+            }
+            Map<String, WorkOrder> workOrders = new HashMap<>();
+            index(memberNode, workOrders);
+            return workOrders;
+        } catch (IOException e) {
+            log.error("Failed to parse shortWorkPeriod JSON: {}", e.getMessage());
+            throw new InvalidRequestException("Invalid shortWorkPeriod JSON: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the work orders of a short work period one by one as they arrive, and hands each to {@code sink}
+     * before reading the next, so only one is held at a time however many there are. Members that are not
+     * readable work orders are skipped and counted.
+     *
+     * @param shortWorkPeriodJson The short work period, read up to the end of its {@code member} array
+     * @param sink                Receives the work orders in order; its exceptions are passed on
+     * @return the number of members skipped
+     * @throws InvalidRequestException if the input is not JSON, or not an object with a {@code member} array
+     */
+    public int streamWorkOrders(InputStream shortWorkPeriodJson, WorkOrderSink sink) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(shortWorkPeriodJson)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    if (parser.nextToken() == JsonToken.START_ARRAY && MEMBER.equals(field)) {
+                        return streamMembers(parser, sink);
+                    }
+                    parser.skipChildren();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            log.error("Failed to parse shortWorkPeriod JSON: {}", e.getMessage());
+            throw new InvalidRequestException("Invalid shortWorkPeriod JSON: " + e.getOriginalMessage());
+        }
+        throw new InvalidRequestException("shortWorkPeriod must be a JSON object with a member array");
+    }
+
+    private int streamMembers(JsonParser parser, WorkOrderSink sink) throws IOException {
+        int skipped = 0;
+        for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+            if (token == null) {
+                throw new JsonParseException(parser, "Unexpected end of input in the member array");
+            }
+            if (token != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                skipped++;
+                continue;
+            }
+            // A member as a tree first, so one that does not bind leaves the parser at its end
+            JsonNode member = parser.readValueAsTree();
+            WorkOrder workOrder;
+            try {
+                workOrder = objectMapper.treeToValue(member, WorkOrder.class);
+            } catch (JsonProcessingException e) {
+                log.debug("Skipping unreadable work order: {}", e.getOriginalMessage());
+                skipped++;
+                continue;
+            }
+            sink.accept(workOrder);
+        }
+        return skipped;
+    }
+
+    private void index(JsonNode memberNode, Map<String, WorkOrder> workOrders) throws JsonProcessingException {
+        for (JsonNode node : memberNode) {
+            WorkOrder workOrder = objectMapper.treeToValue(node, WorkOrder.class);
+            workOrders.putIfAbsent(workOrder.getWonum(), workOrder);
+        }
+        log.debug("Successfully parsed {} work orders", memberNode.size());
+    }
+
+    /**
+     * Finds the work order that matches the job ticket's work order number.
+     *
+     * @param jobTicket  The parsed job ticket
+     * @param workOrders Work orders by number, as returned by {@link #readWorkOrders(String)}
+     * @return the matching work order, or null, also when the ticket has no work order number
+     */
+    public WorkOrder findWorkOrder(JobTicket jobTicket, Map<String, WorkOrder> workOrders) {
+        if (workOrders.isEmpty()) {
+            return null;
+        }
+        String workOrderNum = workOrderNum(jobTicket);
+        return StringUtils.hasText(workOrderNum) ? workOrders.get(workOrderNum) : null;
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.TemplateBackend;
+import com.example.oqdpoc.model.jobticket.Answers;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.report.ReportViewModel;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.service.template.CompiledJobTicketTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Turns a job ticket and its matched work order into the report document handed to the PDF renderer.
+ * <p>
+ * Template output is streamed straight into the renderer's XML parser, so large tickets are never
+ * materialized as one big HTML string and parsed a second time. Sections come pre-rendered from the
+ * {@link SectionFragmentRenderer} when its cache is enabled.
+ * <p>
+ * With the {@link TemplateBackend#COMPILED} backend the report is instead rendered by the Java class generated
+ * from the template at build time, into a buffer that is then parsed the same way. It produces the same HTML
+ * without evaluating any expressions at render time.
+ */
+@Service
+public class JobTicketTemplateService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobTicketTemplateService.class);
+
+    public static final String JOB_TICKET_TEMPLATE = "jobTicket";
+    private static final String LOGO_CLASSPATH = "static/images/thales-logo.png";
+
+    private final ITemplateEngine templateEngine;
+    private final ReportViewModelBuilder reportViewModelBuilder;
+    private final SectionFragmentRenderer sectionFragmentRenderer;
+    private final PdfRenderProperties pdfRenderProperties;
+    private final DocumentBuilderFactory documentBuilderFactory;
+    private final String logoUrl;
+
+    public JobTicketTemplateService(ITemplateEngine templateEngine, ReportViewModelBuilder reportViewModelBuilder,
+                                    SectionFragmentRenderer sectionFragmentRenderer,
+                                    PdfRenderProperties pdfRenderProperties) {
+        this.templateEngine = templateEngine;
+        this.reportViewModelBuilder = reportViewModelBuilder;
+        this.sectionFragmentRenderer = sectionFragmentRenderer;
+        this.pdfRenderProperties = pdfRenderProperties;
+        this.documentBuilderFactory = createDocumentBuilderFactory();
+        this.logoUrl = loadLogoUrl();
+    }
+
+    /**
+     * Determines the date printed in the report header: the ticket's last update, else its creation.
+     * Only tickets without any timestamp fall back to the current time. Truncated to the minute, which is
+     * all the template prints, so the same ticket always renders the same report.
+     *
+     * @param jobTicket The parsed job ticket
+     * @return the report date in the server's time zone
+     */
+    public LocalDateTime resolveReportDate(JobTicket jobTicket) {
+        Answers answers = jobTicket.getAnswers();
+        OffsetDateTime timestamp = answers != null && answers.getUpdatedAt() != null ? answers.getUpdatedAt()
+                : answers != null && answers.getCreatedAt() != null ? answers.getCreatedAt()
+                : jobTicket.getCreatedAt();
+        LocalDateTime reportDate = timestamp != null
+                ? timestamp.atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime()
+                : LocalDateTime.now();
+        return reportDate.truncatedTo(ChronoUnit.MINUTES);
+    }
+
+    /**
+     * Builds the Thymeleaf context for the job ticket report. The template only sees the flattened
+     * {@link ReportViewModel} as {@code report}, plus the pre-rendered sections when fragments are cached.
+     *
+     * @param jobTicket          The parsed job ticket
+     * @param workOrderForReport The work order matching the ticket, or null
+     * @param reportDate         The date printed in the report header, see {@link #resolveReportDate(JobTicket)}
+     * @return the populated template context
+     */
+    public Context createContext(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate) {
+        ReportViewModel report = reportViewModelBuilder.build(jobTicket, workOrderForReport, reportDate);
+        Context context = new Context();
+        context.setVariable("report", report);
+        if (logoUrl != null) {
+            context.setVariable("logoUrl", logoUrl);
+        }
+        context.setVariable("sectionFragments", sectionFragments(report, TemplateBackend.THYMELEAF));
+        return context;
+    }
+
+    /**
+     * Renders the job ticket template directly into a W3C DOM, dated by {@link #resolveReportDate(JobTicket)}.
+     *
+     * @param jobTicket          The parsed job ticket
+     * @param workOrderForReport The work order matching the ticket, or null
+     * @return the report document
+     */
+    public Document renderDocument(JobTicket jobTicket, WorkOrder workOrderForReport) {
+        return renderDocument(jobTicket, workOrderForReport, resolveReportDate(jobTicket));
+    }
+
+    /**
+     * Renders the job ticket template directly into a W3C DOM, with the configured template backend.
+     *
+     * @param jobTicket          The parsed job ticket
+     * @param workOrderForReport The work order matching the ticket, or null
+     * @param reportDate         The date printed in the report header
+     * @return the report document
+     */
+    public Document renderDocument(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate) {
+        return renderDocument(jobTicket, workOrderForReport, reportDate, null);
+    }
+
+    /**
+     * Renders the job ticket template directly into a W3C DOM. The report date also becomes the PDF's
+     * creation date, so the rendered bytes depend on the inputs only.
+     *
+     * @param jobTicket          The parsed job ticket
+     * @param workOrderForReport The work order matching the ticket, or null
+     * @param reportDate         The date printed in the report header
+     * @param templateBackend    The template backend, or null for the configured one
+     * @return the report document
+     */
+    public Document renderDocument(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate,
+                                   TemplateBackend templateBackend) {
+        TemplateBackend backend = templateBackend != null ? templateBackend : pdfRenderProperties.getTemplateBackend();
+        Document document = backend == TemplateBackend.COMPILED
+                ? renderCompiled(jobTicket, workOrderForReport, reportDate)
+                : renderDocument(JOB_TICKET_TEMPLATE, createContext(jobTicket, workOrderForReport, reportDate));
+        document.setUserData(PdfRenderEngine.CREATION_DATE,
+                reportDate.atZone(ZoneId.systemDefault()).toInstant(), null);
+        return document;
+    }
+
+    /**
+     * Renders any template directly into a W3C DOM, parsed the same way the PDF renderer parses HTML content.
+     */
+    public Document renderDocument(String template, Context context) {
+        log.debug("Streaming template '{}' into DOM", template);
+        try (ThrottledTemplateReader reader =
+                     new ThrottledTemplateReader(templateEngine.processThrottled(template, context))) {
+            return parse(template, reader);
+        }
+    }
+
+    private Document renderCompiled(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate) {
+        log.debug("Rendering compiled template '{}' into DOM", CompiledJobTicketTemplate.TEMPLATE);
+        ReportViewModel report = reportViewModelBuilder.build(jobTicket, workOrderForReport, reportDate);
+        List<String> sectionFragments = sectionFragments(report, TemplateBackend.COMPILED);
+        StringBuilder html = new StringBuilder(64 * 1024);
+        // Thymeleaf renders the report without an "images" variable too, so the attachments section stays empty
+        CompiledJobTicketTemplate.render(report, logoUrl, sectionFragments, null, html);
+        return parse(CompiledJobTicketTemplate.TEMPLATE, new CharSequenceReader(html));
+    }
+
+    private List<String> sectionFragments(ReportViewModel report, TemplateBackend backend) {
+        if (!sectionFragmentRenderer.isEnabled() || report.sections().isEmpty()) {
+            return null;
+        }
+        return sectionFragmentRenderer.render(report.sections(), backend);
+    }
+
+    private Document parse(String template, Reader html) {
+        try {
+            return documentBuilderFactory.newDocumentBuilder().parse(new InputSource(html));
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            log.error("Failed to parse template '{}' output: {}", template, e.getMessage());
+            throw new PdfGenerationException("Failed to parse rendered template: " + e.getMessage(), e);
+        }
+    }
+
+    private static DocumentBuilderFactory createDocumentBuilderFactory() {
+        // Mirrors the renderer's own XML setup: namespace aware, non-validating, no external entities
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setValidating(false);
+        factory.setExpandEntityReferences(false);
+        try {
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://xml.org/sax/features/external-general-entities", false);
+            factory.setFeature("http://xml.org/sax/features/external-parameter-entities", false);
+            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        } catch (ParserConfigurationException e) {
+            log.warn("XML parser does not support a requested feature: {}", e.getMessage());
+        }
+        return factory;
+    }
+
+    private String loadLogoUrl() {
+        // Load logo from classpath once and embed as data URL for portability
+        try {
+            ClassPathResource logoResource = new ClassPathResource(LOGO_CLASSPATH);
+            if (logoResource.exists()) {
+                try (InputStream in = logoResource.getInputStream()) {
+                    return "data:image/png;base64," + Base64.getEncoder().encodeToString(in.readAllBytes());
+                }
+            }
+            log.warn("Logo resource not found on classpath: {}", LOGO_CLASSPATH);
+        } catch (Exception e) {
+            log.warn("Failed to load logo from classpath: {}", e.getMessage());
+        }
+        return null;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.FSStreamFactory;
+import com.openhtmltopdf.extend.FSUriResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * URI resolver and stream factory for the renderer that only serves resources from the classpath
+ * ({@code static/} and webjars) or from allow-listed local directories, and never touches the network.
+ * <p>
+ * Classpath resources are kept in memory up to {@code app.pdf.render.resources.cache-size}, so stylesheets,
+ * images and fonts are read once. Files of the allowed directories may change and are read on every render.
+ * Missing resources are not remembered: their URIs come from ticket data.
+ */
+@Component
+public class OfflineResourceResolver implements FSUriResolver, FSStreamFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(OfflineResourceResolver.class);
+
+    public static final String CLASSPATH_SCHEME = "classpath";
+    public static final String FILE_SCHEME = "file";
+
+    /**
+     * The only classpath directories the renderer may read from.
+     */
+    private static final List<String> CLASSPATH_DIRS = List.of("/static/", "/META-INF/resources/webjars/");
+
+    private final String baseUri;
+    private final List<Path> allowedDirs;
+    private final long cacheSizeBytes;
+    private final LinkedHashMap<String, byte[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cachedBytes;
+
+    public OfflineResourceResolver(PdfRenderProperties properties) {
+        this.baseUri = properties.getResources().getBaseUri();
+        this.allowedDirs = properties.getResources().getAllowedDirs().stream()
+                .map(dir -> Paths.get(dir).toAbsolutePath().normalize())
+                .toList();
+        this.cacheSizeBytes = properties.getResources().getCacheSize().toBytes();
+    }
+
+    /**
+     * Base URI that relative links in the rendered document are resolved against.
+     */
+    public String getBaseUri() {
+        return baseUri;
+    }
+
+    @Override
+    public String resolveURI(String base, String uri) {
+        if (uri == null || uri.isBlank()) {
+            return null;
+        }
+        if (uri.startsWith("data:")) {
+            return uri;
+        }
+
+        try {
+            URI target = new URI(uri.trim());
+            if (!target.isAbsolute()) {
+                String effectiveBase = base == null || base.isBlank() ? baseUri : base;
+                target = new URI(effectiveBase).resolve(target);
+            }
+            target = target.normalize();
+
+            String scheme = target.getScheme();
+            if (CLASSPATH_SCHEME.equals(scheme) && classpathPath(target) != null) {
+                return target.toString();
+            }
+            if (FILE_SCHEME.equals(scheme) && isAllowedFile(target)) {
+                return target.toString();
+            }
+            log.debug("Refusing to load resource outside static classpath resources and allowed directories: {}",
+                    uri);
+            return null;
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            log.debug("Refusing to load unresolvable resource {}: {}", uri, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public FSStream getUrl(String uri) {
+        byte[] data;
+        synchronized (cache) {
+            data = cache.get(uri);
+        }
+        if (data == null) {
+            data = load(uri);
+        }
+        return new CachedStream(data);
+    }
+
+    long getCachedBytes() {
+        synchronized (cache) {
+            return cachedBytes;
+        }
+    }
+
+    /**
+     * @return the resource, or null if it is missing or not allowed
+     */
+    private byte[] load(String uri) {
+        try {
+            URI target = new URI(uri).normalize();
+            String classpath = CLASSPATH_SCHEME.equals(target.getScheme()) ? classpathPath(target) : null;
+            if (classpath != null) {
+                ClassPathResource resource = new ClassPathResource(classpath);
+                if (resource.exists()) {
+                    try (InputStream in = resource.getInputStream()) {
+                        byte[] data = in.readAllBytes();
+                        cache(uri, data);
+                        return data;
+                    }
+                }
+            } else if (FILE_SCHEME.equals(target.getScheme()) && isAllowedFile(target)) {
+                Path path = Paths.get(target);
+                if (Files.isRegularFile(path)) {
+                    return Files.readAllBytes(path);
+                }
+            }
+            log.warn("Resource not available to the renderer: {}", uri);
+        } catch (URISyntaxException | IOException | IllegalArgumentException e) {
+            log.warn("Failed to load resource {}: {}", uri, e.getMessage());
+        }
+        return null;
+    }
+
+    private void cache(String uri, byte[] data) {
+        if (data.length > cacheSizeBytes) {
+            return;
+        }
+        synchronized (cache) {
+            byte[] previous = cache.put(uri, data);
+            cachedBytes += data.length - (previous != null ? previous.length : 0);
+            Iterator<byte[]> eldest = cache.values().iterator();
+            while (cachedBytes > cacheSizeBytes && eldest.hasNext()) {
+                cachedBytes -= eldest.next().length;
+                eldest.remove();
+            }
+        }
+        log.debug("Cached classpath resource {}", uri);
+    }
+
+    /**
+     * @return the decoded, cleaned path of a classpath URI, or null if it is outside {@link #CLASSPATH_DIRS}
+     */
+    private static String classpathPath(URI uri) {
+        // Decoded first, so encoded dot segments cannot climb out of the allowed directories either
+        String path = uri.getPath();
+        if (path == null) {
+            return null;
+        }
+        String cleaned = StringUtils.cleanPath(path);
+        return CLASSPATH_DIRS.stream().anyMatch(cleaned::startsWith) && !cleaned.contains("../") ? cleaned : null;
+    }
+
+    private boolean isAllowedFile(URI uri) {
+        Path path = Paths.get(uri).toAbsolutePath().normalize();
+        return allowedDirs.stream().anyMatch(path::startsWith);
+    }
+
+    private static final class CachedStream implements FSStream {
+        private final byte[] data;
+
+        private CachedStream(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public InputStream getStream() {
+            return data != null ? new ByteArrayInputStream(data) : null;
+        }
+
+        @Override
+        public Reader getReader() {
+            return data != null ? new InputStreamReader(getStream(), StandardCharsets.UTF_8) : null;
+        }
+    }
+}
@@ -1,22 +1,31 @@
 package com.example.oqdpoc.service;
 
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.exception.ApiException;
 import com.example.oqdpoc.exception.PdfGenerationException;
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import io.github.resilience4j.retry.annotation.Retry;
-import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import org.w3c.dom.Document;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 
 @Service
-@CacheConfig(cacheNames = "jobTicketTemplates")
 public class PdfGenerationService {
 
     private static final Logger log = LoggerFactory.getLogger(PdfGenerationService.class);
 
+    private final PdfRenderEngine renderEngine;
+    private final SplitReportRenderer splitReportRenderer;
+
+    public PdfGenerationService(PdfRenderEngine renderEngine, SplitReportRenderer splitReportRenderer) {
+        this.renderEngine = renderEngine;
+        this.splitReportRenderer = splitReportRenderer;
+    }
 
     /**
      * Generates a PDF document from an HTML string using the V2 template with retry capability
@@ -27,30 +36,110 @@ public class PdfGenerationService {
      */
     @Retry(name = "pdfGeneration", fallbackMethod = "generatePdfWithWorkOrderFallback")
     public byte[] generatePdfWithWorkOrder(String html) {
-        log.debug("Generating PDF with work order from HTML content");
+        return render(html, null);
+    }
+
+    private byte[] render(String html, Profile profile) {
+        log.debug("Generating PDF with work order from HTML content, profile: {}", profile);
         if (!StringUtils.hasText(html)) {
             throw new IllegalArgumentException("The content cannot be null or empty");
         }
 
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            PdfRendererBuilder builder = new PdfRendererBuilder()
-                    .withHtmlContent(html, "")
-                    .toStream(outputStream);
-
-            builder.run();
+            renderEngine.render(html, profile, outputStream);
             log.debug("Successfully generated PDF with work order, size: {} bytes", outputStream.size());
             return outputStream.toByteArray();
+        } catch (ApiException e) {
+            // Not a render failure, e.g. an unavailable profile: answered as is and not retried
+            throw e;
         } catch (Exception e) {
             log.error("Error generating PDF with work order from HTML: {}", e.getMessage());
             throw new PdfGenerationException("Failed to generate PDF from HTML with work order: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Generates a PDF document from an already parsed report document with retry capability
+     *
+     * @param document The report DOM, e.g. as streamed from the template engine
+     * @param profile  The render profile to use, or null for the configured default
+     * @return byte array containing the generated PDF
+     * @throws PdfGenerationException if there's an error generating the PDF after all retry attempts
+     */
+    @Retry(name = "pdfGeneration", fallbackMethod = "generatePdfFallback")
+    public byte[] generatePdf(Document document, Profile profile) {
+        log.debug("Generating PDF from document, profile: {}", profile);
+        if (document == null || document.getDocumentElement() == null) {
+            throw new IllegalArgumentException("The document cannot be null or empty");
+        }
+
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            render(document, profile, outputStream);
+            log.debug("Successfully generated PDF from document, size: {} bytes", outputStream.size());
+            return outputStream.toByteArray();
+        } catch (ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error generating PDF from document: {}", e.getMessage());
+            throw new PdfGenerationException("Failed to generate PDF from document: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Renders a PDF document from an already parsed report document directly into the given stream.
+     * <p>
+     * Not retried: once bytes have reached the stream the render cannot be repeated safely.
+     *
+     * @param document     The report DOM, e.g. as streamed from the template engine
+     * @param profile      The render profile to use, or null for the configured default
+     * @param outputStream The destination, typically the HTTP response body
+     * @throws PdfGenerationException if there's an error generating the PDF
+     */
+    public void writePdf(Document document, Profile profile, OutputStream outputStream) {
+        log.debug("Streaming PDF from document, profile: {}", profile);
+        if (document == null || document.getDocumentElement() == null) {
+            throw new IllegalArgumentException("The document cannot be null or empty");
+        }
+
+        try {
+            render(document, profile, outputStream);
+            log.debug("Successfully streamed PDF from document");
+        } catch (ApiException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error streaming PDF from document: {}", e.getMessage());
+            throw new PdfGenerationException("Failed to generate PDF from document: " + e.getMessage(), e);
+        }
+    }
+
+    private void render(Document document, Profile profile, OutputStream outputStream) throws IOException {
+        // Large reports are laid out in parallel chunks when enabled
+        if (splitReportRenderer.handles(document, profile)) {
+            splitReportRenderer.render(document, profile, outputStream);
+        } else {
+            renderEngine.render(document, profile, outputStream);
+        }
+    }
+
+    /**
+     * Fallback method for generatePdf
+     */
+    public byte[] generatePdfFallback(Document document, Profile profile, Exception e) {
+        if (e instanceof ApiException apiException) {
+            throw apiException;
+        }
+        log.error("Fallback triggered for generatePdf after retries: {}", e.getMessage());
+        throw new PdfGenerationException("PDF generation failed after retries: " + e.getMessage(), e);
+    }
+
     /**
      * Fallback method for generatePdfWithWorkOrder
      */
     public byte[] generatePdfWithWorkOrderFallback(String html, Exception e) {
+        if (e instanceof ApiException apiException) {
+            throw apiException;
+        }
         log.error("Fallback triggered for generatePdfWithWorkOrder after retries: {}", e.getMessage());
         throw new PdfGenerationException("PDF generation with work order failed after retries: " + e.getMessage(), e);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,293 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.exception.ProfileUnavailableException;
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
+import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder.FontStyle;
+import com.openhtmltopdf.pdfboxout.PDFCreationListener;
+import com.openhtmltopdf.pdfboxout.PdfBoxRenderer;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder.PdfAConformance;
+import jakarta.annotation.PostConstruct;
+import org.apache.fontbox.ttf.OTFParser;
+import org.apache.fontbox.ttf.OpenTypeFont;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDMetadata;
+import org.apache.xmpbox.DateConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Long-lived holder for everything a render can share: the openhtmltopdf font metrics cache,
+ * fonts discovered once at startup, the offline resource resolver and the per-profile renderer configuration.
+ * <p>
+ * openhtmltopdf renderers are single-use, so each render still gets its own
+ * {@link PdfRendererBuilder}, but it is handed out already configured and backed by the warm caches.
+ */
+@Component
+public class PdfRenderEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfRenderEngine.class);
+
+    /**
+     * {@link Document#getUserData(String) User data} key of the {@link Instant} to record as the PDF's creation
+     * date instead of the wall clock.
+     */
+    public static final String CREATION_DATE = PdfRenderEngine.class.getName() + ".creationDate";
+
+    private final PdfRenderProperties properties;
+    private final OfflineResourceResolver resourceResolver;
+    private final FSCacheEx<String, FSCacheValue> fontMetricsCache = new FSDefaultCacheStore();
+    private List<FontFace> fonts = Collections.emptyList();
+    private byte[] colorProfile;
+
+    public PdfRenderEngine(PdfRenderProperties properties, OfflineResourceResolver resourceResolver) {
+        this.properties = properties;
+        this.resourceResolver = resourceResolver;
+    }
+
+    @PostConstruct
+    void init() {
+        fonts = discoverFonts(properties.getFontsDir());
+        colorProfile = loadColorProfile(properties.getColorProfile());
+        if (properties.getDefaultProfile() == Profile.ACCESSIBLE && fonts.isEmpty()) {
+            throw new IllegalStateException("The ACCESSIBLE default profile needs fonts to embed, "
+                    + "set app.pdf.render.fonts-dir to a directory of .ttf fonts");
+        }
+        log.info("PDF render engine ready: default profile {}, {} font(s) registered",
+                properties.getDefaultProfile(), fonts.size());
+    }
+
+    /**
+     * Checks that this instance can render the given profile, before any work is done for it.
+     *
+     * @param profile The requested profile, or null for the configured default
+     * @throws ProfileUnavailableException if it is {@code ACCESSIBLE} and no fonts are registered: PDF/A has to
+     *                                     embed every font, and without any the render never completes
+     */
+    public void requireAvailable(Profile profile) {
+        Profile effective = profile != null ? profile : properties.getDefaultProfile();
+        if (effective == Profile.ACCESSIBLE && fonts.isEmpty()) {
+            throw new ProfileUnavailableException(
+                    "The ACCESSIBLE profile is not available: no fonts are configured to embed");
+        }
+    }
+
+    /**
+     * Returns a builder configured for the given profile, or the default profile when {@code profile} is null.
+     * The caller still has to supply the document and the output stream.
+     *
+     * @throws ProfileUnavailableException if the profile cannot be rendered, see {@link #requireAvailable}
+     */
+    public PdfRendererBuilder newBuilder(Profile profile) {
+        requireAvailable(profile);
+        Profile effective = profile != null ? profile : properties.getDefaultProfile();
+
+        PdfRendererBuilder builder = new PdfRendererBuilder()
+                .useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache)
+                .withProducer(properties.getProducer())
+                .useUriResolver(resourceResolver)
+                .useHttpStreamImplementation(resourceResolver)
+                .useProtocolsStreamImplementation(resourceResolver,
+                        OfflineResourceResolver.CLASSPATH_SCHEME, OfflineResourceResolver.FILE_SCHEME);
+
+        for (FontFace font : fonts) {
+            builder.useFont(() -> new ByteArrayInputStream(font.data()),
+                    font.family(), font.weight(), font.style(), true);
+        }
+
+        if (effective == Profile.ACCESSIBLE) {
+            builder.usePdfUaAccessbility(true)
+                    .usePdfAConformance(PdfAConformance.PDFA_3_U);
+            if (colorProfile != null) {
+                builder.useColorProfile(colorProfile);
+            }
+        } else {
+            builder.useFastMode();
+        }
+        return builder;
+    }
+
+    /**
+     * Renders the HTML with the given profile straight into {@code out}.
+     */
+    public void render(String html, Profile profile, OutputStream out) throws IOException {
+        newBuilder(profile)
+                .withHtmlContent(html, resourceResolver.getBaseUri())
+                .toStream(out)
+                .run();
+    }
+
+    /**
+     * Renders an already parsed document with the given profile straight into {@code out}.
+     * <p>
+     * If the document carries a {@link #CREATION_DATE} it becomes the PDF's creation date and document ID seed,
+     * so the same document always renders to the same bytes.
+     */
+    public void render(Document document, Profile profile, OutputStream out) throws IOException {
+        PdfRendererBuilder builder = newBuilder(profile)
+                .withW3cDocument(document, resourceResolver.getBaseUri())
+                .toStream(out);
+        Object creationDate = document.getUserData(CREATION_DATE);
+        if (!(creationDate instanceof Instant instant)) {
+            builder.run();
+            return;
+        }
+        try (PdfBoxRenderer renderer = builder.buildPdfRenderer()) {
+            renderer.setListener(new FixedCreationDate(instant));
+            renderer.layout();
+            renderer.createPDF();
+        }
+    }
+
+    public Profile getDefaultProfile() {
+        return properties.getDefaultProfile();
+    }
+
+    private List<FontFace> discoverFonts(String fontsDir) {
+        if (!StringUtils.hasText(fontsDir)) {
+            return Collections.emptyList();
+        }
+        Path dir = Paths.get(fontsDir);
+        if (!Files.isDirectory(dir)) {
+            log.warn("Configured fonts directory does not exist: {}", fontsDir);
+            return Collections.emptyList();
+        }
+
+        List<FontFace> discovered = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(this::isFontFile).sorted().forEach(file -> {
+                try {
+                    byte[] data = Files.readAllBytes(file);
+                    FontFace font = describeFont(file, data);
+                    if (font != null) {
+                        discovered.add(font);
+                        log.debug("Registered font {}", file.getFileName());
+                    }
+                } catch (IOException e) {
+                    log.warn("Skipping unreadable font {}: {}", file, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to scan fonts directory {}: {}", fontsDir, e.getMessage());
+        }
+        return List.copyOf(discovered);
+    }
+
+    private boolean isFontFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".ttf") || name.endsWith(".otf");
+    }
+
+    /**
+     * @return the font, or null if it cannot be embedded
+     */
+    private FontFace describeFont(Path file, byte[] data) throws IOException {
+        boolean openType = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".otf");
+        try (TrueTypeFont ttf = openType ? new OTFParser().parse(new ByteArrayInputStream(data))
+                : new TTFParser().parse(new ByteArrayInputStream(data))) {
+            if (ttf instanceof OpenTypeFont otf && otf.isPostScript()) {
+                // PDFBox 2 only embeds TrueType outlines
+                log.warn("Skipping font {}: CFF-based OpenType fonts cannot be embedded", file.getFileName());
+                return null;
+            }
+            String family = ttf.getNaming().getFontFamily();
+            String subFamily = ttf.getNaming().getFontSubFamily();
+            int weight = ttf.getOS2Windows() != null ? ttf.getOS2Windows().getWeightClass() : 400;
+            FontStyle style = subFamily != null && subFamily.toLowerCase(Locale.ROOT).contains("italic")
+                    ? FontStyle.ITALIC
+                    : FontStyle.NORMAL;
+            return new FontFace(family, weight, style, data);
+        }
+    }
+
+    private byte[] loadColorProfile(String location) {
+        if (!StringUtils.hasText(location)) {
+            return null;
+        }
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            log.warn("Failed to load color profile {}: {}", location, e.getMessage());
+            return null;
+        }
+    }
+
+    private record FontFace(String family, int weight, FontStyle style, byte[] data) {
+    }
+
+    /**
+     * Replaces the wall-clock values openhtmltopdf writes just before saving: the Info creation date,
+     * the matching XMP dates of PDF/A output, and the trailer ID (derived from the document ID).
+     */
+    private static final class FixedCreationDate implements PDFCreationListener {
+
+        private final Instant creationDate;
+
+        FixedCreationDate(Instant creationDate) {
+            this.creationDate = creationDate;
+        }
+
+        @Override
+        public void preOpen(PdfBoxRenderer renderer) {
+        }
+
+        @Override
+        public void preWrite(PdfBoxRenderer renderer, int pageCount) {
+        }
+
+        @Override
+        public void onClose(PdfBoxRenderer renderer) {
+            PDDocument document = renderer.getPdfDocument();
+            Calendar wallClock = document.getDocumentInformation().getCreationDate();
+            Calendar calendar = GregorianCalendar.from(creationDate.atZone(ZoneOffset.UTC));
+            document.getDocumentInformation().setCreationDate(calendar);
+            document.setDocumentId(creationDate.toEpochMilli());
+
+            PDMetadata metadata = document.getDocumentCatalog().getMetadata();
+            if (metadata == null || wallClock == null) {
+                return;
+            }
+            // PDF/A output copies the creation date into XMP. Swapping the serialized value in place keeps the
+            // rest of the packet (PDF/UA and extension schemas) exactly as openhtmltopdf wrote it.
+            try (InputStream in = metadata.exportXMPMetadata()) {
+                String xmp = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                metadata.importXMPMetadata(xmp
+                        .replace(DateConverter.toISO8601(wallClock), DateConverter.toISO8601(calendar))
+                        .getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to pin XMP creation date", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.exception.RenderQueueFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Caps how many renders run at once (by default one per core) and how many may wait for a slot.
+ * <p>
+ * Callers beyond the wait queue, or that wait longer than the configured maximum, are rejected with a
+ * {@link RenderQueueFullException} carrying a retry hint derived from recent render times, instead of
+ * oversubscribing the CPU.
+ * <p>
+ * With offloading enabled, admitted renders run on a fixed pool of platform threads sized to the slots,
+ * while the caller (typically a virtual thread) just waits for the result.
+ * <p>
+ * A render that splits into independent pieces, such as layout chunks, only runs them in parallel on slots that
+ * are free, see {@link #runInParallel(int, int, IntConsumer)}, so it never keeps more cores busy than the slots.
+ */
+@Component
+public class RenderBulkhead {
+
+    private static final Logger log = LoggerFactory.getLogger(RenderBulkhead.class);
+
+    private static final String METRIC_PREFIX = "pdf.render.bulkhead";
+    private static final long INITIAL_RENDER_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Work run while holding a render slot.
+     */
+    @FunctionalInterface
+    public interface RenderTask<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    private final int maxConcurrent;
+    private final int queueCapacity;
+    private final Duration maxWait;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong averageRenderNanos = new AtomicLong(INITIAL_RENDER_NANOS);
+    private final Timer waitTimer;
+    private final Counter queueFullRejections;
+    private final Counter timeoutRejections;
+    private final ExecutorService renderPool;
+    private final ExecutorService helperPool;
+
+    public RenderBulkhead(PdfRenderProperties properties, MeterRegistry meterRegistry) {
+        PdfRenderProperties.Bulkhead config = properties.getBulkhead();
+        this.maxConcurrent = config.effectiveMaxConcurrent();
+        this.queueCapacity = config.effectiveQueueCapacity();
+        this.maxWait = config.getMaxWait();
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.renderPool = config.isOffload()
+                ? Executors.newFixedThreadPool(maxConcurrent, new CustomizableThreadFactory("pdf-render-"))
+                : null;
+        // Helpers only run on slots they took, so they never need more threads than there are slots
+        this.helperPool = Executors.newFixedThreadPool(maxConcurrent, new CustomizableThreadFactory("pdf-helper-"));
+
+        Gauge.builder(METRIC_PREFIX + ".active", this, RenderBulkhead::getActiveCount)
+                .description("Renders currently running")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".queue.depth", waiting, AtomicInteger::get)
+                .description("Renders waiting for a slot")
+                .register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".max.concurrent", () -> maxConcurrent)
+                .description("Renders allowed to run at once")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder(METRIC_PREFIX + ".wait")
+                .description("Time renders spent waiting for a slot")
+                .register(meterRegistry);
+        this.queueFullRejections = rejectionCounter(meterRegistry, "queue_full");
+        this.timeoutRejections = rejectionCounter(meterRegistry, "timeout");
+
+        log.info("Render bulkhead: {} concurrent, {} queued, max wait {}, render pool {}",
+                maxConcurrent, queueCapacity, maxWait, renderPool != null ? "enabled" : "disabled");
+    }
+
+    /**
+     * Runs the task once a render slot is free.
+     *
+     * @throws RenderQueueFullException if the wait queue is full or no slot frees up within the maximum wait
+     */
+    public <T, E extends Exception> T call(RenderTask<T, E> task) throws E {
+        acquire();
+        return runHoldingSlot(task);
+    }
+
+    /**
+     * Runs the task once a render slot is free, however long that takes. For work whose backpressure is applied
+     * before it gets here, such as accepted render jobs: they wait in line with requests, but neither take up the
+     * wait queue nor give up after the maximum wait.
+     */
+    public <T, E extends Exception> T callWhenFree(RenderTask<T, E> task) throws E {
+        long start = System.nanoTime();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PdfGenerationException("Interrupted while waiting for a render slot", e);
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return runHoldingSlot(task);
+    }
+
+    private <T, E extends Exception> T runHoldingSlot(RenderTask<T, E> task) throws E {
+        long start = System.nanoTime();
+        try {
+            return renderPool != null ? runOnRenderPool(task) : task.run();
+        } finally {
+            permits.release();
+            recordRenderTime(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs {@code pieces} independent pieces of one render, {@code piece.accept(i)} for each index, on the calling
+     * thread and on up to {@code maxHelpers} helper threads. A helper only starts on a slot that is free right now
+     * and no waiting render is in line for; without one the calling thread runs every piece itself. Pieces must
+     * not depend on the order or the thread they run on.
+     * <p>
+     * Once a piece fails, no further pieces are started and the failure is thrown; helpers finish the piece they
+     * are on and then give their slot back.
+     */
+    public void runInParallel(int pieces, int maxHelpers, IntConsumer piece) {
+        AtomicInteger next = new AtomicInteger();
+        AtomicBoolean failed = new AtomicBoolean();
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < pieces && !failed.get(); i = next.getAndIncrement()) {
+                try {
+                    piece.accept(i);
+                } catch (RuntimeException | Error e) {
+                    failed.set(true);
+                    throw e;
+                }
+            }
+        };
+
+        List<CompletableFuture<Void>> helpers = new ArrayList<>();
+        while (helpers.size() < Math.min(maxHelpers, pieces - 1) && tryAcquire(0)) {
+            helpers.add(CompletableFuture.runAsync(worker, helperPool)
+                    .whenComplete((result, e) -> permits.release()));
+        }
+        try {
+            worker.run();
+            for (CompletableFuture<Void> helper : helpers) {
+                helper.join();
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Estimated seconds until a render queued behind {@code queuedAhead} others would start.
+     */
+    public long estimateRetryAfterSeconds(int queuedAhead) {
+        long rounds = queuedAhead / maxConcurrent + 1L;
+        long seconds = (long) Math.ceil(rounds * averageRenderNanos.get() / 1e9);
+        return Math.max(1, seconds);
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getActiveCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getQueueDepth() {
+        return waiting.get();
+    }
+
+    private void acquire() {
+        long start = System.nanoTime();
+        // Fast path honours fairness, so new arrivals never overtake callers already waiting
+        if (tryAcquire(0)) {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return;
+        }
+
+        if (waiting.incrementAndGet() > queueCapacity) {
+            int depth = waiting.decrementAndGet();
+            queueFullRejections.increment();
+            throw new RenderQueueFullException(
+                    "Render capacity exhausted: " + depth + " renders waiting", estimateRetryAfterSeconds(depth));
+        }
+        boolean acquired;
+        try {
+            acquired = tryAcquire(maxWait.toNanos());
+        } finally {
+            waiting.decrementAndGet();
+        }
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (!acquired) {
+            timeoutRejections.increment();
+            throw new RenderQueueFullException("No render slot freed up within " + maxWait,
+                    estimateRetryAfterSeconds(waiting.get()));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T, E extends Exception> T runOnRenderPool(RenderTask<T, E> task) throws E {
+        Future<T> future = renderPool.submit(task::run);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PdfGenerationException("Interrupted while waiting for the render to finish", e);
+        } catch (ExecutionException e) {
+            // The task only throws E or unchecked exceptions, rethrow as if it had run on this thread
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (E) cause;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (renderPool != null) {
+            renderPool.shutdown();
+        }
+        helperPool.shutdown();
+    }
+
+    private boolean tryAcquire(long timeoutNanos) {
+        try {
+            return permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PdfGenerationException("Interrupted while waiting for a render slot", e);
+        }
+    }
+
+    private void recordRenderTime(long nanos) {
+        // Exponentially weighted moving average, weight 1/8 for the newest sample
+        averageRenderNanos.accumulateAndGet(nanos, (average, sample) -> average + (sample - average) / 8);
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder(METRIC_PREFIX + ".rejected")
+                .description("Renders rejected by the bulkhead")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
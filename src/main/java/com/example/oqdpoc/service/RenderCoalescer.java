@@ -0,0 +1,190 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.exception.ResponseCommittedException;
+import com.example.oqdpoc.service.RenderBulkhead.RenderTask;
+import com.example.oqdpoc.service.cache.RenderedPdfCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lets identical renders, identified by their cache key, share one render instead of each running the template
+ * and the layout.
+ * <p>
+ * On one instance, the first request for a key renders and later ones wait for its result (or its failure), for at
+ * most {@code lease-wait}; a request that waited that long renders itself.
+ * With a shared {@link RenderLease}, the rendering request first takes the lease for the key; if another instance
+ * holds it, the request waits for that instance's render to show up in the shared cache, and renders itself once
+ * the lease is free again or after {@code lease-wait}.
+ * <p>
+ * Metric: {@code pdf.render.coalesced} (tag {@code scope}: {@code local} or {@code cluster}) counts requests that
+ * waited for another request's render, tagged {@code result=shared} when they were served by it and
+ * {@code result=timeout} when they rendered themselves after {@code lease-wait}.
+ */
+@Component
+public class RenderCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(RenderCoalescer.class);
+
+    private final boolean enabled;
+    private final RenderLease lease;
+    private final RenderedPdfCache renderedPdfCache;
+    private final Duration leaseWait;
+    private final Duration pollInterval;
+    private final ConcurrentHashMap<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Counter coalescedLocal;
+    private final Counter coalescedCluster;
+    private final Counter timedOutLocal;
+    private final Counter timedOutCluster;
+
+    public RenderCoalescer(PdfRenderProperties properties, RenderLease renderLease, RenderedPdfCache renderedPdfCache,
+                           MeterRegistry meterRegistry) {
+        PdfRenderProperties.Coalescing config = properties.getCoalescing();
+        this.enabled = config.isEnabled();
+        this.lease = renderLease;
+        this.renderedPdfCache = renderedPdfCache;
+        this.leaseWait = config.getLeaseWait();
+        this.pollInterval = config.getPollInterval();
+        this.coalescedLocal = coalescedCounter(meterRegistry, "local", "shared");
+        this.coalescedCluster = coalescedCounter(meterRegistry, "cluster", "shared");
+        this.timedOutLocal = coalescedCounter(meterRegistry, "local", "timeout");
+        this.timedOutCluster = coalescedCounter(meterRegistry, "cluster", "timeout");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs the render for {@code key}, unless an identical one is already running, in which case its result is
+     * returned. The render is expected to put its result in the cache before returning.
+     *
+     * @param key    The cache key of the render
+     * @param render The render, typically run inside the bulkhead
+     * @return the PDF
+     */
+    public <E extends Exception> byte[] render(String key, RenderTask<byte[], E> render) throws E {
+        if (!enabled) {
+            return render.run();
+        }
+        CompletableFuture<byte[]> result = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, result);
+        if (running != null) {
+            log.debug("Waiting for render {} already in flight", key);
+            byte[] pdf = await(key, running);
+            return pdf != null ? pdf : render.run();
+        }
+        try {
+            byte[] pdf = renderOnce(key, render);
+            result.complete(pdf);
+            return pdf;
+        } catch (Exception | Error e) {
+            result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, result);
+        }
+    }
+
+    private <E extends Exception> byte[] renderOnce(String key, RenderTask<byte[], E> render) throws E {
+        if (!lease.isShared()) {
+            return render.run();
+        }
+        long deadline = System.nanoTime() + leaseWait.toNanos();
+        while (!lease.tryAcquire(key)) {
+            // Another instance is rendering this key, its result lands in the shared cache
+            Optional<byte[]> rendered = renderedPdfCache.find(key);
+            if (rendered.isPresent()) {
+                log.debug("Render {} served by another instance", key);
+                coalescedCluster.increment();
+                return rendered.get();
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                timedOutCluster.increment();
+                log.info("Render {} still leased by another instance after {}, rendering here", key, leaseWait);
+                return render.run();
+            }
+            sleep(pollInterval);
+        }
+        try {
+            return render.run();
+        } finally {
+            lease.release(key);
+        }
+    }
+
+    /**
+     * Renders waiting on this instance for an identical render.
+     */
+    int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * @return the leader's PDF, or null if it did not finish within {@code lease-wait} or failed while streaming it
+     */
+    @SuppressWarnings("unchecked")
+    private <E extends Exception> byte[] await(String key, CompletableFuture<byte[]> running) throws E {
+        waiting.incrementAndGet();
+        try {
+            byte[] pdf = running.get(leaseWait.toNanos(), TimeUnit.NANOSECONDS);
+            coalescedLocal.increment();
+            return pdf;
+        } catch (TimeoutException e) {
+            timedOutLocal.increment();
+            log.info("Render {} still in flight after {}, rendering here", key, leaseWait);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PdfGenerationException("Interrupted while waiting for an identical render", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ResponseCommittedException) {
+                // The leader's own response broke off, e.g. its client went away: render for this one instead
+                log.info("Render {} broke off while streaming, rendering here", key);
+                return null;
+            }
+            // The leader failed with E or an unchecked exception, fail the same way
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw (E) cause;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PdfGenerationException("Interrupted while waiting for another instance's render", e);
+        }
+    }
+
+    private static Counter coalescedCounter(MeterRegistry meterRegistry, String scope, String result) {
+        return Counter.builder("pdf.render.coalesced")
+                .description("Requests that waited for an identical render of another request")
+                .tag("scope", scope)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.oqdpoc.service;
+
+/**
+ * Exclusive right to render a given cache key, held by at most one instance at a time.
+ */
+public interface RenderLease {
+
+    /**
+     * Lease for a single instance: always granted, nothing to wait for elsewhere.
+     */
+    RenderLease LOCAL = new RenderLease() {
+        @Override
+        public boolean tryAcquire(String key) {
+            return true;
+        }
+
+        @Override
+        public void release(String key) {
+        }
+
+        @Override
+        public boolean isShared() {
+            return false;
+        }
+    };
+
+    /**
+     * @return true if this instance may render the key now, false if another instance holds the lease
+     */
+    boolean tryAcquire(String key);
+
+    void release(String key);
+
+    /**
+     * @return true if leases are shared with other instances, which then put their renders in the shared cache
+     */
+    default boolean isShared() {
+        return true;
+    }
+}
@@ -0,0 +1,270 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.model.jobticket.Answers;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.jobticket.Metadata;
+import com.example.oqdpoc.model.jobticket.Question;
+import com.example.oqdpoc.model.jobticket.Section;
+import com.example.oqdpoc.model.jobticket.SignatureResponse;
+import com.example.oqdpoc.model.report.ReportViewModel;
+import com.example.oqdpoc.model.report.ReportViewModel.FileLink;
+import com.example.oqdpoc.model.report.ReportViewModel.MetadataEntry;
+import com.example.oqdpoc.model.report.ReportViewModel.QuestionView;
+import com.example.oqdpoc.model.report.ReportViewModel.ResponseKind;
+import com.example.oqdpoc.model.report.ReportViewModel.SectionView;
+import com.example.oqdpoc.model.report.ReportViewModel.SignatureView;
+import com.example.oqdpoc.model.report.ReportViewModel.WorkOrderView;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Array;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds the {@link ReportViewModel} of a job ticket: walks the ticket once, formats every date and classifies
+ * every response, so rendering the report does no reflective expression work beyond reading flat fields.
+ */
+@Component
+public class ReportViewModelBuilder {
+
+    private static final String MISSING = "—";
+
+    // The report is in English, whatever the server's locale
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("MMM dd, yyyy", Locale.ENGLISH);
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm", Locale.ENGLISH);
+    private static final DateTimeFormatter DATE_TIME =
+            DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm", Locale.ENGLISH);
+    private static final DateTimeFormatter ISO_DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm", Locale.ENGLISH);
+
+    /**
+     * @param jobTicket          The parsed job ticket
+     * @param workOrderForReport The work order matching the ticket, or null
+     * @param reportDate         The date printed in the report header
+     * @return the view model of the report
+     */
+    public ReportViewModel build(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate) {
+        Answers answers = jobTicket.getAnswers();
+        Metadata.Additional additional = answers != null && answers.getMetadata() != null
+                ? answers.getMetadata().getAdditional() : null;
+        Metadata.WorkOrder ticketWorkOrder = additional != null ? additional.getWorkOrder() : null;
+        Metadata.Asset asset = additional != null ? additional.getAsset() : null;
+
+        return new ReportViewModel(
+                answers != null ? answers.getTitle() : null,
+                DAY.format(reportDate) + " at " + TIME.format(reportDate),
+                jobTicket.getId(),
+                ticketWorkOrder != null ? ticketWorkOrder.getWorkOrderNum() : null,
+                ticketWorkOrder != null ? ticketWorkOrder.getTitle() : null,
+                format(jobTicket.getCreatedAt(), ISO_DATE_TIME, null),
+                jobTicket.getUser() != null ? jobTicket.getUser().getEmail() : null,
+                asset != null ? asset.getDesignation() : null,
+                asset != null && asset.getPartNumber() != null ? asset.getPartNumber() : MISSING,
+                asset != null ? orMissing(asset.getSerialNumber()) : MISSING,
+                workOrderForReport != null ? workOrder(workOrderForReport) : null,
+                answers != null && answers.getSections() != null ? sections(answers.getSections()) : List.of());
+    }
+
+    /**
+     * @param sections The sections of a job ticket
+     * @return their views, in the same order
+     */
+    public List<SectionView> sections(List<Section> sections) {
+        List<SectionView> views = new ArrayList<>(sections.size());
+        for (Section section : sections) {
+            views.add(section(section));
+        }
+        return views;
+    }
+
+    private static SectionView section(Section section) {
+        if (section == null) {
+            return new SectionView("Untitled Section", null, List.of());
+        }
+        List<QuestionView> questions = new ArrayList<>();
+        if (section.getQuestions() != null) {
+            for (Question question : section.getQuestions()) {
+                if (question != null && !question.isHideInReport()) {
+                    questions.add(question(question));
+                }
+            }
+        }
+        return new SectionView(section.getTitle() != null ? section.getTitle() : "Untitled Section",
+                emptyToNull(section.getDescription()), questions);
+    }
+
+    private static QuestionView question(Question question) {
+        ResponseKind kind = kind(question);
+        Object response = question.getResponse();
+        String commentHtml = question.isComment() ? emptyToNull(question.getCommentContent()) : null;
+        return new QuestionView(
+                question.getTitle(),
+                emptyToNull(question.getHint()),
+                kind,
+                kind == ResponseKind.TEXT && response != null ? emptyToNull(response.toString()) : null,
+                "paragraph".equals(question.getFormat()),
+                kind == ResponseKind.CHOICE ? choices(response) : List.of(),
+                kind == ResponseKind.SIGNATURE ? signature(question) : null,
+                kind == ResponseKind.FILE ? files(response) : List.of(),
+                commentHtml,
+                question.getAttachmentContents() != null ? question.getAttachmentContents() : List.of(),
+                metadata(question.getMetadata()));
+    }
+
+    private static ResponseKind kind(Question question) {
+        String type = question.getType();
+        if (type == null) {
+            return ResponseKind.NONE;
+        }
+        return switch (type) {
+            case "text", "number", "date" -> ResponseKind.TEXT;
+            case "multiple_choice", "multiple-choice", "choice", "checkbox" -> ResponseKind.CHOICE;
+            case "signature" -> ResponseKind.SIGNATURE;
+            case "file" -> question.getResponse() != null ? ResponseKind.FILE : ResponseKind.NONE;
+            default -> ResponseKind.NONE;
+        };
+    }
+
+    private static List<String> choices(Object response) {
+        List<String> choices = new ArrayList<>();
+        for (Object choice : elements(response)) {
+            if (choice != null) {
+                choices.add(choice.toString());
+            }
+        }
+        return choices;
+    }
+
+    private static SignatureView signature(Question question) {
+        Object response = question.getResponse();
+        String name;
+        String role;
+        String file;
+        if (response instanceof SignatureResponse signature) {
+            name = signature.getName();
+            role = signature.getRole();
+            file = signature.getFile();
+        } else if (response instanceof Map<?, ?> signature) {
+            name = string(signature.get("name"));
+            role = string(signature.get("role"));
+            file = string(signature.get("file"));
+        } else {
+            name = null;
+            role = null;
+            file = null;
+        }
+        file = emptyToNull(file);
+        return new SignatureView(
+                name != null ? name : "Not signed",
+                emptyToNull(role),
+                format(question.getSignatureDate(), DATE_TIME, null),
+                file == null || file.startsWith("data:") ? file : "data:image/png;base64," + file);
+    }
+
+    private static List<FileLink> files(Object response) {
+        List<FileLink> files = new ArrayList<>();
+        if (!(response instanceof Collection<?>) && (response == null || !response.getClass().isArray())) {
+            return files;
+        }
+        List<Object> elements = elements(response);
+        for (int i = 0; i < elements.size(); i++) {
+            if (elements.get(i) instanceof Map<?, ?> file) {
+                String name = string(file.get("name"));
+                Object size = file.get("size");
+                files.add(new FileLink(name != null ? name : "File " + (i + 1), string(file.get("url")),
+                        size != null ? "(" + size + " KB)" : null));
+            }
+        }
+        return files;
+    }
+
+    private static List<MetadataEntry> metadata(Map<String, Object> metadata) {
+        if (metadata == null || metadata.isEmpty()) {
+            return List.of();
+        }
+        List<MetadataEntry> entries = new ArrayList<>(metadata.size());
+        metadata.forEach((key, value) -> {
+            if (value != null && !"".equals(value)) {
+                entries.add(new MetadataEntry(key, value.toString()));
+            }
+        });
+        return entries;
+    }
+
+    private static WorkOrderView workOrder(WorkOrder workOrder) {
+        return new WorkOrderView(
+                orMissing(workOrder.getWonum()),
+                orMissing(workOrder.getDescription()),
+                workDetails(workOrder.getLongDescription()),
+                orMissing(workOrder.getAssetNum()),
+                orMissing(workOrder.getWorkType()),
+                orMissing(workOrder.getVendor()),
+                format(workOrder.getScheduledStart(), DATE_TIME, MISSING),
+                format(workOrder.getScheduledFinish(), DATE_TIME, MISSING),
+                orMissing(workOrder.getN1n9()),
+                orMissing(workOrder.getAnd()),
+                format(workOrder.getCallDate(), DATE_TIME, MISSING),
+                orMissing(workOrder.getCfto()),
+                orMissing(workOrder.getAdditionalDescription()),
+                orMissing(workOrder.getAmountCompletedPlan()),
+                workOrder.getAnswerComplete() != null ? workOrder.getAnswerComplete().toString() : MISSING,
+                format(workOrder.getAnswerDate(), DATE_TIME, MISSING),
+                orMissing(workOrder.getAnswerFrom()),
+                orMissing(workOrder.getAnswerTo()),
+                orMissing(workOrder.getOperationDefinition()));
+    }
+
+    /**
+     * Splits the comma separated long description into sentences, one bullet each.
+     */
+    private static List<String> workDetails(String longDescription) {
+        if (longDescription == null) {
+            return List.of();
+        }
+        List<String> details = new ArrayList<>();
+        for (String item : longDescription.split(",")) {
+            String detail = item.trim();
+            if (!detail.isEmpty()) {
+                details.add(detail.endsWith(".") ? detail : detail + ".");
+            }
+        }
+        return details;
+    }
+
+    private static List<Object> elements(Object response) {
+        List<Object> elements = new ArrayList<>();
+        if (response instanceof Collection<?> collection) {
+            elements.addAll(collection);
+        } else if (response != null && response.getClass().isArray()) {
+            for (int i = 0; i < Array.getLength(response); i++) {
+                elements.add(Array.get(response, i));
+            }
+        } else if (response != null && !response.toString().isEmpty()) {
+            elements.add(response);
+        }
+        return elements;
+    }
+
+    private static String format(TemporalAccessor date, DateTimeFormatter formatter, String missing) {
+        return date != null ? formatter.format(date) : missing;
+    }
+
+    private static String orMissing(String value) {
+        return value != null && !value.isEmpty() ? value : MISSING;
+    }
+
+    private static String emptyToNull(String value) {
+        return value != null && !value.isEmpty() ? value : null;
+    }
+
+    private static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+}
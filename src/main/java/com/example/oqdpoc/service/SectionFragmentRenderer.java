@@ -0,0 +1,177 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfCacheProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.TemplateBackend;
+import com.example.oqdpoc.model.report.ReportViewModel.SectionView;
+import com.example.oqdpoc.service.cache.SectionFragmentCache;
+import com.example.oqdpoc.service.template.CompiledJobTicketSectionTemplate;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Renders the sections of a job ticket report one by one, through the {@code jobTicketSection} template, and
+ * caches their HTML by a hash of the section's view and of that template.
+ * <p>
+ * Answers to long checklists come in a few at a time, so a re-render usually finds all but one or two sections
+ * in the cache. Sections that are not cached are rendered by the calling thread, helped by as many threads as the
+ * {@link RenderBulkhead} has free slots, and the report template then only inserts the HTML. Both template
+ * backends render the same HTML, so they share the cache.
+ * <p>
+ * Metric: {@code pdf.template.fragments} (tag {@code result}: {@code hit} or {@code miss}).
+ */
+@Service
+public class SectionFragmentRenderer {
+
+    private static final Logger log = LoggerFactory.getLogger(SectionFragmentRenderer.class);
+
+    public static final String SECTION_TEMPLATE = "jobTicketSection";
+
+    private final ITemplateEngine templateEngine;
+    private final boolean enabled;
+    private final SectionFragmentCache cache;
+    private final ObjectMapper canonicalMapper;
+    private final byte[] templateFingerprint;
+    private final RenderBulkhead renderBulkhead;
+    private final int maxHelpers;
+    private final Counter hits;
+    private final Counter misses;
+
+    public SectionFragmentRenderer(ITemplateEngine templateEngine, PdfCacheProperties properties,
+                                   ObjectMapper objectMapper, RenderBulkhead renderBulkhead,
+                                   MeterRegistry meterRegistry) {
+        PdfCacheProperties.Fragments config = properties.getFragments();
+        this.templateEngine = templateEngine;
+        this.enabled = config.isEnabled();
+        this.cache = new SectionFragmentCache(config.getMaxSize().toBytes() / Character.BYTES);
+        // Same canonical form as the PDF cache key: stable property and map key order
+        this.canonicalMapper = objectMapper.copy().setConfig(objectMapper.getSerializationConfig()
+                .with(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS));
+        this.templateFingerprint = fingerprintTemplate();
+        this.renderBulkhead = renderBulkhead;
+        // The calling thread renders sections of its own
+        this.maxHelpers = config.effectiveParallelism() - 1;
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Renders the given sections with Thymeleaf, from the cache where possible.
+     *
+     * @param sections The section views of the report, in report order
+     * @return the HTML of each section, in the same order
+     */
+    public List<String> render(List<SectionView> sections) {
+        return render(sections, TemplateBackend.THYMELEAF);
+    }
+
+    /**
+     * Renders the given sections, from the cache where possible.
+     *
+     * @param sections The section views of the report, in report order
+     * @param backend  How sections missing from the cache are rendered
+     * @return the HTML of each section, in the same order
+     */
+    public List<String> render(List<SectionView> sections, TemplateBackend backend) {
+        String[] fragments = new String[sections.size()];
+        List<Integer> uncached = new ArrayList<>();
+        List<String> uncachedKeys = new ArrayList<>();
+        for (int i = 0; i < fragments.length; i++) {
+            String key = key(sections.get(i));
+            Optional<String> cached = cache.find(key);
+            if (cached.isPresent()) {
+                fragments[i] = cached.get();
+            } else {
+                uncached.add(i);
+                uncachedKeys.add(key);
+            }
+        }
+        hits.increment(fragments.length - uncached.size());
+        misses.increment(uncached.size());
+        if (uncached.isEmpty()) {
+            return Arrays.asList(fragments);
+        }
+        log.debug("Rendering {} of {} sections, the rest from cache", uncached.size(), fragments.length);
+
+        // Writes by the helper threads happen-before runInParallel returns
+        renderBulkhead.runInParallel(uncached.size(), maxHelpers, j -> fragments[uncached.get(j)] =
+                renderAndCache(uncachedKeys.get(j), sections.get(uncached.get(j)), backend));
+        return Arrays.asList(fragments);
+    }
+
+    private String renderAndCache(String key, SectionView section, TemplateBackend backend) {
+        String html;
+        if (backend == TemplateBackend.COMPILED) {
+            StringBuilder out = new StringBuilder(4096);
+            CompiledJobTicketSectionTemplate.render(section, out);
+            html = out.toString();
+        } else {
+            Context context = new Context();
+            context.setVariable("section", section);
+            html = templateEngine.process(SECTION_TEMPLATE, context);
+        }
+        cache.put(key, html);
+        return html;
+    }
+
+    private String key(SectionView section) {
+        MessageDigest digest = sha256();
+        digest.update(templateFingerprint);
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            canonicalMapper.writeValue(out, section);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize section for the fragment cache key", e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static byte[] fingerprintTemplate() {
+        // A deployment that changes the section template must not reuse HTML rendered by the old one
+        ClassPathResource template = new ClassPathResource("templates/" + SECTION_TEMPLATE + ".html");
+        try (InputStream in = template.getInputStream()) {
+            return sha256().digest(in.readAllBytes());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to fingerprint template " + SECTION_TEMPLATE, e);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pdf.template.fragments")
+                .description("Report sections taken from the fragment cache or rendered")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lays out a large job ticket report as several documents at once, one per chunk of consecutive sections, and
+ * merges them. Layout runs on one thread per document, so a report with hundreds of questions otherwise keeps a
+ * single core busy however many are idle.
+ * <p>
+ * Every chunk is a copy of the report document with the same head (stylesheets) and running page header. The
+ * first chunk keeps what comes before the sections, the last one what comes after. Each chunk starts on a new
+ * page. The {@code @page} footer would count the pages of each chunk, so it is removed and "Page n of m" is
+ * stamped onto the merged pages instead.
+ * <p>
+ * Chunks are cut by an estimate of their layout cost: the number of elements, with images counting extra. The
+ * calling thread lays out chunks itself, helped by as many threads as the {@link RenderBulkhead} has free slots,
+ * so concurrent large reports do not keep more cores busy than the bulkhead allows. How many chunks a report is
+ * cut into does not depend on that, so the output stays the same under any load.
+ */
+@Service
+public class SplitReportRenderer {
+
+    private static final Logger log = LoggerFactory.getLogger(SplitReportRenderer.class);
+
+    static final String SECTION_CONTAINER = "section-container";
+    static final String SECTION = "section-card";
+    private static final String PAGE_HEADER = "page-header";
+    private static final String NO_PAGE_FOOTER = "@page { @bottom-center { content: none; } }";
+    // Decoding and scaling an image costs about as much as laying out this many elements
+    private static final int IMAGE_WEIGHT = 25;
+
+    // The @bottom-center box of job-ticket.css: 9pt #666, centered in the 2.5cm bottom margin
+    private static final PDFont PAGE_NUMBER_FONT = PDType1Font.HELVETICA;
+    private static final float PAGE_NUMBER_FONT_SIZE = 9;
+    private static final float PAGE_NUMBER_GRAY = 0.4f;
+    private static final float PAGE_NUMBER_BASELINE = 32;
+
+    private final PdfRenderEngine renderEngine;
+    private final PdfRenderProperties properties;
+    private final RenderBulkhead renderBulkhead;
+
+    public SplitReportRenderer(PdfRenderEngine renderEngine, PdfRenderProperties properties,
+                               RenderBulkhead renderBulkhead) {
+        this.renderEngine = renderEngine;
+        this.properties = properties;
+        this.renderBulkhead = renderBulkhead;
+    }
+
+    /**
+     * Whether the document is laid out in chunks: splitting is enabled, the profile is {@link Profile#FAST}, and
+     * the report has sections for at least two chunks.
+     *
+     * @param profile The render profile, or null for the configured default
+     */
+    public boolean handles(Document document, Profile profile) {
+        Profile effective = profile != null ? profile : properties.getDefaultProfile();
+        PdfRenderProperties.Split config = properties.getSplit();
+        return config.isEnabled() && effective == Profile.FAST && chunkCount(document) > 1;
+    }
+
+    /**
+     * Lays out the chunks of the document, concurrently as far as render slots are free, and writes the merged PDF
+     * to {@code out}, which is left open. Once a chunk fails, no further chunks are laid out.
+     */
+    public void render(Document document, Profile profile, OutputStream out) throws IOException {
+        List<Document> chunks = split(document, chunkCount(document));
+        log.debug("Rendering report in {} chunks", chunks.size());
+
+        byte[][] parts = new byte[chunks.size()][];
+        try {
+            renderBulkhead.runInParallel(chunks.size(), chunks.size() - 1,
+                    i -> parts[i] = layout(chunks.get(i), profile));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        merge(Arrays.asList(parts), out);
+    }
+
+    private int chunkCount(Document document) {
+        Element container = findByClass(document.getDocumentElement(), SECTION_CONTAINER);
+        if (container == null) {
+            return 0;
+        }
+        int sections = sections(container).size();
+        int minSections = Math.max(1, properties.getSplit().getMinSectionsPerChunk());
+        return Math.min(properties.getSplit().effectiveParallelism(), sections / minSections);
+    }
+
+    /**
+     * Copies the document once per chunk of sections, cut where the estimated layout cost of the chunks is even.
+     */
+    List<Document> split(Document document, int chunkCount) {
+        Element container = findByClass(document.getDocumentElement(), SECTION_CONTAINER);
+        List<Element> sections = sections(container);
+        long[] weights = new long[sections.size()];
+        long total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = weight(sections.get(i));
+            total += weights[i];
+        }
+
+        List<Integer> starts = new ArrayList<>(List.of(0));
+        long cumulative = 0;
+        for (int i = 0; i < weights.length && starts.size() < chunkCount; i++) {
+            // Cut before this section once the chunk so far has its share, leaving a section for every chunk left
+            if (i > starts.get(starts.size() - 1)
+                    && cumulative * chunkCount >= total * starts.size()
+                    && weights.length - i >= chunkCount - starts.size()) {
+                starts.add(i);
+            }
+            cumulative += weights[i];
+        }
+        starts.add(sections.size());
+
+        List<Document> chunks = new ArrayList<>(starts.size() - 1);
+        for (int c = 0; c < starts.size() - 1; c++) {
+            chunks.add(chunk(document, starts.get(c), starts.get(c + 1), c == 0, c == starts.size() - 2));
+        }
+        return chunks;
+    }
+
+    private static Document chunk(Document document, int from, int to, boolean first, boolean last) {
+        Document copy = (Document) document.cloneNode(true);
+        copy.setUserData(PdfRenderEngine.CREATION_DATE, document.getUserData(PdfRenderEngine.CREATION_DATE), null);
+        Element container = findByClass(copy.getDocumentElement(), SECTION_CONTAINER);
+        List<Element> sections = sections(container);
+        for (int i = 0; i < sections.size(); i++) {
+            if (i < from || i >= to) {
+                container.removeChild(sections.get(i));
+            }
+        }
+
+        // Drop the content around the sections, on every level up to the body
+        for (Node node = container; node.getParentNode() instanceof Element parent; node = parent) {
+            if (!first) {
+                removeSiblings(node.getPreviousSibling(), true);
+            }
+            if (!last) {
+                removeSiblings(node.getNextSibling(), false);
+            }
+            if ("body".equalsIgnoreCase(parent.getNodeName())) {
+                break;
+            }
+        }
+
+        Node head = copy.getElementsByTagName("head").item(0);
+        if (head != null) {
+            Element style = copy.createElementNS(head.getNamespaceURI(), "style");
+            style.setTextContent(NO_PAGE_FOOTER);
+            head.appendChild(style);
+        }
+        return copy;
+    }
+
+    private static void removeSiblings(Node sibling, boolean backwards) {
+        while (sibling != null) {
+            Node next = backwards ? sibling.getPreviousSibling() : sibling.getNextSibling();
+            if (sibling instanceof Element element && !keep(element)) {
+                sibling.getParentNode().removeChild(sibling);
+            }
+            sibling = next;
+        }
+    }
+
+    /**
+     * The running page header and stylesheets, which every chunk needs.
+     */
+    private static boolean keep(Element element) {
+        String name = element.getNodeName();
+        return hasClass(element, PAGE_HEADER) || "link".equalsIgnoreCase(name) || "style".equalsIgnoreCase(name);
+    }
+
+    private byte[] layout(Document chunk, Profile profile) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            renderEngine.render(chunk, profile, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void merge(List<byte[]> parts, OutputStream out) throws IOException {
+        List<PDDocument> sources = new ArrayList<>(parts.size() - 1);
+        // The first chunk carries the document information and ID of the report
+        try (PDDocument merged = PDDocument.load(parts.get(0))) {
+            PDFMergerUtility merger = new PDFMergerUtility();
+            for (byte[] part : parts.subList(1, parts.size())) {
+                // Appended pages keep referring to their source, so sources stay open until the merged file is saved
+                PDDocument source = PDDocument.load(part);
+                sources.add(source);
+                merger.appendDocument(merged, source);
+            }
+            stampPageNumbers(merged);
+            merged.save(StreamUtils.nonClosing(out));
+        } finally {
+            for (PDDocument source : sources) {
+                source.close();
+            }
+        }
+    }
+
+    private static void stampPageNumbers(PDDocument document) throws IOException {
+        int pageCount = document.getNumberOfPages();
+        int pageNumber = 0;
+        for (PDPage page : document.getPages()) {
+            pageNumber++;
+            String text = "Page " + pageNumber + " of " + pageCount;
+            float width = PAGE_NUMBER_FONT.getStringWidth(text) / 1000 * PAGE_NUMBER_FONT_SIZE;
+            PDRectangle box = page.getMediaBox();
+            try (PDPageContentStream content = new PDPageContentStream(document, page,
+                    PDPageContentStream.AppendMode.APPEND, true, true)) {
+                content.beginText();
+                content.setFont(PAGE_NUMBER_FONT, PAGE_NUMBER_FONT_SIZE);
+                content.setNonStrokingColor(PAGE_NUMBER_GRAY);
+                content.newLineAtOffset(box.getLowerLeftX() + (box.getWidth() - width) / 2,
+                        box.getLowerLeftY() + PAGE_NUMBER_BASELINE);
+                content.showText(text);
+                content.endText();
+            }
+        }
+    }
+
+    private static long weight(Element element) {
+        long weight = "img".equalsIgnoreCase(element.getNodeName()) ? IMAGE_WEIGHT : 1;
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element childElement) {
+                weight += weight(childElement);
+            }
+        }
+        return weight;
+    }
+
+    private static List<Element> sections(Element container) {
+        List<Element> sections = new ArrayList<>();
+        for (Node child = container.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element element && hasClass(element, SECTION)) {
+                sections.add(element);
+            }
+        }
+        return sections;
+    }
+
+    private static Element findByClass(Element element, String className) {
+        if (hasClass(element, className)) {
+            return element;
+        }
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element childElement) {
+                Element found = findByClass(childElement, className);
+                if (found != null) {
+                    return found;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean hasClass(Element element, String className) {
+        String classes = element.getAttribute("class");
+        if (classes.isEmpty()) {
+            return false;
+        }
+        for (String name : classes.split("\\s+")) {
+            if (name.equals(className)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.example.oqdpoc.service;
+
+import org.thymeleaf.IThrottledTemplateProcessor;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * {@link Reader} that pulls template output from a throttled Thymeleaf processor one chunk at a time,
+ * so a consumer such as an XML parser can read the rendered page without it ever being held as a String.
+ */
+class ThrottledTemplateReader extends Reader {
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final IThrottledTemplateProcessor processor;
+    private final ChunkWriter chunk = new ChunkWriter();
+    private int position;
+
+    ThrottledTemplateReader(IThrottledTemplateProcessor processor) {
+        this.processor = processor;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        while (position >= chunk.count) {
+            if (processor.isFinished()) {
+                return -1;
+            }
+            chunk.count = 0;
+            position = 0;
+            processor.process(CHUNK_SIZE, chunk);
+        }
+        int n = Math.min(len, chunk.count - position);
+        System.arraycopy(chunk.buffer, position, cbuf, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release: the processor holds no external resources once abandoned
+    }
+
+    /**
+     * Reusable growable buffer the processor writes each chunk into.
+     */
+    private static final class ChunkWriter extends Writer {
+        private char[] buffer = new char[CHUNK_SIZE];
+        private int count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            if (count + len > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + len));
+            }
+            System.arraycopy(cbuf, off, buffer, count, len);
+            count += len;
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            if (count + len > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + len));
+            }
+            str.getChars(off, off + len, buffer, count);
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
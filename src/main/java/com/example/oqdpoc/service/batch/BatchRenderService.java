@@ -0,0 +1,281 @@
+package com.example.oqdpoc.service.batch;
+
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.exception.RenderQueueFullException;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.example.oqdpoc.service.JobTicketTemplateService;
+import com.example.oqdpoc.service.PdfGenerationService;
+import com.example.oqdpoc.service.RenderBulkhead;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.w3c.dom.Document;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Renders many job tickets against one shared short work period and streams the PDFs into a ZIP
+ * as they complete.
+ * <p>
+ * At most one render per bulkhead slot is in flight, so memory stays bounded by the slot count rather than
+ * the batch size. Failed tickets don't abort the batch: every ticket gets an entry in {@value #MANIFEST_ENTRY},
+ * written last.
+ * <p>
+ * The same windowed rendering backs {@link #renderMerged}, which spills each PDF to disk so the tickets can be
+ * merged into one document without holding the batch in memory.
+ */
+@Service
+public class BatchRenderService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchRenderService.class);
+
+    public static final String MANIFEST_ENTRY = "manifest.json";
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final JobTicketRequestReader jobTicketRequestReader;
+    private final JobTicketTemplateService jobTicketTemplateService;
+    private final PdfGenerationService pdfGenerationService;
+    private final RenderBulkhead renderBulkhead;
+    private final ObjectMapper objectMapper;
+
+    public BatchRenderService(JobTicketRequestReader jobTicketRequestReader,
+                              JobTicketTemplateService jobTicketTemplateService,
+                              PdfGenerationService pdfGenerationService,
+                              RenderBulkhead renderBulkhead,
+                              ObjectMapper objectMapper) {
+        this.jobTicketRequestReader = jobTicketRequestReader;
+        this.jobTicketTemplateService = jobTicketTemplateService;
+        this.pdfGenerationService = pdfGenerationService;
+        this.renderBulkhead = renderBulkhead;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Outcome of one ticket of the batch, as listed in the manifest.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record ManifestEntry(int index, String jobTicketId, String status, String file, Integer sizeBytes,
+                                Long renderMillis, String error) {
+
+        public static final String SUCCEEDED = "SUCCEEDED";
+        public static final String FAILED = "FAILED";
+    }
+
+    private record ItemResult(ManifestEntry entry, byte[] pdf) {
+    }
+
+    /**
+     * Receives each rendered ticket on the calling thread, in completion order.
+     */
+    @FunctionalInterface
+    private interface ItemSink {
+        void accept(ItemResult result) throws IOException;
+    }
+
+    /**
+     * Renders every job ticket and writes the ZIP to {@code outputStream}, which is left open.
+     *
+     * @param jobTickets One JSON node per job ticket, in request order
+     * @param workOrders Work orders of the shared short work period, by number
+     * @param profile    The render profile, or null for the configured default
+     * @return the manifest entries, in request order
+     */
+    public List<ManifestEntry> renderZip(List<JsonNode> jobTickets, Map<String, WorkOrder> workOrders,
+                                         Profile profile, OutputStream outputStream) throws IOException {
+        List<ManifestEntry> manifest;
+        try (ZipOutputStream zip = new ZipOutputStream(StreamUtils.nonClosing(outputStream))) {
+            manifest = renderAll(jobTickets, workOrders, profile, result -> {
+                if (result.pdf() != null) {
+                    writeStoredEntry(zip, result.entry().file(), result.pdf());
+                }
+            });
+            zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+            objectMapper.writeValue(StreamUtils.nonClosing(zip), createManifest(manifest));
+            zip.closeEntry();
+            zip.finish();
+        }
+        return manifest;
+    }
+
+    /**
+     * Renders every job ticket into a spill directory, ready to be merged into one PDF. The caller must close
+     * the returned batch to delete the spilled files.
+     *
+     * @param jobTickets One JSON node per job ticket, in request order
+     * @param workOrders Work orders of the shared short work period, by number
+     * @param profile    The render profile, or null for the configured default
+     * @return the rendered batch; its manifest lists every ticket in request order
+     */
+    public MergedBatch renderMerged(List<JsonNode> jobTickets, Map<String, WorkOrder> workOrders,
+                                    Profile profile) throws IOException {
+        MergedBatch batch = new MergedBatch(Files.createTempDirectory("pdf-merge-"));
+        try {
+            batch.setManifest(renderAll(jobTickets, workOrders, profile,
+                    result -> {
+                        if (result.pdf() != null) {
+                            batch.spill(result.entry(), result.pdf());
+                        }
+                    }));
+            return batch;
+        } catch (IOException | RuntimeException e) {
+            batch.close();
+            throw e;
+        }
+    }
+
+    private List<ManifestEntry> renderAll(List<JsonNode> jobTickets, Map<String, WorkOrder> workOrders,
+                                          Profile profile, ItemSink sink) throws IOException {
+        int window = Math.min(renderBulkhead.getMaxConcurrent(), jobTickets.size());
+        List<ManifestEntry> manifest = new ArrayList<>(jobTickets.size());
+        log.info("Rendering batch of {} job tickets, {} in flight", jobTickets.size(), window);
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            CompletionService<ItemResult> completion = new ExecutorCompletionService<>(executor);
+            int next = 0;
+            int inFlight = 0;
+            for (; next < window; next++, inFlight++) {
+                submit(completion, next, jobTickets.get(next), workOrders, profile);
+            }
+            while (inFlight > 0) {
+                ItemResult result = take(completion);
+                inFlight--;
+                if (next < jobTickets.size()) {
+                    submit(completion, next, jobTickets.get(next), workOrders, profile);
+                    next++;
+                    inFlight++;
+                }
+                sink.accept(result);
+                manifest.add(result.entry());
+            }
+        } finally {
+            // Normally idle by now; on a failed write, stop whatever is still rendering
+            executor.shutdownNow();
+        }
+        manifest.sort(Comparator.comparingInt(ManifestEntry::index));
+        log.info("Batch finished: {} of {} job tickets rendered", countSucceeded(manifest), manifest.size());
+        return manifest;
+    }
+
+    private void submit(CompletionService<ItemResult> completion, int index, JsonNode jobTicketNode,
+                        Map<String, WorkOrder> workOrders, Profile profile) {
+        completion.submit(() -> renderItem(index, jobTicketNode, workOrders, profile));
+    }
+
+    private ItemResult take(CompletionService<ItemResult> completion) {
+        try {
+            return completion.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PdfGenerationException("Interrupted while rendering batch", e);
+        } catch (ExecutionException e) {
+            // renderItem reports failures in its result, so this is a bug rather than a bad ticket
+            throw new PdfGenerationException("Batch item failed unexpectedly: " + e.getCause(), e.getCause());
+        }
+    }
+
+    private ItemResult renderItem(int index, JsonNode jobTicketNode, Map<String, WorkOrder> workOrders,
+                                  Profile profile) {
+        String jobTicketId = jobTicketNode.path("id").asText(null);
+        long start = System.nanoTime();
+        try {
+            JobTicket jobTicket = jobTicketRequestReader.readJobTicket(jobTicketNode);
+            WorkOrder workOrderForReport = jobTicketRequestReader.findWorkOrder(jobTicket, workOrders);
+
+            byte[] pdf = renderWithBackoff(jobTicket, workOrderForReport, profile);
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            String file = entryName(index, jobTicketId);
+            return new ItemResult(new ManifestEntry(index, jobTicketId, ManifestEntry.SUCCEEDED, file,
+                    pdf.length, millis, null), pdf);
+        } catch (RuntimeException e) {
+            log.warn("Batch item {} ({}) failed: {}", index, jobTicketId, e.getMessage());
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            return new ItemResult(new ManifestEntry(index, jobTicketId, ManifestEntry.FAILED, null,
+                    null, millis, error), null);
+        }
+    }
+
+    private byte[] renderWithBackoff(JobTicket jobTicket, WorkOrder workOrderForReport, Profile profile) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return renderBulkhead.call(() -> {
+                    Document document = jobTicketTemplateService.renderDocument(jobTicket, workOrderForReport);
+                    return pdfGenerationService.generatePdf(document, profile);
+                });
+            } catch (RenderQueueFullException e) {
+                // Other traffic filled the bulkhead: back off instead of failing the ticket right away
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+                sleep(TimeUnit.SECONDS.toMillis(e.getRetryAfterSeconds()));
+            }
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PdfGenerationException("Interrupted while waiting for render capacity", e);
+        }
+    }
+
+    private void writeStoredEntry(ZipOutputStream zip, String name, byte[] pdf) throws IOException {
+        // PDFs are already compressed, deflating them again only costs CPU
+        CRC32 crc = new CRC32();
+        crc.update(pdf);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(pdf.length);
+        entry.setCompressedSize(pdf.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(pdf);
+        zip.closeEntry();
+        zip.flush();
+    }
+
+    private Map<String, Object> createManifest(List<ManifestEntry> entries) {
+        long succeeded = countSucceeded(entries);
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("total", entries.size());
+        manifest.put("succeeded", succeeded);
+        manifest.put("failed", entries.size() - succeeded);
+        manifest.put("items", entries);
+        return manifest;
+    }
+
+    static long countSucceeded(List<ManifestEntry> entries) {
+        return entries.stream().filter(entry -> ManifestEntry.SUCCEEDED.equals(entry.status())).count();
+    }
+
+    private static String entryName(int index, String jobTicketId) {
+        String name = jobTicketId != null ? jobTicketId.replaceAll("[^A-Za-z0-9._-]", "_") : "job-ticket";
+        return String.format("%05d-%s.pdf", index + 1, name);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.oqdpoc.service.batch;
+
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.service.batch.BatchRenderService.ManifestEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A rendered batch waiting to be merged: one spilled PDF per successful ticket plus the manifest of the whole batch.
+ * Closing the batch deletes the spilled files.
+ */
+public class MergedBatch implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MergedBatch.class);
+
+    private final Path spillDirectory;
+    private final Map<Integer, Path> files = new HashMap<>();
+    private final PdfMerger pdfMerger = new PdfMerger();
+    private List<ManifestEntry> manifest = List.of();
+
+    MergedBatch(Path spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    void spill(ManifestEntry entry, byte[] pdf) throws IOException {
+        Path file = spillDirectory.resolve(entry.file());
+        Files.write(file, pdf);
+        files.put(entry.index(), file);
+    }
+
+    void setManifest(List<ManifestEntry> manifest) {
+        this.manifest = manifest;
+    }
+
+    Path getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * @return every ticket of the batch, in request order
+     */
+    public List<ManifestEntry> getManifest() {
+        return manifest;
+    }
+
+    public long getSucceededCount() {
+        return BatchRenderService.countSucceeded(manifest);
+    }
+
+    public long getFailedCount() {
+        return manifest.size() - getSucceededCount();
+    }
+
+    /**
+     * Merges the rendered tickets in request order, one bookmark each, and writes the PDF to {@code out},
+     * which is left open.
+     *
+     * @return the number of pages of the merged document
+     * @throws PdfGenerationException if no ticket was rendered
+     */
+    public int writeTo(OutputStream out) throws IOException {
+        List<PdfMerger.Section> sections = manifest.stream()
+                .filter(entry -> files.containsKey(entry.index()))
+                .map(entry -> new PdfMerger.Section(bookmarkTitle(entry), files.get(entry.index())))
+                .toList();
+        if (sections.isEmpty()) {
+            throw new PdfGenerationException("None of the " + manifest.size() + " job tickets could be rendered");
+        }
+        int pages = pdfMerger.merge(sections, out);
+        log.info("Merged {} job tickets into {} pages", sections.size(), pages);
+        return pages;
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileSystemUtils.deleteRecursively(spillDirectory);
+    }
+
+    private static String bookmarkTitle(ManifestEntry entry) {
+        String name = entry.jobTicketId() != null ? entry.jobTicketId() : "Job ticket";
+        return (entry.index() + 1) + ". " + name;
+    }
+}
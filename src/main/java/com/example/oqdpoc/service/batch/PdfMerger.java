@@ -0,0 +1,165 @@
+package com.example.oqdpoc.service.batch;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PageMode;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Concatenates PDFs into one document with a bookmark per source and a global page number on every page.
+ * <p>
+ * Sources are read from disk and every document uses temp-file scratch buffers, so page content streams
+ * never have to fit in the heap. Appended pages keep referring to their source, so at most
+ * {@link #DEFAULT_SOURCES_PER_ROUND} sources are open at a time: after each round the merged document is saved
+ * to a temp file and reloaded, which lets the round's sources be closed.
+ */
+public class PdfMerger {
+
+    static final int DEFAULT_SOURCES_PER_ROUND = 32;
+
+    private static final PDFont PAGE_NUMBER_FONT = PDType1Font.HELVETICA;
+    private static final float PAGE_NUMBER_FONT_SIZE = 8;
+    // Right page margin of job-ticket.css (1.5cm), and roughly the baseline of its page footer
+    private static final float PAGE_NUMBER_RIGHT_INSET = 42.5f;
+    private static final float PAGE_NUMBER_BASELINE = 32;
+
+    private final int sourcesPerRound;
+
+    public PdfMerger() {
+        this(DEFAULT_SOURCES_PER_ROUND);
+    }
+
+    PdfMerger(int sourcesPerRound) {
+        this.sourcesPerRound = sourcesPerRound;
+    }
+
+    /**
+     * One source document of the merge.
+     *
+     * @param title The bookmark pointing at the first page of the section
+     * @param file  The section's PDF
+     */
+    public record Section(String title, Path file) {
+    }
+
+    /**
+     * Merges the sections in order and writes the result to {@code out}, which is left open.
+     *
+     * @return the number of pages of the merged document
+     */
+    public int merge(List<Section> sections, OutputStream out) throws IOException {
+        // Page indexes rather than outline items, since pages are re-read after every round
+        List<String> titles = new ArrayList<>();
+        List<Integer> firstPages = new ArrayList<>();
+        List<PDDocument> sources = new ArrayList<>(Math.min(sections.size(), sourcesPerRound));
+        PDDocument merged = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
+        Path partial = null;
+        try {
+            PDFMergerUtility merger = new PDFMergerUtility();
+            for (int i = 0; i < sections.size(); i++) {
+                Section section = sections.get(i);
+                PDDocument source = PDDocument.load(section.file().toFile(), MemoryUsageSetting.setupTempFileOnly());
+                sources.add(source);
+                int firstPage = merged.getNumberOfPages();
+                merger.appendDocument(merged, source);
+                if (merged.getNumberOfPages() > firstPage) {
+                    titles.add(section.title());
+                    firstPages.add(firstPage);
+                }
+
+                if (sources.size() == sourcesPerRound && i < sections.size() - 1) {
+                    Path next = Files.createTempFile("pdf-merge-", ".pdf");
+                    try {
+                        merged.save(next.toFile());
+                    } finally {
+                        merged.close();
+                        closeAll(sources);
+                    }
+                    merged = PDDocument.load(next.toFile(), MemoryUsageSetting.setupTempFileOnly());
+                    deleteIfPresent(partial);
+                    partial = next;
+                }
+            }
+
+            PDDocumentOutline outline = new PDDocumentOutline();
+            for (int i = 0; i < titles.size(); i++) {
+                outline.addLast(createBookmark(titles.get(i), merged.getPage(firstPages.get(i))));
+            }
+            merged.getDocumentCatalog().setDocumentOutline(outline);
+            merged.getDocumentCatalog().setPageMode(PageMode.USE_OUTLINES);
+
+            stampPageNumbers(merged);
+            merged.save(StreamUtils.nonClosing(out));
+            return merged.getNumberOfPages();
+        } finally {
+            merged.close();
+            closeAll(sources);
+            deleteIfPresent(partial);
+        }
+    }
+
+    private static void closeAll(List<PDDocument> sources) throws IOException {
+        for (PDDocument source : sources) {
+            source.close();
+        }
+        sources.clear();
+    }
+
+    private static void deleteIfPresent(Path file) throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static PDOutlineItem createBookmark(String title, PDPage firstPage) {
+        PDOutlineItem bookmark = new PDOutlineItem();
+        bookmark.setTitle(title);
+        bookmark.setDestination(firstPage);
+        return bookmark;
+    }
+
+    /**
+     * Writes "Document page X of N" into the bottom right corner. The ticket template's own footer keeps counting
+     * pages within the ticket.
+     */
+    private static void stampPageNumbers(PDDocument document) throws IOException {
+        int pageCount = document.getNumberOfPages();
+        int pageNumber = 0;
+        for (PDPage page : document.getPages()) {
+            pageNumber++;
+            String text = "Document page " + pageNumber + " of " + pageCount;
+            float width = PAGE_NUMBER_FONT.getStringWidth(text) / 1000 * PAGE_NUMBER_FONT_SIZE;
+            PDRectangle box = page.getCropBox();
+
+            try (PDPageContentStream content = new PDPageContentStream(document, page,
+                    PDPageContentStream.AppendMode.APPEND, true, true)) {
+                // Pagination artifact, so tagged (accessible) tickets stay readable by assistive technology
+                content.beginMarkedContent(COSName.ARTIFACT);
+                content.beginText();
+                content.setFont(PAGE_NUMBER_FONT, PAGE_NUMBER_FONT_SIZE);
+                content.setNonStrokingColor(0.4f);
+                content.newLineAtOffset(box.getUpperRightX() - PAGE_NUMBER_RIGHT_INSET - width,
+                        box.getLowerLeftY() + PAGE_NUMBER_BASELINE);
+                content.showText(text);
+                content.endText();
+                content.endMarkedContent();
+            }
+        }
+    }
+}
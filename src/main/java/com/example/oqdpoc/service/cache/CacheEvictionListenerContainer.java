@@ -0,0 +1,60 @@
+package com.example.oqdpoc.service.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listener container for cache eviction messages that does not need Redis to be up when the service starts.
+ * <p>
+ * A plain {@link RedisMessageListenerContainer} fails the application context when its first subscription fails.
+ * Losing near cache evictions for a while is much better than not starting, so this one logs the failure and
+ * tries again every {@code retryInterval} until it is subscribed. Once subscribed, the Redis client resubscribes
+ * by itself after reconnecting.
+ */
+public class CacheEvictionListenerContainer extends RedisMessageListenerContainer {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheEvictionListenerContainer.class);
+
+    private final Duration retryInterval;
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("cache-eviction-subscriber").daemon().factory());
+
+    private volatile int failedAttempts;
+
+    public CacheEvictionListenerContainer(Duration retryInterval) {
+        this.retryInterval = retryInterval;
+    }
+
+    @Override
+    public void start() {
+        try {
+            super.start();
+            if (failedAttempts > 0) {
+                log.info("Subscribed to cache evictions after {} failed attempts", failedAttempts);
+                failedAttempts = 0;
+            }
+        } catch (RuntimeException e) {
+            if (failedAttempts++ == 0) {
+                log.warn("Cannot subscribe to cache evictions, retrying every {}: {}", retryInterval, e.getMessage());
+            }
+            retries.schedule(this::restart, retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        retries.shutdownNow();
+        super.destroy();
+    }
+
+    private void restart() {
+        stop();
+        start();
+    }
+}
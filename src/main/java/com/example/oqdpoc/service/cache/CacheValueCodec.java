@@ -0,0 +1,147 @@
+package com.example.oqdpoc.service.cache;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Binary encoding of cached byte values: an 8 byte header followed by the value, raw or deflated.
+ * <p>
+ * The header starts with a zero byte, which no JSON document does, so encoded values can share a Redis cache
+ * with JSON ones. A value is only stored compressed when that makes it smaller; PDF content streams are
+ * usually deflated already, so images and fonts often gain little.
+ */
+public final class CacheValueCodec {
+
+    /**
+     * How values are compressed before they are stored.
+     */
+    public enum Compression {
+        /** Values are stored as they are. */
+        NONE,
+        /** Raw deflate at the fastest level, from the JDK. */
+        DEFLATE
+    }
+
+    static final int HEADER_LENGTH = 8;
+
+    private static final byte MAGIC_0 = 0;
+    private static final byte MAGIC_1 = 'B';
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte FLAG_DEFLATED = 1;
+
+    /** Values shorter than this are not worth compressing. */
+    private static final int DEFAULT_MIN_COMPRESS_LENGTH = 1024;
+
+    private final Compression compression;
+    private final int minCompressLength;
+
+    public CacheValueCodec(Compression compression) {
+        this(compression, DEFAULT_MIN_COMPRESS_LENGTH);
+    }
+
+    /**
+     * @param compression       The compression to try on values
+     * @param minCompressLength Values shorter than this are never compressed
+     */
+    public CacheValueCodec(Compression compression, int minCompressLength) {
+        this.compression = compression;
+        this.minCompressLength = minCompressLength;
+    }
+
+    public byte[] encode(byte[] value) {
+        if (compression == Compression.DEFLATE && value.length >= minCompressLength) {
+            byte[] deflated = deflate(value);
+            if (deflated != null) {
+                return withHeader(FLAG_DEFLATED, value.length, deflated, deflated.length);
+            }
+        }
+        return withHeader((byte) 0, value.length, value, value.length);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code stored} was not produced by {@link #encode(byte[])}
+     */
+    public byte[] decode(byte[] stored) {
+        if (!isEncoded(stored)) {
+            throw new IllegalArgumentException("Not an encoded cache value");
+        }
+        ByteBuffer header = ByteBuffer.wrap(stored, 0, HEADER_LENGTH);
+        header.position(2);
+        byte version = header.get();
+        byte flags = header.get();
+        int length = header.getInt();
+        if (version != FORMAT_VERSION || length < 0) {
+            throw new IllegalArgumentException("Unsupported cache value format " + version);
+        }
+        if ((flags & FLAG_DEFLATED) == 0) {
+            if (stored.length - HEADER_LENGTH != length) {
+                throw new IllegalArgumentException("Truncated cache value");
+            }
+            return Arrays.copyOfRange(stored, HEADER_LENGTH, stored.length);
+        }
+        return inflate(stored, length);
+    }
+
+    public static boolean isEncoded(byte[] stored) {
+        return stored != null && stored.length >= HEADER_LENGTH && stored[0] == MAGIC_0 && stored[1] == MAGIC_1;
+    }
+
+    /**
+     * @return the deflated value, or null when deflating does not make it smaller
+     */
+    private static byte[] deflate(byte[] value) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(value);
+            deflater.finish();
+            // Stop as soon as the output would not be smaller than the input
+            byte[] out = new byte[value.length];
+            int written = 0;
+            while (!deflater.finished()) {
+                if (written == out.length) {
+                    return null;
+                }
+                written += deflater.deflate(out, written, out.length - written);
+            }
+            return Arrays.copyOf(out, written);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] stored, int length) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(stored, HEADER_LENGTH, stored.length - HEADER_LENGTH);
+            byte[] value = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int n = inflater.inflate(value, read, length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            // The stream must also end exactly here, which may take one more call to read its end marker
+            boolean overflow = !inflater.finished() && inflater.inflate(new byte[1]) > 0;
+            if (read != length || overflow || !inflater.finished()) {
+                throw new IllegalArgumentException("Truncated cache value");
+            }
+            return value;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt cache value", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] withHeader(byte flags, int length, byte[] payload, int payloadLength) {
+        return ByteBuffer.allocate(HEADER_LENGTH + payloadLength)
+                .put(MAGIC_0).put(MAGIC_1).put(FORMAT_VERSION).put(flags).putInt(length)
+                .put(payload, 0, payloadLength)
+                .array();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.oqdpoc.service.cache;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * {@link PdfCacheStore} decorator that keeps a slow or unavailable shared store out of the render path.
+ * <p>
+ * Every call goes through a circuit breaker. A failed lookup or write is a bypass: the lookup counts as a miss,
+ * the write is skipped. While the breaker is open the shared store is not called at all, so the service falls
+ * back to whatever is cached locally in front of this store. Evictions are the exception: they are explicit
+ * requests, so their failures are passed on to the caller.
+ * <p>
+ * Metrics: {@code pdf.cache.redis.latency} (tags {@code operation}, {@code outcome}),
+ * {@code pdf.cache.redis.bypass} (tag {@code reason}: {@code circuit_open}, {@code timeout} or {@code error})
+ * and {@code pdf.cache.redis.circuit.state} (0 closed, 1 open, 2 half open, as ordered by resilience4j).
+ */
+public class CircuitBreakingPdfCacheStore implements PdfCacheStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreakingPdfCacheStore.class);
+
+    private final PdfCacheStore delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+
+    public CircuitBreakingPdfCacheStore(PdfCacheStore delegate, CircuitBreaker circuitBreaker,
+                                        MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("pdf.cache.redis.circuit.state", circuitBreaker, breaker -> breaker.getState().getOrder())
+                .description("State of the circuit breaker around the shared PDF cache")
+                .register(meterRegistry);
+        circuitBreaker.getEventPublisher().onStateTransition(event ->
+                log.warn("Shared PDF cache circuit breaker {}", event.getStateTransition()));
+    }
+
+    @Override
+    public Optional<byte[]> find(String key) {
+        return call("find", () -> delegate.find(key)).orElse(Optional.empty());
+    }
+
+    @Override
+    public void put(String key, byte[] pdf) {
+        call("put", () -> {
+            delegate.put(key, pdf);
+            return Boolean.TRUE;
+        });
+    }
+
+    @Override
+    public void evict(String key) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            circuitBreaker.executeRunnable(() -> delegate.evict(key));
+            outcome = "success";
+        } finally {
+            sample.stop(latency("evict", outcome));
+        }
+    }
+
+    /**
+     * @return the result of the call, or empty when it was bypassed
+     */
+    private <T> Optional<T> call(String operation, Supplier<T> storeCall) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            bypass("circuit_open");
+            return Optional.empty();
+        }
+        long start = circuitBreaker.getCurrentTimestamp();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T result = storeCall.get();
+            circuitBreaker.onSuccess(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit());
+            sample.stop(latency(operation, "success"));
+            return Optional.of(result);
+        } catch (RuntimeException e) {
+            circuitBreaker.onError(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit(), e);
+            sample.stop(latency(operation, "error"));
+            if (e instanceof IllegalArgumentException) {
+                // An unreadable value, not a Redis problem: the breaker ignores it and the caller reports it
+                throw e;
+            }
+            bypass(e instanceof QueryTimeoutException ? "timeout" : "error");
+            log.debug("Shared PDF cache {} failed, bypassing it: {}", operation, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void bypass(String reason) {
+        Counter.builder("pdf.cache.redis.bypass")
+                .description("Shared PDF cache calls skipped or failed, served as a miss or a skipped write")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer latency(String operation, String outcome) {
+        return Timer.builder("pdf.cache.redis.latency")
+                .description("Shared PDF cache call latency")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
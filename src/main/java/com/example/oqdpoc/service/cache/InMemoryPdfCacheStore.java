@@ -0,0 +1,80 @@
+package com.example.oqdpoc.service.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link PdfCacheStore} backed by process memory. Holds at most {@code maxBytes} of PDFs, evicting the least
+ * recently used first; expired entries are dropped on access.
+ */
+public class InMemoryPdfCacheStore implements PdfCacheStore {
+
+    private final long maxBytes;
+    private final Duration ttl;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    public InMemoryPdfCacheStore(long maxBytes, Duration ttl) {
+        this(maxBytes, ttl, Clock.systemUTC());
+    }
+
+    InMemoryPdfCacheStore(long maxBytes, Duration ttl, Clock clock) {
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized Optional<byte[]> find(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (!clock.instant().isBefore(entry.expiresAt())) {
+            remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry.pdf());
+    }
+
+    @Override
+    public synchronized void put(String key, byte[] pdf) {
+        if (pdf.length > maxBytes) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(pdf, clock.instant().plus(ttl)));
+        totalBytes += pdf.length;
+
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            totalBytes -= eldest.next().pdf().length;
+            eldest.remove();
+        }
+    }
+
+    @Override
+    public synchronized void evict(String key) {
+        remove(key);
+    }
+
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.pdf().length;
+        }
+    }
+
+    private record Entry(byte[] pdf, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.oqdpoc.service.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+/**
+ * {@link PdfCacheStore} that keeps recently used PDFs in process memory in front of a shared store, so hot
+ * PDFs are served without a Redis round trip.
+ * <p>
+ * Keys are content hashes, so an entry never goes stale; it only disappears when evicted. Evictions are published
+ * on a Redis channel and every instance, this one included, drops the key from its near cache when the message
+ * arrives.
+ */
+public class NearCachePdfCacheStore implements PdfCacheStore, MessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(NearCachePdfCacheStore.class);
+
+    private final InMemoryPdfCacheStore nearCache;
+    private final PdfCacheStore sharedStore;
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final String invalidationChannel;
+
+    public NearCachePdfCacheStore(InMemoryPdfCacheStore nearCache, PdfCacheStore sharedStore,
+                                  RedisTemplate<String, byte[]> redisTemplate, String invalidationChannel) {
+        this.nearCache = nearCache;
+        this.sharedStore = sharedStore;
+        this.redisTemplate = redisTemplate;
+        this.invalidationChannel = invalidationChannel;
+    }
+
+    @Override
+    public Optional<byte[]> find(String key) {
+        Optional<byte[]> pdf = nearCache.find(key);
+        if (pdf.isEmpty()) {
+            pdf = sharedStore.find(key);
+            pdf.ifPresent(bytes -> nearCache.put(key, bytes));
+        }
+        return pdf;
+    }
+
+    @Override
+    public void put(String key, byte[] pdf) {
+        nearCache.put(key, pdf);
+        sharedStore.put(key, pdf);
+    }
+
+    @Override
+    public void evict(String key) {
+        nearCache.evict(key);
+        sharedStore.evict(key);
+        redisTemplate.convertAndSend(invalidationChannel, key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Drops an entry another instance evicted.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        log.debug("Dropping evicted PDF {} from the near cache", key);
+        nearCache.evict(key);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.oqdpoc.service.cache;
+
+import java.util.Optional;
+
+/**
+ * Keeps rendered PDFs by content key until their time to live runs out or the store needs the room.
+ */
+public interface PdfCacheStore {
+
+    Optional<byte[]> find(String key);
+
+    void put(String key, byte[] pdf);
+
+    void evict(String key);
+}
@@ -0,0 +1,152 @@
+package com.example.oqdpoc.service.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link PdfCacheStore} backed by Redis, shared by all instances. PDFs are stored as raw bytes through
+ * {@link CacheValueCodec}, with the cache TTL.
+ * <p>
+ * Encoded values larger than {@code chunkSize} are split over {@code <key>:0 .. <key>:n-1}, so no single command
+ * moves a whole PDF and holds up other clients. The main key then holds a small manifest with the chunk count.
+ * Chunks are written and read {@link #CHUNKS_PER_CALL} at a time, pipelined on writes, so a large PDF takes few
+ * round trips without buffering all of it in one reply. Chunks are written before the manifest, so a reader never
+ * sees a manifest without its chunks unless one expired or was evicted; that is treated as a miss.
+ */
+public class RedisPdfCacheStore implements PdfCacheStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisPdfCacheStore.class);
+
+    private static final int MANIFEST_LENGTH = 10;
+    private static final byte MANIFEST_MAGIC_0 = 0;
+    private static final byte MANIFEST_MAGIC_1 = 'C';
+
+    static final int CHUNKS_PER_CALL = 16;
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final CacheValueCodec codec;
+    private final String keyPrefix;
+    private final Duration ttl;
+    private final int chunkSize;
+
+    public RedisPdfCacheStore(RedisTemplate<String, byte[]> redisTemplate, CacheValueCodec codec, String keyPrefix,
+                              Duration ttl, int chunkSize) {
+        this.redisTemplate = redisTemplate;
+        this.codec = codec;
+        this.keyPrefix = keyPrefix;
+        this.ttl = ttl;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public Optional<byte[]> find(String key) {
+        byte[] stored = redisTemplate.opsForValue().get(keyPrefix + key);
+        if (stored == null) {
+            return Optional.empty();
+        }
+        if (isManifest(stored)) {
+            stored = readChunks(key, ByteBuffer.wrap(stored, 2, 8));
+            if (stored == null) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(codec.decode(stored));
+    }
+
+    @Override
+    public void put(String key, byte[] pdf) {
+        byte[] encoded = codec.encode(pdf);
+        if (encoded.length <= chunkSize) {
+            redisTemplate.opsForValue().set(keyPrefix + key, encoded, ttl);
+            return;
+        }
+        int chunks = (encoded.length + chunkSize - 1) / chunkSize;
+        for (int first = 0; first < chunks; first += CHUNKS_PER_CALL) {
+            writeChunks(key, encoded, first, Math.min(first + CHUNKS_PER_CALL, chunks));
+        }
+        byte[] manifest = ByteBuffer.allocate(MANIFEST_LENGTH)
+                .put(MANIFEST_MAGIC_0).put(MANIFEST_MAGIC_1).putInt(chunks).putInt(encoded.length)
+                .array();
+        redisTemplate.opsForValue().set(keyPrefix + key, manifest, ttl);
+    }
+
+    @Override
+    public void evict(String key) {
+        List<String> keys = new ArrayList<>();
+        keys.add(keyPrefix + key);
+        byte[] stored = redisTemplate.opsForValue().get(keyPrefix + key);
+        if (stored != null && isManifest(stored)) {
+            keys.addAll(chunkKeys(key, 0, ByteBuffer.wrap(stored, 2, 4).getInt()));
+        }
+        redisTemplate.delete(keys);
+    }
+
+    /**
+     * Writes chunks {@code from} (inclusive) to {@code to} (exclusive) in one pipeline.
+     */
+    private void writeChunks(String key, byte[] encoded, int from, int to) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <K, V> Object execute(RedisOperations<K, V> operations) {
+                RedisOperations<String, byte[]> redis = (RedisOperations<String, byte[]>) operations;
+                for (int i = from; i < to; i++) {
+                    int start = i * chunkSize;
+                    byte[] chunk = Arrays.copyOfRange(encoded, start, Math.min(start + chunkSize, encoded.length));
+                    redis.opsForValue().set(chunkKey(key, i), chunk, ttl);
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @return the encoded value reassembled from its chunks, or null if a chunk is missing
+     */
+    private byte[] readChunks(String key, ByteBuffer manifest) {
+        int chunks = manifest.getInt();
+        int length = manifest.getInt();
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(length);
+        for (int first = 0; first < chunks; first += CHUNKS_PER_CALL) {
+            int to = Math.min(first + CHUNKS_PER_CALL, chunks);
+            List<byte[]> values = redisTemplate.opsForValue().multiGet(chunkKeys(key, first, to));
+            if (values == null || values.size() != to - first || values.contains(null)) {
+                log.debug("Cached PDF {} is missing chunks, treating it as a miss", key);
+                return null;
+            }
+            values.forEach(encoded::writeBytes);
+        }
+        if (encoded.size() != length) {
+            log.debug("Cached PDF {} has chunks of the wrong size, treating it as a miss", key);
+            return null;
+        }
+        return encoded.toByteArray();
+    }
+
+    private List<String> chunkKeys(String key, int from, int to) {
+        List<String> keys = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            keys.add(chunkKey(key, i));
+        }
+        return keys;
+    }
+
+    private String chunkKey(String key, int index) {
+        return keyPrefix + key + ":" + index;
+    }
+
+    private static boolean isManifest(byte[] stored) {
+        return stored.length == MANIFEST_LENGTH && stored[0] == MANIFEST_MAGIC_0 && stored[1] == MANIFEST_MAGIC_1;
+    }
+}
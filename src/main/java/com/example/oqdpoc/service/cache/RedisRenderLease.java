@@ -0,0 +1,62 @@
+package com.example.oqdpoc.service.cache;
+
+import com.example.oqdpoc.service.RenderLease;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link RenderLease} held as a Redis key with a TTL ({@code SET NX PX}), so a crashed holder loses it on its own.
+ * The value identifies this instance, and a lease is only deleted by the instance holding it.
+ * <p>
+ * Calls go through the shared PDF cache circuit breaker. When Redis cannot be reached the lease is granted:
+ * rendering twice is better than not rendering.
+ */
+public class RedisRenderLease implements RenderLease {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisRenderLease.class);
+
+    private static final RedisScript<Long> RELEASE = RedisScript.of(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final CircuitBreaker circuitBreaker;
+    private final String keyPrefix;
+    private final Duration ttl;
+    private final String owner = UUID.randomUUID().toString();
+
+    public RedisRenderLease(StringRedisTemplate redisTemplate, CircuitBreaker circuitBreaker, String keyPrefix,
+                            Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.circuitBreaker = circuitBreaker;
+        this.keyPrefix = keyPrefix;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public boolean tryAcquire(String key) {
+        try {
+            return circuitBreaker.executeSupplier(() ->
+                    Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(keyPrefix + key, owner, ttl)));
+        } catch (RuntimeException e) {
+            log.debug("Render lease for {} unavailable, rendering without it: {}", key, e.getMessage());
+            return true;
+        }
+    }
+
+    @Override
+    public void release(String key) {
+        try {
+            circuitBreaker.executeSupplier(() -> redisTemplate.execute(RELEASE, List.of(keyPrefix + key), owner));
+        } catch (RuntimeException e) {
+            log.debug("Failed to release render lease for {}, it expires in {}: {}", key, ttl, e.getMessage());
+        }
+    }
+}
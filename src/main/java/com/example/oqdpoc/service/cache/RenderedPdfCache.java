@@ -0,0 +1,299 @@
+package com.example.oqdpoc.service.cache;
+
+import com.example.oqdpoc.config.PdfCacheProperties;
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.LayoutEngine;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cache of rendered PDFs, keyed by a SHA-256 over everything a render depends on: the canonicalized job ticket
+ * and work order, the profile, the layout engine, the report date, and a fingerprint of the templates and static
+ * resources.
+ * <p>
+ * Renders are deterministic for a given key, so the key also serves as a strong ETag. The cache is best effort:
+ * store failures are logged and treated as misses. Writes run on their own threads and a render waits for them
+ * at most {@code app.pdf.cache.write-wait}, so a slow store never holds up a response for long.
+ * <p>
+ * Metric: {@code pdf.cache.writes} (tag {@code result}: {@code late} when the render stopped waiting, {@code dropped}
+ * when too many writes were pending).
+ */
+@Service
+public class RenderedPdfCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RenderedPdfCache.class);
+
+    private static final String[] RENDER_RESOURCES = {"classpath*:templates/**/*.*", "classpath*:static/**/*.*"};
+
+    private static final int WRITE_THREADS = 2;
+    private static final int WRITE_QUEUE_CAPACITY = 32;
+
+    private final PdfCacheStore store;
+    private final boolean enabled;
+    private final Profile defaultProfile;
+    private final ObjectMapper canonicalMapper;
+    private final String renderFingerprint;
+    private final Counter hits;
+    private final Counter misses;
+    private final Duration writeWait;
+    private final ThreadPoolExecutor writer;
+    private final Counter lateWrites;
+    private final Counter droppedWrites;
+
+    public RenderedPdfCache(PdfCacheStore store, PdfCacheProperties properties, PdfRenderProperties renderProperties,
+                            ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.enabled = properties.isEnabled();
+        this.defaultProfile = renderProperties.getDefaultProfile();
+        // Same modules and date handling as the request mapper, but with a stable property and map key order
+        ObjectMapper canonical = objectMapper.copy();
+        canonical.setAnnotationIntrospectors(new DateFormatIgnoringIntrospector(),
+                canonical.getDeserializationConfig().getAnnotationIntrospector());
+        this.canonicalMapper = canonical.setConfig(canonical.getSerializationConfig()
+                .with(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+                .with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS));
+        this.renderFingerprint = properties.getVersion() + ":" + renderProperties.getProducer() + ":"
+                + fingerprintResources() + splitFingerprint(renderProperties.getSplit());
+        this.hits = requestCounter(meterRegistry, "hit");
+        this.misses = requestCounter(meterRegistry, "miss");
+        this.writeWait = properties.getWriteWait();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("pdf-cache-write-");
+        threadFactory.setDaemon(true);
+        this.writer = new ThreadPoolExecutor(WRITE_THREADS, WRITE_THREADS,
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(WRITE_QUEUE_CAPACITY),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        this.lateWrites = writeCounter(meterRegistry, "late");
+        this.droppedWrites = writeCounter(meterRegistry, "dropped");
+        log.info("Rendered PDF cache {}, render fingerprint {}", enabled ? "enabled" : "disabled", renderFingerprint);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Computes the content key of a render.
+     *
+     * @param jobTicket          The parsed job ticket
+     * @param workOrderForReport The work order matching the ticket, or null
+     * @param profile            The render profile, or null for the configured default
+     * @param reportDate         The date printed in the report header
+     * @return the key, as lowercase hex
+     */
+    public String key(JobTicket jobTicket, WorkOrder workOrderForReport, Profile profile, LocalDateTime reportDate) {
+        return key(jobTicket, workOrderForReport, profile, reportDate, LayoutEngine.HTML);
+    }
+
+    /**
+     * Computes the content key of a render laid out by the given engine. HTML renders keep the keys they had
+     * before there was a choice of engine.
+     *
+     * @param layoutEngine The layout engine the render actually uses, after any fallback
+     */
+    public String key(JobTicket jobTicket, WorkOrder workOrderForReport, Profile profile, LocalDateTime reportDate,
+                      LayoutEngine layoutEngine) {
+        Map<String, Object> input = new LinkedHashMap<>();
+        input.put("render", renderFingerprint);
+        input.put("profile", profile != null ? profile : defaultProfile);
+        if (layoutEngine == LayoutEngine.NATIVE) {
+            input.put("layout", layoutEngine);
+        }
+        input.put("reportDate", reportDate);
+        input.put("jobTicket", jobTicket);
+        input.put("workOrder", workOrderForReport);
+
+        MessageDigest digest = sha256();
+        try (OutputStream out = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+            canonicalMapper.writeValue(out, input);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to serialize render input for the cache key", e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @return the cached PDF, or empty on a miss, when disabled, or when the store is unavailable
+     */
+    public Optional<byte[]> find(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Optional<byte[]> pdf;
+        try {
+            pdf = store.find(key);
+        } catch (RuntimeException e) {
+            log.warn("Rendered PDF cache lookup failed, rendering instead: {}", e.getMessage());
+            pdf = Optional.empty();
+        }
+        (pdf.isPresent() ? hits : misses).increment();
+        return pdf;
+    }
+
+    /**
+     * Caches a rendered PDF. Waits up to {@code write-wait} for the store, so the PDF is usually visible to other
+     * requests (and instances) once this returns; a slower write completes in the background.
+     */
+    public void put(String key, byte[] pdf) {
+        if (!enabled) {
+            return;
+        }
+        Future<?> write;
+        try {
+            write = writer.submit(() -> write(key, pdf));
+        } catch (RejectedExecutionException e) {
+            log.warn("Too many rendered PDFs waiting to be cached, not caching {}", key);
+            droppedWrites.increment();
+            return;
+        }
+        try {
+            write.get(writeWait.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.debug("Caching rendered PDF {} takes longer than {}, finishing in the background", key, writeWait);
+            lateWrites.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // write() handles store failures itself
+            log.warn("Failed to cache rendered PDF {}: {}", key, e.getCause().getMessage());
+        }
+    }
+
+    private void write(String key, byte[] pdf) {
+        try {
+            store.put(key, pdf);
+        } catch (RuntimeException e) {
+            log.warn("Failed to cache rendered PDF {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops a PDF from the cache, on every instance when the store is shared.
+     */
+    public void evict(String key) {
+        if (enabled) {
+            store.evict(key);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Cached PDFs can always be rendered again: pending writes are not worth delaying shutdown for
+        writer.shutdownNow();
+    }
+
+    /**
+     * Split renders paginate differently from unsplit ones, and the chunks depend on the effective parallelism,
+     * so those settings go into every key. Unsplit deployments keep the keys they had.
+     */
+    private static String splitFingerprint(PdfRenderProperties.Split split) {
+        if (!split.isEnabled()) {
+            return "";
+        }
+        return ":split=" + split.effectiveParallelism() + "x" + Math.max(1, split.getMinSectionsPerChunk());
+    }
+
+    private static String fingerprintResources() {
+        // Hash of every template and static resource, so a deployment that changes them starts with fresh keys
+        List<String> hashes = new ArrayList<>();
+        PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+        try {
+            for (String pattern : RENDER_RESOURCES) {
+                for (Resource resource : resolver.getResources(pattern)) {
+                    if (resource.isReadable()) {
+                        try (InputStream in = resource.getInputStream()) {
+                            hashes.add(resource.getFilename() + "=" + hash(StreamUtils.copyToByteArray(in)));
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to fingerprint render resources", e);
+        }
+        hashes.sort(null);
+        return hash(String.join("\n", hashes).getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+    }
+
+    private static String hash(byte[] data) {
+        return HexFormat.of().formatHex(sha256().digest(data));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pdf.cache.requests")
+                .description("Rendered PDF cache lookups")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Counter writeCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pdf.cache.writes")
+                .description("Rendered PDF cache writes a render did not wait for")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes dates of the key input in the mapper's default ISO form. A {@code @JsonFormat} pattern on a model date
+     * is meant for reading requests and may not be writable at all: an offset pattern on a {@code LocalDateTime}
+     * fails with "Unsupported field: OffsetSeconds", which would fail every dated render.
+     */
+    private static final class DateFormatIgnoringIntrospector extends JacksonAnnotationIntrospector {
+        @Override
+        public JsonFormat.Value findFormat(Annotated memberOrClass) {
+            Class<?> type = memberOrClass.getRawType();
+            if (type != null && type.getName().startsWith("java.time.")) {
+                return JsonFormat.Value.empty();
+            }
+            return super.findFormat(memberOrClass);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.oqdpoc.service.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+
+/**
+ * Rendered HTML of report sections, in process memory. Keys are content hashes, so entries never go stale and
+ * only need bounding: at most {@code maxChars} of HTML is held, evicting the least recently used first.
+ */
+public class SectionFragmentCache {
+
+    private final long maxChars;
+    private final LinkedHashMap<String, String> fragments = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalChars;
+
+    public SectionFragmentCache(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    public synchronized Optional<String> find(String key) {
+        return Optional.ofNullable(fragments.get(key));
+    }
+
+    public synchronized void put(String key, String html) {
+        if (html.length() > maxChars) {
+            return;
+        }
+        String previous = fragments.put(key, html);
+        totalChars += html.length() - (previous != null ? previous.length() : 0);
+
+        Iterator<String> eldest = fragments.values().iterator();
+        while (totalChars > maxChars && eldest.hasNext()) {
+            totalChars -= eldest.next().length();
+            eldest.remove();
+        }
+    }
+
+    synchronized long getTotalChars() {
+        return totalChars;
+    }
+}
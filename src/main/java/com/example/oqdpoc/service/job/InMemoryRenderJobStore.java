@@ -0,0 +1,147 @@
+package com.example.oqdpoc.service.job;
+
+import com.example.oqdpoc.model.renderjob.RenderJobStatus;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link RenderJobStore} backed by process memory. Expired entries are dropped lazily on access
+ * and swept at most once per {@link #SWEEP_INTERVAL} on writes. Results hold at most {@code maxResultBytes}
+ * of PDFs, evicting the least recently used first; an evicted result is reported like an expired one.
+ */
+public class InMemoryRenderJobStore implements RenderJobStore {
+
+    private static final Duration SWEEP_INTERVAL = Duration.ofSeconds(30);
+
+    private final Duration ttl;
+    private final long maxResultBytes;
+    private final Clock clock;
+    private final Map<String, Expiring<RenderJobStatus>> statuses = new ConcurrentHashMap<>();
+    // Guarded by itself
+    private final LinkedHashMap<String, Expiring<byte[]>> results = new LinkedHashMap<>(16, 0.75f, true);
+    private long resultBytes;
+    private volatile Instant nextSweep;
+
+    public InMemoryRenderJobStore(Duration ttl, long maxResultBytes) {
+        this(ttl, maxResultBytes, Clock.systemUTC());
+    }
+
+    InMemoryRenderJobStore(Duration ttl, long maxResultBytes, Clock clock) {
+        this.ttl = ttl;
+        this.maxResultBytes = maxResultBytes;
+        this.clock = clock;
+        this.nextSweep = clock.instant().plus(SWEEP_INTERVAL);
+    }
+
+    @Override
+    public void saveStatus(RenderJobStatus status) {
+        statuses.put(status.getId(), new Expiring<>(status.copy(), expiry()));
+        sweepIfDue();
+    }
+
+    @Override
+    public Optional<RenderJobStatus> findStatus(String jobId) {
+        return live(statuses, jobId).map(RenderJobStatus::copy);
+    }
+
+    @Override
+    public void saveResult(String jobId, byte[] pdf) {
+        synchronized (results) {
+            removeResult(jobId);
+            if (pdf.length <= maxResultBytes) {
+                results.put(jobId, new Expiring<>(pdf, expiry()));
+                resultBytes += pdf.length;
+            }
+            Iterator<Expiring<byte[]>> eldest = results.values().iterator();
+            while (resultBytes > maxResultBytes && eldest.hasNext()) {
+                resultBytes -= eldest.next().value().length;
+                eldest.remove();
+            }
+        }
+        sweepIfDue();
+    }
+
+    @Override
+    public Optional<byte[]> findResult(String jobId) {
+        synchronized (results) {
+            Expiring<byte[]> entry = results.get(jobId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.isExpired(clock.instant())) {
+                removeResult(jobId);
+                return Optional.empty();
+            }
+            return Optional.of(entry.value());
+        }
+    }
+
+    @Override
+    public void delete(String jobId) {
+        statuses.remove(jobId);
+        synchronized (results) {
+            removeResult(jobId);
+        }
+    }
+
+    long getResultBytes() {
+        synchronized (results) {
+            return resultBytes;
+        }
+    }
+
+    private void removeResult(String jobId) {
+        Expiring<byte[]> removed = results.remove(jobId);
+        if (removed != null) {
+            resultBytes -= removed.value().length;
+        }
+    }
+
+    private Instant expiry() {
+        return clock.instant().plus(ttl);
+    }
+
+    private <T> Optional<T> live(Map<String, Expiring<T>> entries, String jobId) {
+        Expiring<T> entry = entries.get(jobId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.isExpired(clock.instant())) {
+            entries.remove(jobId, entry);
+            return Optional.empty();
+        }
+        return Optional.of(entry.value());
+    }
+
+    private void sweepIfDue() {
+        Instant now = clock.instant();
+        if (now.isBefore(nextSweep)) {
+            return;
+        }
+        nextSweep = now.plus(SWEEP_INTERVAL);
+        statuses.values().removeIf(entry -> entry.isExpired(now));
+        synchronized (results) {
+            Iterator<Expiring<byte[]>> entries = results.values().iterator();
+            while (entries.hasNext()) {
+                Expiring<byte[]> entry = entries.next();
+                if (entry.isExpired(now)) {
+                    resultBytes -= entry.value().length;
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    private record Expiring<T>(T value, Instant expiresAt) {
+        boolean isExpired(Instant now) {
+            return !now.isBefore(expiresAt);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.oqdpoc.service.job;
+
+import com.example.oqdpoc.model.renderjob.RenderJobStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link RenderJobStore} backed by Redis, so status and results can be fetched from any instance.
+ * Status is stored as JSON and the PDF as raw bytes, each under its own key with the job TTL.
+ */
+public class RedisRenderJobStore implements RenderJobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisRenderJobStore.class);
+
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final String keyPrefix;
+    private final Duration ttl;
+
+    public RedisRenderJobStore(RedisTemplate<String, byte[]> redisTemplate, ObjectMapper objectMapper,
+                               String keyPrefix, Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.keyPrefix = keyPrefix;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public void saveStatus(RenderJobStatus status) {
+        try {
+            redisTemplate.opsForValue().set(statusKey(status.getId()), objectMapper.writeValueAsBytes(status), ttl);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize render job status " + status.getId(), e);
+        }
+    }
+
+    @Override
+    public Optional<RenderJobStatus> findStatus(String jobId) {
+        byte[] json = redisTemplate.opsForValue().get(statusKey(jobId));
+        if (json == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, RenderJobStatus.class));
+        } catch (IOException e) {
+            log.warn("Discarding unreadable status for render job {}: {}", jobId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void saveResult(String jobId, byte[] pdf) {
+        redisTemplate.opsForValue().set(resultKey(jobId), pdf, ttl);
+    }
+
+    @Override
+    public Optional<byte[]> findResult(String jobId) {
+        return Optional.ofNullable(redisTemplate.opsForValue().get(resultKey(jobId)));
+    }
+
+    @Override
+    public void delete(String jobId) {
+        redisTemplate.delete(List.of(statusKey(jobId), resultKey(jobId)));
+    }
+
+    private String statusKey(String jobId) {
+        return keyPrefix + jobId + ":status";
+    }
+
+    private String resultKey(String jobId) {
+        return keyPrefix + jobId + ":result";
+    }
+}
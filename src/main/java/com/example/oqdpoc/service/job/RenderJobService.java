@@ -0,0 +1,213 @@
+package com.example.oqdpoc.service.job;
+
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.config.RenderJobProperties;
+import com.example.oqdpoc.exception.RenderJobNotFoundException;
+import com.example.oqdpoc.exception.RenderQueueFullException;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.renderjob.RenderJobState;
+import com.example.oqdpoc.model.renderjob.RenderJobStatus;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.JobTicketTemplateService;
+import com.example.oqdpoc.service.PdfGenerationService;
+import com.example.oqdpoc.service.RenderBulkhead;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Document;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Accepts render requests, runs them on a bounded worker pool and publishes their progress.
+ * <p>
+ * Status and results live in the {@link RenderJobStore}; progress listeners are only notified
+ * on the instance that runs the job.
+ */
+@Service
+public class RenderJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(RenderJobService.class);
+
+    private final JobTicketTemplateService jobTicketTemplateService;
+    private final PdfGenerationService pdfGenerationService;
+    private final RenderJobStore store;
+    private final RenderBulkhead renderBulkhead;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Set<Consumer<RenderJobStatus>>> listeners = new ConcurrentHashMap<>();
+
+    public RenderJobService(JobTicketTemplateService jobTicketTemplateService,
+                            PdfGenerationService pdfGenerationService,
+                            RenderJobStore store,
+                            RenderBulkhead renderBulkhead,
+                            RenderJobProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.jobTicketTemplateService = jobTicketTemplateService;
+        this.pdfGenerationService = pdfGenerationService;
+        this.store = store;
+        this.renderBulkhead = renderBulkhead;
+        this.executor = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.getQueueCapacity()),
+                new CustomizableThreadFactory("pdf-job-"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("pdf.jobs.queue.depth", executor, e -> e.getQueue().size())
+                .description("Render jobs waiting for a worker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Live view of a job: the current snapshot, and whether further updates will be pushed to the listener.
+     */
+    public record Subscription(RenderJobStatus current, boolean live) {
+    }
+
+    /**
+     * Queues a render and returns immediately.
+     *
+     * @param jobTicket          The parsed job ticket
+     * @param workOrderForReport The work order matching the ticket, or null
+     * @param profile            The render profile, or null for the configured default
+     * @return the status of the newly queued job
+     * @throws RenderQueueFullException if all workers are busy and the job queue is full
+     */
+    public RenderJobStatus submit(JobTicket jobTicket, WorkOrder workOrderForReport, Profile profile) {
+        RenderJobStatus status = new RenderJobStatus(UUID.randomUUID().toString(), profile, Instant.now());
+        String jobId = status.getId();
+
+        RenderJobStatus queued = status.copy();
+        store.saveStatus(status);
+        listeners.put(jobId, new CopyOnWriteArraySet<>());
+        try {
+            executor.execute(() -> run(status, jobTicket, workOrderForReport));
+        } catch (RejectedExecutionException e) {
+            listeners.remove(jobId);
+            store.delete(jobId);
+            log.warn("Rejected render job, {} queued and {} running", executor.getQueue().size(),
+                    executor.getActiveCount());
+            throw new RenderQueueFullException("Render job queue is full, retry later",
+                    renderBulkhead.estimateRetryAfterSeconds(executor.getQueue().size()));
+        }
+        log.debug("Queued render job {}", jobId);
+        return queued;
+    }
+
+    /**
+     * @throws RenderJobNotFoundException if the job is unknown or has expired
+     */
+    public RenderJobStatus getStatus(String jobId) {
+        return store.findStatus(jobId).orElseThrow(() -> new RenderJobNotFoundException(jobId));
+    }
+
+    /**
+     * Returns the finished PDF, or empty if the job has not succeeded (yet) or the result has expired.
+     */
+    public Optional<byte[]> getResult(String jobId) {
+        return store.findResult(jobId);
+    }
+
+    /**
+     * Registers a listener for progress updates of a job running on this instance.
+     * The listener may also be called with states older than or equal to {@link Subscription#current()}.
+     *
+     * @throws RenderJobNotFoundException if the job is unknown or has expired
+     */
+    public Subscription subscribe(String jobId, Consumer<RenderJobStatus> listener) {
+        // Register before reading the snapshot, so no update between the two is lost
+        boolean live = listeners.computeIfPresent(jobId, (id, registered) -> {
+            registered.add(listener);
+            return registered;
+        }) != null;
+        RenderJobStatus current = store.findStatus(jobId).orElse(null);
+        if (current == null) {
+            unsubscribe(jobId, listener);
+            throw new RenderJobNotFoundException(jobId);
+        }
+        if (current.isTerminal()) {
+            unsubscribe(jobId, listener);
+            live = false;
+        }
+        return new Subscription(current, live);
+    }
+
+    public void unsubscribe(String jobId, Consumer<RenderJobStatus> listener) {
+        Set<Consumer<RenderJobStatus>> registered = listeners.get(jobId);
+        if (registered != null) {
+            registered.remove(listener);
+        }
+    }
+
+    private void run(RenderJobStatus status, JobTicket jobTicket, WorkOrder workOrderForReport) {
+        String jobId = status.getId();
+        status.setStartedAt(Instant.now());
+        publish(status, RenderJobState.RENDERING_TEMPLATE);
+        try {
+            // Accepted jobs are bounded by the workers and the job queue, so they wait for a slot as long as it takes
+            byte[] pdf = renderBulkhead.callWhenFree(() -> {
+                Document document = jobTicketTemplateService.renderDocument(jobTicket, workOrderForReport);
+                publish(status, RenderJobState.RENDERING_PDF);
+                return pdfGenerationService.generatePdf(document, status.getProfile());
+            });
+            store.saveResult(jobId, pdf);
+            status.setSizeBytes((long) pdf.length);
+            status.setCompletedAt(Instant.now());
+            publish(status, RenderJobState.SUCCEEDED);
+            log.debug("Render job {} finished, {} bytes", jobId, pdf.length);
+        } catch (RuntimeException e) {
+            log.error("Render job {} failed: {}", jobId, e.getMessage());
+            status.setError(e.getMessage());
+            status.setCompletedAt(Instant.now());
+            publish(status, RenderJobState.FAILED);
+        }
+    }
+
+    private void publish(RenderJobStatus status, RenderJobState state) {
+        status.setState(state);
+        try {
+            store.saveStatus(status);
+        } catch (RuntimeException e) {
+            log.error("Failed to store status {} of render job {}: {}", state, status.getId(), e.getMessage());
+        }
+
+        Set<Consumer<RenderJobStatus>> registered = state.isTerminal()
+                ? listeners.remove(status.getId())
+                : listeners.get(status.getId());
+        if (registered == null) {
+            return;
+        }
+        RenderJobStatus snapshot = status.copy();
+        for (Consumer<RenderJobStatus> listener : registered) {
+            try {
+                listener.accept(snapshot);
+            } catch (RuntimeException e) {
+                log.debug("Dropping failed listener of render job {}: {}", status.getId(), e.getMessage());
+                registered.remove(listener);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Render jobs still running at shutdown: {}", executor.getActiveCount());
+            executor.shutdownNow();
+        }
+    }
+}
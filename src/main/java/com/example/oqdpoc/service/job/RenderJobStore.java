@@ -0,0 +1,22 @@
+package com.example.oqdpoc.service.job;
+
+import com.example.oqdpoc.model.renderjob.RenderJobStatus;
+
+import java.util.Optional;
+
+/**
+ * Keeps render job status and finished PDFs until their time to live runs out.
+ * Every write refreshes the expiry of the entry it touches.
+ */
+public interface RenderJobStore {
+
+    void saveStatus(RenderJobStatus status);
+
+    Optional<RenderJobStatus> findStatus(String jobId);
+
+    void saveResult(String jobId, byte[] pdf);
+
+    Optional<byte[]> findResult(String jobId);
+
+    void delete(String jobId);
+}
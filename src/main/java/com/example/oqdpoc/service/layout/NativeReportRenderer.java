@@ -0,0 +1,569 @@
+package com.example.oqdpoc.service.layout;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.LayoutEngine;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.report.ReportViewModel;
+import com.example.oqdpoc.model.report.ReportViewModel.FileLink;
+import com.example.oqdpoc.model.report.ReportViewModel.MetadataEntry;
+import com.example.oqdpoc.model.report.ReportViewModel.QuestionView;
+import com.example.oqdpoc.model.report.ReportViewModel.SectionView;
+import com.example.oqdpoc.model.report.ReportViewModel.SignatureView;
+import com.example.oqdpoc.model.report.ReportViewModel.WorkOrderView;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.OfflineResourceResolver;
+import com.example.oqdpoc.service.ReportViewModelBuilder;
+import com.example.oqdpoc.service.layout.PageLayout.Column;
+import com.example.oqdpoc.service.layout.PageLayout.Gap;
+import com.example.oqdpoc.service.layout.PageLayout.Item;
+import com.example.oqdpoc.service.layout.PageLayout.Picture;
+import com.example.oqdpoc.service.layout.PageLayout.Rule;
+import com.example.oqdpoc.service.layout.PageLayout.Text;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.HtmlUtils;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Lays out the standard job ticket report straight onto PDFBox pages, without HTML, CSS or openhtmltopdf.
+ * <p>
+ * The report's structure is fixed (header, info cards, work order, sections of question rows with signatures
+ * and attachments), so it is drawn from the {@link ReportViewModel} with the standard 14 Helvetica fonts,
+ * precomputed {@link TextMetrics} and simple top-to-bottom pagination. It follows the look of
+ * {@code jobTicket.html} but does not reproduce it exactly. Output is deterministic: the report date is the
+ * creation date and document ID seed, as with the HTML engine.
+ * <p>
+ * Only the {@link Profile#FAST} profile is supported; tagged PDF/UA and PDF/A output stay with the HTML engine,
+ * as do custom templates.
+ */
+@Service
+public class NativeReportRenderer {
+
+    private static final Logger log = LoggerFactory.getLogger(NativeReportRenderer.class);
+
+    private static final String LOGO_CLASSPATH = "static/images/thales-logo.png";
+    private static final String DEFAULT_TITLE = "Job Ticket Report Header";
+    private static final String IMAGE_NOT_AVAILABLE = "[Image not available]";
+
+    // Colors and sizes of job-ticket.css, where 1rem is 12pt
+    private static final Color TEXT_DARK = new Color(0x2c3e50);
+    private static final Color TEXT_MUTED = new Color(0x6c757d);
+    private static final Color PAGE_MARGIN_TEXT = new Color(0x666666);
+    private static final Color ACCENT_BLUE = new Color(0x3498db);
+    private static final Color SECONDARY_BLUE = new Color(0x2c7cb8);
+    private static final Color BORDER_LIGHT = new Color(0xdee2e6);
+    private static final Color ROW_BORDER = new Color(0xf0f0f0);
+    private static final float H1 = 21f;
+    private static final float CARD_TITLE = 12f;
+    private static final float SECTION_TITLE = 13.2f;
+    private static final float BODY = 11.4f;
+    private static final float SMALL = 10.8f;
+    private static final float HINT = 10.2f;
+    private static final float BADGE = 9.6f;
+    private static final float PAGE_MARGIN = 9f;
+    private static final float LABEL_WIDTH = 135f;
+    private static final float CELL_PADDING = 6f;
+    private static final float LOGO_MAX_HEIGHT = 60f;
+    private static final float SIGNATURE_MAX_WIDTH = 150f;
+    private static final float SIGNATURE_MAX_HEIGHT = 60f;
+    private static final float ATTACHMENT_MAX_SIZE = 262f;
+    // Room a heading needs below it, so it is never the last thing on a page
+    private static final float KEEP_WITH_NEXT = 3 * BODY * PageLayout.LINE_HEIGHT;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern HORIZONTAL_WHITESPACE = Pattern.compile("[ \\t\\x0B\\f]+");
+    private static final Pattern HTML_BREAKS = Pattern.compile("(?i)<br\\s*/?>|</(p|div|li|h[1-6]|tr)\\s*>");
+    private static final Pattern HTML_TAGS = Pattern.compile("<[^>]*>");
+
+    private final PdfRenderProperties properties;
+    private final ReportViewModelBuilder reportViewModelBuilder;
+    private final OfflineResourceResolver resourceResolver;
+    private final byte[] logo;
+
+    public NativeReportRenderer(PdfRenderProperties properties, ReportViewModelBuilder reportViewModelBuilder,
+                                OfflineResourceResolver resourceResolver) {
+        this.properties = properties;
+        this.reportViewModelBuilder = reportViewModelBuilder;
+        this.resourceResolver = resourceResolver;
+        this.logo = loadLogo();
+    }
+
+    /**
+     * Whether a render with the given choices goes through this renderer: when the native engine is requested,
+     * or configured and nothing else is requested, and the profile is {@link Profile#FAST}.
+     *
+     * @param layoutEngine The layout engine asked for, or null for the configured one
+     * @param profile      The render profile, or null for the configured default
+     */
+    public boolean handles(LayoutEngine layoutEngine, Profile profile) {
+        LayoutEngine engine = layoutEngine != null ? layoutEngine : properties.getLayoutEngine();
+        Profile effective = profile != null ? profile : properties.getDefaultProfile();
+        return engine == LayoutEngine.NATIVE && effective == Profile.FAST;
+    }
+
+    /**
+     * Renders the report of a job ticket.
+     *
+     * @param jobTicket          The parsed job ticket
+     * @param workOrderForReport The work order matching the ticket, or null
+     * @param reportDate         The date printed in the report header, also the PDF's creation date
+     * @return the PDF
+     * @throws PdfGenerationException if the PDF cannot be written
+     */
+    public byte[] render(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * 1024);
+        write(jobTicket, workOrderForReport, reportDate, out);
+        log.debug("Rendered native report, size: {} bytes", out.size());
+        return out.toByteArray();
+    }
+
+    /**
+     * Renders the report of a job ticket straight into {@code out}.
+     *
+     * @throws PdfGenerationException if the PDF cannot be written
+     */
+    public void write(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate,
+                      OutputStream out) {
+        ReportViewModel report = reportViewModelBuilder.build(jobTicket, workOrderForReport, reportDate);
+        try {
+            render(report, reportDate.atZone(ZoneId.systemDefault()).toInstant(), out);
+        } catch (IOException e) {
+            log.error("Error rendering native report: {}", e.getMessage());
+            throw new PdfGenerationException("Failed to generate PDF with the native layout: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Renders a report view straight into {@code out}.
+     *
+     * @param report       The report to lay out
+     * @param creationDate The PDF's creation date and document ID seed
+     * @param out          The destination
+     */
+    public void render(ReportViewModel report, Instant creationDate, OutputStream out) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDDocumentInformation info = document.getDocumentInformation();
+            info.setTitle(report.title() != null ? report.title() : DEFAULT_TITLE);
+            info.setProducer(properties.getProducer());
+            info.setCreationDate(GregorianCalendar.from(creationDate.atZone(ZoneOffset.UTC)));
+            document.setDocumentId(creationDate.toEpochMilli());
+
+            new Render(document).report(report);
+            document.save(out);
+        }
+    }
+
+    /**
+     * The state of one render: its document, its pages and the images already embedded in it.
+     */
+    private final class Render {
+
+        private final PDDocument document;
+        private final PageLayout layout;
+        private final Map<String, PDImageXObject> images = new HashMap<>();
+
+        private Render(PDDocument document) {
+            this.document = document;
+            this.layout = new PageLayout(document);
+        }
+
+        void report(ReportViewModel report) throws IOException {
+            header(report);
+            reportInformation(report);
+            equipment(report);
+            if (report.workOrder() != null) {
+                workOrder(report.workOrder());
+            }
+            for (SectionView section : report.sections()) {
+                section(section);
+            }
+            layout.stamp((margins, number, count) -> {
+                float top = PageLayout.PAGE_SIZE.getHeight() - PageLayout.MARGIN_TOP / 2;
+                float right = PageLayout.PAGE_SIZE.getWidth() - PageLayout.MARGIN_SIDE;
+                margins.drawText("Job Ticket Report", TextMetrics.REGULAR, PAGE_MARGIN, PAGE_MARGIN_TEXT,
+                        PageLayout.MARGIN_SIDE, top, 0);
+                margins.drawText("Report date: " + nullToEmpty(report.reportDate()), TextMetrics.REGULAR,
+                        PAGE_MARGIN, PAGE_MARGIN_TEXT, right, top, 1);
+                margins.drawText("Page " + number + " of " + count, TextMetrics.REGULAR, PAGE_MARGIN,
+                        PAGE_MARGIN_TEXT, PageLayout.PAGE_SIZE.getWidth() / 2, PageLayout.MARGIN_BOTTOM / 2, 0.5f);
+            });
+        }
+
+        private void header(ReportViewModel report) throws IOException {
+            List<Item> items = new ArrayList<>();
+            PDImageXObject logoImage = logo != null ? image(logo, "logo") : null;
+            if (logoImage != null) {
+                Picture picture = fit(logoImage, layout.width(), LOGO_MAX_HEIGHT);
+                layout.place(0, new Column((layout.width() - picture.width()) / 2, picture.width(),
+                        List.of(new Gap(BODY), picture, new Gap(BODY))));
+            }
+            if (report.title() != null) {
+                text(items, report.title(), TextMetrics.BOLD, H1, TEXT_DARK, layout.width(), 0);
+                items.add(new Gap(SMALL));
+            }
+            layout.place(KEEP_WITH_NEXT, items);
+
+            labelled("Checklist ID:", report.checklistId(), SMALL);
+            if (report.workOrderNum() != null) {
+                labelled("Work Order:", report.workOrderNum(), SMALL);
+            }
+            if (report.workOrderTitle() != null) {
+                labelled("Work Order Title:", report.workOrderTitle(), SMALL);
+            }
+            layout.space(2 * BODY);
+        }
+
+        private void reportInformation(ReportViewModel report) throws IOException {
+            cardTitle("Report Information");
+            if (report.createdAt() != null) {
+                infoRow("Date and Time:", report.createdAt());
+            }
+            if (report.author() != null) {
+                infoRow("Author:", report.author());
+            }
+            layout.space(BODY);
+        }
+
+        private void equipment(ReportViewModel report) throws IOException {
+            cardTitle("Equipment");
+            if (report.assetDesignation() != null) {
+                infoRow("Designation:", report.assetDesignation());
+            }
+            infoRow("Part Number:", report.assetPartNumber());
+            infoRow("Serial Number:", report.assetSerialNumber());
+            layout.space(BODY);
+        }
+
+        private void workOrder(WorkOrderView workOrder) throws IOException {
+            cardTitle("Work Order Information");
+            infoRow("Maximo WO Number:", workOrder.wonum());
+            infoRow("Description:", workOrder.description());
+            if (!workOrder.workDetails().isEmpty()) {
+                List<Item> details = new ArrayList<>();
+                float width = layout.width() - LABEL_WIDTH;
+                for (String detail : workOrder.workDetails()) {
+                    bullet(details, detail, TextMetrics.REGULAR, BODY, TEXT_MUTED, width);
+                }
+                row(label("Work Details:", BODY), details);
+            }
+            infoRow("Maximo Equipment:", workOrder.assetNum());
+            infoRow("Work Type:", workOrder.workType());
+            infoRow("Vendor:", workOrder.vendor());
+            infoRow("Scheduled Start:", workOrder.scheduledStart());
+            infoRow("Scheduled Finish:", workOrder.scheduledFinish());
+            infoRow("DRMIS Notification:", workOrder.n1n9());
+            infoRow("DRMIS ND:", workOrder.and());
+            infoRow("DRMIS Required Start:", workOrder.callDate());
+            infoRow("CFTO:", workOrder.cfto());
+            infoRow("DRMIS Description:", workOrder.additionalDescription());
+            infoRow("DRMIS Maint. Plan:", workOrder.amountCompletedPlan());
+            infoRow("NSC?:", workOrder.answerComplete());
+            infoRow("DRMIS Notif. Date:", workOrder.answerDate());
+            infoRow("DRMIS Notif. From:", workOrder.answerFrom());
+            infoRow("DRMIS Notif. To:", workOrder.answerTo());
+            infoRow("FER OPDEF Number:", workOrder.operationDefinition());
+            layout.space(BODY);
+        }
+
+        private void section(SectionView section) throws IOException {
+            layout.space(BODY);
+            List<Item> header = new ArrayList<>();
+            text(header, nullToEmpty(section.title()), TextMetrics.BOLD, SECTION_TITLE, SECONDARY_BLUE,
+                    layout.width(), 0);
+            header.add(new Gap(CELL_PADDING / 2));
+            header.add(new Rule(SECONDARY_BLUE, 2));
+            header.add(new Gap(CELL_PADDING));
+            if (section.description() != null) {
+                text(header, collapse(section.description()), TextMetrics.ITALIC, SMALL, TEXT_DARK, layout.width(), 0);
+                header.add(new Gap(CELL_PADDING));
+                header.add(new Rule(BORDER_LIGHT, 0.75f));
+            }
+            layout.place(KEEP_WITH_NEXT, header);
+
+            float titleWidth = layout.width() * 0.4f;
+            float answerWidth = layout.width() - titleWidth;
+            for (QuestionView question : section.questions()) {
+                layout.place(0,
+                        new Column(CELL_PADDING, titleWidth - 2 * CELL_PADDING, questionCell(question,
+                                titleWidth - 2 * CELL_PADDING)),
+                        new Column(titleWidth + CELL_PADDING, answerWidth - 2 * CELL_PADDING, answerCell(question,
+                                answerWidth - 2 * CELL_PADDING)));
+                layout.place(0, List.of(new Rule(BORDER_LIGHT, 0.75f)));
+            }
+        }
+
+        private List<Item> questionCell(QuestionView question, float width) {
+            List<Item> items = new ArrayList<>();
+            items.add(new Gap(CELL_PADDING));
+            text(items, collapse(question.title()), TextMetrics.REGULAR, BODY, TEXT_DARK, width, 0);
+            if (question.hint() != null) {
+                items.add(new Gap(CELL_PADDING / 2));
+                text(items, "i  " + collapse(question.hint()), TextMetrics.REGULAR, HINT, Color.BLACK, width, 0);
+            }
+            items.add(new Gap(CELL_PADDING));
+            return items;
+        }
+
+        private List<Item> answerCell(QuestionView question, float width) throws IOException {
+            List<Item> items = new ArrayList<>();
+            items.add(new Gap(CELL_PADDING));
+            switch (question.kind()) {
+                case TEXT -> {
+                    if (question.text() == null) {
+                        text(items, "No response provided", TextMetrics.ITALIC, BODY, TEXT_MUTED, width, 0);
+                    } else {
+                        String text = question.paragraph() ? preLine(question.text()) : collapse(question.text());
+                        text(items, text, TextMetrics.REGULAR, BODY, TEXT_DARK, width, 0);
+                    }
+                }
+                case CHOICE -> {
+                    if (question.choices().isEmpty()) {
+                        text(items, "No selection made", TextMetrics.ITALIC, BODY, TEXT_MUTED, width, 0);
+                    }
+                    for (String choice : question.choices()) {
+                        bullet(items, collapse(choice), TextMetrics.REGULAR, BODY, TEXT_DARK, width);
+                    }
+                }
+                case SIGNATURE -> signature(items, question.signature(), width);
+                case FILE -> {
+                    for (FileLink file : question.files()) {
+                        file(items, file, width);
+                    }
+                }
+                case NONE -> {
+                }
+            }
+            if (question.commentHtml() != null) {
+                items.add(new Gap(CELL_PADDING));
+                text(items, "Comment:", TextMetrics.BOLD, SMALL, TEXT_DARK, width, 0);
+                text(items, plainText(question.commentHtml()), TextMetrics.REGULAR, SMALL, TEXT_DARK, width, 0);
+            }
+            if (!question.attachments().isEmpty()) {
+                items.add(new Gap(CELL_PADDING));
+                text(items, "Attachments:", TextMetrics.BOLD, SMALL, TEXT_DARK, width, 0);
+                for (String attachment : question.attachments()) {
+                    items.add(new Gap(CELL_PADDING / 2));
+                    picture(items, attachment, Math.min(width, ATTACHMENT_MAX_SIZE), ATTACHMENT_MAX_SIZE, width);
+                }
+            }
+            if (!question.metadata().isEmpty()) {
+                items.add(new Gap(CELL_PADDING));
+                List<String> badges = new ArrayList<>(question.metadata().size());
+                for (MetadataEntry entry : question.metadata()) {
+                    badges.add(entry.key() + ": " + nullToEmpty(entry.value()));
+                }
+                text(items, collapse(String.join("   ", badges)), TextMetrics.REGULAR, BADGE, TEXT_DARK, width, 0);
+            }
+            items.add(new Gap(CELL_PADDING));
+            return items;
+        }
+
+        private void signature(List<Item> items, SignatureView signature, float width) throws IOException {
+            text(items, collapse(signature.name()), TextMetrics.BOLD, BODY, TEXT_DARK, width, 0);
+            if (signature.role() != null) {
+                text(items, collapse(signature.role()), TextMetrics.REGULAR, SMALL, TEXT_MUTED, width, 0);
+            }
+            if (signature.signedAt() != null) {
+                text(items, "Signed on " + signature.signedAt(), TextMetrics.REGULAR, SMALL, TEXT_MUTED, width, 0);
+            }
+            if (signature.image() != null) {
+                items.add(new Gap(CELL_PADDING / 2));
+                picture(items, signature.image(), SIGNATURE_MAX_WIDTH, SIGNATURE_MAX_HEIGHT, width);
+            }
+        }
+
+        private void file(List<Item> items, FileLink file, float width) {
+            // Like the template, a file without a URL only shows its size
+            String size = file.size() != null ? file.size() : "";
+            if (file.url() == null) {
+                if (!size.isEmpty()) {
+                    text(items, size, TextMetrics.REGULAR, BODY, TEXT_MUTED, width, 0);
+                }
+                return;
+            }
+            String line = collapse(nullToEmpty(file.name()) + " " + size);
+            for (String wrapped : TextMetrics.REGULAR.wrap(line, BODY, width)) {
+                items.add(new Text(wrapped, TextMetrics.REGULAR, BODY, ACCENT_BLUE, 0, file.url()));
+            }
+        }
+
+        private void cardTitle(String title) throws IOException {
+            layout.place(KEEP_WITH_NEXT, List.of(new Text(title, TextMetrics.BOLD, CARD_TITLE, TEXT_DARK),
+                    new Gap(CELL_PADDING / 2), new Rule(ACCENT_BLUE, 2), new Gap(CELL_PADDING / 2)));
+        }
+
+        private void infoRow(String label, String value) throws IOException {
+            List<Item> values = new ArrayList<>();
+            text(values, collapse(nullToEmpty(value)), TextMetrics.REGULAR, BODY, TEXT_MUTED,
+                    layout.width() - LABEL_WIDTH, 0);
+            row(label(label, BODY), values);
+        }
+
+        private void row(List<Item> label, List<Item> values) throws IOException {
+            float padding = BODY * 0.4f;
+            label.add(0, new Gap(padding));
+            values.add(0, new Gap(padding));
+            values.add(new Gap(padding));
+            layout.place(0, new Column(0, LABEL_WIDTH, label),
+                    new Column(LABEL_WIDTH, layout.width() - LABEL_WIDTH, values));
+            layout.place(0, List.of(new Rule(ROW_BORDER, 0.75f)));
+        }
+
+        private void labelled(String label, String value, float size) throws IOException {
+            List<Item> values = new ArrayList<>();
+            text(values, collapse(nullToEmpty(value)), TextMetrics.REGULAR, size, TEXT_MUTED,
+                    layout.width() - LABEL_WIDTH, 0);
+            layout.place(0, new Column(0, LABEL_WIDTH, label(label, size)),
+                    new Column(LABEL_WIDTH, layout.width() - LABEL_WIDTH, values));
+        }
+
+        private List<Item> label(String label, float size) {
+            List<Item> items = new ArrayList<>();
+            text(items, label, TextMetrics.BOLD, size, TEXT_DARK, LABEL_WIDTH - CELL_PADDING, 0);
+            return items;
+        }
+
+        private void bullet(List<Item> items, String text, TextMetrics metrics, float size, Color color,
+                            float width) {
+            float indent = 1.5f * size;
+            int first = items.size();
+            text(items, text, metrics, size, color, width - indent, indent);
+            if (items.size() > first) {
+                Text line = (Text) items.get(first);
+                items.set(first, new Text("•   " + line.line(), metrics, size, color, 0, null));
+            }
+        }
+
+        private void text(List<Item> items, String text, TextMetrics metrics, float size, Color color, float width,
+                          float indent) {
+            for (String line : metrics.wrap(text, size, width)) {
+                items.add(new Text(line, metrics, size, color, indent, null));
+            }
+        }
+
+        private void picture(List<Item> items, String url, float maxWidth, float maxHeight, float width)
+                throws IOException {
+            PDImageXObject image = images.containsKey(url) ? images.get(url) : load(url);
+            images.put(url, image);
+            if (image == null) {
+                text(items, IMAGE_NOT_AVAILABLE, TextMetrics.ITALIC, SMALL, TEXT_MUTED, width, 0);
+            } else {
+                items.add(fit(image, maxWidth, Math.min(maxHeight, layout.height())));
+            }
+        }
+
+        private PDImageXObject load(String url) throws IOException {
+            byte[] data;
+            if (url.startsWith("data:")) {
+                int comma = url.indexOf(',');
+                if (comma < 0 || !url.substring(0, comma).endsWith(";base64")) {
+                    log.debug("Skipping unsupported data URL image");
+                    return null;
+                }
+                try {
+                    data = Base64.getMimeDecoder().decode(url.substring(comma + 1));
+                } catch (IllegalArgumentException e) {
+                    log.debug("Skipping image with malformed base64 data: {}", e.getMessage());
+                    return null;
+                }
+            } else {
+                // Same rules as the HTML engine: classpath and allow-listed files only, never the network
+                String resolved = resourceResolver.resolveURI(null, url);
+                try (InputStream in = resolved != null ? resourceResolver.getUrl(resolved).getStream() : null) {
+                    if (in == null) {
+                        return null;
+                    }
+                    data = in.readAllBytes();
+                }
+            }
+            return image(data, "image-" + images.size());
+        }
+
+        private PDImageXObject image(byte[] data, String name) {
+            try {
+                return PDImageXObject.createFromByteArray(document, data, name);
+            } catch (IOException | IllegalArgumentException e) {
+                log.debug("Skipping unreadable image {}: {}", name, e.getMessage());
+                return null;
+            }
+        }
+
+        private Picture fit(PDImageXObject image, float maxWidth, float maxHeight) {
+            // Like max-width and max-height: scaled down to fit, never up
+            float scale = Math.min(1f, Math.min(maxWidth / image.getWidth(), maxHeight / image.getHeight()));
+            return new Picture(image, image.getWidth() * scale, image.getHeight() * scale);
+        }
+    }
+
+    /**
+     * Text as HTML shows it by default: runs of whitespace, line breaks included, become one space.
+     */
+    static String collapse(String text) {
+        return text == null ? "" : WHITESPACE.matcher(text).replaceAll(" ").strip();
+    }
+
+    /**
+     * Text as HTML shows it with {@code white-space: pre-line}: runs of spaces collapse, line breaks stay.
+     */
+    static String preLine(String text) {
+        return HORIZONTAL_WHITESPACE.matcher(text).replaceAll(" ").strip();
+    }
+
+    /**
+     * The text of an HTML comment: tags dropped, entities decoded, line breaks where the markup breaks lines.
+     */
+    static String plainText(String html) {
+        String text = WHITESPACE.matcher(html).replaceAll(" ");
+        text = HTML_BREAKS.matcher(text).replaceAll("\n");
+        text = HtmlUtils.htmlUnescape(HTML_TAGS.matcher(text).replaceAll(""));
+        StringBuilder lines = new StringBuilder(text.length());
+        for (String line : text.split("\n")) {
+            String stripped = collapse(line);
+            if (!stripped.isEmpty()) {
+                lines.append(lines.isEmpty() ? "" : "\n").append(stripped);
+            }
+        }
+        return lines.toString();
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static byte[] loadLogo() {
+        ClassPathResource resource = new ClassPathResource(LOGO_CLASSPATH);
+        if (!resource.exists()) {
+            log.warn("Logo resource not found on classpath: {}", LOGO_CLASSPATH);
+            return null;
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            log.warn("Failed to load logo from classpath: {}", e.getMessage());
+            return null;
+        }
+    }
+}
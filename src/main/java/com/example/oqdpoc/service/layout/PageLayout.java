@@ -0,0 +1,286 @@
+package com.example.oqdpoc.service.layout;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDPageContentStream.AppendMode;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.action.PDActionURI;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDBorderStyleDictionary;
+
+import java.awt.Color;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Flows content down A4 pages with the margins of the report stylesheet, starting a new page whenever the next
+ * item does not fit. Content is placed as side-by-side columns of items that are never split themselves, so a
+ * table row breaks between two lines of a cell rather than through one.
+ * <p>
+ * Not thread safe: one layout per document render.
+ */
+final class PageLayout implements Closeable {
+
+    static final PDRectangle PAGE_SIZE = PDRectangle.A4;
+    private static final float CM = 72 / 2.54f;
+    // Same page box as the @page rule of job-ticket.css
+    static final float MARGIN_TOP = 3 * CM;
+    static final float MARGIN_SIDE = 1.5f * CM;
+    static final float MARGIN_BOTTOM = 2.5f * CM;
+    static final float LINE_HEIGHT = 1.35f;
+
+    /**
+     * Something placed in a column. Items are never split across pages.
+     */
+    sealed interface Item permits Text, Picture, Rule, Gap {
+        float height();
+    }
+
+    /**
+     * One line of sanitized text, see {@link TextMetrics#wrap(String, float, float)}.
+     *
+     * @param indent Offset from the left edge of the column
+     * @param uri    Link target of the line, or null
+     */
+    record Text(String line, TextMetrics metrics, float size, Color color, float indent, String uri) implements Item {
+
+        Text(String line, TextMetrics metrics, float size, Color color) {
+            this(line, metrics, size, color, 0, null);
+        }
+
+        @Override
+        public float height() {
+            return size * LINE_HEIGHT;
+        }
+    }
+
+    record Picture(PDImageXObject image, float width, float height) implements Item {
+    }
+
+    /**
+     * A horizontal line across the column.
+     */
+    record Rule(Color color, float height) implements Item {
+    }
+
+    record Gap(float height) implements Item {
+    }
+
+    /**
+     * @param x     Offset of the column from the left margin
+     * @param width Width of the column
+     */
+    record Column(float x, float width, List<Item> items) {
+    }
+
+    private final PDDocument document;
+    private PDPage page;
+    private PDPageContentStream content;
+    private float y;
+    private PDType1Font currentFont;
+    private float currentSize;
+    private Color currentColor;
+
+    PageLayout(PDDocument document) {
+        this.document = document;
+    }
+
+    float width() {
+        return PAGE_SIZE.getWidth() - 2 * MARGIN_SIDE;
+    }
+
+    /**
+     * Height available to content on one page, the most a single item may take.
+     */
+    float height() {
+        return PAGE_SIZE.getHeight() - MARGIN_TOP - MARGIN_BOTTOM;
+    }
+
+    /**
+     * Places columns side by side, starting at the current position. When a column runs out of page, the rest
+     * of every column continues at the top of the next page.
+     *
+     * @param keepWithNext Room needed below the first items for them to start on this page, so a heading is
+     *                     not left alone at the bottom of a page
+     */
+    void place(float keepWithNext, Column... columns) throws IOException {
+        float first = 0;
+        for (Column column : columns) {
+            if (!column.items().isEmpty()) {
+                first = Math.max(first, column.items().get(0).height());
+            }
+        }
+        if (page == null || (!atTop() && y - first - keepWithNext < MARGIN_BOTTOM)) {
+            newPage();
+        }
+
+        int[] next = new int[columns.length];
+        while (true) {
+            boolean fresh = atTop();
+            float used = 0;
+            boolean remaining = false;
+            for (int c = 0; c < columns.length; c++) {
+                List<Item> items = columns[c].items();
+                float height = 0;
+                while (next[c] < items.size()) {
+                    Item item = items.get(next[c]);
+                    // An item taller than a whole page still goes onto a fresh one, or it would never be placed
+                    if (y - height - item.height() < MARGIN_BOTTOM && !(fresh && height == 0)) {
+                        break;
+                    }
+                    draw(item, MARGIN_SIDE + columns[c].x(), y - height, columns[c].width());
+                    height += item.height();
+                    next[c]++;
+                }
+                used = Math.max(used, height);
+                remaining |= next[c] < items.size();
+            }
+            y -= used;
+            if (!remaining) {
+                return;
+            }
+            newPage();
+        }
+    }
+
+    /**
+     * Places items in one column across the full width.
+     */
+    void place(float keepWithNext, List<Item> items) throws IOException {
+        place(keepWithNext, new Column(0, width(), items));
+    }
+
+    /**
+     * Vertical space, dropped at the top of a page.
+     */
+    void space(float height) {
+        if (page != null && !atTop()) {
+            y = Math.max(y - height, MARGIN_BOTTOM);
+        }
+    }
+
+    /**
+     * Draws a line of text into the top and bottom margins of every page, once all content has been placed.
+     */
+    void stamp(PageStamp stamp) throws IOException {
+        close();
+        int count = document.getNumberOfPages();
+        int number = 0;
+        // Walked in order rather than looked up by index, which scans the page tree each time
+        for (PDPage next : document.getPages()) {
+            page = next;
+            content = new PDPageContentStream(document, page, AppendMode.APPEND, true, true);
+            resetState();
+            stamp.draw(this, ++number, count);
+            close();
+        }
+    }
+
+    @FunctionalInterface
+    interface PageStamp {
+        void draw(PageLayout layout, int pageNumber, int pageCount) throws IOException;
+    }
+
+    /**
+     * Draws text at an absolute position, for {@link #stamp(PageStamp)}.
+     *
+     * @param x        Anchor of the text, from the left of the page
+     * @param baseline Baseline of the text, from the bottom of the page
+     * @param align    Where the anchor is along the text: 0 at its left edge, 0.5 at its center, 1 at its right edge
+     */
+    void drawText(String text, TextMetrics metrics, float size, Color color, float x, float baseline,
+                  float align) throws IOException {
+        String line = metrics.sanitize(text);
+        showText(line, metrics, size, color, x - align * metrics.width(line, size), baseline);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (content != null) {
+            content.close();
+            content = null;
+        }
+    }
+
+    private boolean atTop() {
+        return y == PAGE_SIZE.getHeight() - MARGIN_TOP;
+    }
+
+    private void newPage() throws IOException {
+        close();
+        page = new PDPage(PAGE_SIZE);
+        document.addPage(page);
+        content = new PDPageContentStream(document, page);
+        resetState();
+        y = PAGE_SIZE.getHeight() - MARGIN_TOP;
+    }
+
+    private void resetState() {
+        currentFont = null;
+        currentSize = 0;
+        currentColor = null;
+    }
+
+    private void draw(Item item, float x, float top, float width) throws IOException {
+        switch (item) {
+            case Text text -> {
+                // Center the glyphs in the line box, as CSS does with line-height
+                float baseline = top - (text.height() - text.size()) / 2 - text.metrics().ascent(text.size());
+                float left = x + text.indent();
+                showText(text.line(), text.metrics(), text.size(), text.color(), left, baseline);
+                if (text.uri() != null) {
+                    link(text.uri(), new PDRectangle(left, top - text.height(),
+                            text.metrics().width(text.line(), text.size()), text.height()));
+                }
+            }
+            case Picture picture -> content.drawImage(picture.image(), x, top - picture.height(), picture.width(),
+                    picture.height());
+            case Rule rule -> {
+                content.setStrokingColor(rule.color());
+                content.setLineWidth(rule.height());
+                content.moveTo(x, top - rule.height() / 2);
+                content.lineTo(x + width, top - rule.height() / 2);
+                content.stroke();
+            }
+            case Gap gap -> {
+            }
+        }
+    }
+
+    private void showText(String line, TextMetrics metrics, float size, Color color, float x, float baseline)
+            throws IOException {
+        if (line.isEmpty()) {
+            return;
+        }
+        // Text state survives across text objects, so only changes are written
+        if (metrics.font() != currentFont || size != currentSize) {
+            content.setFont(metrics.font(), size);
+            currentFont = metrics.font();
+            currentSize = size;
+        }
+        if (!color.equals(currentColor)) {
+            content.setNonStrokingColor(color);
+            currentColor = color;
+        }
+        content.beginText();
+        content.newLineAtOffset(x, baseline);
+        content.showText(line);
+        content.endText();
+    }
+
+    private void link(String uri, PDRectangle area) throws IOException {
+        PDActionURI action = new PDActionURI();
+        action.setURI(uri);
+        PDBorderStyleDictionary border = new PDBorderStyleDictionary();
+        border.setWidth(0);
+        PDAnnotationLink link = new PDAnnotationLink();
+        link.setRectangle(area);
+        link.setBorderStyle(border);
+        link.setAction(action);
+        page.getAnnotations().add(link);
+    }
+}
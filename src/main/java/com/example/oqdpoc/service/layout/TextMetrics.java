@@ -0,0 +1,166 @@
+package com.example.oqdpoc.service.layout;
+
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.encoding.Encoding;
+import org.apache.pdfbox.pdmodel.font.encoding.GlyphList;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Advance widths of one of the standard 14 fonts, looked up once per character so measuring and wrapping text
+ * never goes through PDFBox's per-call glyph resolution. Characters the font's encoding cannot show are replaced
+ * by {@code ?} before they are measured or drawn.
+ */
+final class TextMetrics {
+
+    static final TextMetrics REGULAR = new TextMetrics(PDType1Font.HELVETICA);
+    static final TextMetrics BOLD = new TextMetrics(PDType1Font.HELVETICA_BOLD);
+    static final TextMetrics ITALIC = new TextMetrics(PDType1Font.HELVETICA_OBLIQUE);
+
+    // U+2122 (trade mark) is the highest code point WinAnsiEncoding maps
+    private static final int MAX_CHAR = 0x2122;
+    private static final char REPLACEMENT = '?';
+    private static final String ELLIPSIS = "...";
+
+    private final PDType1Font font;
+    /** Width in thousandths of the font size, or NaN when the character cannot be encoded. */
+    private final float[] widths = new float[MAX_CHAR + 1];
+
+    private TextMetrics(PDType1Font font) {
+        this.font = font;
+        Arrays.fill(widths, Float.NaN);
+        Encoding encoding = font.getEncoding();
+        GlyphList glyphs = GlyphList.getAdobeGlyphList();
+        for (int c = ' '; c <= MAX_CHAR; c++) {
+            String name = glyphs.codePointToName(c);
+            if (!".notdef".equals(name) && encoding.contains(name)) {
+                try {
+                    widths[c] = font.getStringWidth(String.valueOf((char) c));
+                } catch (IOException | IllegalArgumentException e) {
+                    // Not in the font after all: stays unencodable
+                }
+            }
+        }
+    }
+
+    PDType1Font font() {
+        return font;
+    }
+
+    /**
+     * @return the text with every character this font cannot show replaced, and tabs as spaces
+     */
+    String sanitize(String text) {
+        char[] chars = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char replacement = c == '\t' ? ' ' : canShow(c) ? c : REPLACEMENT;
+            if (replacement != c) {
+                if (chars == null) {
+                    chars = text.toCharArray();
+                }
+                chars[i] = replacement;
+            }
+        }
+        return chars != null ? new String(chars) : text;
+    }
+
+    /**
+     * @return the width of sanitized text at the given font size, in points
+     */
+    float width(String text, float size) {
+        return width(text, 0, text.length(), size);
+    }
+
+    float width(String text, int start, int end, float size) {
+        float width = 0;
+        for (int i = start; i < end; i++) {
+            width += widths[text.charAt(i)];
+        }
+        return width * size / 1000f;
+    }
+
+    /**
+     * Breaks text into lines no wider than {@code maxWidth}: at spaces where possible, inside words that are
+     * wider than a line on their own. Line breaks in the text are kept; an empty paragraph is an empty line.
+     *
+     * @param text     The text, not yet sanitized
+     * @param size     The font size
+     * @param maxWidth The width available, in points
+     * @return the lines, sanitized
+     */
+    List<String> wrap(String text, float size, float maxWidth) {
+        List<String> lines = new ArrayList<>();
+        for (String paragraph : text.replace("\r\n", "\n").replace('\r', '\n').split("\n", -1)) {
+            wrapParagraph(sanitize(paragraph.stripTrailing()), size, maxWidth, lines);
+        }
+        return lines;
+    }
+
+    /**
+     * Shortens text to a single line no wider than {@code maxWidth}, ending in {@value #ELLIPSIS} where it was cut.
+     *
+     * @param text     One line of text, not yet sanitized
+     * @param size     The font size
+     * @param maxWidth The width available, in points
+     * @return the line, sanitized
+     */
+    String truncate(String text, float size, float maxWidth) {
+        String line = sanitize(text);
+        if (width(line, size) <= maxWidth) {
+            return line;
+        }
+        float limit = (maxWidth - width(ELLIPSIS, size)) * 1000f / size;
+        int end = 0;
+        float width = 0;
+        while (end < line.length()) {
+            float next = width + widths[line.charAt(end)];
+            if (next > limit) {
+                break;
+            }
+            width = next;
+            end++;
+        }
+        return line.substring(0, end).stripTrailing() + ELLIPSIS;
+    }
+
+    private void wrapParagraph(String paragraph, float size, float maxWidth, List<String> lines) {
+        int start = 0;
+        while (paragraph.length() - start > 0 && width(paragraph, start, paragraph.length(), size) > maxWidth) {
+            // Longest prefix that fits, then back off to the last space in it. Summed in font units, as width() does
+            float limit = maxWidth * 1000f / size;
+            int end = start;
+            float width = 0;
+            while (end < paragraph.length()) {
+                float next = width + widths[paragraph.charAt(end)];
+                if (next > limit) {
+                    break;
+                }
+                width = next;
+                end++;
+            }
+            int space = paragraph.lastIndexOf(' ', end);
+            int breakAt = space > start ? space : Math.max(end, start + 1);
+            lines.add(paragraph.substring(start, breakAt));
+            start = breakAt;
+            while (start < paragraph.length() && paragraph.charAt(start) == ' ') {
+                start++;
+            }
+        }
+        lines.add(paragraph.substring(start));
+    }
+
+    private boolean canShow(char c) {
+        return c <= MAX_CHAR && !Float.isNaN(widths[c]);
+    }
+
+    /**
+     * @return the height of the font's ascenders above the baseline, in points
+     */
+    float ascent(float size) {
+        return font.getFontDescriptor().getAscent() * size / 1000f;
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.oqdpoc.service.layout;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.WorkPeriodProperties;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.exception.RenderQueueFullException;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.example.oqdpoc.service.layout.PageLayout.Column;
+import com.example.oqdpoc.service.layout.PageLayout.Gap;
+import com.example.oqdpoc.service.layout.PageLayout.Item;
+import com.example.oqdpoc.service.layout.PageLayout.Rule;
+import com.example.oqdpoc.service.layout.PageLayout.Text;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lays out a summary of every work order in a short work period, one table row each, while the work orders are
+ * still being read. Short work periods can hold tens of thousands of work orders, so none is kept once its row is
+ * drawn, and page content goes to a PDFBox scratch file beyond {@code app.pdf.work-periods.summary.scratch-memory}.
+ * What stays in the heap is the page tree, a few hundred bytes a page, until the PDF is written out at the end.
+ * <p>
+ * Drawn with the standard fonts and the page box of the native job ticket report. The column headings, title and
+ * page numbers are stamped into the margins of every page once the rows are placed.
+ * <p>
+ * A summary is drawn while its upload arrives, so it is not admitted by the render bulkhead: a slow client would
+ * hold a render slot for as long as its upload takes. Summaries have {@code max-concurrent} slots of their own
+ * instead, and calls beyond those are refused at once.
+ * <p>
+ * Metrics: {@code pdf.summary.work-orders} (work orders drawn), {@code pdf.summary.render.duration},
+ * {@code pdf.summary.throughput} (work orders per second of each summary) and {@code pdf.summary.jvm.heap.peak}
+ * (the most heap in use by the whole JVM, including concurrent requests, while a summary was drawn, sampled every
+ * {@value #HEAP_SAMPLE_INTERVAL} work orders).
+ */
+@Service
+public class WorkPeriodSummaryRenderer {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkPeriodSummaryRenderer.class);
+
+    private static final String TITLE = "Work Period Summary";
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int HEAP_SAMPLE_INTERVAL = 256;
+    // Statuses tallied one by one; any beyond are counted together
+    private static final int MAX_STATUSES = 50;
+    private static final String OTHER_STATUSES = "(other)";
+
+    private static final Color TEXT_DARK = new Color(0x2c3e50);
+    private static final Color TEXT_MUTED = new Color(0x6c757d);
+    private static final Color PAGE_MARGIN_TEXT = new Color(0x666666);
+    private static final Color ACCENT_BLUE = new Color(0x3498db);
+    private static final Color ROW_BORDER = new Color(0xf0f0f0);
+    private static final float BODY = 8f;
+    private static final float HEADING = 12f;
+    private static final float PAGE_MARGIN = 9f;
+    private static final float CELL_PADDING = 3f;
+
+    /**
+     * The columns of the table, widths adding up to the width of the page content.
+     */
+    private enum SummaryColumn {
+        WONUM("Work Order", 58),
+        DESCRIPTION("Description", 144),
+        STATUS("Status", 48),
+        WORK_TYPE("Type", 34),
+        ASSET("Asset", 58),
+        SCHEDULED_START("Scheduled Start", 84),
+        SCHEDULED_FINISH("Scheduled Finish", 84);
+
+        private final String heading;
+        private final float width;
+
+        SummaryColumn(String heading, float width) {
+            this.heading = heading;
+            this.width = width;
+        }
+
+        String cell(WorkOrder workOrder) {
+            return switch (this) {
+                case WONUM -> workOrder.getWonum();
+                case DESCRIPTION -> workOrder.getDescription();
+                case STATUS -> workOrder.getStatus();
+                case WORK_TYPE -> workOrder.getWorkType();
+                case ASSET -> workOrder.getAssetNum();
+                case SCHEDULED_START -> format(workOrder.getScheduledStart());
+                case SCHEDULED_FINISH -> format(workOrder.getScheduledFinish());
+            };
+        }
+    }
+
+    /**
+     * What went into one summary.
+     *
+     * @param workOrders    Work orders drawn
+     * @param skipped       Members of the short work period that were not readable work orders
+     * @param pages         Pages of the PDF
+     * @param peakHeapBytes The most heap in use by the JVM while the summary was drawn, as sampled
+     */
+    public record Summary(int workOrders, int skipped, int pages, long peakHeapBytes) {
+    }
+
+    private final PdfRenderProperties renderProperties;
+    private final WorkPeriodProperties workPeriodProperties;
+    private final JobTicketRequestReader jobTicketRequestReader;
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final Semaphore slots;
+    private final Counter workOrdersCounter;
+    private final Timer renderTimer;
+    private final DistributionSummary throughput;
+    private final DistributionSummary heapPeak;
+
+    public WorkPeriodSummaryRenderer(PdfRenderProperties renderProperties, WorkPeriodProperties workPeriodProperties,
+                                     JobTicketRequestReader jobTicketRequestReader, MeterRegistry meterRegistry) {
+        this.renderProperties = renderProperties;
+        this.workPeriodProperties = workPeriodProperties;
+        this.jobTicketRequestReader = jobTicketRequestReader;
+        this.slots = new Semaphore(Math.max(1, workPeriodProperties.getSummary().getMaxConcurrent()));
+        this.workOrdersCounter = Counter.builder("pdf.summary.work-orders")
+                .description("Work orders drawn into work period summaries")
+                .register(meterRegistry);
+        this.renderTimer = Timer.builder("pdf.summary.render.duration")
+                .description("Time to read a short work period and write its summary")
+                .register(meterRegistry);
+        this.throughput = DistributionSummary.builder("pdf.summary.throughput")
+                .description("Work orders per second of each work period summary")
+                .baseUnit("work orders/s")
+                .register(meterRegistry);
+        this.heapPeak = DistributionSummary.builder("pdf.summary.jvm.heap.peak")
+                .description("Most heap in use by the JVM, not only the summary, while a work period summary was drawn")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads a short work period and writes the summary of its work orders to {@code out}, which is left open.
+     * Nothing is written before the last work order has been read, so a request that fails can still be answered
+     * with an error.
+     *
+     * @param shortWorkPeriodJson The short work period, read as it arrives
+     * @param generatedAt         The date printed in the page header, also the PDF's creation date
+     * @throws com.example.oqdpoc.exception.InvalidRequestException if the input is not a short work period
+     * @throws RenderQueueFullException if {@code max-concurrent} summaries are already in progress
+     */
+    public Summary write(InputStream shortWorkPeriodJson, LocalDateTime generatedAt, OutputStream out)
+            throws IOException {
+        if (!slots.tryAcquire()) {
+            throw new RenderQueueFullException("Too many work period summaries in progress, retry later",
+                    Math.max(1, (long) Math.ceil(renderTimer.mean(TimeUnit.SECONDS))));
+        }
+        try {
+            return draw(shortWorkPeriodJson, generatedAt, out);
+        } finally {
+            slots.release();
+        }
+    }
+
+    private Summary draw(InputStream shortWorkPeriodJson, LocalDateTime generatedAt, OutputStream out)
+            throws IOException {
+        long start = System.nanoTime();
+        try (PDDocument document = new PDDocument(scratchMemory())) {
+            PDDocumentInformation info = document.getDocumentInformation();
+            info.setTitle(TITLE);
+            info.setProducer(renderProperties.getProducer());
+            info.setCreationDate(GregorianCalendar.from(generatedAt.atZone(ZoneId.systemDefault())));
+
+            Render render = new Render(new PageLayout(document));
+            int skipped = jobTicketRequestReader.streamWorkOrders(shortWorkPeriodJson, render::row);
+            render.totals(skipped, DATE_TIME.format(generatedAt));
+            document.save(StreamUtils.nonClosing(out));
+
+            long nanos = System.nanoTime() - start;
+            Summary summary = new Summary(render.count, skipped, document.getNumberOfPages(), render.sampleHeap());
+            renderTimer.record(nanos, TimeUnit.NANOSECONDS);
+            throughput.record(summary.workOrders() * 1e9 / Math.max(nanos, 1));
+            heapPeak.record(summary.peakHeapBytes());
+            log.debug("Rendered work period summary: {}", summary);
+            return summary;
+        }
+    }
+
+    private MemoryUsageSetting scratchMemory() {
+        WorkPeriodProperties.Summary config = workPeriodProperties.getSummary();
+        MemoryUsageSetting setting = MemoryUsageSetting.setupMixed(config.getScratchMemory().toBytes());
+        if (StringUtils.hasText(config.getScratchDir())) {
+            setting.setTempDir(new File(config.getScratchDir()));
+        }
+        return setting;
+    }
+
+    /**
+     * The state of one summary: its layout, the work orders drawn so far and their statuses.
+     */
+    private final class Render {
+
+        private final PageLayout layout;
+        private final Map<String, Integer> statuses = new TreeMap<>();
+        private int count;
+        private long peakHeap;
+
+        private Render(PageLayout layout) {
+            this.layout = layout;
+        }
+
+        void row(WorkOrder workOrder) throws IOException {
+            if (count % HEAP_SAMPLE_INTERVAL == 0) {
+                sampleHeap();
+            }
+            count++;
+            workOrdersCounter.increment();
+            String status = workOrder.getStatus() != null ? workOrder.getStatus() : "";
+            if (statuses.containsKey(status) || statuses.size() < MAX_STATUSES) {
+                statuses.merge(status, 1, Integer::sum);
+            } else {
+                statuses.merge(OTHER_STATUSES, 1, Integer::sum);
+            }
+
+            SummaryColumn[] columns = SummaryColumn.values();
+            Column[] cells = new Column[columns.length];
+            float x = 0;
+            for (int i = 0; i < columns.length; i++) {
+                float width = columns[i].width - 2 * CELL_PADDING;
+                String text = NativeReportRenderer.collapse(columns[i].cell(workOrder));
+                Color color = columns[i] == SummaryColumn.WONUM ? TEXT_DARK : TEXT_MUTED;
+                cells[i] = new Column(x + CELL_PADDING, width, List.of(new Gap(CELL_PADDING),
+                        new Text(TextMetrics.REGULAR.truncate(text, BODY, width), TextMetrics.REGULAR, BODY, color),
+                        new Gap(CELL_PADDING)));
+                x += columns[i].width;
+            }
+            layout.place(0, cells);
+            layout.place(0, List.of(new Rule(ROW_BORDER, 0.5f)));
+        }
+
+        void totals(int skipped, String generatedAt) throws IOException {
+            layout.space(2 * HEADING);
+            List<Item> items = new ArrayList<>();
+            items.add(new Text("Work orders by status", TextMetrics.BOLD, HEADING, TEXT_DARK));
+            items.add(new Gap(CELL_PADDING));
+            items.add(new Rule(ACCENT_BLUE, 2));
+            items.add(new Gap(CELL_PADDING));
+            layout.place(3 * HEADING, items);
+            for (Map.Entry<String, Integer> status : statuses.entrySet()) {
+                total(status.getKey().isEmpty() ? "(none)" : status.getKey(), status.getValue());
+            }
+            total("Total", count);
+            if (skipped > 0) {
+                total("Not readable, left out", skipped);
+            }
+
+            float top = PageLayout.PAGE_SIZE.getHeight() - PageLayout.MARGIN_TOP / 2;
+            float right = PageLayout.PAGE_SIZE.getWidth() - PageLayout.MARGIN_SIDE;
+            // Just above the content, so the headings read as the first row of the table on every page
+            float headings = PageLayout.PAGE_SIZE.getHeight() - PageLayout.MARGIN_TOP + BODY / 2;
+            layout.stamp((margins, number, pageCount) -> {
+                margins.drawText(TITLE, TextMetrics.REGULAR, PAGE_MARGIN, PAGE_MARGIN_TEXT,
+                        PageLayout.MARGIN_SIDE, top, 0);
+                margins.drawText("Generated: " + generatedAt, TextMetrics.REGULAR, PAGE_MARGIN, PAGE_MARGIN_TEXT,
+                        right, top, 1);
+                float x = PageLayout.MARGIN_SIDE + CELL_PADDING;
+                for (SummaryColumn column : SummaryColumn.values()) {
+                    margins.drawText(column.heading, TextMetrics.BOLD, BODY, TEXT_DARK, x, headings, 0);
+                    x += column.width;
+                }
+                margins.drawText("Page " + number + " of " + pageCount, TextMetrics.REGULAR, PAGE_MARGIN,
+                        PAGE_MARGIN_TEXT, PageLayout.PAGE_SIZE.getWidth() / 2, PageLayout.MARGIN_BOTTOM / 2, 0.5f);
+            });
+        }
+
+        private void total(String label, int value) throws IOException {
+            float labelWidth = SummaryColumn.WONUM.width + SummaryColumn.DESCRIPTION.width;
+            layout.place(0,
+                    new Column(CELL_PADDING, labelWidth, List.of(new Gap(CELL_PADDING),
+                            new Text(TextMetrics.BOLD.truncate(label, BODY, labelWidth - 2 * CELL_PADDING),
+                                    TextMetrics.BOLD, BODY, TEXT_DARK), new Gap(CELL_PADDING))),
+                    new Column(labelWidth + CELL_PADDING, SummaryColumn.STATUS.width, List.of(new Gap(CELL_PADDING),
+                            new Text(String.valueOf(value), TextMetrics.REGULAR, BODY, TEXT_MUTED),
+                            new Gap(CELL_PADDING))));
+            layout.place(0, List.of(new Rule(ROW_BORDER, 0.5f)));
+        }
+
+        long sampleHeap() {
+            peakHeap = Math.max(peakHeap, memory.getHeapMemoryUsage().getUsed());
+            return peakHeap;
+        }
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return dateTime != null ? DATE_TIME.format(dateTime) : "";
+    }
+}
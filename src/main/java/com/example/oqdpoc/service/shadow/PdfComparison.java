@@ -0,0 +1,114 @@
+package com.example.oqdpoc.service.shadow;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * How far apart two renders of the same report are. Both scores run from 0, for the same text or pixels, to 1,
+ * for nothing in common.
+ *
+ * @param visualDiff The visual score, or NaN when no page was compared
+ */
+record PdfComparison(int pages, int otherPages, double textDiff, double visualDiff) {
+
+    // Enough to see layout shifts and missing content, cheap enough to rasterize on every sample
+    private static final float DPI = 36;
+
+    /**
+     * @param visualPages Leading pages to rasterize and compare, 0 for none
+     */
+    static PdfComparison compare(byte[] pdf, byte[] other, int visualPages) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf); PDDocument otherDocument = PDDocument.load(other)) {
+            return new PdfComparison(document.getNumberOfPages(), otherDocument.getNumberOfPages(),
+                    textDiff(text(document), text(otherDocument)),
+                    visualDiff(document, otherDocument, visualPages));
+        }
+    }
+
+    /**
+     * Dice distance between the words of both texts, counting repeated words: reordered text scores 0, text
+     * sharing half its words scores 0.5.
+     */
+    static double textDiff(String text, String other) {
+        Map<String, Integer> words = new HashMap<>();
+        int count = 0;
+        for (String word : text.split("\\s+")) {
+            if (!word.isEmpty()) {
+                words.merge(word, 1, Integer::sum);
+                count++;
+            }
+        }
+        int otherCount = 0;
+        int common = 0;
+        for (String word : other.split("\\s+")) {
+            if (!word.isEmpty()) {
+                otherCount++;
+                Integer unmatched = words.get(word);
+                if (unmatched != null) {
+                    common++;
+                    if (unmatched == 1) {
+                        words.remove(word);
+                    } else {
+                        words.put(word, unmatched - 1);
+                    }
+                }
+            }
+        }
+        return count + otherCount == 0 ? 0 : 1 - 2.0 * common / (count + otherCount);
+    }
+
+    /**
+     * Mean gray level difference of the leading pages, rasterized at a low resolution. A page only one document
+     * has, or with another size, differs entirely.
+     */
+    static double visualDiff(PDDocument document, PDDocument other, int visualPages) throws IOException {
+        int pages = Math.min(visualPages, Math.max(document.getNumberOfPages(), other.getNumberOfPages()));
+        if (pages <= 0) {
+            return Double.NaN;
+        }
+        PDFRenderer renderer = new PDFRenderer(document);
+        PDFRenderer otherRenderer = new PDFRenderer(other);
+        double total = 0;
+        for (int i = 0; i < pages; i++) {
+            if (i < document.getNumberOfPages() && i < other.getNumberOfPages()) {
+                total += pixelDiff(renderer.renderImageWithDPI(i, DPI, ImageType.GRAY),
+                        otherRenderer.renderImageWithDPI(i, DPI, ImageType.GRAY));
+            } else {
+                total += 1;
+            }
+        }
+        return total / pages;
+    }
+
+    private static double pixelDiff(BufferedImage image, BufferedImage other) {
+        if (image.getWidth() != other.getWidth() || image.getHeight() != other.getHeight()) {
+            return 1;
+        }
+        Raster raster = image.getRaster();
+        Raster otherRaster = other.getRaster();
+        int width = image.getWidth();
+        int[] row = new int[width];
+        int[] otherRow = new int[width];
+        long sum = 0;
+        for (int y = 0; y < image.getHeight(); y++) {
+            raster.getSamples(0, y, width, 1, 0, row);
+            otherRaster.getSamples(0, y, width, 1, 0, otherRow);
+            for (int x = 0; x < width; x++) {
+                sum += Math.abs(row[x] - otherRow[x]);
+            }
+        }
+        return sum / (255.0 * width * image.getHeight());
+    }
+
+    private static String text(PDDocument document) throws IOException {
+        return new PDFTextStripper().getText(document);
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.oqdpoc.service.shadow;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.LayoutEngine;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.config.PdfRenderProperties.TemplateBackend;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.JobTicketTemplateService;
+import com.example.oqdpoc.service.PdfGenerationService;
+import com.example.oqdpoc.service.RenderBulkhead;
+import com.example.oqdpoc.service.layout.NativeReportRenderer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a sample of requests a second time through the configured shadow pipeline, on a small pool of threads,
+ * and compares the result with the PDF the request was answered with. The response never waits for, or depends on,
+ * the shadow render: samples that find the queue full are dropped, and failures are only counted.
+ * <p>
+ * Shadow renders compete with requests for CPU outside the {@link RenderBulkhead}, so they only run while no request
+ * waits for a render slot: requests are not sampled, and queued samples are skipped, while the bulkhead has a
+ * queue.
+ * <p>
+ * Metrics, tagged with the {@code pipeline} (such as {@code html-thymeleaf} or {@code native}) and its
+ * {@code role} ({@code primary} or {@code shadow}):
+ * <ul>
+ *     <li>{@code pdf.shadow.render.duration}: render time. Streamed primary renders include writing the response</li>
+ *     <li>{@code pdf.shadow.size}: PDF size in bytes</li>
+ *     <li>{@code pdf.shadow.pages}: page count</li>
+ * </ul>
+ * {@code pdf.shadow.diff} (tags {@code kind}: {@code text} or {@code visual}, {@code primary} and {@code shadow}
+ * pipelines) records how far the shadow PDF is from the primary one, from 0 to 1, and {@code pdf.shadow.renders}
+ * (tag {@code result}: {@code completed}, {@code failed}, {@code dropped} or {@code skipped}) counts samples.
+ */
+@Service
+public class ShadowRenderService {
+
+    private static final Logger log = LoggerFactory.getLogger(ShadowRenderService.class);
+
+    /**
+     * The choices that decide how a report is rendered, besides the profile.
+     *
+     * @param templateBackend The template backend, or null for the configured one. Ignored by the native engine
+     */
+    public record Pipeline(LayoutEngine layoutEngine, TemplateBackend templateBackend) {
+
+        String name() {
+            return layoutEngine == LayoutEngine.NATIVE ? "native"
+                    : "html-" + templateBackend.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final PdfRenderProperties properties;
+    private final JobTicketTemplateService jobTicketTemplateService;
+    private final PdfGenerationService pdfGenerationService;
+    private final NativeReportRenderer nativeReportRenderer;
+    private final RenderBulkhead renderBulkhead;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+
+    public ShadowRenderService(PdfRenderProperties properties,
+                               JobTicketTemplateService jobTicketTemplateService,
+                               PdfGenerationService pdfGenerationService,
+                               NativeReportRenderer nativeReportRenderer,
+                               RenderBulkhead renderBulkhead,
+                               MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.jobTicketTemplateService = jobTicketTemplateService;
+        this.pdfGenerationService = pdfGenerationService;
+        this.nativeReportRenderer = nativeReportRenderer;
+        this.renderBulkhead = renderBulkhead;
+        this.meterRegistry = meterRegistry;
+        PdfRenderProperties.Shadow config = properties.getShadow();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("pdf-shadow-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(config.getThreads(), config.getThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.getQueueCapacity()),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Whether to shadow the render about to run, decided at random at the configured rate. Never while requests
+     * wait for a render slot.
+     */
+    public boolean sample() {
+        PdfRenderProperties.Shadow config = properties.getShadow();
+        if (!config.isEnabled() || ThreadLocalRandom.current().nextDouble() >= config.getSampleRate()) {
+            return false;
+        }
+        if (renderBulkhead.getQueueDepth() > 0) {
+            count("skipped");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queues the shadow render of a sampled request. Returns at once.
+     *
+     * @param primary      The pipeline that rendered the response
+     * @param primaryPdf   The PDF the request was answered with
+     * @param primaryNanos How long the primary render took
+     */
+    public void submit(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate, Profile profile,
+                       Pipeline primary, byte[] primaryPdf, long primaryNanos) {
+        try {
+            executor.execute(() -> shadow(jobTicket, workOrderForReport, reportDate, profile, primary, primaryPdf,
+                    primaryNanos));
+        } catch (RejectedExecutionException e) {
+            log.debug("Shadow render queue full, dropping sample");
+            count("dropped");
+        }
+    }
+
+    /**
+     * Renders through the shadow pipeline and records both renders and how far apart they are.
+     */
+    void shadow(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate, Profile profile,
+                Pipeline primary, byte[] primaryPdf, long primaryNanos) {
+        if (renderBulkhead.getQueueDepth() > 0) {
+            log.debug("Requests waiting for a render slot, skipping shadow render");
+            count("skipped");
+            return;
+        }
+        Pipeline primaryPipeline = resolve(primary, profile);
+        Pipeline shadowPipeline = resolve(new Pipeline(properties.getShadow().getLayoutEngine(),
+                properties.getShadow().getTemplateBackend()), primaryPipeline, profile);
+        try {
+            long start = System.nanoTime();
+            byte[] shadowPdf = render(jobTicket, workOrderForReport, reportDate, profile, shadowPipeline);
+            long shadowNanos = System.nanoTime() - start;
+
+            PdfComparison comparison = PdfComparison.compare(primaryPdf, shadowPdf,
+                    properties.getShadow().getVisualDiffPages());
+            record("primary", primaryPipeline, primaryNanos, primaryPdf.length, comparison.pages());
+            record("shadow", shadowPipeline, shadowNanos, shadowPdf.length, comparison.otherPages());
+            diff("text", primaryPipeline, shadowPipeline, comparison.textDiff());
+            if (!Double.isNaN(comparison.visualDiff())) {
+                diff("visual", primaryPipeline, shadowPipeline, comparison.visualDiff());
+            }
+            count("completed");
+            log.debug("Shadow render {} vs {}: {} vs {} ms, text diff {}, visual diff {}", shadowPipeline.name(),
+                    primaryPipeline.name(), TimeUnit.NANOSECONDS.toMillis(shadowNanos),
+                    TimeUnit.NANOSECONDS.toMillis(primaryNanos), comparison.textDiff(), comparison.visualDiff());
+        } catch (Exception e) {
+            log.warn("Shadow render through {} failed: {}", shadowPipeline.name(), e.toString());
+            count("failed");
+        }
+    }
+
+    private byte[] render(JobTicket jobTicket, WorkOrder workOrderForReport, LocalDateTime reportDate,
+                          Profile profile, Pipeline pipeline) {
+        if (pipeline.layoutEngine() == LayoutEngine.NATIVE) {
+            return nativeReportRenderer.render(jobTicket, workOrderForReport, reportDate);
+        }
+        Document document = jobTicketTemplateService.renderDocument(jobTicket, workOrderForReport, reportDate,
+                pipeline.templateBackend());
+        // No retries: a shadow render that fails is recorded as such
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        pdfGenerationService.writePdf(document, profile, out);
+        return out.toByteArray();
+    }
+
+    private Pipeline resolve(Pipeline primary, Profile profile) {
+        return resolve(primary, new Pipeline(properties.getLayoutEngine(), properties.getTemplateBackend()), profile);
+    }
+
+    /**
+     * Fills in the choices a pipeline leaves open from the fallback, then falls back to HTML where the native
+     * engine does not apply.
+     */
+    private Pipeline resolve(Pipeline pipeline, Pipeline fallback, Profile profile) {
+        LayoutEngine layoutEngine = pipeline.layoutEngine() != null ? pipeline.layoutEngine()
+                : fallback.layoutEngine();
+        TemplateBackend templateBackend = pipeline.templateBackend() != null ? pipeline.templateBackend()
+                : fallback.templateBackend();
+        return new Pipeline(nativeReportRenderer.handles(layoutEngine, profile) ? LayoutEngine.NATIVE
+                : LayoutEngine.HTML, templateBackend);
+    }
+
+    private void record(String role, Pipeline pipeline, long nanos, int size, int pages) {
+        Timer.builder("pdf.shadow.render.duration")
+                .description("Render time of shadowed requests")
+                .tags("role", role, "pipeline", pipeline.name())
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("pdf.shadow.size")
+                .description("PDF size of shadowed requests")
+                .baseUnit("bytes")
+                .tags("role", role, "pipeline", pipeline.name())
+                .register(meterRegistry)
+                .record(size);
+        DistributionSummary.builder("pdf.shadow.pages")
+                .description("Page count of shadowed requests")
+                .tags("role", role, "pipeline", pipeline.name())
+                .register(meterRegistry)
+                .record(pages);
+    }
+
+    private void diff(String kind, Pipeline primary, Pipeline shadow, double score) {
+        DistributionSummary.builder("pdf.shadow.diff")
+                .description("Difference between the shadow and the primary PDF, from 0 (same) to 1")
+                .tags("kind", kind, "primary", primary.name(), "shadow", shadow.name())
+                .register(meterRegistry)
+                .record(score);
+    }
+
+    private void count(String result) {
+        Counter.builder("pdf.shadow.renders")
+                .description("Sampled shadow renders")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Shadow renders only feed metrics: nothing is lost by abandoning them
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.oqdpoc.service.template;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * What the templates compiled by {@code ReportTemplateCompiler} call at render time: output escaping and the
+ * few Thymeleaf expression semantics that have no direct Java equivalent. Each helper matches what Thymeleaf
+ * does for the same values, so compiled and interpreted templates render the same bytes.
+ */
+public final class TemplateRuntime {
+
+    private TemplateRuntime() {
+    }
+
+    /**
+     * Position of a {@code th:each} iteration, as exposed by the status variable.
+     *
+     * @param index Zero-based index of the iteration
+     * @param size  Number of elements iterated over
+     */
+    public record IterationStatus(int index, int size) {
+
+        public int count() {
+            return index + 1;
+        }
+
+        public boolean first() {
+            return index == 0;
+        }
+
+        public boolean last() {
+            return index == size - 1;
+        }
+
+        public boolean even() {
+            return count() % 2 == 0;
+        }
+
+        public boolean odd() {
+            return !even();
+        }
+    }
+
+    /**
+     * {@code th:text}: the value's string form, HTML escaped; nothing for null.
+     */
+    public static void text(StringBuilder out, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        // Same escaping as Thymeleaf in HTML mode: only the markup-significant characters
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> out.append("&amp;");
+                case '<' -> out.append("&lt;");
+                case '>' -> out.append("&gt;");
+                case '"' -> out.append("&quot;");
+                case '\'' -> out.append("&#39;");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    /**
+     * {@code th:utext}: the value's string form as is; nothing for null.
+     */
+    public static void utext(StringBuilder out, Object value) {
+        if (value != null) {
+            out.append(value);
+        }
+    }
+
+    public static String string(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    /**
+     * Thymeleaf's truth value: false for null, {@code false}, zero, and the strings "false", "off" and "no".
+     */
+    public static boolean isTrue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        if (value instanceof Number number) {
+            return number instanceof BigDecimal decimal ? decimal.signum() != 0 : number.doubleValue() != 0.0;
+        }
+        if (value instanceof Character character) {
+            return character != '0';
+        }
+        if (value instanceof String string) {
+            return !"false".equalsIgnoreCase(string) && !"off".equalsIgnoreCase(string)
+                    && !"no".equalsIgnoreCase(string);
+        }
+        return true;
+    }
+
+    /**
+     * {@code ==}: numbers compare by value, anything else by {@link Objects#equals(Object, Object)}.
+     */
+    public static boolean equal(Object left, Object right) {
+        if (left instanceof Number leftNumber && right instanceof Number rightNumber) {
+            return decimal(leftNumber).compareTo(decimal(rightNumber)) == 0;
+        }
+        return Objects.equals(left, right);
+    }
+
+    /**
+     * {@code <}, {@code >} and their kin, on numbers or on mutually comparable values.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static int compare(Object left, Object right) {
+        if (left instanceof Number leftNumber && right instanceof Number rightNumber) {
+            return decimal(leftNumber).compareTo(decimal(rightNumber));
+        }
+        if (left instanceof Comparable comparable && right != null) {
+            return comparable.compareTo(right);
+        }
+        throw new IllegalArgumentException("Cannot compare " + left + " and " + right);
+    }
+
+    /**
+     * {@code +}: sums numbers, concatenates anything else, null as "null".
+     */
+    public static Object add(Object left, Object right) {
+        if (left instanceof Number leftNumber && right instanceof Number rightNumber) {
+            return decimal(leftNumber).add(decimal(rightNumber));
+        }
+        return String.valueOf(left) + right;
+    }
+
+    /**
+     * {@code ?:}: the left value unless it is null.
+     */
+    public static <T> T elvis(T value, T fallback) {
+        return value != null ? value : fallback;
+    }
+
+    /**
+     * {@code th:each} over null iterates nothing.
+     */
+    public static <T> Iterable<T> iterable(Iterable<T> values) {
+        return values != null ? values : List.of();
+    }
+
+    /**
+     * {@code #lists.isEmpty}: true for null too.
+     */
+    public static boolean isEmpty(Collection<?> values) {
+        return values == null || values.isEmpty();
+    }
+
+    /**
+     * {@code #lists.size}, and the size of a {@code th:each} status variable.
+     */
+    public static int size(Iterable<?> values) {
+        if (values instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        int size = 0;
+        for (Object ignored : values) {
+            size++;
+        }
+        return size;
+    }
+
+    private static BigDecimal decimal(Number number) {
+        return number instanceof BigDecimal decimal ? decimal : new BigDecimal(number.toString());
+    }
+}
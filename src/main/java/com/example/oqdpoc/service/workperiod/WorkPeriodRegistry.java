@@ -0,0 +1,252 @@
+package com.example.oqdpoc.service.workperiod;
+
+import com.example.oqdpoc.config.WorkPeriodProperties;
+import com.example.oqdpoc.exception.InvalidRequestException;
+import com.example.oqdpoc.exception.WorkPeriodNotFoundException;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Short work periods uploaded once, parsed and indexed by work order number, for render requests to refer to by
+ * id instead of sending the same multi-megabyte part with every ticket.
+ * <p>
+ * The id is the SHA-256 of the uploaded JSON, so clients can compute it themselves, and uploading the same short
+ * work period again only extends how long it is kept. Short work periods expire after {@code ttl}; beyond
+ * {@code max-size} of uploaded JSON, the least recently used are dropped. They are kept in memory, per instance:
+ * a render that refers to one this instance does not have fails with 404, and the client uploads it again.
+ * <p>
+ * The parsed work orders take more heap than their JSON: about 2 times for exports with long descriptions and
+ * 3.5 times for exports of short fields (measured on 50,000 work orders). Size the heap for about 3.5 times
+ * {@code max-size}.
+ * <p>
+ * Metrics: {@code pdf.work-periods.lookups} (tag {@code result}: {@code hit} or {@code miss}) and
+ * {@code pdf.work-periods.size}, the bytes of uploaded JSON kept.
+ */
+@Service
+public class WorkPeriodRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkPeriodRegistry.class);
+
+    /**
+     * An uploaded short work period as reported to clients.
+     *
+     * @param id         The id to render with, the SHA-256 of the uploaded JSON in lowercase hex
+     * @param workOrders The number of distinct work order numbers
+     * @param sizeBytes  The size of the uploaded JSON
+     * @param expiresAt  When it is dropped unless uploaded again
+     */
+    public record Registration(String id, int workOrders, long sizeBytes, Instant expiresAt) {
+    }
+
+    private final JobTicketRequestReader jobTicketRequestReader;
+    private final WorkPeriodProperties properties;
+    private final Clock clock;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private long totalBytes;
+
+    @Autowired
+    public WorkPeriodRegistry(JobTicketRequestReader jobTicketRequestReader, WorkPeriodProperties properties,
+                              MeterRegistry meterRegistry) {
+        this(jobTicketRequestReader, properties, meterRegistry, Clock.systemUTC());
+    }
+
+    WorkPeriodRegistry(JobTicketRequestReader jobTicketRequestReader, WorkPeriodProperties properties,
+                       MeterRegistry meterRegistry, Clock clock) {
+        this.jobTicketRequestReader = jobTicketRequestReader;
+        this.properties = properties;
+        this.clock = clock;
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        Gauge.builder("pdf.work-periods.size", this, WorkPeriodRegistry::getTotalBytes)
+                .description("Bytes of uploaded short work period JSON kept")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads an upload and registers it. Uploads larger than {@code max-size} are refused before reading when their
+     * length is declared, and are otherwise read no further than one byte past {@code max-size}.
+     *
+     * @param shortWorkPeriodJson The request body
+     * @param contentLength       The declared length of the body, or -1 if unknown
+     * @throws InvalidRequestException if it is not a readable short work period, or larger than {@code max-size}
+     */
+    public Registration register(InputStream shortWorkPeriodJson, long contentLength) throws IOException {
+        long maxSize = properties.getMaxSize().toBytes();
+        if (contentLength > maxSize) {
+            throw tooLarge(contentLength + " bytes");
+        }
+        byte[] upload = shortWorkPeriodJson.readNBytes((int) Math.min(maxSize + 1, Integer.MAX_VALUE - 8));
+        if (upload.length > maxSize) {
+            throw tooLarge("more than " + maxSize + " bytes");
+        }
+        return register(upload);
+    }
+
+    /**
+     * Parses and keeps a short work period, or extends how long it is kept when it is already known.
+     *
+     * @param shortWorkPeriodJson The short work period, as uploaded
+     * @throws InvalidRequestException if it is not a readable short work period, or larger than {@code max-size}
+     */
+    public Registration register(byte[] shortWorkPeriodJson) {
+        if (shortWorkPeriodJson.length > properties.getMaxSize().toBytes()) {
+            throw tooLarge(shortWorkPeriodJson.length + " bytes");
+        }
+        String id = HexFormat.of().formatHex(sha256().digest(shortWorkPeriodJson));
+        synchronized (this) {
+            Entry entry = live(id);
+            if (entry != null) {
+                Entry renewed = new Entry(entry.workOrders(), entry.sizeBytes(), expiry());
+                entries.put(id, renewed);
+                log.debug("Short work period {} uploaded again", id);
+                return registration(id, renewed);
+            }
+        }
+
+        // Parsed outside the lock: lookups of other short work periods do not wait for it
+        Map<String, WorkOrder> workOrders = Collections.unmodifiableMap(
+                jobTicketRequestReader.readWorkPeriod(shortWorkPeriodJson));
+        Entry entry = new Entry(workOrders, shortWorkPeriodJson.length, expiry());
+        synchronized (this) {
+            remove(id);
+            purgeExpired();
+            entries.put(id, entry);
+            totalBytes += entry.sizeBytes();
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (totalBytes > properties.getMaxSize().toBytes() && eldest.hasNext()) {
+                totalBytes -= eldest.next().sizeBytes();
+                eldest.remove();
+            }
+        }
+        log.info("Registered short work period {} with {} work orders", id, workOrders.size());
+        return registration(id, entry);
+    }
+
+    /**
+     * Describes a kept short work period, without counting as a lookup.
+     */
+    public synchronized Optional<Registration> find(String id) {
+        Entry entry = entries.get(id);
+        if (entry == null || isExpired(entry)) {
+            return Optional.empty();
+        }
+        return Optional.of(registration(id, entry));
+    }
+
+    /**
+     * Returns the work orders of a kept short work period, by work order number.
+     *
+     * @throws WorkPeriodNotFoundException if it was never uploaded, has expired or was dropped
+     */
+    public Map<String, WorkOrder> getWorkOrders(String id) {
+        Entry entry;
+        synchronized (this) {
+            entry = live(id);
+        }
+        if (entry == null) {
+            misses.increment();
+            throw new WorkPeriodNotFoundException(id);
+        }
+        hits.increment();
+        return entry.workOrders();
+    }
+
+    /**
+     * Drops a short work period.
+     */
+    public synchronized void evict(String id) {
+        remove(id);
+    }
+
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private Entry live(String id) {
+        Entry entry = entries.get(id);
+        if (entry != null && isExpired(entry)) {
+            remove(id);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Drops every expired short work period, so ones nobody asks for again do not stay until pushed out by size.
+     */
+    private void purgeExpired() {
+        Iterator<Entry> all = entries.values().iterator();
+        while (all.hasNext()) {
+            Entry entry = all.next();
+            if (isExpired(entry)) {
+                totalBytes -= entry.sizeBytes();
+                all.remove();
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry) {
+        return !clock.instant().isBefore(entry.expiresAt());
+    }
+
+    private void remove(String id) {
+        Entry removed = entries.remove(id);
+        if (removed != null) {
+            totalBytes -= removed.sizeBytes();
+        }
+    }
+
+    private Instant expiry() {
+        return clock.instant().plus(properties.getTtl());
+    }
+
+    private static InvalidRequestException tooLarge(String size) {
+        return new InvalidRequestException("shortWorkPeriod of " + size
+                + " is larger than all short work periods kept together");
+    }
+
+    private static Registration registration(String id, Entry entry) {
+        return new Registration(id, entry.workOrders().size(), entry.sizeBytes(), entry.expiresAt());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pdf.work-periods.lookups")
+                .description("Render requests referring to an uploaded short work period")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Entry(Map<String, WorkOrder> workOrders, long sizeBytes, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.oqdpoc.util;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.OffsetDateTime;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.temporal.Temporal;
+
+/**
+ * Single-pass parser of the ISO-8601 date-times found in job tickets and short work periods:
+ * {@code yyyy-MM-ddTHH:mm}, optionally followed by {@code :ss} and a fraction of 1 to 9 digits, optionally
+ * followed by {@code Z}, {@code +HH:MM} or {@code +HHMM}. Surrounding whitespace is ignored.
+ * <p>
+ * It reads straight from the parser's character buffer, without regular expressions, intermediate strings or
+ * exceptions: input it does not accept gives null, and only the result is allocated.
+ */
+public final class IsoDateTimeParser {
+
+    private static final int MAX_OFFSET_SECONDS = 18 * 3600;
+    private static final int NO_OFFSET = Integer.MIN_VALUE;
+
+    private IsoDateTimeParser() {
+    }
+
+    /**
+     * @param text          Characters holding the date-time
+     * @param start         Index of its first character
+     * @param length        Number of characters
+     * @param defaultOffset The offset of date-times without one
+     * @return the date-time, or null if it is not one
+     */
+    public static OffsetDateTime parseOffsetDateTime(char[] text, int start, int length, ZoneOffset defaultOffset) {
+        return (OffsetDateTime) parse(text, start, length, defaultOffset, false);
+    }
+
+    /**
+     * Same as {@link #parseOffsetDateTime(char[], int, int, ZoneOffset)}, for text that is already a string.
+     */
+    public static OffsetDateTime parseOffsetDateTime(String text, ZoneOffset defaultOffset) {
+        return parseOffsetDateTime(text.toCharArray(), 0, text.length(), defaultOffset);
+    }
+
+    /**
+     * Reads the local date and time as written, ignoring any offset.
+     *
+     * @return the date-time, or null if it is not one
+     */
+    public static LocalDateTime parseLocalDateTime(char[] text, int start, int length) {
+        return (LocalDateTime) parse(text, start, length, null, true);
+    }
+
+    /**
+     * Same as {@link #parseLocalDateTime(char[], int, int)}, for text that is already a string.
+     */
+    public static LocalDateTime parseLocalDateTime(String text) {
+        return parseLocalDateTime(text.toCharArray(), 0, text.length());
+    }
+
+    private static Temporal parse(char[] text, int start, int length, ZoneOffset defaultOffset, boolean local) {
+        int i = start;
+        int end = start + length;
+        while (i < end && text[i] <= ' ') {
+            i++;
+        }
+        while (end > i && text[end - 1] <= ' ') {
+            end--;
+        }
+        if (end - i < 16 || text[i + 4] != '-' || text[i + 7] != '-' || text[i + 10] != 'T'
+                || text[i + 13] != ':') {
+            return null;
+        }
+        int year = digits(text, i, 4);
+        int month = digits(text, i + 5, 2);
+        int day = digits(text, i + 8, 2);
+        int hour = digits(text, i + 11, 2);
+        int minute = digits(text, i + 14, 2);
+        i += 16;
+
+        int second = 0;
+        int nano = 0;
+        if (i < end && text[i] == ':') {
+            if (end - i < 3) {
+                return null;
+            }
+            second = digits(text, i + 1, 2);
+            i += 3;
+            if (i < end && text[i] == '.') {
+                int fractionStart = ++i;
+                while (i < end && isDigit(text[i]) && i - fractionStart < 9) {
+                    nano = nano * 10 + (text[i++] - '0');
+                }
+                if (i == fractionStart) {
+                    return null;
+                }
+                for (int scale = i - fractionStart; scale < 9; scale++) {
+                    nano *= 10;
+                }
+            }
+        }
+
+        int offsetSeconds = NO_OFFSET;
+        if (i < end) {
+            char sign = text[i];
+            if (sign == 'Z' && end - i == 1) {
+                offsetSeconds = 0;
+            } else if ((sign == '+' || sign == '-') && (end - i == 5 || end - i == 6)) {
+                int hours = digits(text, i + 1, 2);
+                int minutes = end - i == 6 ? (text[i + 3] == ':' ? digits(text, i + 4, 2) : -1)
+                        : digits(text, i + 3, 2);
+                if (hours < 0 || minutes < 0 || minutes > 59) {
+                    return null;
+                }
+                offsetSeconds = hours * 3600 + minutes * 60;
+                if (offsetSeconds > MAX_OFFSET_SECONDS) {
+                    return null;
+                }
+                if (sign == '-') {
+                    offsetSeconds = -offsetSeconds;
+                }
+            } else {
+                return null;
+            }
+        }
+
+        // Negative fields are non-digits, which fail these too
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > Month.of(month).length(Year.isLeap(year))
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+        if (local) {
+            return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+        }
+        ZoneOffset offset = offsetSeconds == NO_OFFSET ? defaultOffset
+                : offsetSeconds == 0 ? ZoneOffset.UTC : ZoneOffset.ofTotalSeconds(offsetSeconds);
+        return OffsetDateTime.of(year, month, day, hour, minute, second, nano, offset);
+    }
+
+    /**
+     * @return the value of {@code count} decimal digits, or -1 if any of them is not a digit
+     */
+    private static int digits(char[] text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            if (!isDigit(text[i])) {
+                return -1;
+            }
+            value = value * 10 + (text[i] - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
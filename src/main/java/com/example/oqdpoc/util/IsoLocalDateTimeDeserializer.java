@@ -0,0 +1,35 @@
+package com.example.oqdpoc.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+/**
+ * Reads the timestamps of short work periods with {@link IsoDateTimeParser}, keeping the local date and time as
+ * Maximo wrote them and ignoring the offset. Blank strings are null; other JSON shapes are left to the
+ * {@link LocalDateTimeDeserializer} of the Java time module.
+ */
+public class IsoLocalDateTimeDeserializer extends JsonDeserializer<LocalDateTime> {
+
+    @Override
+    public LocalDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (!p.hasToken(JsonToken.VALUE_STRING)) {
+            return LocalDateTimeDeserializer.INSTANCE.deserialize(p, ctxt);
+        }
+        LocalDateTime dateTime = p.hasTextCharacters()
+                ? IsoDateTimeParser.parseLocalDateTime(p.getTextCharacters(), p.getTextOffset(), p.getTextLength())
+                : IsoDateTimeParser.parseLocalDateTime(p.getText());
+        if (dateTime != null) {
+            return dateTime;
+        }
+        String text = p.getText().trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        return (LocalDateTime) ctxt.handleWeirdStringValue(LocalDateTime.class, text, "not an ISO-8601 date-time");
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.oqdpoc.controller;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.LayoutEngine;
+import com.example.oqdpoc.config.Resilience4jConfig;
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.exception.ResponseCommittedException;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.example.oqdpoc.service.JobTicketTemplateService;
+import com.example.oqdpoc.service.PdfGenerationService;
+import com.example.oqdpoc.service.PdfRenderEngine;
+import com.example.oqdpoc.service.RenderBulkhead;
+import com.example.oqdpoc.service.RenderBulkhead.RenderTask;
+import com.example.oqdpoc.service.RenderCoalescer;
+import com.example.oqdpoc.service.cache.RenderedPdfCache;
+import com.example.oqdpoc.service.layout.NativeReportRenderer;
+import com.example.oqdpoc.service.shadow.ShadowRenderService;
+import com.example.oqdpoc.service.workperiod.WorkPeriodRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PdfControllerTest {
+
+    private static final String JOB_TICKET = "{\"wonum\": \"WO1\"}";
+    private static final byte[] PDF = "%PDF-1.7".getBytes(StandardCharsets.US_ASCII);
+
+    private final NativeReportRenderer nativeReportRenderer = mock(NativeReportRenderer.class);
+    private final RenderedPdfCache renderedPdfCache = mock(RenderedPdfCache.class);
+    private final RenderCoalescer renderCoalescer = mock(RenderCoalescer.class);
+    private PdfController controller;
+    private Retry retry;
+
+    @BeforeEach
+    void setUp() {
+        JobTicketRequestReader jobTicketRequestReader = mock(JobTicketRequestReader.class);
+        when(jobTicketRequestReader.readJobTicket(JOB_TICKET)).thenReturn(new JobTicket());
+        when(nativeReportRenderer.handles(any(), any())).thenReturn(true);
+        when(renderedPdfCache.key(any(), any(), any(), any(), any(LayoutEngine.class))).thenReturn("abc");
+        when(renderedPdfCache.find(anyString())).thenReturn(Optional.empty());
+        when(renderCoalescer.render(anyString(), any()))
+                .thenAnswer(invocation -> invocation.<RenderTask<byte[], ?>>getArgument(1).run());
+        controller = new PdfController(mock(PdfGenerationService.class), mock(JobTicketTemplateService.class),
+                new PdfRenderProperties(), new PdfResponseWriter(new ObjectMapper()), jobTicketRequestReader,
+                new RenderBulkhead(new PdfRenderProperties(), new SimpleMeterRegistry()), renderedPdfCache,
+                renderCoalescer, nativeReportRenderer, mock(ShadowRenderService.class),
+                mock(WorkPeriodRegistry.class), mock(PdfRenderEngine.class));
+
+        // The retry the endpoint is annotated with, without its wait
+        RetryConfig.Builder<Object> config = RetryConfig.custom();
+        new Resilience4jConfig().retryConfigCustomizer().customize(config);
+        retry = Retry.of(Resilience4jConfig.PDF_GENERATION_RETRY, config.waitDuration(Duration.ofMillis(1)).build());
+    }
+
+    @Test
+    void renderJobTicketAndWorkOrders_shouldNotRetryARenderThatFailedAfterTheResponseWasCommitted()
+            throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+        doAnswer(invocation -> {
+            renders.incrementAndGet();
+            OutputStream out = invocation.getArgument(3);
+            out.write("%PDF-1.7".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            throw new PdfGenerationException("Layout failed");
+        }).when(nativeReportRenderer).write(any(), any(), any(), any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ResponseCommittedException e = assertThrows(ResponseCommittedException.class, () -> retry.executeCallable(
+                () -> controller.renderJobTicketAndWorkOrders(JOB_TICKET, null, null, null, null, null, null,
+                        null, response)));
+
+        assertInstanceOf(PdfGenerationException.class, e.getCause());
+        assertEquals(1, renders.get());
+        assertEquals("%PDF-1.7", response.getContentAsString());
+    }
+
+    @Test
+    void renderJobTicketAndWorkOrders_shouldStreamACacheMissAndKeepACopyForTheCache() throws Exception {
+        when(renderedPdfCache.isEnabled()).thenReturn(true);
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write(PDF);
+            return null;
+        }).when(nativeReportRenderer).write(any(), any(), any(), any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertNull(controller.renderJobTicketAndWorkOrders(JOB_TICKET, null, null, null, null, null, null, null,
+                response));
+
+        assertArrayEquals(PDF, response.getContentAsByteArray());
+        assertEquals("\"abc\"", response.getHeader(HttpHeaders.ETAG));
+        verify(renderedPdfCache).put("abc", PDF);
+    }
+
+    @Test
+    void renderJobTicketAndWorkOrders_shouldAnswerFromTheRenderOfAnIdenticalRequest() throws Exception {
+        doReturn(PDF).when(renderCoalescer).render(anyString(), any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ResponseEntity<?> entity = controller.renderJobTicketAndWorkOrders(JOB_TICKET, null, null, null, null,
+                null, null, null, response);
+
+        assertArrayEquals(PDF, (byte[]) entity.getBody());
+        assertEquals("\"abc\"", entity.getHeaders().getETag());
+        verify(nativeReportRenderer, never()).write(any(), any(), any(), any());
+    }
+
+    @Test
+    void renderJobTicketAndWorkOrders_shouldRetryARenderThatFailedBeforeAnythingWasSent() throws Exception {
+        AtomicInteger renders = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (renders.incrementAndGet() == 1) {
+                throw new PdfGenerationException("Layout failed");
+            }
+            OutputStream out = invocation.getArgument(3);
+            out.write("%PDF-1.7".getBytes(StandardCharsets.US_ASCII));
+            return null;
+        }).when(nativeReportRenderer).write(any(), any(), any(), any());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        retry.executeCallable(() -> controller.renderJobTicketAndWorkOrders(JOB_TICKET, null, null, null, null,
+                null, null, null, response));
+
+        assertEquals(2, renders.get());
+        assertEquals("%PDF-1.7", response.getContentAsString());
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.jobticket.Metadata;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobTicketRequestReaderTest {
+
+    // As configured by Spring Boot
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final JobTicketRequestReader reader = new JobTicketRequestReader(objectMapper);
+
+    @Test
+    void findWorkOrder_shouldBindTheFirstMatchingMemberAndReadNoFurther() throws Exception {
+        String shortWorkPeriod = """
+                {"href": "x", "member": [
+                  {"description": "other", "extra": {"nested": [1, {"wonum": "WO2"}]}, "wonum": "WO1"},
+                  17, null,
+                  {"description": "pump", "schedstart": "2023-10-21T10:34:56+02:00", "wonum": "WO2",
+                   "description_longdescription": "a, b.", "links": [{"wonum": "WO9"}]},
+                  {"wonum": "WO2", "description": "duplicate"}
+                ], "responseInfo": {"totalCount": 3}} this is never read""";
+
+        WorkOrder workOrder = reader.findWorkOrder(jobTicket("WO2"), shortWorkPeriod);
+
+        assertEquals("WO2", workOrder.getWonum());
+        assertEquals("pump", workOrder.getDescription());
+        assertEquals("a, b.", workOrder.getLongDescription());
+        assertEquals(LocalDateTime.of(2023, 10, 21, 10, 34, 56), workOrder.getScheduledStart());
+    }
+
+    @Test
+    void findWorkOrder_shouldFindWhatTheIndexedLookupFinds() throws Exception {
+        String shortWorkPeriod = """
+                {"member": [{"wonum": "WO1", "description": "first"}, {"description": "unnumbered"},
+                            {"wonum": 42, "description": "numeric"}, {"wonum": "WO1", "description": "second"}]}""";
+
+        for (String workOrderNum : new String[]{"WO1", "42", null, "", "WO3"}) {
+            JobTicket jobTicket = jobTicket(workOrderNum);
+            WorkOrder indexed = reader.findWorkOrder(jobTicket, reader.readWorkOrders(shortWorkPeriod));
+            WorkOrder streamed = reader.findWorkOrder(jobTicket, shortWorkPeriod);
+            assertEquals(objectMapper.valueToTree(indexed), objectMapper.valueToTree(streamed),
+                    "work order " + workOrderNum);
+        }
+    }
+
+    @Test
+    void findWorkOrder_shouldMatchNothingForATicketWithoutAWorkOrderNumber() throws Exception {
+        String shortWorkPeriod = """
+                {"member": [{"wonum": "WO1"}, {"description": "unnumbered"}, {"wonum": null}, {"wonum": " "}]}""";
+
+        for (String workOrderNum : new String[]{null, "", " "}) {
+            assertNull(reader.findWorkOrder(jobTicket(workOrderNum), shortWorkPeriod), "work order " + workOrderNum);
+            assertNull(reader.findWorkOrder(jobTicket(workOrderNum), reader.readWorkOrders(shortWorkPeriod)),
+                    "work order " + workOrderNum);
+        }
+    }
+
+    @Test
+    void findWorkOrder_shouldTreatMissingOrUnreadableInputAsAbsent() throws Exception {
+        JobTicket jobTicket = jobTicket("WO1");
+
+        for (String shortWorkPeriod : List.of(" ", "[]", "{\"member\": {\"wonum\": \"WO1\"}}",
+                "{\"member\": [{\"wonum\": \"WO2\"}]}", "{\"member\": [{\"wonum\": \"WO2\"}, {\"wonum\": ",
+                "{\"member\": [{\"wonum\": {\"value\": \"WO1\"}}]}",
+                "{\"member\": [{\"wonum\": \"WO1\", \"schedstart\": \"yesterday\"}]}")) {
+            assertNull(reader.findWorkOrder(jobTicket, shortWorkPeriod), shortWorkPeriod);
+        }
+        assertNull(reader.findWorkOrder(jobTicket, (String) null));
+        // An empty short work period never needs the ticket's work order number
+        assertNull(reader.findWorkOrder(objectMapper.readValue("{}", JobTicket.class), "{\"member\": []}"));
+    }
+
+    @Test
+    void readJobTicket_shouldSkipTheSubtreesTheReportNeverReads() {
+        String json = """
+                {"id": "T1", "flatAnswers": {"q1": {"deep": [1, 2, {"x": "y"}]}, "q2": "yes"},
+                 "answers": {"title": "Pump checklist", "metadata": {"additional": {"workOrder": {
+                   "workOrderNum": "WO1", "title": "Inspect pump", "jobPlan": {"steps": [1, 2]},
+                   "tasks": [{"id": 1, "notes": ["a", "b"]}], "worklogs": [{"text": "done"}], "attachments": [],
+                   "contract": "C-7", "completionRate": 0.5,
+                   "asset": {"assetNum": "A-1", "relations": {"parent": "A-0"}, "configurationItems": [{}]}}}}}}""";
+
+        JobTicket projected = reader.readJobTicket(json);
+        JobTicket batched = reader.readJobTicket(reader.readJobTicketArray("[" + json + "]").get(0));
+
+        for (JobTicket jobTicket : List.of(projected, batched)) {
+            Metadata.WorkOrder workOrder = jobTicket.getAnswers().getMetadata().getAdditional().getWorkOrder();
+            assertEquals("Pump checklist", jobTicket.getAnswers().getTitle());
+            assertEquals("Inspect pump", workOrder.getTitle());
+            assertEquals("A-1", workOrder.getAsset().getAssetNum());
+            assertNull(jobTicket.getFlatAnswers());
+            assertNull(workOrder.getTasks());
+            assertNull(workOrder.getWorklogs());
+            assertNull(workOrder.getAttachments());
+            assertNull(workOrder.getJobPlan());
+            assertNull(workOrder.getContract());
+            assertNull(workOrder.getCompletionRate());
+            assertNull(workOrder.getAsset().getRelations());
+            assertNull(workOrder.getAsset().getConfigurationItems());
+        }
+        // Still there when needed
+        assertEquals("y", reader.readSkipped(json, "/flatAnswers/q1/deep/2/x").asText());
+        assertEquals(1, reader.readSkipped(json, "/answers/metadata/additional/workOrder/tasks").size());
+        assertNull(reader.readSkipped(json, "/answers/metadata/additional/workOrder/labor"));
+
+        PdfRenderProperties properties = new PdfRenderProperties();
+        properties.setProjection(false);
+        JobTicket full = new JobTicketRequestReader(objectMapper, properties).readJobTicket(json);
+        assertEquals("yes", full.getFlatAnswers().get("q2"));
+        assertEquals(1, full.getAnswers().getMetadata().getAdditional().getWorkOrder().getTasks().size());
+    }
+
+    private JobTicket jobTicket(String workOrderNum) throws Exception {
+        String number = workOrderNum != null ? "\"" + workOrderNum + "\"" : "null";
+        return objectMapper.readValue("{\"id\": \"T1\", \"answers\": {\"metadata\": {\"additional\": "
+                + "{\"workOrder\": {\"workOrderNum\": " + number + "}}}}}", JobTicket.class);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.openhtmltopdf.extend.FSStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfflineResourceResolverTest {
+
+    @TempDir
+    Path allowedDir;
+
+    private OfflineResourceResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        PdfRenderProperties properties = new PdfRenderProperties();
+        properties.getResources().setAllowedDirs(List.of(allowedDir.toString()));
+        resolver = new OfflineResourceResolver(properties);
+    }
+
+    @Test
+    void resolveURI_shouldResolveRelativeLinksAgainstClasspathBase() {
+        assertEquals("classpath:/static/css/job-ticket.css", resolver.resolveURI(null, "css/job-ticket.css"));
+        assertEquals("classpath:/static/images/thales-logo.png",
+                resolver.resolveURI("classpath:/static/css/job-ticket.css", "../images/thales-logo.png"));
+    }
+
+    @Test
+    void resolveURI_shouldRefuseNetworkLoads() {
+        assertNull(resolver.resolveURI(null, "https://cdn.jsdelivr.net/npm/bootstrap@5.1.3/dist/css/bootstrap.min.css"));
+        assertNull(resolver.resolveURI("https://example.com/", "style.css"));
+    }
+
+    @Test
+    void resolveURI_shouldOnlyAllowFilesInsideAllowedDirectories() throws IOException {
+        Path inside = Files.writeString(allowedDir.resolve("logo.css"), "body {}");
+
+        assertNotNull(resolver.resolveURI(null, inside.toUri().toString()));
+        assertNull(resolver.resolveURI(null, allowedDir.resolve("../outside.css").toUri().toString()));
+    }
+
+    @Test
+    void resolveURI_shouldOnlyAllowStaticAndWebjarClasspathResources() {
+        assertNotNull(resolver.resolveURI(null,
+                "classpath:/META-INF/resources/webjars/bootstrap/5.1.3/css/bootstrap.min.css"));
+        assertNull(resolver.resolveURI(null, "classpath:/application.properties"));
+        assertNull(resolver.resolveURI(null, "classpath:/static/../application.properties"));
+        assertNull(resolver.resolveURI(null, "classpath:/static/%2e%2e/application.properties"));
+        assertNull(resolver.resolveURI(null, "../application.properties"));
+    }
+
+    @Test
+    void getUrl_shouldRefuseClasspathResourcesOutsideStaticAndWebjars() {
+        assertNull(resolver.getUrl("classpath:/application.properties").getStream());
+        assertNull(resolver.getUrl("classpath:/static/%2e%2e/application.properties").getStream());
+    }
+
+    @Test
+    void resolveURI_shouldPassDataUrisThrough() {
+        String dataUri = "data:image/png;base64,AAAA";
+        assertEquals(dataUri, resolver.resolveURI(null, dataUri));
+    }
+
+    @Test
+    void getUrl_shouldServeClasspathResourcesFromCache() throws IOException {
+        String uri = resolver.resolveURI(null, "css/job-ticket.css");
+
+        FSStream first = resolver.getUrl(uri);
+        FSStream second = resolver.getUrl(uri);
+
+        try (InputStream a = first.getStream(); InputStream b = second.getStream()) {
+            byte[] content = a.readAllBytes();
+            assertTrue(content.length > 0);
+            assertArrayEquals(content, b.readAllBytes());
+        }
+    }
+
+    @Test
+    void getUrl_shouldReturnEmptyStreamForMissingResources() {
+        FSStream stream = resolver.getUrl("classpath:/static/css/does-not-exist.css");
+
+        assertNull(stream.getStream());
+        assertNull(stream.getReader());
+    }
+
+    @Test
+    void getUrl_shouldNotCacheMissingResources() throws IOException {
+        Path file = allowedDir.resolve("late.css");
+        String uri = file.toUri().toString();
+        assertNull(resolver.getUrl(uri).getStream());
+
+        Files.writeString(file, "body {}");
+
+        try (InputStream in = resolver.getUrl(uri).getStream()) {
+            assertEquals("body {}", new String(in.readAllBytes()));
+        }
+        assertEquals(0, resolver.getCachedBytes());
+    }
+
+    @Test
+    void getUrl_shouldReadAllowedFilesAgainOnEveryCall() throws IOException {
+        Path file = Files.writeString(allowedDir.resolve("theme.css"), "body {}");
+        String uri = file.toUri().toString();
+        resolver.getUrl(uri).getStream().close();
+
+        Files.writeString(file, "p {}");
+
+        try (InputStream in = resolver.getUrl(uri).getStream()) {
+            assertEquals("p {}", new String(in.readAllBytes()));
+        }
+    }
+
+    @Test
+    void getUrl_shouldKeepTheCacheWithinItsSize() throws IOException {
+        String css = resolver.resolveURI(null, "css/job-ticket.css");
+        long cssSize;
+        try (InputStream in = resolver.getUrl(css).getStream()) {
+            cssSize = in.readAllBytes().length;
+        }
+        PdfRenderProperties properties = new PdfRenderProperties();
+        properties.getResources().setCacheSize(DataSize.ofBytes(cssSize));
+        OfflineResourceResolver bounded = new OfflineResourceResolver(properties);
+
+        bounded.getUrl(css);
+        assertEquals(cssSize, bounded.getCachedBytes());
+        bounded.getUrl(resolver.resolveURI(null, "images/thales-logo.png"));
+
+        assertTrue(bounded.getCachedBytes() <= cssSize);
+        try (InputStream in = bounded.getUrl(css).getStream()) {
+            assertEquals(cssSize, in.readAllBytes().length);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.exception.ProfileUnavailableException;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.xmpbox.DateConverter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class PdfRenderEngineTest {
+
+    private static final Instant CREATED = Instant.parse("2024-05-01T10:30:00Z");
+    private static final String FONTS_DIR = "/usr/share/fonts/truetype/dejavu";
+
+    @Test
+    void render_shouldBeByteIdenticalWhenTheDocumentCarriesACreationDate() throws Exception {
+        PdfRenderEngine engine = newEngine(null);
+
+        byte[] first = render(engine, Profile.FAST);
+        Thread.sleep(5);
+        byte[] second = render(engine, Profile.FAST);
+
+        assertArrayEquals(first, second);
+        try (PDDocument pdf = PDDocument.load(first)) {
+            assertEquals(CREATED, pdf.getDocumentInformation().getCreationDate().toInstant());
+        }
+    }
+
+    @Test
+    void render_shouldPinXmpDatesOfAccessibleOutput() throws Exception {
+        assumeTrue(Files.isDirectory(Path.of(FONTS_DIR)), "PDF/A output needs embeddable fonts");
+        PdfRenderEngine engine = newEngine(FONTS_DIR);
+
+        byte[] first = render(engine, Profile.ACCESSIBLE);
+        byte[] second = render(engine, Profile.ACCESSIBLE);
+
+        assertArrayEquals(first, second);
+        try (PDDocument pdf = PDDocument.load(first);
+             InputStream xmp = pdf.getDocumentCatalog().getMetadata().exportXMPMetadata()) {
+            String packet = new String(xmp.readAllBytes(), StandardCharsets.UTF_8);
+            Calendar created = GregorianCalendar.from(CREATED.atZone(ZoneOffset.UTC));
+            assertTrue(packet.contains("<xmp:CreateDate>" + DateConverter.toISO8601(created) + "</xmp:CreateDate>"),
+                    packet);
+        }
+    }
+
+    @Test
+    void render_shouldRejectAccessibleRightAwayWithoutFontsToEmbed() {
+        PdfRenderEngine engine = newEngine(null);
+
+        assertDoesNotThrow(() -> engine.requireAvailable(null));
+        assertThrows(ProfileUnavailableException.class, () -> engine.requireAvailable(Profile.ACCESSIBLE));
+        assertThrows(ProfileUnavailableException.class, () -> render(engine, Profile.ACCESSIBLE));
+    }
+
+    @Test
+    void init_shouldRefuseAnAccessibleDefaultProfileWithoutFonts() {
+        PdfRenderProperties properties = new PdfRenderProperties();
+        properties.setDefaultProfile(Profile.ACCESSIBLE);
+        PdfRenderEngine engine = new PdfRenderEngine(properties, new OfflineResourceResolver(properties));
+
+        assertThrows(IllegalStateException.class, engine::init);
+    }
+
+    @Test
+    void init_shouldRegisterOpenTypeFontsWithTrueTypeOutlines(@TempDir Path fontsDir) throws Exception {
+        Path font = Path.of(FONTS_DIR, "DejaVuSans.ttf");
+        assumeTrue(Files.isRegularFile(font), "needs a font to copy");
+        Files.copy(font, fontsDir.resolve("DejaVuSans.otf"));
+
+        PdfRenderEngine engine = newEngine(fontsDir.toString());
+
+        assertDoesNotThrow(() -> engine.requireAvailable(Profile.ACCESSIBLE));
+    }
+
+    private static PdfRenderEngine newEngine(String fontsDir) {
+        PdfRenderProperties properties = new PdfRenderProperties();
+        properties.setFontsDir(fontsDir);
+        PdfRenderEngine engine = new PdfRenderEngine(properties, new OfflineResourceResolver(properties));
+        engine.init();
+        return engine;
+    }
+
+    private static byte[] render(PdfRenderEngine engine, Profile profile) throws Exception {
+        Document document = parse("<html><head><title>Ticket</title></head>"
+                + "<body style=\"font-family: 'DejaVu Sans'\"><p>Hello</p></body></html>");
+        document.setUserData(PdfRenderEngine.CREATION_DATE, CREATED, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        engine.render(document, profile, out);
+        return out.toByteArray();
+    }
+
+    private static Document parse(String xhtml) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xhtml)));
+    }
+}
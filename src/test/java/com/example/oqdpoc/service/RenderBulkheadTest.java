@@ -0,0 +1,188 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.exception.RenderQueueFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderBulkheadTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private RenderBulkhead bulkhead;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        PdfRenderProperties properties = new PdfRenderProperties();
+        properties.getBulkhead().setMaxConcurrent(1);
+        properties.getBulkhead().setQueueCapacity(1);
+        properties.getBulkhead().setMaxWait(Duration.ofMillis(200));
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new RenderBulkhead(properties, meterRegistry);
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void call_shouldRunTaskAndReleaseSlot() {
+        assertEquals("pdf", bulkhead.call(() -> "pdf"));
+        assertEquals(0, bulkhead.getActiveCount());
+    }
+
+    @Test
+    void call_shouldRejectWhenQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> bulkhead.call(() -> {
+            running.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        Future<String> waiter = executor.submit(() -> bulkhead.call(() -> "queued"));
+        while (bulkhead.getQueueDepth() == 0) {
+            Thread.onSpinWait();
+        }
+
+        RenderQueueFullException rejected =
+                assertThrows(RenderQueueFullException.class, () -> bulkhead.call(() -> "rejected"));
+        assertTrue(rejected.getRetryAfterSeconds() >= 1);
+        assertEquals(1.0, meterRegistry.counter("pdf.render.bulkhead.rejected", "reason", "queue_full").count());
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertEquals("queued", waiter.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void call_shouldRejectWhenNoSlotFreesUpInTime() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> bulkhead.call(() -> {
+            running.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        assertThrows(RenderQueueFullException.class, () -> bulkhead.call(() -> "late"));
+        assertEquals(1.0, meterRegistry.counter("pdf.render.bulkhead.rejected", "reason", "timeout").count());
+        assertEquals(0, bulkhead.getQueueDepth());
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void callWhenFree_shouldWaitPastTheMaxWaitWithoutTakingUpTheQueue() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> bulkhead.call(() -> {
+            running.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        Future<String> job = executor.submit(() -> bulkhead.callWhenFree(() -> "job"));
+        // Longer than the max wait of 200ms
+        Thread.sleep(400);
+        assertFalse(job.isDone());
+        assertEquals(0, bulkhead.getQueueDepth());
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        assertEquals("job", job.get(5, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.getActiveCount());
+    }
+
+    @Test
+    void runInParallel_shouldOnlyHelpOnFreeSlots() throws Exception {
+        PdfRenderProperties properties = new PdfRenderProperties();
+        properties.getBulkhead().setMaxConcurrent(3);
+        RenderBulkhead wide = new RenderBulkhead(properties, new SimpleMeterRegistry());
+        try {
+            Set<String> threads = ConcurrentHashMap.newKeySet();
+            CountDownLatch started = new CountDownLatch(3);
+            // Each piece waits for the others, so all three must run at once
+            wide.call(() -> {
+                wide.runInParallel(3, 5, i -> {
+                    threads.add(Thread.currentThread().getName());
+                    started.countDown();
+                    await(started);
+                });
+                return null;
+            });
+            assertEquals(3, threads.size());
+            assertEquals(0, wide.getActiveCount());
+
+            // With every slot taken, the caller runs all pieces itself
+            threads.clear();
+            wide.call(() -> wide.call(() -> wide.call(() -> {
+                wide.runInParallel(3, 5, i -> threads.add(Thread.currentThread().getName()));
+                return null;
+            })));
+            assertEquals(Set.of(Thread.currentThread().getName()), threads);
+        } finally {
+            wide.shutdown();
+        }
+    }
+
+    @Test
+    void runInParallel_shouldStopStartingPiecesAfterAFailure() {
+        AtomicInteger run = new AtomicInteger();
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> bulkhead.runInParallel(10, 0, i -> {
+                    run.incrementAndGet();
+                    throw new IllegalStateException("piece " + i);
+                }));
+
+        assertEquals("piece 0", thrown.getMessage());
+        assertEquals(1, run.get());
+        assertEquals(0, bulkhead.getActiveCount());
+    }
+
+    @Test
+    void call_withOffload_shouldRunOnRenderPoolAndPropagateCheckedExceptions() {
+        PdfRenderProperties properties = new PdfRenderProperties();
+        properties.getBulkhead().setMaxConcurrent(1);
+        properties.getBulkhead().setOffload(true);
+        RenderBulkhead offloading = new RenderBulkhead(properties, new SimpleMeterRegistry());
+        try {
+            assertTrue(offloading.call(() -> Thread.currentThread().getName()).startsWith("pdf-render-"));
+
+            IOException thrown = assertThrows(IOException.class, () -> offloading.call(() -> {
+                throw new IOException("client went away");
+            }));
+            assertEquals("client went away", thrown.getMessage());
+        } finally {
+            offloading.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.exception.ResponseCommittedException;
+import com.example.oqdpoc.service.cache.RenderedPdfCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RenderCoalescerTest {
+
+    private final PdfRenderProperties properties = new PdfRenderProperties();
+    private final RenderedPdfCache renderedPdfCache = mock(RenderedPdfCache.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        properties.getCoalescing().setLeaseWait(Duration.ofMillis(200));
+        properties.getCoalescing().setPollInterval(Duration.ofMillis(10));
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void render_shouldShareOneRenderBetweenIdenticalRequests() throws Exception {
+        RenderCoalescer coalescer = new RenderCoalescer(properties, RenderLease.LOCAL, renderedPdfCache, meterRegistry);
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<byte[]> leader = executor.submit(() -> coalescer.render("k", () -> {
+            renders.incrementAndGet();
+            rendering.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new byte[]{1};
+        }));
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+        Future<byte[]> follower = executor.submit(() -> coalescer.render("k", () -> {
+            renders.incrementAndGet();
+            return new byte[]{2};
+        }));
+        while (coalescer.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        assertArrayEquals(new byte[]{1}, leader.get(5, TimeUnit.SECONDS));
+        assertArrayEquals(new byte[]{1}, follower.get(5, TimeUnit.SECONDS));
+        assertEquals(1, renders.get());
+        assertEquals(1, coalescedCount("local", "shared"));
+    }
+
+    @Test
+    void render_shouldFailWaitersWithTheLeadersError() throws Exception {
+        RenderCoalescer coalescer = new RenderCoalescer(properties, RenderLease.LOCAL, renderedPdfCache, meterRegistry);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<byte[]> leader = executor.submit(() -> coalescer.render("k", () -> {
+            rendering.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new IOException("layout failed");
+        }));
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+        Future<byte[]> follower = executor.submit(() -> coalescer.render("k", () -> new byte[]{2}));
+        while (coalescer.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException followerError = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, leaderError.getCause());
+        assertSame(leaderError.getCause(), followerError.getCause());
+        assertEquals(0, coalescedCount("local", "shared"));
+        // Nothing stays in flight after a failure
+        assertArrayEquals(new byte[]{3}, coalescer.render("k", () -> new byte[]{3}));
+    }
+
+    @Test
+    void render_shouldRenderItselfWhenTheLeadersResponseBrokeOff() throws Exception {
+        RenderCoalescer coalescer = new RenderCoalescer(properties, RenderLease.LOCAL, renderedPdfCache, meterRegistry);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<byte[]> leader = executor.submit(() -> coalescer.render("k", () -> {
+            rendering.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new ResponseCommittedException(new IOException("Broken pipe"));
+        }));
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+        Future<byte[]> follower = executor.submit(() -> coalescer.render("k", () -> new byte[]{2}));
+        while (coalescer.getWaiting() == 0) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ResponseCommittedException.class, leaderError.getCause());
+        assertArrayEquals(new byte[]{2}, follower.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void render_shouldRenderItselfWhenTheLeaderTakesLongerThanTheLeaseWait() throws Exception {
+        RenderCoalescer coalescer = new RenderCoalescer(properties, RenderLease.LOCAL, renderedPdfCache, meterRegistry);
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<byte[]> leader = executor.submit(() -> coalescer.render("k", () -> {
+            rendering.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new byte[]{1};
+        }));
+        assertTrue(rendering.await(5, TimeUnit.SECONDS));
+
+        assertArrayEquals(new byte[]{2}, coalescer.render("k", () -> new byte[]{2}));
+        // Waited, but rendered itself: not counted as sharing the leader's render
+        assertEquals(0, coalescedCount("local", "shared"));
+        assertEquals(1, coalescedCount("local", "timeout"));
+        release.countDown();
+        assertArrayEquals(new byte[]{1}, leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void render_shouldWaitForAnotherInstancesRenderWhileItHoldsTheLease() {
+        RenderLease lease = mock(RenderLease.class);
+        when(lease.isShared()).thenReturn(true);
+        when(lease.tryAcquire("k")).thenReturn(false);
+        when(renderedPdfCache.find("k")).thenReturn(Optional.empty(), Optional.of(new byte[]{7}));
+        RenderCoalescer coalescer = new RenderCoalescer(properties, lease, renderedPdfCache, meterRegistry);
+
+        byte[] pdf = coalescer.render("k", () -> fail("another instance renders this key"));
+
+        assertArrayEquals(new byte[]{7}, pdf);
+        assertEquals(1, coalescedCount("cluster", "shared"));
+        verify(lease, never()).release("k");
+    }
+
+    @Test
+    void render_shouldRenderAndReleaseTheLeaseWhenItIsFree() {
+        RenderLease lease = mock(RenderLease.class);
+        when(lease.isShared()).thenReturn(true);
+        when(lease.tryAcquire("k")).thenReturn(false, true);
+        when(renderedPdfCache.find("k")).thenReturn(Optional.empty());
+        RenderCoalescer coalescer = new RenderCoalescer(properties, lease, renderedPdfCache, meterRegistry);
+
+        assertArrayEquals(new byte[]{1}, coalescer.render("k", () -> new byte[]{1}));
+
+        verify(lease).release("k");
+    }
+
+    private double coalescedCount(String scope, String result) {
+        return meterRegistry.get("pdf.render.coalesced").tag("scope", scope).tag("result", result).counter().count();
+    }
+}
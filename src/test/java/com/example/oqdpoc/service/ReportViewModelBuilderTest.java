@@ -0,0 +1,95 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.model.jobticket.Answers;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.jobticket.Question;
+import com.example.oqdpoc.model.jobticket.Section;
+import com.example.oqdpoc.model.report.ReportViewModel;
+import com.example.oqdpoc.model.report.ReportViewModel.QuestionView;
+import com.example.oqdpoc.model.report.ReportViewModel.ResponseKind;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportViewModelBuilderTest {
+
+    private static final LocalDateTime REPORT_DATE = LocalDateTime.of(2024, 3, 5, 14, 7);
+
+    private final ReportViewModelBuilder builder = new ReportViewModelBuilder();
+
+    @Test
+    void build_shouldDropQuestionsHiddenFromTheReport() {
+        Question hidden = question("text", "secret");
+        hidden.setHideInReport(true);
+
+        ReportViewModel report = builder.build(ticket(question("text", "shown"), hidden), null, REPORT_DATE);
+
+        List<QuestionView> questions = report.sections().get(0).questions();
+        assertEquals(1, questions.size());
+        assertEquals("shown", questions.get(0).text());
+    }
+
+    @Test
+    void build_shouldClassifyResponsesByQuestionType() {
+        Question choice = question("checkbox", List.of("A", "B"));
+        Question signature = question("signature", Map.of("name", "J. Doe", "file", "iVBORw0"));
+        Question unanswered = question("number", "");
+        Question file = question("file", List.of(Map.of("url", "https://files/1", "size", 12)));
+
+        List<QuestionView> questions = builder.build(ticket(choice, signature, unanswered, file), null, REPORT_DATE)
+                .sections().get(0).questions();
+
+        assertEquals(ResponseKind.CHOICE, questions.get(0).kind());
+        assertEquals(List.of("A", "B"), questions.get(0).choices());
+        assertEquals(ResponseKind.SIGNATURE, questions.get(1).kind());
+        assertEquals("J. Doe", questions.get(1).signature().name());
+        assertEquals("data:image/png;base64,iVBORw0", questions.get(1).signature().image());
+        assertEquals(ResponseKind.TEXT, questions.get(2).kind());
+        assertNull(questions.get(2).text());
+        assertEquals(ResponseKind.FILE, questions.get(3).kind());
+        assertEquals("File 1", questions.get(3).files().get(0).name());
+        assertEquals("(12 KB)", questions.get(3).files().get(0).size());
+    }
+
+    @Test
+    void build_shouldFormatDatesAndFillMissingWorkOrderFields() {
+        WorkOrder workOrder = new WorkOrder();
+        workOrder.setWonum("WO-1");
+        workOrder.setScheduledStart(LocalDateTime.of(2024, 1, 2, 8, 30));
+        workOrder.setLongDescription("Inspect pump, replace seal. ,");
+
+        ReportViewModel report = builder.build(ticket(), workOrder, REPORT_DATE);
+
+        assertEquals("Mar 05, 2024 at 14:07", report.reportDate());
+        assertEquals("Jan 02, 2024 08:30", report.workOrder().scheduledStart());
+        assertEquals("—", report.workOrder().scheduledFinish());
+        assertEquals("—", report.workOrder().vendor());
+        assertEquals(List.of("Inspect pump.", "replace seal."), report.workOrder().workDetails());
+        assertEquals("—", report.assetSerialNumber());
+    }
+
+    private static JobTicket ticket(Question... questions) {
+        Section section = new Section();
+        section.setTitle("Checks");
+        section.setQuestions(List.of(questions));
+        Answers answers = new Answers();
+        answers.setSections(List.of(section));
+        JobTicket jobTicket = new JobTicket();
+        jobTicket.setId("ticket-1");
+        jobTicket.setAnswers(answers);
+        return jobTicket;
+    }
+
+    private static Question question(String type, Object response) {
+        Question question = new Question();
+        question.setTitle(type + " question");
+        question.setType(type);
+        question.setResponse(response);
+        return question;
+    }
+}
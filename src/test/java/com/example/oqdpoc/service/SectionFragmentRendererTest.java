@@ -0,0 +1,140 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfCacheProperties;
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.model.jobticket.Question;
+import com.example.oqdpoc.model.jobticket.Section;
+import com.example.oqdpoc.model.report.ReportViewModel.SectionView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class SectionFragmentRendererTest {
+
+    private final PdfCacheProperties properties = new PdfCacheProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ReportViewModelBuilder viewModelBuilder = new ReportViewModelBuilder();
+    private SpringTemplateEngine templateEngine;
+    private RenderBulkhead bulkhead;
+    private SectionFragmentRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        templateEngine = spy(new SpringTemplateEngine());
+        templateEngine.setTemplateResolver(resolver);
+        properties.getFragments().setParallelism(2);
+        PdfRenderProperties renderProperties = new PdfRenderProperties();
+        renderProperties.getBulkhead().setMaxConcurrent(2);
+        bulkhead = new RenderBulkhead(renderProperties, meterRegistry);
+        renderer = new SectionFragmentRenderer(templateEngine, properties, new ObjectMapper(), bulkhead,
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkhead.shutdown();
+    }
+
+    @Test
+    void render_shouldRenderEachSectionInOrder() {
+        List<Section> sections = sections(5);
+
+        List<String> fragments = renderer.render(viewModelBuilder.sections(sections));
+
+        assertEquals(5, fragments.size());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(fragments.get(i).contains("Section " + i), fragments.get(i));
+            assertTrue(fragments.get(i).contains("Answer " + i), fragments.get(i));
+        }
+    }
+
+    @Test
+    void render_shouldOnlyRenderSectionsThatChanged() {
+        List<Section> sections = sections(4);
+        List<String> first = renderer.render(viewModelBuilder.sections(sections));
+        clearInvocations(templateEngine);
+
+        sections.get(2).getQuestions().get(0).setResponse("Updated answer");
+        List<String> second = renderer.render(viewModelBuilder.sections(sections));
+
+        verify(templateEngine, times(1)).process(eq(SectionFragmentRenderer.SECTION_TEMPLATE), any(IContext.class));
+        assertEquals(first.get(0), second.get(0));
+        assertEquals(first.get(3), second.get(3));
+        assertTrue(second.get(2).contains("Updated answer"));
+        assertEquals(5.0, meterRegistry.get("pdf.template.fragments").tag("result", "miss").counter().count());
+        assertEquals(3.0, meterRegistry.get("pdf.template.fragments").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    void render_shouldPassOnFailuresOfParallelRenders() {
+        List<SectionView> sections = viewModelBuilder.sections(sections(3));
+        doThrow(new TemplateProcessingException("boom")).when(templateEngine).process(
+                eq(SectionFragmentRenderer.SECTION_TEMPLATE),
+                argThat((IContext context) -> context.getVariable("section") == sections.get(0)));
+
+        TemplateProcessingException e = assertThrows(TemplateProcessingException.class,
+                () -> renderer.render(sections));
+
+        assertTrue(e.getMessage().contains("boom"));
+    }
+
+    @Test
+    void render_shouldRenderEverySectionItselfWhenNoRenderSlotIsFree() {
+        List<SectionView> sections = viewModelBuilder.sections(sections(4));
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        doAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return invocation.callRealMethod();
+        }).when(templateEngine).process(eq(SectionFragmentRenderer.SECTION_TEMPLATE), any(IContext.class));
+
+        // Both slots busy with renders
+        List<String> fragments = bulkhead.call(() -> bulkhead.call(() -> renderer.render(sections)));
+
+        assertEquals(Set.of(Thread.currentThread().getName()), threads);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(fragments.get(i).contains("Section " + i), fragments.get(i));
+        }
+    }
+
+    private static List<Section> sections(int count) {
+        List<Section> sections = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Question question = new Question();
+            question.setTitle("Question " + i);
+            question.setType("text");
+            question.setResponse("Answer " + i);
+            Section section = new Section();
+            section.setTitle("Section " + i);
+            section.setQuestions(new ArrayList<>(List.of(question)));
+            sections.add(section);
+        }
+        return sections;
+    }
+}
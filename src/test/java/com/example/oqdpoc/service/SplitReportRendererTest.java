@@ -0,0 +1,180 @@
+package com.example.oqdpoc.service;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SplitReportRendererTest {
+
+    private static final Instant CREATED = Instant.parse("2024-05-01T10:30:00Z");
+
+    private PdfRenderProperties properties;
+    private PdfRenderEngine engine;
+    private RenderBulkhead bulkhead;
+    private SplitReportRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PdfRenderProperties();
+        properties.getSplit().setEnabled(true);
+        properties.getSplit().setParallelism(3);
+        properties.getSplit().setMinSectionsPerChunk(2);
+        engine = new PdfRenderEngine(properties, new OfflineResourceResolver(properties));
+        engine.init();
+        properties.getBulkhead().setMaxConcurrent(3);
+        bulkhead = new RenderBulkhead(properties, new SimpleMeterRegistry());
+        renderer = new SplitReportRenderer(engine, properties, bulkhead);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkhead.shutdown();
+    }
+
+    @Test
+    void handles_shouldOnlySplitFastReportsWithSectionsForSeveralChunks() throws Exception {
+        assertTrue(renderer.handles(report(6), null));
+        assertTrue(renderer.handles(report(4), Profile.FAST));
+        assertFalse(renderer.handles(report(3), Profile.FAST), "one chunk of at least two sections");
+        assertFalse(renderer.handles(report(6), Profile.ACCESSIBLE), "merged documents are not tagged");
+        assertFalse(renderer.handles(parse("<html><body><p>Custom</p></body></html>"), null));
+
+        properties.getSplit().setEnabled(false);
+        SplitReportRenderer disabled = new SplitReportRenderer(engine, properties, bulkhead);
+        assertFalse(disabled.handles(report(6), null));
+    }
+
+    @Test
+    void split_shouldGiveEveryChunkTheHeaderAndStylesAndTheIntroToTheFirstOnly() throws Exception {
+        List<Document> chunks = renderer.split(report(6), 3);
+
+        assertEquals(3, chunks.size());
+        assertEquals(List.of("Section 0", "Section 1"), sectionTitles(chunks.get(0)));
+        assertEquals(List.of("Section 2", "Section 3"), sectionTitles(chunks.get(1)));
+        assertEquals(List.of("Section 4", "Section 5"), sectionTitles(chunks.get(2)));
+        for (Document chunk : chunks) {
+            assertEquals(1, chunk.getElementsByTagName("link").getLength());
+            assertTrue(chunk.getElementsByTagName("style").item(0).getTextContent().contains("@bottom-center"));
+            assertEquals("Running header", chunk.getElementsByTagName("header").item(0).getTextContent());
+            assertEquals(CREATED, chunk.getUserData(PdfRenderEngine.CREATION_DATE));
+        }
+        assertEquals(List.of("Intro", "Work order"), paragraphs(chunks.get(0)));
+        assertEquals(List.of(), paragraphs(chunks.get(1)));
+        assertEquals(List.of("Attachments"), paragraphs(chunks.get(2)));
+    }
+
+    @Test
+    void split_shouldBalanceChunksByLayoutCost() throws Exception {
+        Document report = report(6);
+        // Section 0 alone weighs about as much as all the others together
+        Element heavy = (Element) report.getElementsByTagName("h4").item(0).getParentNode();
+        for (int i = 0; i < 4; i++) {
+            heavy.appendChild(report.createElement("img"));
+        }
+
+        List<Document> chunks = renderer.split(report, 2);
+
+        assertEquals(List.of("Section 0"), sectionTitles(chunks.get(0)));
+        assertEquals(5, sectionTitles(chunks.get(1)).size());
+    }
+
+    @Test
+    void render_shouldMergeTheChunksAndNumberThePagesOfTheWholeReport() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.render(report(6), Profile.FAST, out);
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        renderer.render(report(6), Profile.FAST, again);
+
+        assertArrayEquals(out.toByteArray(), again.toByteArray());
+        try (PDDocument pdf = PDDocument.load(out.toByteArray())) {
+            assertEquals(3, pdf.getNumberOfPages(), "one page per chunk");
+            assertEquals(CREATED, pdf.getDocumentInformation().getCreationDate().toInstant());
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int page = 1; page <= 3; page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                String text = stripper.getText(pdf);
+                assertTrue(text.contains("Page " + page + " of 3"), text);
+                assertFalse(text.contains("Counted by CSS"), "footer of the chunk: " + text);
+            }
+            String text = new PDFTextStripper().getText(pdf);
+            assertTrue(text.indexOf("Section 0") < text.indexOf("Section 5"), text);
+        }
+    }
+
+    @Test
+    void render_shouldLayOutEveryChunkOnTheCallingThreadWhenNoSlotIsFree() throws Exception {
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        renderer.render(report(6), Profile.FAST, parallel);
+
+        // Every slot busy with other renders
+        ByteArrayOutputStream alone = bulkhead.call(() -> bulkhead.call(() -> bulkhead.call(() -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            renderer.render(report(6), Profile.FAST, out);
+            return out;
+        })));
+
+        assertArrayEquals(parallel.toByteArray(), alone.toByteArray(), "same chunks under any load");
+        assertEquals(0, bulkhead.getActiveCount());
+    }
+
+    private static Document report(int sections) throws Exception {
+        StringBuilder html = new StringBuilder("<html><head><title>Ticket</title>"
+                + "<link href=\"css/missing.css\" rel=\"stylesheet\"/>"
+                + "<style>@page { @bottom-center { content: \"Counted by CSS \" counter(page); } }"
+                + " header { position: running(header); } @page { @top-center { content: element(header); } }"
+                + "</style></head><body>"
+                + "<header class=\"page-header\">Running header</header>"
+                + "<div class=\"container\"><p>Intro</p></div>"
+                + "<div class=\"container\"><div class=\"info-section\"><p>Work order</p></div>"
+                + "<div class=\"section-container\">");
+        for (int i = 0; i < sections; i++) {
+            html.append("<div class=\"section-card\"><h4>Section ").append(i).append("</h4><table><tr><td>Q</td>")
+                    .append("<td>A</td></tr></table></div>");
+        }
+        html.append("</div></div><div class=\"images-section\"><p>Attachments</p></div></body></html>");
+        Document document = parse(html.toString());
+        document.setUserData(PdfRenderEngine.CREATION_DATE, CREATED, null);
+        return document;
+    }
+
+    private static List<String> sectionTitles(Document document) {
+        return texts(document.getElementsByTagName("h4"));
+    }
+
+    private static List<String> paragraphs(Document document) {
+        return texts(document.getElementsByTagName("p"));
+    }
+
+    private static List<String> texts(NodeList nodes) {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            texts.add(nodes.item(i).getTextContent());
+        }
+        return texts;
+    }
+
+    private static Document parse(String xhtml) throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xhtml)));
+    }
+}
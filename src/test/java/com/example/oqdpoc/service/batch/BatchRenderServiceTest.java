@@ -0,0 +1,142 @@
+package com.example.oqdpoc.service.batch;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.example.oqdpoc.service.JobTicketTemplateService;
+import com.example.oqdpoc.service.PdfGenerationService;
+import com.example.oqdpoc.service.RenderBulkhead;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BatchRenderServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JobTicketTemplateService templateService;
+    private PdfGenerationService pdfGenerationService;
+    private BatchRenderService batchRenderService;
+
+    @BeforeEach
+    void setUp() {
+        templateService = mock(JobTicketTemplateService.class);
+        pdfGenerationService = mock(PdfGenerationService.class);
+        PdfRenderProperties properties = new PdfRenderProperties();
+        properties.getBulkhead().setMaxConcurrent(2);
+        RenderBulkhead bulkhead = new RenderBulkhead(properties, new SimpleMeterRegistry());
+        batchRenderService = new BatchRenderService(new JobTicketRequestReader(objectMapper), templateService,
+                pdfGenerationService, bulkhead, objectMapper);
+    }
+
+    @Test
+    void renderZip_shouldWritePdfsAndManifestAndKeepGoingAfterFailures() throws Exception {
+        Document good = mock(Document.class);
+        when(templateService.renderDocument(any(JobTicket.class), isNull())).thenReturn(good);
+        when(pdfGenerationService.generatePdf(same(good), any())).thenReturn("%PDF-ok".getBytes(StandardCharsets.US_ASCII));
+        List<JsonNode> jobTickets = List.of(
+                objectMapper.readTree("{\"id\":\"T1\"}"),
+                objectMapper.readTree("{\"id\":\"T2\",\"createdAt\":\"not-a-date\"}"),
+                objectMapper.readTree("{\"id\":\"T/3\"}"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<BatchRenderService.ManifestEntry> manifest =
+                batchRenderService.renderZip(jobTickets, Map.of(), null, out);
+
+        assertEquals(List.of("SUCCEEDED", "FAILED", "SUCCEEDED"),
+                manifest.stream().map(BatchRenderService.ManifestEntry::status).toList());
+        assertTrue(manifest.get(1).error().startsWith("Invalid jobTicket JSON"));
+
+        Map<String, byte[]> entries = readZip(out.toByteArray());
+        assertEquals(List.of("00001-T1.pdf", "00003-T_3.pdf"),
+                entries.keySet().stream().filter(name -> name.endsWith(".pdf")).sorted().toList());
+        JsonNode manifestJson = objectMapper.readTree(entries.get(BatchRenderService.MANIFEST_ENTRY));
+        assertEquals(3, manifestJson.get("total").asInt());
+        assertEquals(1, manifestJson.get("failed").asInt());
+    }
+
+    @Test
+    void renderZip_shouldRecordRenderFailuresInManifest() throws Exception {
+        when(templateService.renderDocument(any(JobTicket.class), isNull())).thenThrow(new PdfGenerationException("template broke"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<BatchRenderService.ManifestEntry> manifest = batchRenderService.renderZip(
+                List.of(objectMapper.readTree("{\"id\":\"T1\"}")), Map.of(), null, out);
+
+        assertEquals("FAILED", manifest.get(0).status());
+        assertEquals("template broke", manifest.get(0).error());
+        assertEquals(List.of(BatchRenderService.MANIFEST_ENTRY), List.copyOf(readZip(out.toByteArray()).keySet()));
+    }
+
+    @Test
+    void renderMerged_shouldSpillRenderedTicketsAndDeleteThemOnClose() throws Exception {
+        Document good = mock(Document.class);
+        when(templateService.renderDocument(any(JobTicket.class), isNull())).thenReturn(good);
+        when(pdfGenerationService.generatePdf(same(good), any())).thenReturn(onePagePdf());
+        List<JsonNode> jobTickets = List.of(
+                objectMapper.readTree("{\"id\":\"T1\"}"),
+                objectMapper.readTree("{\"id\":\"T2\",\"createdAt\":\"not-a-date\"}"),
+                objectMapper.readTree("{\"id\":\"T3\"}"));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Path spilled;
+        try (MergedBatch batch = batchRenderService.renderMerged(jobTickets, Map.of(), null)) {
+            assertEquals(2, batch.getSucceededCount());
+            assertEquals(1, batch.getFailedCount());
+            assertEquals(2, batch.writeTo(out));
+            spilled = batch.getSpillDirectory();
+            try (Stream<Path> files = Files.list(spilled)) {
+                assertEquals(2, files.count());
+            }
+        }
+
+        try (PDDocument merged = PDDocument.load(out.toByteArray())) {
+            assertEquals(2, merged.getNumberOfPages());
+        }
+        assertFalse(Files.exists(spilled));
+    }
+
+    private static byte[] onePagePdf() throws Exception {
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage());
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    private static Map<String, byte[]> readZip(byte[] zip) throws Exception {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                entries.put(entry.getName(), in.readAllBytes());
+            }
+        }
+        return entries;
+    }
+}
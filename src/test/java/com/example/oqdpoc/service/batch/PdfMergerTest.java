@@ -0,0 +1,103 @@
+package com.example.oqdpoc.service.batch;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfMergerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void merge_shouldConcatenateSectionsWithBookmarksAndGlobalPageNumbers() throws IOException {
+        List<PdfMerger.Section> sections = List.of(
+                new PdfMerger.Section("1. T1", createPdf("a.pdf", 2)),
+                new PdfMerger.Section("2. T2", createPdf("b.pdf", 1)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int pages = new PdfMerger().merge(sections, out);
+
+        assertEquals(3, pages);
+        try (PDDocument merged = PDDocument.load(out.toByteArray())) {
+            assertEquals(3, merged.getNumberOfPages());
+
+            List<String> titles = new ArrayList<>();
+            List<Integer> firstPages = new ArrayList<>();
+            for (PDOutlineItem item : merged.getDocumentCatalog().getDocumentOutline().children()) {
+                titles.add(item.getTitle());
+                firstPages.add(merged.getPages().indexOf(item.findDestinationPage(merged)));
+            }
+            assertEquals(List.of("1. T1", "2. T2"), titles);
+            assertEquals(List.of(0, 2), firstPages);
+
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(3);
+            stripper.setEndPage(3);
+            assertTrue(stripper.getText(merged).contains("Document page 3 of 3"));
+        }
+    }
+
+    @Test
+    void merge_shouldKeepBookmarksAndPagesAcrossRounds() throws IOException {
+        List<PdfMerger.Section> sections = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            sections.add(new PdfMerger.Section(i + ". T" + i, createPdf(i + ".pdf", i)));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int pages = new PdfMerger(2).merge(sections, out);
+
+        assertEquals(15, pages);
+        try (PDDocument merged = PDDocument.load(out.toByteArray())) {
+            assertEquals(15, merged.getNumberOfPages());
+
+            List<Integer> firstPages = new ArrayList<>();
+            for (PDOutlineItem item : merged.getDocumentCatalog().getDocumentOutline().children()) {
+                firstPages.add(merged.getPages().indexOf(item.findDestinationPage(merged)));
+            }
+            assertEquals(List.of(0, 1, 3, 6, 10), firstPages);
+
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(15);
+            stripper.setEndPage(15);
+            assertTrue(stripper.getText(merged).contains("Document page 15 of 15"));
+        }
+    }
+
+    @Test
+    void merge_shouldLeaveOutputStreamOpen() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                fail("output stream closed");
+            }
+        };
+
+        new PdfMerger().merge(List.of(new PdfMerger.Section("1. T1", createPdf("a.pdf", 1))), out);
+
+        assertTrue(out.size() > 0);
+    }
+
+    private Path createPdf(String name, int pages) throws IOException {
+        Path file = tempDir.resolve(name);
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+}
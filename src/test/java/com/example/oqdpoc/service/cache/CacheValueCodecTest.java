@@ -0,0 +1,46 @@
+package com.example.oqdpoc.service.cache;
+
+import com.example.oqdpoc.service.cache.CacheValueCodec.Compression;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheValueCodecTest {
+
+    @Test
+    void encode_shouldDeflateCompressibleValues() {
+        CacheValueCodec codec = new CacheValueCodec(Compression.DEFLATE, 16);
+        byte[] value = "%PDF-1.7 BT /F1 8 Tf ET ".repeat(200).getBytes(StandardCharsets.US_ASCII);
+
+        byte[] encoded = codec.encode(value);
+
+        assertTrue(encoded.length < value.length / 4);
+        assertArrayEquals(value, codec.decode(encoded));
+    }
+
+    @Test
+    void encode_shouldStoreIncompressibleAndSmallValuesRaw() {
+        CacheValueCodec codec = new CacheValueCodec(Compression.DEFLATE, 16);
+        byte[] random = new byte[4096];
+        new Random(42).nextBytes(random);
+        byte[] small = "tiny".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(random.length + CacheValueCodec.HEADER_LENGTH, codec.encode(random).length);
+        assertArrayEquals(random, codec.decode(codec.encode(random)));
+        assertArrayEquals(small, codec.decode(codec.encode(small)));
+    }
+
+    @Test
+    void decode_shouldRejectForeignAndTruncatedValues() {
+        CacheValueCodec codec = new CacheValueCodec(Compression.DEFLATE, 16);
+        byte[] encoded = codec.encode("abcdefgh".repeat(100).getBytes(StandardCharsets.US_ASCII));
+
+        assertFalse(CacheValueCodec.isEncoded("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode("{\"a\":1}".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+    }
+}
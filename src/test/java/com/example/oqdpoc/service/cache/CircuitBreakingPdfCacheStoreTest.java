@@ -0,0 +1,90 @@
+package com.example.oqdpoc.service.cache;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CircuitBreakingPdfCacheStoreTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PdfCacheStore redisStore = mock(PdfCacheStore.class);
+    private CircuitBreaker circuitBreaker;
+    private CircuitBreakingPdfCacheStore store;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreaker = CircuitBreaker.of("test", CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .ignoreExceptions(IllegalArgumentException.class)
+                .build());
+        store = new CircuitBreakingPdfCacheStore(redisStore, circuitBreaker, meterRegistry);
+    }
+
+    @Test
+    void find_shouldTreatFailuresAsMissesAndStopCallingRedisOnceOpen() {
+        when(redisStore.find(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+
+        for (int i = 0; i < 6; i++) {
+            assertTrue(store.find("k").isEmpty());
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        verify(redisStore, times(4)).find("k");
+        assertEquals(4, bypassCount("error"));
+        assertEquals(2, bypassCount("circuit_open"));
+        assertEquals(1, meterRegistry.get("pdf.cache.redis.circuit.state").gauge().value());
+    }
+
+    @Test
+    void put_shouldSkipTimedOutWrites() {
+        doThrow(new QueryTimeoutException("slow")).when(redisStore).put(anyString(), any());
+
+        store.put("k", new byte[]{1});
+
+        assertEquals(1, bypassCount("timeout"));
+        assertEquals(1, meterRegistry.get("pdf.cache.redis.latency")
+                .tags("operation", "put", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void find_shouldPassHitsThroughAndReportUnreadableValues() {
+        when(redisStore.find("hit")).thenReturn(Optional.of(new byte[]{1}));
+        when(redisStore.find("corrupt")).thenThrow(new IllegalArgumentException("Truncated cache value"));
+
+        assertTrue(store.find("hit").isPresent());
+        assertThrows(IllegalArgumentException.class, () -> store.find("corrupt"));
+        assertEquals(1, meterRegistry.get("pdf.cache.redis.latency")
+                .tags("operation", "find", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void evict_shouldFailWhileTheCircuitIsOpen() {
+        circuitBreaker.transitionToOpenState();
+
+        assertThrows(CallNotPermittedException.class, () -> store.evict("k"));
+    }
+
+    private double bypassCount(String reason) {
+        return meterRegistry.get("pdf.cache.redis.bypass").tag("reason", reason).counter().count();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.oqdpoc.service.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryPdfCacheStoreTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void put_shouldEvictLeastRecentlyUsedBeyondMaxBytes() {
+        InMemoryPdfCacheStore store = new InMemoryPdfCacheStore(10, Duration.ofHours(1), clock);
+        store.put("a", new byte[4]);
+        store.put("b", new byte[4]);
+        store.find("a");
+
+        store.put("c", new byte[4]);
+
+        assertTrue(store.find("a").isPresent());
+        assertTrue(store.find("b").isEmpty());
+        assertTrue(store.find("c").isPresent());
+        assertEquals(8, store.getTotalBytes());
+    }
+
+    @Test
+    void put_shouldSkipEntriesLargerThanTheWholeCache() {
+        InMemoryPdfCacheStore store = new InMemoryPdfCacheStore(10, Duration.ofHours(1), clock);
+        store.put("a", new byte[4]);
+
+        store.put("big", new byte[11]);
+
+        assertTrue(store.find("big").isEmpty());
+        assertTrue(store.find("a").isPresent());
+    }
+
+    @Test
+    void find_shouldDropExpiredEntries() {
+        InMemoryPdfCacheStore store = new InMemoryPdfCacheStore(10, Duration.ofMinutes(5), clock);
+        store.put("a", new byte[4]);
+
+        clock.advance(Duration.ofMinutes(5));
+
+        assertTrue(store.find("a").isEmpty());
+        assertEquals(0, store.getTotalBytes());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
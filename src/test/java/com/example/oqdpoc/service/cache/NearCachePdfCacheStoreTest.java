@@ -0,0 +1,57 @@
+package com.example.oqdpoc.service.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NearCachePdfCacheStoreTest {
+
+    private final InMemoryPdfCacheStore nearCache = new InMemoryPdfCacheStore(1024, Duration.ofHours(1));
+    private final PdfCacheStore sharedStore = mock(PdfCacheStore.class);
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, byte[]> redisTemplate = mock(RedisTemplate.class);
+    private final NearCachePdfCacheStore store =
+            new NearCachePdfCacheStore(nearCache, sharedStore, redisTemplate, "pdf-cache:evictions");
+
+    @Test
+    void find_shouldKeepSharedHitsInTheNearCache() {
+        byte[] pdf = {1, 2, 3};
+        when(sharedStore.find("k")).thenReturn(Optional.of(pdf));
+
+        assertArrayEquals(pdf, store.find("k").orElseThrow());
+        assertArrayEquals(pdf, store.find("k").orElseThrow());
+
+        verify(sharedStore, times(1)).find("k");
+    }
+
+    @Test
+    void evict_shouldPublishTheKeyToOtherInstances() {
+        store.put("k", new byte[]{1});
+
+        store.evict("k");
+
+        assertTrue(nearCache.find("k").isEmpty());
+        verify(sharedStore).evict("k");
+        verify(redisTemplate).convertAndSend("pdf-cache:evictions", "k".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void onMessage_shouldDropTheKeyFromTheNearCache() {
+        store.put("k", new byte[]{1});
+
+        store.onMessage(new DefaultMessage("pdf-cache:evictions".getBytes(StandardCharsets.UTF_8),
+                "k".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertTrue(nearCache.find("k").isEmpty());
+    }
+}
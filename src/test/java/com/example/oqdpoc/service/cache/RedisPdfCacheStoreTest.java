@@ -0,0 +1,109 @@
+package com.example.oqdpoc.service.cache;
+
+import com.example.oqdpoc.service.cache.CacheValueCodec.Compression;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RedisPdfCacheStoreTest {
+
+    private final Map<String, byte[]> redis = new HashMap<>();
+    private final List<Integer> multiGetSizes = new ArrayList<>();
+    private int pipelines;
+    private RedisPdfCacheStore store;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, byte[]> template = mock(RedisTemplate.class);
+        ValueOperations<String, byte[]> values = mock(ValueOperations.class);
+        when(template.opsForValue()).thenReturn(values);
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(values).set(anyString(), any(byte[].class), any(Duration.class));
+        when(values.get(anyString())).thenAnswer(invocation -> redis.get(invocation.<String>getArgument(0)));
+        when(values.multiGet(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> keys = invocation.getArgument(0);
+            multiGetSizes.add(keys.size());
+            return keys.stream().map(redis::get).toList();
+        });
+        when(template.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            pipelines++;
+            invocation.<SessionCallback<?>>getArgument(0).execute(template);
+            return List.of();
+        });
+        when(template.delete(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).stream().filter(key -> redis.remove(key) != null).count());
+
+        store = new RedisPdfCacheStore(template, new CacheValueCodec(Compression.NONE), "pdf-cache:",
+                Duration.ofHours(1), 100);
+    }
+
+    @Test
+    void put_shouldStoreSmallPdfsUnderOneKey() {
+        store.put("k", pdf(50));
+
+        assertEquals(List.of("pdf-cache:k"), List.copyOf(redis.keySet()));
+        assertArrayEquals(pdf(50), store.find("k").orElseThrow());
+    }
+
+    @Test
+    void put_shouldSplitLargePdfsIntoChunks() {
+        store.put("k", pdf(250));
+
+        assertEquals(4, redis.size(), "manifest and three chunks");
+        assertTrue(redis.get("pdf-cache:k:2").length <= 100);
+        assertArrayEquals(pdf(250), store.find("k").orElseThrow());
+    }
+
+    @Test
+    void putAndFind_shouldMoveChunksInBoundedGroups() {
+        int chunks = RedisPdfCacheStore.CHUNKS_PER_CALL * 2 + 1;
+        store.put("k", pdf(chunks * 100 - 50));
+
+        assertEquals(3, pipelines);
+        assertArrayEquals(pdf(chunks * 100 - 50), store.find("k").orElseThrow());
+        assertEquals(List.of(RedisPdfCacheStore.CHUNKS_PER_CALL, RedisPdfCacheStore.CHUNKS_PER_CALL, 1),
+                multiGetSizes);
+    }
+
+    @Test
+    void find_shouldMissWhenAChunkIsGone() {
+        store.put("k", pdf(250));
+        redis.remove("pdf-cache:k:1");
+
+        assertTrue(store.find("k").isEmpty());
+    }
+
+    @Test
+    void evict_shouldDeleteTheManifestAndItsChunks() {
+        store.put("k", pdf(250));
+
+        store.evict("k");
+
+        assertTrue(redis.isEmpty());
+    }
+
+    private static byte[] pdf(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.oqdpoc.service.cache;
+
+import com.example.oqdpoc.config.PdfCacheProperties;
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.LayoutEngine;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class RenderedPdfCacheTest {
+
+    private static final LocalDateTime REPORT_DATE = LocalDateTime.of(2024, 5, 1, 10, 30);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final PdfCacheProperties properties = new PdfCacheProperties();
+    private PdfCacheStore store;
+    private RenderedPdfCache cache;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(PdfCacheStore.class);
+        cache = newCache();
+    }
+
+    @Test
+    void key_shouldIgnoreJsonFormattingAndPropertyOrder() throws Exception {
+        JobTicket compact = objectMapper.readValue(
+                "{\"id\":\"T1\",\"userId\":\"u\",\"flatAnswers\":{\"b\":1,\"a\":2}}", JobTicket.class);
+        JobTicket reordered = objectMapper.readValue(
+                "{ \"flatAnswers\": { \"a\": 2, \"b\": 1 },\n  \"userId\": \"u\", \"id\": \"T1\" }", JobTicket.class);
+
+        assertEquals(cache.key(compact, null, null, REPORT_DATE), cache.key(reordered, null, null, REPORT_DATE));
+    }
+
+    @Test
+    void key_shouldChangeWithEveryRenderInput() throws Exception {
+        JobTicket jobTicket = objectMapper.readValue("{\"id\":\"T1\"}", JobTicket.class);
+        WorkOrder workOrder = objectMapper.readValue("{\"wonum\":\"WO-1\"}", WorkOrder.class);
+        String key = cache.key(jobTicket, null, null, REPORT_DATE);
+
+        assertEquals(64, key.length());
+        assertEquals(key, cache.key(jobTicket, null, Profile.FAST, REPORT_DATE), "null means the default profile");
+        assertNotEquals(key, cache.key(jobTicket, null, Profile.ACCESSIBLE, REPORT_DATE));
+        assertNotEquals(key, cache.key(jobTicket, workOrder, null, REPORT_DATE));
+        assertNotEquals(key, cache.key(jobTicket, null, null, REPORT_DATE.plusMinutes(1)));
+        assertEquals(key, cache.key(jobTicket, null, null, REPORT_DATE, LayoutEngine.HTML));
+        assertNotEquals(key, cache.key(jobTicket, null, null, REPORT_DATE, LayoutEngine.NATIVE));
+
+        properties.setVersion("2");
+        assertNotEquals(key, newCache().key(jobTicket, null, null, REPORT_DATE));
+    }
+
+    @Test
+    void key_shouldCoverTheDatesOfTheWorkOrder() throws Exception {
+        JobTicket jobTicket = objectMapper.readValue("{\"id\":\"T1\"}", JobTicket.class);
+        WorkOrder workOrder = objectMapper.readValue(
+                "{\"wonum\":\"WO-1\",\"schedstart\":\"2024-03-01T08:00:00+01:00\"}", WorkOrder.class);
+        WorkOrder later = objectMapper.readValue(
+                "{\"wonum\":\"WO-1\",\"schedstart\":\"2024-03-01T09:00:00+01:00\"}", WorkOrder.class);
+
+        assertNotEquals(cache.key(jobTicket, workOrder, null, REPORT_DATE),
+                cache.key(jobTicket, later, null, REPORT_DATE));
+    }
+
+    @Test
+    void key_shouldChangeWithTheSplitSettings() throws Exception {
+        JobTicket jobTicket = objectMapper.readValue("{\"id\":\"T1\"}", JobTicket.class);
+        String unsplit = cache.key(jobTicket, null, null, REPORT_DATE);
+
+        PdfRenderProperties renderProperties = new PdfRenderProperties();
+        renderProperties.getSplit().setEnabled(true);
+        renderProperties.getSplit().setParallelism(4);
+        String split = newCache(renderProperties).key(jobTicket, null, null, REPORT_DATE);
+        renderProperties.getSplit().setParallelism(2);
+        String fewerChunks = newCache(renderProperties).key(jobTicket, null, null, REPORT_DATE);
+        renderProperties.getSplit().setMinSectionsPerChunk(8);
+        String largerChunks = newCache(renderProperties).key(jobTicket, null, null, REPORT_DATE);
+
+        assertEquals(4, List.of(unsplit, split, fewerChunks, largerChunks).stream().distinct().count());
+        renderProperties.getSplit().setEnabled(false);
+        assertEquals(unsplit, newCache(renderProperties).key(jobTicket, null, null, REPORT_DATE));
+    }
+
+    @Test
+    void key_shouldIgnoreDatePatternsTheModelCannotWrite() {
+        WorkOrder workOrder = new OffsetPatternWorkOrder();
+        workOrder.setScheduledStart(LocalDateTime.of(2024, 3, 1, 8, 0));
+        WorkOrder later = new OffsetPatternWorkOrder();
+        later.setScheduledStart(LocalDateTime.of(2024, 3, 1, 9, 0));
+        assertThrows(JsonProcessingException.class, () -> objectMapper.writeValueAsString(workOrder));
+
+        JobTicket jobTicket = new JobTicket();
+        assertNotEquals(cache.key(jobTicket, workOrder, null, REPORT_DATE),
+                cache.key(jobTicket, later, null, REPORT_DATE));
+    }
+
+    @Test
+    void find_shouldTreatStoreFailuresAsMisses() {
+        when(store.find(anyString())).thenThrow(new IllegalStateException("redis down"));
+        doThrow(new IllegalStateException("redis down")).when(store).put(anyString(), any());
+
+        assertEquals(Optional.empty(), cache.find("k"));
+        assertDoesNotThrow(() -> cache.put("k", new byte[1]));
+    }
+
+    @Test
+    void put_shouldStopWaitingForASlowStore() throws Exception {
+        CountDownLatch redisBack = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            redisBack.await();
+            return null;
+        }).when(store).put(anyString(), any());
+        properties.setWriteWait(Duration.ofMillis(50));
+        RenderedPdfCache slow = newCache();
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> slow.put("k", new byte[1]));
+
+        redisBack.countDown();
+        verify(store, timeout(1000)).put("k", new byte[1]);
+        slow.shutdown();
+    }
+
+    @Test
+    void disabledCache_shouldNotTouchTheStore() {
+        properties.setEnabled(false);
+        RenderedPdfCache disabled = newCache();
+
+        disabled.put("k", new byte[1]);
+
+        assertEquals(Optional.empty(), disabled.find("k"));
+        verifyNoInteractions(store);
+    }
+
+    private RenderedPdfCache newCache() {
+        return newCache(new PdfRenderProperties());
+    }
+
+    private RenderedPdfCache newCache(PdfRenderProperties renderProperties) {
+        return new RenderedPdfCache(store, properties, renderProperties, objectMapper, new SimpleMeterRegistry());
+    }
+
+    /**
+     * A work order whose date carries an offset pattern, which a {@code LocalDateTime} cannot be written with.
+     */
+    private static final class OffsetPatternWorkOrder extends WorkOrder {
+        @Override
+        @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ssXXX")
+        public LocalDateTime getScheduledStart() {
+            return super.getScheduledStart();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.oqdpoc.service.job;
+
+import com.example.oqdpoc.model.renderjob.RenderJobState;
+import com.example.oqdpoc.model.renderjob.RenderJobStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRenderJobStoreTest {
+
+    private static final Duration TTL = Duration.ofMinutes(15);
+
+    private MutableClock clock;
+    private InMemoryRenderJobStore store;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2024-01-01T00:00:00Z"));
+        store = new InMemoryRenderJobStore(TTL, 10, clock);
+    }
+
+    @Test
+    void findStatus_shouldReturnCopyOfSavedStatus() {
+        RenderJobStatus status = new RenderJobStatus("job-1", null, clock.instant());
+        store.saveStatus(status);
+
+        status.setState(RenderJobState.FAILED);
+
+        RenderJobStatus found = store.findStatus("job-1").orElseThrow();
+        assertEquals(RenderJobState.QUEUED, found.getState());
+        assertNotSame(status, found);
+    }
+
+    @Test
+    void entries_shouldExpireAfterTtl() {
+        store.saveStatus(new RenderJobStatus("job-1", null, clock.instant()));
+        store.saveResult("job-1", new byte[]{1, 2, 3});
+
+        clock.advance(TTL.minusSeconds(1));
+        assertTrue(store.findStatus("job-1").isPresent());
+        assertArrayEquals(new byte[]{1, 2, 3}, store.findResult("job-1").orElseThrow());
+
+        clock.advance(Duration.ofSeconds(1));
+        assertTrue(store.findStatus("job-1").isEmpty());
+        assertTrue(store.findResult("job-1").isEmpty());
+    }
+
+    @Test
+    void saveStatus_shouldRefreshExpiry() {
+        RenderJobStatus status = new RenderJobStatus("job-1", null, clock.instant());
+        store.saveStatus(status);
+
+        clock.advance(TTL.minusMinutes(1));
+        status.setState(RenderJobState.SUCCEEDED);
+        store.saveStatus(status);
+
+        clock.advance(Duration.ofMinutes(5));
+        assertEquals(RenderJobState.SUCCEEDED, store.findStatus("job-1").orElseThrow().getState());
+    }
+
+    @Test
+    void saveResult_shouldEvictLeastRecentlyUsedResultsBeyondMaxSize() {
+        store.saveResult("job-1", new byte[4]);
+        store.saveResult("job-2", new byte[4]);
+        store.findResult("job-1");
+
+        store.saveResult("job-3", new byte[4]);
+
+        assertTrue(store.findResult("job-1").isPresent());
+        assertTrue(store.findResult("job-2").isEmpty());
+        assertTrue(store.findResult("job-3").isPresent());
+        assertEquals(8, store.getResultBytes());
+    }
+
+    @Test
+    void saveResult_shouldNotKeepResultsLargerThanMaxSize() {
+        store.saveResult("job-1", new byte[4]);
+
+        store.saveResult("job-2", new byte[11]);
+
+        assertTrue(store.findResult("job-1").isPresent());
+        assertTrue(store.findResult("job-2").isEmpty());
+        assertEquals(4, store.getResultBytes());
+    }
+
+    @Test
+    void delete_shouldRemoveStatusAndResult() {
+        store.saveStatus(new RenderJobStatus("job-1", null, clock.instant()));
+        store.saveResult("job-1", new byte[]{1});
+
+        store.delete("job-1");
+
+        assertTrue(store.findStatus("job-1").isEmpty());
+        assertTrue(store.findResult("job-1").isEmpty());
+        assertEquals(0, store.getResultBytes());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
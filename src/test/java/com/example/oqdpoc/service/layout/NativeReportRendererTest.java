@@ -0,0 +1,204 @@
+package com.example.oqdpoc.service.layout;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.LayoutEngine;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.model.report.ReportViewModel;
+import com.example.oqdpoc.model.report.ReportViewModel.FileLink;
+import com.example.oqdpoc.model.report.ReportViewModel.MetadataEntry;
+import com.example.oqdpoc.model.report.ReportViewModel.QuestionView;
+import com.example.oqdpoc.model.report.ReportViewModel.ResponseKind;
+import com.example.oqdpoc.model.report.ReportViewModel.SectionView;
+import com.example.oqdpoc.model.report.ReportViewModel.SignatureView;
+import com.example.oqdpoc.model.report.ReportViewModel.WorkOrderView;
+import com.example.oqdpoc.service.OfflineResourceResolver;
+import com.example.oqdpoc.service.ReportViewModelBuilder;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NativeReportRendererTest {
+
+    private static final Instant CREATED = Instant.parse("2024-03-05T14:07:00Z");
+
+    private PdfRenderProperties properties;
+    private NativeReportRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PdfRenderProperties();
+        renderer = new NativeReportRenderer(properties, new ReportViewModelBuilder(),
+                new OfflineResourceResolver(properties));
+    }
+
+    @Test
+    void handles_shouldFollowTheRequestThenTheConfigurationAndOnlyTheFastProfile() {
+        assertFalse(renderer.handles(null, null), "HTML is the default engine");
+        assertTrue(renderer.handles(LayoutEngine.NATIVE, null));
+        assertTrue(renderer.handles(LayoutEngine.NATIVE, Profile.FAST));
+        assertFalse(renderer.handles(LayoutEngine.NATIVE, Profile.ACCESSIBLE), "no tagged or PDF/A output");
+
+        properties.setLayoutEngine(LayoutEngine.NATIVE);
+
+        assertTrue(renderer.handles(null, null));
+        assertFalse(renderer.handles(LayoutEngine.HTML, null));
+        properties.setDefaultProfile(Profile.ACCESSIBLE);
+        assertFalse(renderer.handles(null, null));
+    }
+
+    @Test
+    void render_shouldDrawEveryPartOfTheReport() throws Exception {
+        String image = pngDataUrl(40, 20);
+        QuestionView signed = new QuestionView("Signed off", null, ResponseKind.SIGNATURE, null, false, List.of(),
+                new SignatureView("J. Doe", "Inspector", "Mar 01, 2024 10:00", image), List.of(), null, List.of(),
+                List.of());
+        QuestionView files = new QuestionView("Photos", null, ResponseKind.FILE, null, false, List.of(), null,
+                List.of(new FileLink("report.pdf", "https://files/1", "(12 KB)")), null, List.of(), List.of());
+        QuestionView other = new QuestionView("Notes", "Check the gauge", ResponseKind.NONE, null, false, List.of(),
+                null, List.of(), "<p>Follow <b>up</b> &amp; fix</p><p>next quarter</p>",
+                List.of(image, "data:image/png;base64,broken"), List.of(new MetadataEntry("unit", "bar")));
+        QuestionView choice = new QuestionView("Methods", null, ResponseKind.CHOICE, null, false,
+                List.of("Visual", "Pressure test"), null, List.of(), null, List.of(), List.of());
+        ReportViewModel report = report(List.of(new SectionView("Pump & valve", "Checks of the pump",
+                List.of(text("Reading", "Within tolerance\nno leaks"), choice, signed, files, other))));
+
+        byte[] pdf = render(report);
+
+        try (PDDocument document = PDDocument.load(pdf)) {
+            String text = new PDFTextStripper().getText(document);
+            for (String expected : List.of("Job Ticket Report", "Report date: Mar 05, 2024 at 14:07",
+                    "Pump inspection checklist", "Checklist ID:", "ticket-1", "Report Information", "Equipment",
+                    "Work Order Information", "Inspect pump.", "Pump & valve", "Checks of the pump",
+                    "Within tolerance", "Pressure test", "J. Doe", "Signed on Mar 01, 2024 10:00",
+                    "report.pdf (12 KB)", "Follow up & fix", "next quarter", "[Image not available]",
+                    "unit: bar", "i  Check the gauge", "Page 1 of ")) {
+                assertTrue(text.contains(expected), expected + " missing from:\n" + text);
+            }
+            int links = 0;
+            Set<COSBase> images = new HashSet<>();
+            for (PDPage page : document.getPages()) {
+                links += page.getAnnotations().size();
+                for (COSName name : page.getResources().getXObjectNames()) {
+                    if (page.getResources().getXObject(name) instanceof PDImageXObject xObject) {
+                        images.add(xObject.getCOSObject());
+                    }
+                }
+            }
+            assertEquals(1, links, "the file link");
+            assertEquals(2, images.size(), "the logo, and the image shared by the signature and the attachment");
+            assertEquals("oqe-pdf-service", document.getDocumentInformation().getProducer());
+            assertEquals(CREATED, document.getDocumentInformation().getCreationDate().toInstant());
+        }
+    }
+
+    @Test
+    void render_shouldPaginateLongReportsAndNumberEveryPage() throws Exception {
+        List<SectionView> sections = new ArrayList<>();
+        for (int s = 0; s < 20; s++) {
+            List<QuestionView> questions = new ArrayList<>();
+            for (int q = 0; q < 10; q++) {
+                questions.add(text("Question " + s + "." + q, "Answer " + s + "." + q + " ".repeat(3)
+                        + "with enough words to wrap onto a second line of the answer column ".repeat(2)));
+            }
+            sections.add(new SectionView("Section " + s, null, questions));
+        }
+
+        byte[] pdf = render(report(sections));
+
+        try (PDDocument document = PDDocument.load(pdf)) {
+            int pages = document.getNumberOfPages();
+            assertTrue(pages > 5, "pages: " + pages);
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(pages);
+            stripper.setEndPage(pages);
+            String last = stripper.getText(document);
+            assertTrue(last.contains("Page " + pages + " of " + pages), last);
+            assertTrue(new PDFTextStripper().getText(document).contains("Answer 19.9"));
+        }
+    }
+
+    @Test
+    void render_shouldBeByteIdenticalForTheSameReport() throws Exception {
+        ReportViewModel report = report(List.of(new SectionView("Checks", null,
+                List.of(text("Reading", "Fine")))));
+
+        byte[] first = render(report);
+        Thread.sleep(5);
+        byte[] second = render(report);
+
+        assertArrayEquals(first, second);
+    }
+
+    @Test
+    void render_shouldReplaceCharactersTheStandardFontsCannotShow() throws Exception {
+        ReportViewModel report = report(List.of(new SectionView("Überprüfung — 检查", null,
+                List.of(text("Tab\there", "ok")))));
+
+        try (PDDocument document = PDDocument.load(render(report))) {
+            String text = new PDFTextStripper().getText(document);
+            assertTrue(text.contains("Überprüfung — ??"), text);
+            assertTrue(text.contains("Tab here"), text);
+        }
+    }
+
+    @Test
+    void plainText_shouldKeepTheLinesOfCommentMarkup() {
+        assertEquals("Follow up & fix\nnext quarter",
+                NativeReportRenderer.plainText("<p>Follow\n <b>up</b> &amp; fix</p><p>next quarter</p>"));
+        assertEquals("a\nb", NativeReportRenderer.plainText("a<br>b"));
+    }
+
+    @Test
+    void wrap_shouldBreakAtSpacesAndInsideOverlongWords() {
+        TextMetrics metrics = TextMetrics.REGULAR;
+        float width = metrics.width("aaaa aaaa", 10);
+
+        assertEquals(List.of("aaaa aaaa", "aaaa"), metrics.wrap("aaaa aaaa aaaa", 10, width));
+        assertEquals(List.of("aaaaaaaa", "aaaa"), metrics.wrap("aaaaaaaaaaaa", 10, width));
+        assertEquals(List.of("one", "", "two"), metrics.wrap("one\n\ntwo", 10, width));
+    }
+
+    private byte[] render(ReportViewModel report) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        renderer.render(report, CREATED, out);
+        return out.toByteArray();
+    }
+
+    private static ReportViewModel report(List<SectionView> sections) {
+        WorkOrderView workOrder = new WorkOrderView("1001", "Pump inspection", List.of("Inspect pump.",
+                "Replace seal."), "A-77", "PM", "—", "Mar 01, 2024 08:00", "—", "—", "—", "—", "—", "—", "—",
+                "true", "—", "—", "—", "—");
+        return new ReportViewModel("Pump inspection checklist", "Mar 05, 2024 at 14:07", "ticket-1", "WO-1",
+                "Quarterly", "2024-03-01 09:00", "a@example.com", "Cooling pump", "PN-1", "SN-1", workOrder,
+                sections);
+    }
+
+    private static QuestionView text(String title, String answer) {
+        return new QuestionView(title, null, ResponseKind.TEXT, answer, true, List.of(), null, List.of(), null,
+                List.of(), List.of());
+    }
+
+    private static String pngDataUrl(int width, int height) throws IOException {
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", png);
+        return "data:image/png;base64," + Base64.getEncoder().encodeToString(png.toByteArray());
+    }
+}
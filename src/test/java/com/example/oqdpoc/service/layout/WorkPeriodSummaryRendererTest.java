@@ -0,0 +1,196 @@
+package com.example.oqdpoc.service.layout;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.WorkPeriodProperties;
+import com.example.oqdpoc.exception.InvalidRequestException;
+import com.example.oqdpoc.exception.RenderQueueFullException;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.example.oqdpoc.service.layout.WorkPeriodSummaryRenderer.Summary;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkPeriodSummaryRendererTest {
+
+    private static final LocalDateTime GENERATED = LocalDateTime.of(2024, 3, 5, 14, 7);
+
+    // As configured by Spring Boot
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WorkPeriodProperties properties;
+    private WorkPeriodSummaryRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WorkPeriodProperties();
+        // Page content beyond a few pages goes to the scratch file
+        properties.getSummary().setScratchMemory(DataSize.ofKilobytes(64));
+        renderer = new WorkPeriodSummaryRenderer(new PdfRenderProperties(), properties,
+                new JobTicketRequestReader(objectMapper), meterRegistry);
+    }
+
+    @Test
+    void write_shouldDrawARowPerWorkOrderAndCountThemByStatus() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Summary summary = renderer.write(shortWorkPeriod(120, "17, {\"wonum\": \"BAD\", \"schedstart\": \"soon\"}"),
+                GENERATED, out);
+
+        assertEquals(120, summary.workOrders());
+        assertEquals(2, summary.skipped());
+        assertTrue(summary.peakHeapBytes() > 0);
+        try (PDDocument pdf = PDDocument.load(out.toByteArray())) {
+            assertEquals(summary.pages(), pdf.getNumberOfPages());
+            assertTrue(pdf.getNumberOfPages() > 2, "pages: " + pdf.getNumberOfPages());
+            PDFTextStripper stripper = new PDFTextStripper();
+            stripper.setStartPage(2);
+            stripper.setEndPage(2);
+            String second = stripper.getText(pdf);
+            assertTrue(second.contains("Work Order"), "headings on every page: " + second);
+            assertTrue(second.contains("Page 2 of " + summary.pages()), second);
+            assertTrue(second.contains("Generated: 2024-03-05 14:07"), second);
+
+            String text = new PDFTextStripper().getText(pdf);
+            assertTrue(text.contains("WO100000"), text);
+            assertTrue(text.indexOf("WO100000") < text.indexOf("WO100119"), "rows in input order");
+            assertTrue(text.contains("2024-03-01 08:00"), text);
+            assertTrue(text.contains("Inspection of pump 7 with a descripti... APPR"),
+                    "descriptions cut to one line: " + text);
+            assertFalse(text.contains("BAD"), text);
+            assertTrue(text.contains("APPR 80"), text);
+            assertTrue(text.contains("WAPPR 40"), text);
+            assertTrue(text.contains("Total 120"), text);
+            assertTrue(text.contains("Not readable, left out 2"), text);
+        }
+        assertEquals(120, meterRegistry.get("pdf.summary.work-orders").counter().count());
+        assertEquals(1, meterRegistry.get("pdf.summary.render.duration").timer().count());
+        assertTrue(meterRegistry.get("pdf.summary.throughput").summary().totalAmount() > 0);
+        assertEquals(summary.peakHeapBytes(), meterRegistry.get("pdf.summary.jvm.heap.peak").summary().max());
+    }
+
+    @Test
+    void write_shouldReadTheWorkOrdersAsTheyArrive() throws Exception {
+        // Far more work orders than fit in memory as a string or a tree, generated while they are read
+        int count = 5_000;
+        Iterator<InputStream> parts = IntStream.rangeClosed(-1, count)
+                .mapToObj(i -> i < 0 ? "{\"member\": [" : i == count ? "]}" : (i > 0 ? "," : "") + member(i))
+                .map(json -> (InputStream) new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)))
+                .iterator();
+
+        Enumeration<InputStream> input = new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return parts.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return parts.next();
+            }
+        };
+
+        Summary summary = renderer.write(new SequenceInputStream(input), GENERATED, OutputStream.nullOutputStream());
+
+        assertEquals(count, summary.workOrders());
+        assertTrue(summary.pages() > 50, "pages: " + summary.pages());
+    }
+
+    @Test
+    void write_shouldRejectWhatIsNotAShortWorkPeriodBeforeWritingAnything() {
+        for (String json : new String[]{"[]", "{\"href\": \"x\"}", "{\"member\": [{\"wonum\": \"WO1\"}", "nope"}) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertThrows(InvalidRequestException.class, () -> renderer.write(
+                    new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), GENERATED, out), json);
+            assertEquals(0, out.size(), json);
+        }
+    }
+
+    @Test
+    void write_shouldRefuseSummariesBeyondItsOwnSlotsWhileAnUploadIsSlow() throws Exception {
+        properties.getSummary().setMaxConcurrent(1);
+        renderer = new WorkPeriodSummaryRenderer(new PdfRenderProperties(), properties,
+                new JobTicketRequestReader(objectMapper), meterRegistry);
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch arrived = new CountDownLatch(1);
+        // An upload whose rest has not arrived yet
+        InputStream slow = new SequenceInputStream(
+                new ByteArrayInputStream("{\"member\": [".getBytes(StandardCharsets.UTF_8)),
+                new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        reading.countDown();
+                        try {
+                            arrived.await();
+                        } catch (InterruptedException e) {
+                            throw new IOException(e);
+                        }
+                        return -1;
+                    }
+                });
+        CompletableFuture<Summary> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return renderer.write(slow, GENERATED, new ByteArrayOutputStream());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        try {
+            assertTrue(reading.await(5, TimeUnit.SECONDS));
+
+            RenderQueueFullException refused = assertThrows(RenderQueueFullException.class,
+                    () -> renderer.write(shortWorkPeriod(1, member(1)), GENERATED, new ByteArrayOutputStream()));
+            assertTrue(refused.getRetryAfterSeconds() >= 1);
+        } finally {
+            arrived.countDown();
+        }
+        // The truncated upload is refused, and its slot is given back
+        assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertEquals(3, renderer.write(shortWorkPeriod(2, member(2)), GENERATED, new ByteArrayOutputStream())
+                .workOrders());
+    }
+
+    private static InputStream shortWorkPeriod(int count, String extraMembers) {
+        StringBuilder json = new StringBuilder("{\"href\": \"x\", \"member\": [");
+        for (int i = 0; i < count; i++) {
+            json.append(i > 0 ? "," : "").append(member(i));
+        }
+        json.append(", ").append(extraMembers).append("], \"responseInfo\": {}}");
+        return new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String member(int i) {
+        String description = i == 7 ? "Inspection of pump 7 with a description far too long for its column"
+                : "Inspection of pump " + i;
+        return """
+                {"wonum": "WO%d", "description": "%s", "status": "%s", "worktype": "PM", "assetnum": "A-%d",
+                 "schedstart": "2024-03-01T08:00:00+01:00", "schedfinish": "2024-03-01T17:00:00+01:00",
+                 "labor": [{"laborcode": "JDOE", "hours": 4.5}]}"""
+                .formatted(100000 + i, description, i % 3 == 2 ? "WAPPR" : "APPR", i);
+    }
+}
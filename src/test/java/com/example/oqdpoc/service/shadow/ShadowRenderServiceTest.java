@@ -0,0 +1,191 @@
+package com.example.oqdpoc.service.shadow;
+
+import com.example.oqdpoc.config.PdfRenderProperties;
+import com.example.oqdpoc.config.PdfRenderProperties.LayoutEngine;
+import com.example.oqdpoc.config.PdfRenderProperties.Profile;
+import com.example.oqdpoc.config.PdfRenderProperties.TemplateBackend;
+import com.example.oqdpoc.exception.PdfGenerationException;
+import com.example.oqdpoc.model.jobticket.JobTicket;
+import com.example.oqdpoc.service.JobTicketTemplateService;
+import com.example.oqdpoc.service.OfflineResourceResolver;
+import com.example.oqdpoc.service.PdfGenerationService;
+import com.example.oqdpoc.service.RenderBulkhead;
+import com.example.oqdpoc.service.ReportViewModelBuilder;
+import com.example.oqdpoc.service.layout.NativeReportRenderer;
+import com.example.oqdpoc.service.shadow.ShadowRenderService.Pipeline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class ShadowRenderServiceTest {
+
+    private static final LocalDateTime REPORT_DATE = LocalDateTime.of(2024, 3, 5, 14, 7);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private PdfRenderProperties properties;
+    private JobTicketTemplateService templateService;
+    private PdfGenerationService pdfGenerationService;
+    private NativeReportRenderer nativeReportRenderer;
+    private RenderBulkhead renderBulkhead;
+    private SimpleMeterRegistry meterRegistry;
+    private ShadowRenderService shadowRenderService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new PdfRenderProperties();
+        templateService = mock(JobTicketTemplateService.class);
+        pdfGenerationService = mock(PdfGenerationService.class);
+        nativeReportRenderer = new NativeReportRenderer(properties, new ReportViewModelBuilder(),
+                new OfflineResourceResolver(properties));
+        meterRegistry = new SimpleMeterRegistry();
+        renderBulkhead = mock(RenderBulkhead.class);
+        shadowRenderService = new ShadowRenderService(properties, templateService, pdfGenerationService,
+                nativeReportRenderer, renderBulkhead, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shadowRenderService.shutdown();
+    }
+
+    @Test
+    void sample_shouldOnlySampleWhenEnabled() {
+        properties.getShadow().setSampleRate(1);
+        assertFalse(shadowRenderService.sample());
+
+        properties.getShadow().setEnabled(true);
+        assertTrue(shadowRenderService.sample());
+
+        properties.getShadow().setSampleRate(0);
+        assertFalse(shadowRenderService.sample());
+    }
+
+    @Test
+    void sampleAndShadow_shouldSkipWhileRequestsWaitForARenderSlot() throws Exception {
+        properties.getShadow().setEnabled(true);
+        properties.getShadow().setSampleRate(1);
+        when(renderBulkhead.getQueueDepth()).thenReturn(1);
+
+        assertFalse(shadowRenderService.sample());
+        shadowRenderService.shadow(jobTicket("T1"), null, REPORT_DATE, Profile.FAST,
+                new Pipeline(LayoutEngine.NATIVE, null), new byte[0], 1);
+
+        assertEquals(2, meterRegistry.get("pdf.shadow.renders").tag("result", "skipped").counter().count());
+        verifyNoInteractions(templateService, pdfGenerationService);
+    }
+
+    @Test
+    void shadow_shouldRecordBothRendersAndHowFarApartTheyAre() throws Exception {
+        JobTicket jobTicket = jobTicket("T1");
+        byte[] primary = nativeReportRenderer.render(jobTicket, null, REPORT_DATE);
+        byte[] other = nativeReportRenderer.render(jobTicket("Another ticket"), null, REPORT_DATE);
+        Document document = mock(Document.class);
+        when(templateService.renderDocument(jobTicket, null, REPORT_DATE, TemplateBackend.COMPILED))
+                .thenReturn(document);
+        doAnswer(invocation -> {
+            invocation.getArgument(2, OutputStream.class).write(other);
+            return null;
+        }).when(pdfGenerationService).writePdf(eq(document), eq(Profile.FAST), any());
+        properties.getShadow().setLayoutEngine(LayoutEngine.HTML);
+        properties.getShadow().setTemplateBackend(TemplateBackend.COMPILED);
+
+        shadowRenderService.shadow(jobTicket, null, REPORT_DATE, Profile.FAST,
+                new Pipeline(LayoutEngine.NATIVE, null), primary, 5_000_000);
+
+        assertEquals(1, meterRegistry.get("pdf.shadow.renders").tag("result", "completed").counter().count());
+        assertEquals(5, meterRegistry.get("pdf.shadow.render.duration").tags("role", "primary", "pipeline", "native")
+                .timer().totalTime(TimeUnit.MILLISECONDS));
+        assertEquals(1, meterRegistry.get("pdf.shadow.render.duration")
+                .tags("role", "shadow", "pipeline", "html-compiled").timer().count());
+        assertEquals(other.length, meterRegistry.get("pdf.shadow.size").tags("role", "shadow").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("pdf.shadow.pages").tags("role", "primary").summary().totalAmount());
+        DistributionSummary text = meterRegistry.get("pdf.shadow.diff")
+                .tags("kind", "text", "primary", "native", "shadow", "html-compiled").summary();
+        DistributionSummary visual = meterRegistry.get("pdf.shadow.diff").tags("kind", "visual").summary();
+        assertEquals(1, text.count());
+        assertTrue(text.totalAmount() > 0 && text.totalAmount() < 0.5, "diff: " + text.totalAmount());
+        assertTrue(visual.totalAmount() > 0 && visual.totalAmount() < 0.1, "diff: " + visual.totalAmount());
+    }
+
+    @Test
+    void shadow_shouldScoreIdenticalRendersZeroAndKeepTheNativeEngineToTheFastProfile() throws Exception {
+        JobTicket jobTicket = jobTicket("T1");
+        byte[] primary = nativeReportRenderer.render(jobTicket, null, REPORT_DATE);
+
+        shadowRenderService.shadow(jobTicket, null, REPORT_DATE, Profile.FAST,
+                new Pipeline(LayoutEngine.NATIVE, TemplateBackend.THYMELEAF), primary, 1);
+
+        assertEquals(0, meterRegistry.get("pdf.shadow.diff").tags("kind", "text", "shadow", "native").summary()
+                .totalAmount());
+        assertEquals(0, meterRegistry.get("pdf.shadow.diff").tags("kind", "visual").summary().totalAmount());
+
+        // The native engine does not render ACCESSIBLE: the shadow falls back to HTML, as requests do
+        properties.getShadow().setLayoutEngine(LayoutEngine.NATIVE);
+        doThrow(new PdfGenerationException("no fonts")).when(pdfGenerationService)
+                .writePdf(any(), eq(Profile.ACCESSIBLE), any());
+
+        shadowRenderService.shadow(jobTicket, null, REPORT_DATE, Profile.ACCESSIBLE,
+                new Pipeline(LayoutEngine.HTML, null), primary, 1);
+
+        assertEquals(1, meterRegistry.get("pdf.shadow.renders").tag("result", "failed").counter().count());
+    }
+
+    @Test
+    void submit_shouldDropSamplesWhenTheQueueIsFull() throws Exception {
+        properties.getShadow().setQueueCapacity(1);
+        ShadowRenderService service = new ShadowRenderService(properties, templateService, pdfGenerationService,
+                nativeReportRenderer, renderBulkhead, meterRegistry);
+        Object lock = new Object();
+        when(templateService.renderDocument(any(), isNull(), any(), any())).thenAnswer(invocation -> {
+            synchronized (lock) {
+                lock.wait(5_000);
+            }
+            throw new PdfGenerationException("stopped");
+        });
+        try {
+            for (int i = 0; i < 4; i++) {
+                service.submit(jobTicket("T1"), null, REPORT_DATE, Profile.FAST,
+                        new Pipeline(LayoutEngine.HTML, null), new byte[0], 1);
+            }
+
+            // One render running, one waiting
+            assertEquals(2, meterRegistry.get("pdf.shadow.renders").tag("result", "dropped").counter().count());
+        } finally {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void textDiff_shouldCompareTheWordsOfBothTexts() {
+        assertEquals(0, PdfComparison.textDiff("b a  a\n", "a b a"));
+        assertEquals(0, PdfComparison.textDiff("", " "));
+        assertEquals(1, PdfComparison.textDiff("a b", "c"));
+        assertEquals(0.5, PdfComparison.textDiff("a b", "a c"));
+        assertEquals(1 - 2.0 / 3, PdfComparison.textDiff("a a", "a"), 1e-9);
+    }
+
+    private JobTicket jobTicket(String id) throws Exception {
+        return objectMapper.readValue("{\"id\":\"" + id + "\"}", JobTicket.class);
+    }
+}
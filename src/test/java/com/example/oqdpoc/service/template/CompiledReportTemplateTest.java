@@ -0,0 +1,139 @@
+package com.example.oqdpoc.service.template;
+
+import com.example.oqdpoc.model.report.ReportViewModel;
+import com.example.oqdpoc.model.report.ReportViewModel.FileLink;
+import com.example.oqdpoc.model.report.ReportViewModel.MetadataEntry;
+import com.example.oqdpoc.model.report.ReportViewModel.QuestionView;
+import com.example.oqdpoc.model.report.ReportViewModel.ResponseKind;
+import com.example.oqdpoc.model.report.ReportViewModel.SectionView;
+import com.example.oqdpoc.model.report.ReportViewModel.SignatureView;
+import com.example.oqdpoc.model.report.ReportViewModel.WorkOrderView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The compiled templates must render byte for byte what Thymeleaf renders from the template sources.
+ */
+class CompiledReportTemplateTest {
+
+    private static final String HOSTILE = "<b>Tom & \"Jerry's\"</b> — ünïcode";
+
+    private SpringTemplateEngine templateEngine;
+
+    @BeforeEach
+    void setUp() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(resolver);
+    }
+
+    @Test
+    void jobTicket_shouldRenderLikeThymeleaf() {
+        ReportViewModel report = report(HOSTILE, workOrder(), List.of(section(HOSTILE, HOSTILE), section("Plain", null)));
+
+        assertSameOutput(report, "data:image/png;base64,iVBORw0", null, null);
+    }
+
+    @Test
+    void jobTicket_shouldRenderLikeThymeleafWithoutOptionalParts() {
+        ReportViewModel report = report(null, null, List.of());
+
+        assertSameOutput(report, null, null, null);
+    }
+
+    @Test
+    void jobTicket_shouldRenderLikeThymeleafWithPreRenderedSections() {
+        ReportViewModel report = report("Checklist", workOrder(), List.of(section("Checks", null)));
+
+        assertSameOutput(report, null, List.of("<div>one</div>", "\n<div>two & more</div>\n"), null);
+    }
+
+    @Test
+    void jobTicket_shouldRenderLikeThymeleafWithImages() {
+        ReportViewModel report = report("Checklist", null, List.of());
+
+        assertSameOutput(report, null, null, List.of());
+        assertSameOutput(report, null, null, List.of(""));
+        assertSameOutput(report, null, null, Arrays.asList("data:image/png;base64,AAA", null, "", "x\"y"));
+    }
+
+    @Test
+    void jobTicketSection_shouldRenderLikeThymeleaf() {
+        for (SectionView section : List.of(section(HOSTILE, HOSTILE), section("Empty", null),
+                new SectionView("No questions", "", List.of()))) {
+            Context context = new Context();
+            context.setVariable("section", section);
+            StringBuilder compiled = new StringBuilder();
+
+            CompiledJobTicketSectionTemplate.render(section, compiled);
+
+            assertEquals(templateEngine.process(CompiledJobTicketSectionTemplate.TEMPLATE, context), compiled.toString());
+        }
+    }
+
+    private void assertSameOutput(ReportViewModel report, String logoUrl, List<String> sectionFragments,
+                                  List<String> images) {
+        Context context = new Context();
+        context.setVariable("report", report);
+        context.setVariable("logoUrl", logoUrl);
+        context.setVariable("sectionFragments", sectionFragments);
+        context.setVariable("images", images);
+        StringBuilder compiled = new StringBuilder();
+
+        CompiledJobTicketTemplate.render(report, logoUrl, sectionFragments, images, compiled);
+
+        assertEquals(templateEngine.process(CompiledJobTicketTemplate.TEMPLATE, context), compiled.toString());
+    }
+
+    private static ReportViewModel report(String title, WorkOrderView workOrder, List<SectionView> sections) {
+        return new ReportViewModel(title, "Mar 05, 2024 at 14:07", "ticket-1", title != null ? "WO-1" : null,
+                title, title != null ? "2024-03-01 09:00" : null, title != null ? "a@example.com" : null, title,
+                "—", "SN-1", workOrder, sections);
+    }
+
+    private static WorkOrderView workOrder() {
+        return new WorkOrderView("1001", HOSTILE, List.of("Inspect pump.", "Replace <seal>."), "A-77", "PM", "—",
+                "Mar 01, 2024 08:00", "—", "—", "—", "—", "—", "—", "—", "true", "—", "—", "—", "—");
+    }
+
+    private static SectionView section(String title, String text) {
+        List<QuestionView> questions = new ArrayList<>();
+        questions.add(question(ResponseKind.TEXT, text, false));
+        questions.add(question(ResponseKind.TEXT, text, true));
+        questions.add(new QuestionView("Choice", null, ResponseKind.CHOICE, null, false, List.of("A", HOSTILE),
+                null, List.of(), null, List.of(), List.of()));
+        questions.add(new QuestionView("No choice", null, ResponseKind.CHOICE, null, false, List.of(), null,
+                List.of(), null, List.of(), List.of()));
+        questions.add(new QuestionView("Signed", null, ResponseKind.SIGNATURE, null, false, List.of(),
+                new SignatureView(HOSTILE, "Inspector", "Mar 01, 2024 10:00", "data:image/png;base64,AAA"),
+                List.of(), null, List.of(), List.of()));
+        questions.add(new QuestionView("Unsigned", null, ResponseKind.SIGNATURE, null, false, List.of(),
+                new SignatureView("Not signed", null, null, null), List.of(), null, List.of(), List.of()));
+        questions.add(new QuestionView("Files", null, ResponseKind.FILE, null, false, List.of(), null,
+                List.of(new FileLink("File 1", "https://files/1?a=1&b=2", "(12 KB)"),
+                        new FileLink("File 2", null, null)),
+                null, List.of(), List.of()));
+        questions.add(new QuestionView("Other", HOSTILE, ResponseKind.NONE, null, false, List.of(), null,
+                List.of(), "<b>Follow up</b> & more", List.of("data:image/png;base64,BBB", "data:x"),
+                List.of(new MetadataEntry("unit", "bar"), new MetadataEntry("note", HOSTILE))));
+        return new SectionView(title, text, questions);
+    }
+
+    private static QuestionView question(ResponseKind kind, String text, boolean paragraph) {
+        return new QuestionView("Text", "Check the gauge", kind, text, paragraph, List.of(), null, List.of(),
+                null, List.of(), List.of());
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.oqdpoc.service.workperiod;
+
+import com.example.oqdpoc.config.WorkPeriodProperties;
+import com.example.oqdpoc.exception.InvalidRequestException;
+import com.example.oqdpoc.exception.WorkPeriodNotFoundException;
+import com.example.oqdpoc.model.shortworkperiod.WorkOrder;
+import com.example.oqdpoc.service.JobTicketRequestReader;
+import com.example.oqdpoc.service.workperiod.WorkPeriodRegistry.Registration;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class WorkPeriodRegistryTest {
+
+    // As configured by Spring Boot
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final MutableClock clock = new MutableClock();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WorkPeriodProperties properties;
+    private JobTicketRequestReader reader;
+    private WorkPeriodRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        properties = new WorkPeriodProperties();
+        properties.setTtl(Duration.ofHours(1));
+        reader = spy(new JobTicketRequestReader(objectMapper));
+        registry = new WorkPeriodRegistry(reader, properties, meterRegistry, clock);
+    }
+
+    @Test
+    void register_shouldIndexTheWorkOrdersUnderTheHashOfTheUpload() throws Exception {
+        byte[] upload = shortWorkPeriod("WO1", "WO2", "WO1");
+
+        Registration registration = registry.register(upload);
+
+        // What sha256sum prints for the request body
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(upload)),
+                registration.id());
+        assertEquals(2, registration.workOrders());
+        assertEquals(upload.length, registration.sizeBytes());
+        assertEquals(clock.instant().plus(Duration.ofHours(1)), registration.expiresAt());
+        Map<String, WorkOrder> workOrders = registry.getWorkOrders(registration.id());
+        assertEquals("WO1 first", workOrders.get("WO1").getDescription());
+        assertThrows(UnsupportedOperationException.class, () -> workOrders.remove("WO1"));
+        assertEquals(1, meterRegistry.get("pdf.work-periods.lookups").tag("result", "hit").counter().count());
+        assertEquals(upload.length, meterRegistry.get("pdf.work-periods.size").gauge().value());
+    }
+
+    @Test
+    void register_shouldOnlyExtendTheTtlOfAShortWorkPeriodItAlreadyKeeps() {
+        byte[] upload = shortWorkPeriod("WO1");
+        Registration first = registry.register(upload);
+        clock.advance(Duration.ofMinutes(50));
+
+        Registration second = registry.register(upload.clone());
+        clock.advance(Duration.ofMinutes(50));
+
+        assertEquals(first.id(), second.id());
+        assertEquals(clock.instant().plus(Duration.ofMinutes(10)), second.expiresAt());
+        assertNotNull(registry.getWorkOrders(first.id()).get("WO1"));
+        verify(reader, times(1)).readWorkPeriod(upload);
+        assertEquals(upload.length, registry.getTotalBytes());
+    }
+
+    @Test
+    void getWorkOrders_shouldFailForUnknownExpiredOrEvictedShortWorkPeriods() {
+        String id = registry.register(shortWorkPeriod("WO1")).id();
+        String evicted = registry.register(shortWorkPeriod("WO2")).id();
+        registry.evict(evicted);
+
+        assertThrows(WorkPeriodNotFoundException.class, () -> registry.getWorkOrders("0".repeat(64)));
+        assertThrows(WorkPeriodNotFoundException.class, () -> registry.getWorkOrders(evicted));
+        assertTrue(registry.find(id).isPresent());
+
+        clock.advance(Duration.ofHours(1));
+
+        assertTrue(registry.find(id).isEmpty());
+        assertThrows(WorkPeriodNotFoundException.class, () -> registry.getWorkOrders(id));
+        assertEquals(0, registry.getTotalBytes());
+        assertEquals(3, meterRegistry.get("pdf.work-periods.lookups").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void register_shouldDropTheLeastRecentlyUsedBeyondMaxSize() {
+        byte[] a = shortWorkPeriod("A");
+        byte[] b = shortWorkPeriod("B");
+        byte[] c = shortWorkPeriod("C");
+        properties.setMaxSize(DataSize.ofBytes(a.length + b.length + c.length - 1));
+        String idA = registry.register(a).id();
+        String idB = registry.register(b).id();
+        registry.getWorkOrders(idA);
+
+        String idC = registry.register(c).id();
+
+        assertTrue(registry.find(idA).isPresent());
+        assertTrue(registry.find(idB).isEmpty());
+        assertTrue(registry.find(idC).isPresent());
+        assertEquals(a.length + c.length, registry.getTotalBytes());
+
+        assertThrows(InvalidRequestException.class, () -> registry.register(new byte[(int) properties.getMaxSize()
+                .toBytes() + 1]));
+    }
+
+    @Test
+    void register_shouldRefuseOversizedUploadsWithoutReadingThemInFull() throws Exception {
+        byte[] upload = shortWorkPeriod("WO1");
+        properties.setMaxSize(DataSize.ofBytes(upload.length));
+        InputStream unread = new ByteArrayInputStream(new byte[0]) {
+            @Override
+            public int read(byte[] b, int off, int len) {
+                throw new AssertionError("body read although its declared length is too large");
+            }
+        };
+        ByteArrayInputStream undeclared = new ByteArrayInputStream(new byte[upload.length * 10]);
+
+        assertThrows(InvalidRequestException.class, () -> registry.register(unread, upload.length + 1));
+        assertThrows(InvalidRequestException.class, () -> registry.register(undeclared, -1));
+        assertEquals(upload.length * 9 - 1, undeclared.available());
+
+        assertEquals(1, registry.register(new ByteArrayInputStream(upload), -1).workOrders());
+    }
+
+    @Test
+    void register_shouldPurgeExpiredShortWorkPeriods() {
+        String expired = registry.register(shortWorkPeriod("WO1")).id();
+        clock.advance(Duration.ofHours(1));
+
+        byte[] upload = shortWorkPeriod("WO2");
+        registry.register(upload);
+
+        assertEquals(upload.length, registry.getTotalBytes());
+        assertTrue(registry.find(expired).isEmpty());
+    }
+
+    @Test
+    void register_shouldRejectWhatIsNotAShortWorkPeriod() {
+        for (String upload : new String[]{"", "[]", "{\"member\": {}}", "{\"member\": [", "{\"member\": [1]}"}) {
+            assertThrows(InvalidRequestException.class,
+                    () -> registry.register(upload.getBytes(StandardCharsets.UTF_8)), upload);
+        }
+        assertEquals(0, registry.getTotalBytes());
+    }
+
+    private static byte[] shortWorkPeriod(String... workOrderNums) {
+        StringBuilder json = new StringBuilder("{\"member\": [");
+        for (int i = 0; i < workOrderNums.length; i++) {
+            json.append(i > 0 ? ", " : "").append("{\"wonum\": \"").append(workOrderNums[i])
+                    .append("\", \"description\": \"").append(workOrderNums[i]).append(i == 0 ? " first" : " later")
+                    .append("\"}");
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.oqdpoc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IsoDateTimeParserTest {
+
+    @Test
+    void parseOffsetDateTime_shouldAgreeWithJavaTime() {
+        Random random = new Random(42);
+        List<String> fractions = List.of("", ".1", ".123", ".123456", ".123456789");
+        List<String> offsets = List.of("Z", "+02:00", "-05:30", "+14:00", "-00:00");
+        for (int i = 0; i < 2_000; i++) {
+            LocalDateTime dateTime = LocalDateTime.of(1900 + random.nextInt(300), 1, 1, 0, 0)
+                    .plusSeconds(random.nextInt(366 * 24 * 3600));
+            String local = dateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss"))
+                    + fractions.get(random.nextInt(fractions.size()));
+            String offset = offsets.get(random.nextInt(offsets.size()));
+
+            assertEquals(OffsetDateTime.parse(local + offset), parse(local + offset), local + offset);
+            assertEquals(OffsetDateTime.of(LocalDateTime.parse(local), ZoneOffset.UTC), parse(local), local);
+        }
+    }
+
+    @Test
+    void parseOffsetDateTime_shouldReadTheVariantsSeenInRequests() {
+        assertEquals(OffsetDateTime.parse("2023-10-21T10:34:00+02:00"), parse("2023-10-21T10:34+02:00"));
+        assertEquals(OffsetDateTime.parse("2023-10-21T10:34:56+02:00"), parse("2023-10-21T10:34:56+0200"));
+        assertEquals(OffsetDateTime.parse("2023-10-21T10:34:56-03:00"),
+                IsoDateTimeParser.parseOffsetDateTime("2023-10-21T10:34:56", ZoneOffset.ofHours(-3)));
+        assertEquals(OffsetDateTime.parse("2024-02-29T00:00:00Z"), parse("\t2024-02-29T00:00:00Z \n"));
+        char[] buffer = "[\"2023-10-21T10:34:56.789Z\"]".toCharArray();
+        assertEquals(OffsetDateTime.parse("2023-10-21T10:34:56.789Z"),
+                IsoDateTimeParser.parseOffsetDateTime(buffer, 2, 24, ZoneOffset.UTC));
+    }
+
+    @Test
+    void parseOffsetDateTime_shouldRejectWhatIsNotADateTime() {
+        for (String text : List.of("", "   ", "not-a-valid-date", "2023-10-21", "2023-10-21 10:34:56",
+                "2023-10-21T10:34:5", "2023-10-21T10:34:56.", "2023-10-21T10:34:56.1234567890",
+                "2023-10-21T10:34:56+2", "2023-10-21T10:34:56+02:0", "2023-10-21T10:34:56+19:00",
+                "2023-10-21T10:34:56+02:60", "2023-10-21T10:34:56ZZ", "2023-10-21T10:34:56 Z", "2023-13-01T00:00:00",
+                "2023-02-29T00:00:00", "2023-04-31T00:00:00", "2023-10-21T24:00:00", "2023-10-21T10:60:00",
+                "2023-10-21T10:34:60", "2023-1a-21T10:34:56", "+2023-10-21T10:34:56", "2023-10-21t10:34:56")) {
+            assertNull(parse(text), text);
+            assertNull(IsoDateTimeParser.parseLocalDateTime(text), text);
+        }
+    }
+
+    @Test
+    void parseLocalDateTime_shouldKeepTheWallClockTimeAndIgnoreTheOffset() {
+        LocalDateTime expected = LocalDateTime.of(2024, 3, 1, 8, 0);
+
+        for (String text : List.of("2024-03-01T08:00:00+01:00", "2024-03-01T08:00:00Z", "2024-03-01T08:00",
+                "2024-03-01T08:00:00-0930")) {
+            assertEquals(expected, IsoDateTimeParser.parseLocalDateTime(text), text);
+        }
+        assertEquals(expected.withNano(120_000_000), IsoDateTimeParser.parseLocalDateTime("2024-03-01T08:00:00.12"));
+    }
+
+    private static OffsetDateTime parse(String text) {
+        return IsoDateTimeParser.parseOffsetDateTime(text, ZoneOffset.UTC);
+    }
+}